@@ -29,35 +29,15 @@ public class AsynchttpHelper {
     }
 
     public static boolean isLockAcquired() {
-        try {
-            return NewRelicSecurity.isHookProcessingActive() &&
-                    Boolean.TRUE.equals(NewRelicSecurity.getAgent().getSecurityMetaData().getCustomAttribute(getNrSecCustomAttribName(), Boolean.class));
-        } catch (Throwable ignored) {}
-        return false;
+        return GenericHelper.isLockAcquired(NR_SEC_CUSTOM_ATTRIB_NAME);
     }
 
     public static boolean acquireLockIfPossible() {
-        try {
-            if (NewRelicSecurity.isHookProcessingActive() &&
-                    !isLockAcquired()) {
-                NewRelicSecurity.getAgent().getSecurityMetaData().addCustomAttribute(getNrSecCustomAttribName(), true);
-                return true;
-            }
-        } catch (Throwable ignored){}
-        return false;
+        return GenericHelper.acquireLockIfPossible(NR_SEC_CUSTOM_ATTRIB_NAME);
     }
 
     public static void releaseLock() {
-        try {
-            if (NewRelicSecurity.isHookProcessingActive()) {
-                NewRelicSecurity.getAgent().getSecurityMetaData().addCustomAttribute(getNrSecCustomAttribName(), null);
-            }
-        } catch (Throwable ignored) {
-        }
-    }
-
-    private static String getNrSecCustomAttribName() {
-        return NR_SEC_CUSTOM_ATTRIB_NAME + Thread.currentThread().getId();
+        GenericHelper.releaseLock(NR_SEC_CUSTOM_ATTRIB_NAME);
     }
 
     public static AbstractOperation preprocessSecurityHook(String url, String className, String methodName) {
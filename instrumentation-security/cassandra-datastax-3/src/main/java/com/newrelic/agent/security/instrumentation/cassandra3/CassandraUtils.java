@@ -31,7 +31,7 @@ public class CassandraUtils {
 
     public static boolean acquireLockIfPossible(int hashcode) {
         try {
-            return GenericHelper.acquireLockIfPossible(NR_SEC_CASSANDRA_LOCK + hashcode);
+            return GenericHelper.acquireLockIfPossible(NR_SEC_CASSANDRA_LOCK, hashcode);
         } catch (Exception ignored){
         }
         return false;
@@ -137,7 +137,7 @@ public class CassandraUtils {
 
     public static void releaseLock(int hashcode) {
         try {
-            GenericHelper.releaseLock(NR_SEC_CASSANDRA_LOCK + hashcode);
+            GenericHelper.releaseLock(NR_SEC_CASSANDRA_LOCK, hashcode);
         } catch (Throwable ignored) {
         }
     }
@@ -66,34 +66,10 @@ public class GrpcClientUtils {
 
 
     public static void releaseLock() {
-        try {
-            if(NewRelicSecurity.isHookProcessingActive()) {
-                NewRelicSecurity.getAgent().getSecurityMetaData().addCustomAttribute(getNrSecCustomAttrName(), null);
-            }
-        } catch (Throwable ignored) {
-        }
-    }
-
-    private static String getNrSecCustomAttrName() {
-        return GrpcClientUtils.NR_SEC_CUSTOM_ATTRIB_NAME+Thread.currentThread().getId();
+        GenericHelper.releaseLock(NR_SEC_CUSTOM_ATTRIB_NAME);
     }
 
     public static boolean acquireLockIfPossible() {
-        try {
-            if (NewRelicSecurity.isHookProcessingActive() &&
-                    !isLockAcquired(getNrSecCustomAttrName())) {
-                NewRelicSecurity.getAgent().getSecurityMetaData().addCustomAttribute(getNrSecCustomAttrName(), true);
-                return true;
-            }
-        } catch (Throwable ignored){}
-        return false;
-    }
-
-    private static boolean isLockAcquired(String nrSecCustomAttrName) {
-        try {
-            return NewRelicSecurity.isHookProcessingActive() &&
-                    Boolean.TRUE.equals(NewRelicSecurity.getAgent().getSecurityMetaData().getCustomAttribute(nrSecCustomAttrName, Boolean.class));
-        } catch (Throwable ignored) {}
-        return false;
+        return GenericHelper.acquireLockIfPossible(NR_SEC_CUSTOM_ATTRIB_NAME);
     }
 }
@@ -87,7 +87,12 @@ public class GrpcServerUtils {
             securityRequest.setRequestParsed(true);
             NewRelicSecurity.getAgent().getSecurityMetaData().getMetaData().addReflectedMetaData(GrpcHelper.REQUEST_TYPE,
                     String.valueOf(methodDef.getMethodDescriptor().getType()));
+            ServletHelper.checkClientIpBlocking(securityMetaData);
         } catch (Throwable e) {
+            if (e instanceof NewRelicSecurityException) {
+                NewRelicSecurity.getAgent().log(LogLevel.FINE, String.format(GenericHelper.SECURITY_EXCEPTION_MESSAGE, GrpcUtils.GRPC_1_22_0, e.getMessage()), GrpcServerUtils.class.getName());
+                throw e;
+            }
             NewRelicSecurity.getAgent().log(LogLevel.WARNING, String.format(GenericHelper.ERROR_GENERATING_HTTP_REQUEST, GrpcUtils.GRPC_1_22_0, e.getMessage()), e, GrpcServerUtils.class.getName());
         }
     }
@@ -129,35 +134,11 @@ public class GrpcServerUtils {
 
 
     public static void releaseLock() {
-        try {
-            if(NewRelicSecurity.isHookProcessingActive()) {
-                NewRelicSecurity.getAgent().getSecurityMetaData().addCustomAttribute(getNrSecCustomAttrName(), null);
-            }
-        } catch (Throwable ignored) {
-        }
-    }
-
-    private static String getNrSecCustomAttrName() {
-        return GrpcServerUtils.NR_SEC_CUSTOM_ATTRIB_NAME+Thread.currentThread().getId();
+        GenericHelper.releaseLock(NR_SEC_CUSTOM_ATTRIB_NAME);
     }
 
     public static boolean acquireLockIfPossible() {
-        try {
-            if (NewRelicSecurity.isHookProcessingActive() &&
-                    !isLockAcquired(getNrSecCustomAttrName())) {
-                NewRelicSecurity.getAgent().getSecurityMetaData().addCustomAttribute(getNrSecCustomAttrName(), true);
-                return true;
-            }
-        } catch (Throwable ignored){}
-        return false;
-    }
-
-    private static boolean isLockAcquired(String nrSecCustomAttrName) {
-        try {
-            return NewRelicSecurity.isHookProcessingActive() &&
-                    Boolean.TRUE.equals(NewRelicSecurity.getAgent().getSecurityMetaData().getCustomAttribute(nrSecCustomAttrName, Boolean.class));
-        } catch (Throwable ignored) {}
-        return false;
+        return GenericHelper.acquireLockIfPossible(NR_SEC_CUSTOM_ATTRIB_NAME);
     }
 
     public static String getTraceHeader(Map<String, String> headers) {
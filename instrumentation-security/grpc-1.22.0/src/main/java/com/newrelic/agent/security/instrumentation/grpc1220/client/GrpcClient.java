@@ -7,6 +7,7 @@ import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.protobuf.Message;
 import com.google.protobuf.util.JsonFormat;
 import com.newrelic.agent.security.instrumentation.grpc1220.GrpcServerUtils;
+import com.newrelic.agent.security.instrumentation.grpc1220.processor.GrpcRequestThreadPool;
 import com.newrelic.api.agent.security.NewRelicSecurity;
 import com.newrelic.api.agent.security.instrumentation.helpers.GrpcHelper;
 import com.newrelic.api.agent.security.schema.ControlCommandDto;
@@ -23,9 +24,14 @@ import io.grpc.stub.StreamObserver;
 import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
 
 import javax.net.ssl.SSLException;
-import java.util.Iterator;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class GrpcClient {
     public static final String REQUEST_SUCCESS_S_RESPONSE_S_S = "Request success : %s :: response : %s : %s";
@@ -33,8 +39,18 @@ public class GrpcClient {
     public static final String FIRING_REQUEST_METHOD_S = "Firing request :: Method : %s";
     public static final String FIRING_REQUEST_URL_S = "Firing request :: URL : %s";
     public static final String FIRING_REQUEST_HEADERS_S = "Firing request :: Headers : %s";
-    public static int serverPort;
-    private static Boolean isSecure = false;
+    public static final String UNABLE_TO_BUILD_MESSAGE_S = "Unable to build gRPC message of type %s";
+
+    /**
+     * Replayed requests started but not completed on a channel, per request repeater thread.
+     */
+    private static final int IN_FLIGHT_REQUESTS_PER_THREAD = 4;
+
+    /**
+     * Calls of a replayed request are cancelled past this delay, so that they can not hold an in-flight slot forever.
+     */
+    private static final long CALL_TIMEOUT_SECONDS = 30;
+
     private static final Object lock = new Object();
     private boolean isConnected = true;
     private final String unary = "UNARY";
@@ -42,211 +58,238 @@ public class GrpcClient {
     private final String server_streaming = "SERVER_STREAMING";
     private final String bidi_streaming = "BIDI_STREAMING";
 
-    private final ThreadLocal<ManagedChannel> clientThreadLocal = new ThreadLocal<ManagedChannel>() {
-        @Override
-        protected ManagedChannel initialValue() {
-            ManagedChannel channel = null;
-            try {
-                channel = isSecure?getManagedChannelWithSsl("localhost", serverPort):getManagedChannelWithoutSsl("localhost", serverPort);
-            } catch (Exception e) {
-                NewRelicSecurity.getAgent().log(LogLevel.SEVERE, String.format("gRPC Client initialisation failed for port %d.", serverPort), e, GrpcClient.class.getName());
+    /**
+     * Channels to the application, shared by all the replayed requests to the same port.
+     */
+    private final Map<String, ReplayChannel> channels = new ConcurrentHashMap<>();
+
+    /**
+     * Receives the outcome of a replayed request.
+     */
+    public interface ReplayCallback {
+        /**
+         * @param controlCommandDto the replayed request
+         * @param error             the first failure of the calls of the request, {@code null} if all succeeded
+         */
+        void onReplayCompleted(ControlCommandDto controlCommandDto, Throwable error);
+    }
+
+    private static final class ReplayChannel {
+        private final ManagedChannel channel;
+
+        private final Semaphore inFlight;
+
+        private ReplayChannel(ManagedChannel channel, int window) {
+            this.channel = channel;
+            this.inFlight = new Semaphore(window);
+        }
+    }
+
+    /**
+     * Starts replaying the request and returns without waiting for its responses: the outcome is passed to the
+     * callback once all the calls of the request completed. Blocks while the in-flight window of the target channel
+     * is full.
+     *
+     * @param controlCommandDto the request to replay
+     * @param callback          receiver of the outcome
+     * @throws InterruptedException if interrupted while waiting for an in-flight slot, the request is not replayed
+     */
+    public void fireRequestAsync(ControlCommandDto controlCommandDto, ReplayCallback callback) throws InterruptedException {
+        FuzzRequestBean requestBean = controlCommandDto.getRequestBean();
+        List<String> payloads = controlCommandDto.getRequestPayloads();
+
+        NewRelicSecurity.getAgent().log(LogLevel.FINER, () -> String.format(FIRING_REQUEST_METHOD_S, requestBean.getMethod()), GrpcClient.class.getName());
+        NewRelicSecurity.getAgent().log(LogLevel.FINER, () -> String.format(FIRING_REQUEST_URL_S, requestBean.getUrl()), GrpcClient.class.getName());
+        NewRelicSecurity.getAgent().log(LogLevel.FINER, () -> String.format(FIRING_REQUEST_HEADERS_S, requestBean.getHeaders()), GrpcClient.class.getName());
+
+        String[] methodSplitData = requestBean.getMethod().split("/");
+        String serviceName = methodSplitData[0];
+        String methodName = methodSplitData[1];
+        String requestClass = requestBean.getReflectedMetaData().get(GrpcHelper.NR_SEC_GRPC_REQUEST_DATA_TYPE);
+
+        List<Any> messages = new ArrayList<>(payloads.size());
+        for (String requestData : payloads) {
+            Any pack = getMessageOfTypeAny(requestData, requestClass);
+            if (pack == null) {
+                callback.onReplayCompleted(controlCommandDto, new IllegalArgumentException(String.format(UNABLE_TO_BUILD_MESSAGE_S, requestClass)));
+                return;
             }
-            return channel;
+            messages.add(pack);
         }
-    };
 
-    public Object fireRequest(ControlCommandDto controlCommandDto, int repeatCount) {
+        Metadata headers = new Metadata();
+        for (Map.Entry<String, String> header : requestBean.getHeaders().entrySet()) {
+            headers.put(Metadata.Key.of(header.getKey(), Metadata.ASCII_STRING_MARSHALLER), header.getValue());
+        }
+
+        ReplayChannel replayChannel;
+        try {
+            replayChannel = getReplayChannel(StringUtils.equals("https", requestBean.getProtocol()), requestBean.getServerPort());
+        } catch (SSLException | RuntimeException e) {
+            callback.onReplayCompleted(controlCommandDto, e);
+            return;
+        }
+        ReplayOutcome outcome = new ReplayOutcome(controlCommandDto, replayChannel, callback);
+        // The permit is released by the outcome once all the calls completed and were started.
+        replayChannel.inFlight.acquire();
         try {
-            FuzzRequestBean requestBean = controlCommandDto.getRequestBean();
-            List<String> payloads = controlCommandDto.getRequestPayloads();
-            serverPort = requestBean.getServerPort();
-            isSecure = StringUtils.equals("https", requestBean.getProtocol());
-            ManagedChannel channel = clientThreadLocal.get();
-
-            NewRelicSecurity.getAgent().log(LogLevel.FINER, String.format(FIRING_REQUEST_METHOD_S, requestBean.getMethod()), GrpcClient.class.getName());
-            NewRelicSecurity.getAgent().log(LogLevel.FINER, String.format(FIRING_REQUEST_URL_S, requestBean.getUrl()), GrpcClient.class.getName());
-            NewRelicSecurity.getAgent().log(LogLevel.FINER, String.format(FIRING_REQUEST_HEADERS_S, requestBean.getHeaders()), GrpcClient.class.getName());
-
-            Object isSuccess = false;
-            switch (requestBean.getReflectedMetaData().get(GrpcHelper.REQUEST_TYPE)){
+            GrpcStubs.CustomStub stub = GrpcStubs.newStub(replayChannel.channel)
+                    .withInterceptors(MetadataUtils.newAttachHeadersInterceptor(headers))
+                    .withDeadlineAfter(CALL_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            switch (requestBean.getReflectedMetaData().get(GrpcHelper.REQUEST_TYPE)) {
                 case unary:
-                    isSuccess = customUnaryCall(channel, requestBean, payloads);
+                    for (Any message : messages) {
+                        stub.asyncUnaryCall(message, serviceName, methodName, outcome.newCall(true));
+                    }
                     break;
                 case client_streaming:
-                    isSuccess = customClientStream(channel, requestBean, payloads);
+                    sendAll(stub.clientStream(outcome.newCall(false), serviceName, methodName), messages, outcome);
                     break;
                 case server_streaming:
-                    isSuccess = customServerStream(channel, requestBean, payloads);
+                    for (Any message : messages) {
+                        stub.asyncServerStream(message, serviceName, methodName, outcome.newCall(true));
+                    }
                     break;
                 case bidi_streaming:
-                    isSuccess = customBiDiStream(channel, requestBean, payloads);
+                    sendAll(stub.biDiStream(outcome.newCall(false), serviceName, methodName), messages, outcome);
                     break;
             }
-            return isSuccess;
-        } catch (InterruptedException e) {
-            if (repeatCount >= 0) {
-                return fireRequest(controlCommandDto, --repeatCount);
-            }
-            return false;
         } catch (Throwable e) {
-            return e;
+            outcome.recordError(e);
+        } finally {
+            outcome.allCallsStarted();
         }
     }
 
-    private static final class InstanceHolder {
-        static final GrpcClient instance = new GrpcClient();
-    }
-
-    public static GrpcClient getInstance() {
-        synchronized (lock) {
-            return InstanceHolder.instance;
+    private static void sendAll(StreamObserver<Any> requestObserver, List<Any> messages, ReplayOutcome outcome) {
+        try {
+            for (Any message : messages) {
+                requestObserver.onNext(message);
+            }
+        } catch (Throwable e) {
+            outcome.recordError(e);
+            // Cancels the call, its response observer is notified of the error.
+            requestObserver.onError(e);
+            return;
         }
+        requestObserver.onCompleted();
     }
 
-    private Object customUnaryCall(ManagedChannel channel, FuzzRequestBean requestBean, List<String> payloads) {
-        GrpcStubs.CustomStub stub = GrpcStubs.newBlockingStub(channel);
-        String[] methodSplitData = requestBean.getMethod().split("/");
-        String serviceName = methodSplitData[0];
-        String methodName = methodSplitData[1];
-        String requestClass = requestBean.getReflectedMetaData().get(GrpcHelper.NR_SEC_GRPC_REQUEST_DATA_TYPE);
-
-        Metadata headers = new Metadata();
-        for (Map.Entry<String, String> header : requestBean.getHeaders().entrySet()) {
-            headers.put(Metadata.Key.of(header.getKey(), Metadata.ASCII_STRING_MARSHALLER), header.getValue());
-        }
-
-        for (String requestData : payloads) {
-            try {
-                Any pack = getMessageOfTypeAny(requestData, requestClass);
-                Any response = stub.withInterceptors(MetadataUtils.newAttachHeadersInterceptor(headers))
-                        .unaryCall(pack, serviceName, methodName);
-                NewRelicSecurity.getAgent().log(LogLevel.FINER, String.format(REQUEST_SUCCESS_S_RESPONSE_S_S, requestBean, response, response.toString()), GrpcClient.class.getName());
-            } catch (Throwable e) {
-                return e;
-//                    GrpcClientRequestReplayHelper.getInstance().addFuzzFailEventToQueue(requestBean, e);
+    private ReplayChannel getReplayChannel(boolean isSecure, int serverPort) throws SSLException {
+        String key = (isSecure ? "https:" : "http:") + serverPort;
+        ReplayChannel replayChannel = channels.get(key);
+        if (replayChannel == null) {
+            synchronized (channels) {
+                replayChannel = channels.get(key);
+                if (replayChannel == null) {
+                    try {
+                        ManagedChannel channel = isSecure ? getManagedChannelWithSsl("localhost", serverPort) : getManagedChannelWithoutSsl("localhost", serverPort);
+                        int window = IN_FLIGHT_REQUESTS_PER_THREAD * GrpcRequestThreadPool.getInstance().getExecutor().getMaximumPoolSize();
+                        replayChannel = new ReplayChannel(channel, window);
+                        channels.put(key, replayChannel);
+                    } catch (SSLException | RuntimeException e) {
+                        NewRelicSecurity.getAgent().log(LogLevel.SEVERE, String.format("gRPC Client initialisation failed for port %d.", serverPort), e, GrpcClient.class.getName());
+                        throw e;
+                    }
+                }
             }
         }
-        return null;
+        return replayChannel;
     }
 
-    private static Object customClientStream(ManagedChannel channel, FuzzRequestBean requestBean, List<String> payloads) throws InterruptedException {
-        StreamObserver<Any> responseObserver = new StreamObserver<Any>() {
+    /**
+     * Tracks the calls of a replayed request, and reports the outcome once the last one completed and all were
+     * started.
+     */
+    private static final class ReplayOutcome {
+        private final ControlCommandDto controlCommandDto;
 
-            @Override
-            public void onNext(Any response) {
-                NewRelicSecurity.getAgent().log(LogLevel.FINER, String.format(REQUEST_SUCCESS_S_RESPONSE_S_S, requestBean, response, response.toString()), GrpcClient.class.getName());
-            }
+        private final ReplayChannel replayChannel;
 
-            @Override
-            public void onError(Throwable throwable) {
+        private final ReplayCallback callback;
 
-            }
+        /**
+         * Calls not completed yet, plus one until all the calls are started.
+         */
+        private final AtomicInteger pending = new AtomicInteger(1);
 
-            @Override
-            public void onCompleted() {
+        private final AtomicReference<Throwable> error = new AtomicReference<>();
 
-            }
-        };
+        private ReplayOutcome(ControlCommandDto controlCommandDto, ReplayChannel replayChannel, ReplayCallback callback) {
+            this.controlCommandDto = controlCommandDto;
+            this.replayChannel = replayChannel;
+            this.callback = callback;
+        }
 
-        GrpcStubs.CustomStub stub = GrpcStubs.newStub(channel);
-        String[] methodSplitData = requestBean.getMethod().split("/");
-        String serviceName = methodSplitData[0];
-        String methodName = methodSplitData[1];
-        String requestClass = requestBean.getReflectedMetaData().get(GrpcHelper.NR_SEC_GRPC_REQUEST_DATA_TYPE);
+        /**
+         * @param statusFails whether an error status of the call fails the replay. Client and bidi streaming calls
+         *                    only fail on errors raised while sending their messages: the error status closing such
+         *                    a stream is the application's answer to the messages, not a failure to replay them.
+         */
+        private StreamObserver<Any> newCall(boolean statusFails) {
+            pending.incrementAndGet();
+            return new StreamObserver<Any>() {
+                @Override
+                public void onNext(Any response) {
+                    NewRelicSecurity.getAgent().log(LogLevel.FINER, () -> String.format(REQUEST_SUCCESS_S_RESPONSE_S_S, controlCommandDto.getRequestBean(), response, response.toString()), GrpcClient.class.getName());
+                }
 
-        Metadata headers = new Metadata();
-        for (Map.Entry<String, String> header : requestBean.getHeaders().entrySet()) {
-            headers.put(Metadata.Key.of(header.getKey(), Metadata.ASCII_STRING_MARSHALLER), header.getValue());
-        }
-        StreamObserver<Any> requestObserver = stub.withInterceptors(MetadataUtils.newAttachHeadersInterceptor(headers)).clientStream(responseObserver, serviceName, methodName);
+                @Override
+                public void onError(Throwable t) {
+                    if (statusFails) {
+                        recordError(t);
+                    }
+                    callCompleted();
+                }
 
-        for (String requestData : payloads) {
-            try {
-                Any pack = getMessageOfTypeAny(requestData, requestClass);
-                requestObserver.onNext(pack);
-            } catch (Throwable e) {
-                return e;
-//                    GrpcClientRequestReplayHelper.getInstance().addFuzzFailEventToQueue(requestBean, e);
-            }
+                @Override
+                public void onCompleted() {
+                    callCompleted();
+                }
+            };
         }
-        requestObserver.onCompleted();
-        return null;
-    }
 
-    private static Object customServerStream(ManagedChannel channel, FuzzRequestBean requestBean, List<String> payloads) {
-        GrpcStubs.CustomStub stub = GrpcStubs.newBlockingStub(channel);
-        String[] methodSplitData = requestBean.getMethod().split("/");
-        String serviceName = methodSplitData[0];
-        String methodName = methodSplitData[1];
-        String requestClass = requestBean.getReflectedMetaData().get(GrpcHelper.NR_SEC_GRPC_REQUEST_DATA_TYPE);
+        private void recordError(Throwable t) {
+            error.compareAndSet(null, t);
+        }
 
-        Metadata headers = new Metadata();
-        for (Map.Entry<String, String> header : requestBean.getHeaders().entrySet()) {
-            headers.put(Metadata.Key.of(header.getKey(), Metadata.ASCII_STRING_MARSHALLER), header.getValue());
+        private void allCallsStarted() {
+            callCompleted();
         }
 
-        for (String requestData : payloads) {
-            try {
-                Any pack = getMessageOfTypeAny(requestData, requestClass);
-                Iterator<Any> responses = stub.withInterceptors(MetadataUtils.newAttachHeadersInterceptor(headers))
-                        .serverStream(pack, serviceName, methodName);
-                while (responses.hasNext()) {
-                    Any response = responses.next();
-                    NewRelicSecurity.getAgent().log(LogLevel.FINER, String.format(REQUEST_SUCCESS_S_RESPONSE_S_S, requestBean, response, response.toString()), GrpcClient.class.getName());
-                }
-            } catch (Throwable e) {
-                return e;
-//                    GrpcClientRequestReplayHelper.getInstance().addFuzzFailEventToQueue(requestBean, e);
+        private void callCompleted() {
+            if (pending.decrementAndGet() == 0) {
+                replayChannel.inFlight.release();
+                callback.onReplayCompleted(controlCommandDto, error.get());
             }
         }
-        return null;
     }
 
-    public static Object customBiDiStream(ManagedChannel channel, FuzzRequestBean requestBean, List<String> payloads) throws InterruptedException {
-        GrpcStubs.CustomStub stub = GrpcStubs.newStub(channel);
-        StringBuilder body = requestBean.getBody();
-        String[] methodSplitData = requestBean.getMethod().split("/");
-        String serviceName = methodSplitData[0];
-        String methodName = methodSplitData[1];
-        String requestClass = requestBean.getReflectedMetaData().get(GrpcHelper.NR_SEC_GRPC_REQUEST_DATA_TYPE);
-
-        StreamObserver<Any> responseObserver = new StreamObserver<Any>() {
-            @Override
-            public void onNext(Any response) {
-                NewRelicSecurity.getAgent().log(LogLevel.FINER, String.format(REQUEST_SUCCESS_S_RESPONSE_S_S, requestBean, response, response.toString()), GrpcClient.class.getName());
-            }
-
-            @Override
-            public void onError(Throwable t) {
-
-            }
-
-            @Override
-            public void onCompleted() {
-
+    /**
+     * Shuts down the channels to the application, the calls still running on them are cancelled.
+     */
+    public void shutDownChannels() {
+        synchronized (channels) {
+            for (ReplayChannel replayChannel : channels.values()) {
+                try {
+                    replayChannel.channel.shutdownNow();
+                } catch (Throwable e) {
+                    NewRelicSecurity.getAgent().log(LogLevel.FINER, "Unable to shut down gRPC replay channel", e, GrpcClient.class.getName());
+                }
             }
-        };
-
-        Metadata headers = new Metadata();
-        for (Map.Entry<String, String> header : requestBean.getHeaders().entrySet()) {
-            headers.put(Metadata.Key.of(header.getKey(), Metadata.ASCII_STRING_MARSHALLER), header.getValue());
+            channels.clear();
         }
-        StreamObserver<Any> requestObserver = stub.withInterceptors(MetadataUtils.newAttachHeadersInterceptor(headers))
-                .biDiStream(responseObserver, serviceName, methodName);
+    }
 
-        for (String requestData : payloads) {
-            try{
-                Any pack = getMessageOfTypeAny(requestData, requestClass);
-                requestObserver.onNext(pack);
-            } catch (Throwable e) {
-                return e;
-//                    GrpcClientRequestReplayHelper.getInstance().addFuzzFailEventToQueue(requestBean, e);
-            }
-        }
-        requestObserver.onCompleted();
-        return null;
+    private static final class InstanceHolder {
+        static final GrpcClient instance = new GrpcClient();
     }
 
+    public static GrpcClient getInstance() {
+        synchronized (lock) {
+            return InstanceHolder.instance;
+        }
+    }
 
     private static Any getMessageOfTypeAny(String s, String requestType) {
         Message.Builder messageBuilder = DynamicMessage.newBuilder(getMessageDescriptor(requestType));
@@ -288,4 +331,4 @@ public class GrpcClient {
     public void setConnected(boolean connected) {
         isConnected = connected;
     }
-}
\ No newline at end of file
+}
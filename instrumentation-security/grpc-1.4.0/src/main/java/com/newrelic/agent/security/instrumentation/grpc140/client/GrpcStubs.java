@@ -37,6 +37,16 @@ public class GrpcStubs {
                     getChannel(), getServerStreamMethod(serviceName, methodName), getCallOptions(), request);
         }
 
+        public void asyncUnaryCall(Any request, String serviceName, String methodName, StreamObserver<Any> responseObserver) {
+            io.grpc.stub.ClientCalls.asyncUnaryCall(
+                    getChannel().newCall(getSimpleMethod(serviceName, methodName), getCallOptions()), request, responseObserver);
+        }
+
+        public void asyncServerStream(Any request, String serviceName, String methodName, StreamObserver<Any> responseObserver) {
+            io.grpc.stub.ClientCalls.asyncServerStreamingCall(
+                    getChannel().newCall(getServerStreamMethod(serviceName, methodName), getCallOptions()), request, responseObserver);
+        }
+
         public StreamObserver<Any> clientStream(StreamObserver<Any> responseObserver, String serviceName, String methodName) {
             return io.grpc.stub.ClientCalls.asyncClientStreamingCall(
                     getChannel().newCall(getClientStreamMethod(serviceName, methodName), getCallOptions()), responseObserver);
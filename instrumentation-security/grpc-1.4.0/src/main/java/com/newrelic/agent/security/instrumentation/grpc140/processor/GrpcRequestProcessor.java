@@ -4,51 +4,73 @@ import com.newrelic.agent.security.instrumentation.grpc140.client.GrpcClient;
 import com.newrelic.api.agent.security.NewRelicSecurity;
 import com.newrelic.api.agent.security.instrumentation.helpers.GrpcClientRequestReplayHelper;
 import com.newrelic.api.agent.security.schema.ControlCommandDto;
+import com.newrelic.api.agent.security.schema.StringUtils;
 import com.newrelic.api.agent.security.utils.logging.LogLevel;
 
+import java.util.HashSet;
 import java.util.concurrent.Callable;
-import java.util.concurrent.Future;
 
 public class GrpcRequestProcessor implements Callable<Object> {
     public static final String CALL_FAILED_REQUEST_S_REASON = "Call failed : request %s reason : ";
     private ControlCommandDto controlCommandDto;
-    private int repeatCount;
-    private static final int MAX_REPETITION = 3;
 
-    public GrpcRequestProcessor(ControlCommandDto controlCommandDto, int repeatCount) {
+    /**
+     * Completes the bookkeeping of a replayed request once all of its calls completed, possibly on a gRPC thread.
+     */
+    private static final GrpcClient.ReplayCallback REPLAY_CALLBACK = new GrpcClient.ReplayCallback() {
+        @Override
+        public void onReplayCompleted(ControlCommandDto controlCommandDto, Throwable error) {
+            completeRequest(controlCommandDto, error, error != null);
+        }
+    };
+
+    public GrpcRequestProcessor(ControlCommandDto controlCommandDto) {
         this.controlCommandDto = controlCommandDto;
-        this.repeatCount = repeatCount;
     }
 
+    /**
+     * Starts the replay of the request, its outcome is handled by {@link #REPLAY_CALLBACK}.
+     */
     @Override
     public Object call() throws Exception {
-        return GrpcClient.getInstance().fireRequest(controlCommandDto, repeatCount);
+        try {
+            GrpcClient.getInstance().fireRequestAsync(controlCommandDto, REPLAY_CALLBACK);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            completeRequest(controlCommandDto, null, true);
+        } catch (Throwable e) {
+            completeRequest(controlCommandDto, e, true);
+        }
+        return null;
     }
 
     public static void executeGrpcRequest(ControlCommandDto controlCommandDto) {
-        Future<Object> future = GrpcRequestThreadPool.getInstance().executor
-                .submit(new GrpcRequestProcessor(controlCommandDto, MAX_REPETITION));
+        GrpcRequestThreadPool.getInstance().executor.submit(new GrpcRequestProcessor(controlCommandDto));
+    }
+
+    private static void completeRequest(ControlCommandDto controlCommandDto, Throwable error, boolean rejected) {
+        String controlCommandId = controlCommandDto.getId();
         try {
-            Object futureResult = future.get();
-            if (futureResult instanceof Throwable) {
-                NewRelicSecurity.getAgent().log(LogLevel.FINER, String.format(CALL_FAILED_REQUEST_S_REASON, controlCommandDto.getRequestBean()), (Throwable) futureResult, GrpcClient.class.getName());
+            if (error != null) {
+                NewRelicSecurity.getAgent().log(LogLevel.FINER, () -> String.format(CALL_FAILED_REQUEST_S_REASON, controlCommandDto.getRequestBean()), error, GrpcClient.class.getName());
                 NewRelicSecurity.getAgent().reportIncident(LogLevel.WARNING,
-                        String.format(CALL_FAILED_REQUEST_S_REASON, controlCommandDto.getId()),
-                        (Throwable) futureResult, GrpcClient.class.getName());
-                GrpcClientRequestReplayHelper.getInstance().addFuzzFailEventToQueue(controlCommandDto.getRequestBean(), (Throwable) futureResult);
-            } else {
-                GrpcClientRequestReplayHelper.getInstance().getPendingIds().remove(controlCommandDto.getId());
+                        String.format(CALL_FAILED_REQUEST_S_REASON, controlCommandId),
+                        error, GrpcClient.class.getName());
+                GrpcClientRequestReplayHelper.getInstance().addFuzzFailEventToQueue(controlCommandDto.getRequestBean(), error);
+            }
+        } finally {
+            if (StringUtils.isNotBlank(controlCommandId)) {
+                if (rejected) {
+                    GrpcClientRequestReplayHelper.getInstance().getRejectedIds().add(controlCommandId);
+                } else {
+                    GrpcClientRequestReplayHelper.getInstance().getProcessedIds().putIfAbsent(controlCommandId, new HashSet<>());
+                }
+                GrpcClientRequestReplayHelper.getInstance().getPendingIds().remove(controlCommandId);
             }
-        } catch (Throwable e) {
-            NewRelicSecurity.getAgent().log(LogLevel.SEVERE, String.format(CALL_FAILED_REQUEST_S_REASON, controlCommandDto.getRequestBean()), e, GrpcRequestProcessor.class.getName());
-            NewRelicSecurity.getAgent().reportIncident(LogLevel.SEVERE,
-                    String.format(CALL_FAILED_REQUEST_S_REASON, controlCommandDto.getId()),
-                    e, GrpcRequestProcessor.class.getName());
-            GrpcClientRequestReplayHelper.getInstance().addFuzzFailEventToQueue(controlCommandDto.getRequestBean(), e);
         }
     }
 
     public ControlCommandDto getPartialControlCommand() {
         return controlCommandDto;
     }
-}
\ No newline at end of file
+}
@@ -1,14 +1,12 @@
 package com.newrelic.agent.security.instrumentation.grpc140.processor;
 
+import com.newrelic.agent.security.instrumentation.grpc140.client.GrpcClient;
 import com.newrelic.api.agent.security.NewRelicSecurity;
 import com.newrelic.api.agent.security.instrumentation.helpers.GrpcClientRequestReplayHelper;
-import com.newrelic.api.agent.security.schema.StringUtils;
 import com.newrelic.api.agent.security.utils.logging.LogLevel;
 
-import java.util.HashSet;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RunnableFuture;
 import java.util.concurrent.ThreadFactory;
@@ -18,8 +16,6 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class GrpcRequestThreadPool {
-    public static final String CALL_FAILED_REQUEST_S_REASON = "Call failed : request %s reason : ";
-
     /**
      * Thread pool executor.
      */
@@ -44,28 +40,9 @@ public class GrpcRequestThreadPool {
         executor = new ThreadPoolExecutor(corePoolSize, maxPoolSize, keepAliveTime, timeUnit, processQueue, new EventAbortPolicy()){
             @Override
             protected void afterExecute(Runnable r, Throwable t) {
-                String controlCommandId = null;
-                try {
-                    super.afterExecute(r, t);
-                    GrpcClientRequestReplayHelper.getInstance().setInProcessRequestQueue(getQueue());
-                    controlCommandId = null;
-                    if (r instanceof CustomFutureTask<?> && ((CustomFutureTask<?>) r).getTask() instanceof GrpcRequestProcessor) {
-                        Object result = (Object) ((CustomFutureTask<?>) r).get();
-                        GrpcRequestProcessor task = (GrpcRequestProcessor) ((CustomFutureTask<?>) r).getTask();
-                        controlCommandId = task.getPartialControlCommand().getId();
-                        if (t != null || result != null) {
-                            if (StringUtils.isNotBlank(controlCommandId)) {
-                                GrpcClientRequestReplayHelper.getInstance().getRejectedIds().add(controlCommandId);
-                            }
-                        } else {
-                            GrpcClientRequestReplayHelper.getInstance().getProcessedIds().putIfAbsent(controlCommandId, new HashSet<>());
-                        }
-                    }
-                    if (StringUtils.isNotBlank(controlCommandId)) {
-                        GrpcClientRequestReplayHelper.getInstance().getPendingIds().remove(controlCommandId);
-                    }
-                } catch (InterruptedException | ExecutionException ignored) {
-                }
+                // Outcome of the replayed requests is handled by GrpcRequestProcessor once their calls completed.
+                super.afterExecute(r, t);
+                GrpcClientRequestReplayHelper.getInstance().setInProcessRequestQueue(getQueue());
             }
 
             @Override
@@ -121,11 +98,13 @@ public class GrpcRequestThreadPool {
 
                     if (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
                         NewRelicSecurity.getAgent().log(LogLevel.SEVERE, "Thread pool executor did not terminate",
-                                GrpcRequestThreadPool.class.getName());                    }
+                                GrpcRequestThreadPool.class.getName());
+                    }
                 }
             } catch (InterruptedException e) {
             }
         }
+        GrpcClient.getInstance().shutDownChannels();
     }
 
     public int getQueueSize() {
@@ -19,6 +19,7 @@ public class MonitorGrpcRequestQueueThread {
     private final long keepAliveTime = 10;
     private final TimeUnit timeUnit = TimeUnit.SECONDS;
     private static Future future;
+    private static final long QUEUE_FULL_BACKOFF_MILLIS = 100;
 
     private Runnable runnable = new Runnable() {
         public void run() {
@@ -30,6 +31,8 @@ public class MonitorGrpcRequestQueueThread {
                     }
                 } else {
                     NewRelicSecurity.getAgent().log(LogLevel.WARNING, "gRPC request processing queue is full.", this.getClass().getName());
+                    // Requests no longer wait for their replay, back off while the repeater threads catch up.
+                    Thread.sleep(QUEUE_FULL_BACKOFF_MILLIS);
                 }
             } catch (InterruptedException e) {
                 NewRelicSecurity.getAgent().log(LogLevel.SEVERE, e.getMessage(), e, this.getClass().getName());
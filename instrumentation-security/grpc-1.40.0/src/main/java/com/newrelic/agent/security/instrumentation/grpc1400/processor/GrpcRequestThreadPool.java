@@ -1,14 +1,12 @@
 package com.newrelic.agent.security.instrumentation.grpc1400.processor;
 
+import com.newrelic.agent.security.instrumentation.grpc1400.client.GrpcClient;
 import com.newrelic.api.agent.security.NewRelicSecurity;
 import com.newrelic.api.agent.security.instrumentation.helpers.GrpcClientRequestReplayHelper;
-import com.newrelic.api.agent.security.schema.StringUtils;
 import com.newrelic.api.agent.security.utils.logging.LogLevel;
 
-import java.util.HashSet;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RunnableFuture;
 import java.util.concurrent.ThreadFactory;
@@ -42,27 +40,9 @@ public class GrpcRequestThreadPool {
         executor = new ThreadPoolExecutor(corePoolSize, maxPoolSize, keepAliveTime, timeUnit, processQueue, new EventAbortPolicy()){
             @Override
             protected void afterExecute(Runnable r, Throwable t) {
-                try {
-                    super.afterExecute(r, t);
-                    GrpcClientRequestReplayHelper.getInstance().setInProcessRequestQueue(getQueue());
-                    String controlCommandId = null;
-                    if (r instanceof CustomFutureTask<?> && ((CustomFutureTask<?>) r).getTask() instanceof GrpcRequestProcessor) {
-                        Object result = (Object) ((CustomFutureTask<?>) r).get();
-                        GrpcRequestProcessor task = (GrpcRequestProcessor) ((CustomFutureTask<?>) r).getTask();
-                        controlCommandId = task.getPartialControlCommand().getId();
-                        if (t != null || result != null) {
-                            if (StringUtils.isNotBlank(controlCommandId)) {
-                                GrpcClientRequestReplayHelper.getInstance().getRejectedIds().add(controlCommandId);
-                            }
-                        } else {
-                            GrpcClientRequestReplayHelper.getInstance().getProcessedIds().putIfAbsent(controlCommandId, new HashSet<>());
-                        }
-                    }
-                    if (StringUtils.isNotBlank(controlCommandId)) {
-                        GrpcClientRequestReplayHelper.getInstance().getPendingIds().remove(controlCommandId);
-                    }
-                } catch (InterruptedException | ExecutionException e) {
-                }
+                // Outcome of the replayed requests is handled by GrpcRequestProcessor once their calls completed.
+                super.afterExecute(r, t);
+                GrpcClientRequestReplayHelper.getInstance().setInProcessRequestQueue(getQueue());
             }
 
             @Override
@@ -124,6 +104,7 @@ public class GrpcRequestThreadPool {
             } catch (InterruptedException e) {
             }
         }
+        GrpcClient.getInstance().shutDownChannels();
     }
 
     public int getQueueSize() {
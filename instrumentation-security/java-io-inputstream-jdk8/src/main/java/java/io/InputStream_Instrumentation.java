@@ -77,12 +77,7 @@ public abstract class InputStream_Instrumentation {
     private void postProcessSecurityHook(byte[] dataBuffer, boolean isLockAcquired, int offset, int readDataLength) {
         try {
             if(isLockAcquired && readDataLength>0){
-                char[] data = new char[readDataLength];
-                for (int i = offset, y = 0; i < offset + readDataLength; i++, y++) {
-                    data[y] = (char) dataBuffer[i];
-                }
-                //                            System.out.println("Writing from IS 2" + this.hashCode() + " : " + String.valueOf(data));
-                NewRelicSecurity.getAgent().getSecurityMetaData().getRequest().getBody().append(data);
+                NewRelicSecurity.getAgent().getSecurityMetaData().getRequest().appendBody(dataBuffer, offset, readDataLength);
 
             }
         } catch (Throwable e) {
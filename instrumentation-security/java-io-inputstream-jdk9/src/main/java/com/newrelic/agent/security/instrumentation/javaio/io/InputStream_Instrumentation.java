@@ -146,12 +146,7 @@ public abstract class InputStream_Instrumentation {
         try {
 //                System.out.println("Done IS2 "+ this.hashCode());
             if(isLockAcquired && readDataLength>0){
-                char[] data = new char[readDataLength];
-                for (int i = offset, y = 0; i < offset + readDataLength; i++, y++) {
-                    data[y] = (char) dataBuffer[i];
-                }
-                //                            System.out.println("Writing from IS 2" + this.hashCode() + " : " + String.valueOf(data));
-                NewRelicSecurity.getAgent().getSecurityMetaData().getRequest().getBody().append(data);
+                NewRelicSecurity.getAgent().getSecurityMetaData().getRequest().appendBody(dataBuffer, offset, readDataLength);
 
             }
         } catch (Throwable e) {
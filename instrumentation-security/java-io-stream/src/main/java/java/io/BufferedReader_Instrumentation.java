@@ -56,7 +56,7 @@ public abstract class BufferedReader_Instrumentation {
         // Postprocess Phase
         if (isLockAcquired && returnData > 0) {
             try {
-                NewRelicSecurity.getAgent().getSecurityMetaData().getRequest().getBody().append((char) returnData);
+                NewRelicSecurity.getAgent().getSecurityMetaData().getRequest().appendBody(String.valueOf((char) returnData));
             } catch (Throwable ignored) {
 //                    ignored.printStackTrace(System.out);
             }
@@ -84,7 +84,7 @@ public abstract class BufferedReader_Instrumentation {
         // Postprocess Phase
         if (isLockAcquired && returnData > 0) {
             try {
-                NewRelicSecurity.getAgent().getSecurityMetaData().getRequest().getBody().append(cbuf, off, returnData);
+                NewRelicSecurity.getAgent().getSecurityMetaData().getRequest().appendBody(cbuf, off, returnData);
             } catch (Throwable ignored) {
                 NewRelicSecurity.getAgent().log(LogLevel.WARNING, String.format(IOStreamHelper.ERROR_WHILE_READING_STREAM, JAVA_IO_STREAM, ignored.getMessage()), ignored, this.getClass().getName());
 //                    ignored.printStackTrace(System.out);
@@ -111,7 +111,7 @@ public abstract class BufferedReader_Instrumentation {
         // Postprocess Phase
         if (isLockAcquired && returnData != null) {
             try {
-                NewRelicSecurity.getAgent().getSecurityMetaData().getRequest().getBody().append(returnData);
+                NewRelicSecurity.getAgent().getSecurityMetaData().getRequest().appendBody(returnData);
             } catch (Throwable ignored) {
                 String message = IOStreamHelper.ERROR_WHILE_READING_STREAM;
                 NewRelicSecurity.getAgent().log(LogLevel.WARNING, String.format(message, JAVA_IO_STREAM, ignored.getMessage()), ignored, this.getClass().getName());
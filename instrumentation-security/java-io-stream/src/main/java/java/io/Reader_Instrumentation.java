@@ -54,7 +54,7 @@ public abstract class Reader_Instrumentation {
         // Postprocess Phase
         if (isLockAcquired && returnData > 0) {
             try {
-                NewRelicSecurity.getAgent().getSecurityMetaData().getRequest().getBody().append(cbuf, 0, returnData);
+                NewRelicSecurity.getAgent().getSecurityMetaData().getRequest().appendBody(cbuf, 0, returnData);
             } catch (Throwable ignored) {
 //                ignored.printStackTrace(System.out);
             }
@@ -81,7 +81,7 @@ public abstract class Reader_Instrumentation {
         // Postprocess Phase
         if (isLockAcquired && returnData > 0) {
             try {
-                NewRelicSecurity.getAgent().getSecurityMetaData().getRequest().getBody().append(target.array(), 0, returnData);
+                NewRelicSecurity.getAgent().getSecurityMetaData().getRequest().appendBody(target.array(), 0, returnData);
             } catch (Throwable ignored) {
 //                ignored.printStackTrace(System.out);
             }
@@ -1,5 +1,11 @@
 package com.newrelic.agent.security.instrumentation.ldaptive2;
 
+import com.newrelic.api.agent.security.NewRelicSecurity;
+import com.newrelic.api.agent.security.schema.SecurityMetaData;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 public class LDAPUtils {
 
     public static final String NR_SEC_CUSTOM_ATTRIB_NAME = "LDAP_OPERATION_LOCK_LDAPTIVE-";
@@ -8,7 +14,17 @@ public class LDAPUtils {
     public static final String NR_SEC_CUSTOM_ATTR_FILTER_NAME = "LDAP_FILTER-";
     public static final String LDAPTIVE_2_0 = "LDAPTIVE-2.0";
 
-    public static String getNrSecCustomAttribName(int hashCode) {
-        return NR_SEC_CUSTOM_ATTR_FILTER_NAME + hashCode;
+    /**
+     * @return the text of the filters parsed in the current transaction, keyed by the parsed filter
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<Object, String> getParsedFilters() {
+        SecurityMetaData securityMetaData = NewRelicSecurity.getAgent().getSecurityMetaData();
+        Map<Object, String> filters = (Map<Object, String>) securityMetaData.getCustomAttribute(NR_SEC_CUSTOM_ATTR_FILTER_NAME, Map.class);
+        if (filters == null) {
+            filters = new ConcurrentHashMap<>();
+            securityMetaData.addCustomAttribute(NR_SEC_CUSTOM_ATTR_FILTER_NAME, filters);
+        }
+        return filters;
     }
 }
@@ -56,7 +56,7 @@ public abstract class AbstractOperation_Instrumentation<Q extends Request, S ext
                     filter == null){
                 return null;
             }
-            LDAPOperation ldapOperation = new LDAPOperation(name, NewRelicSecurity.getAgent().getSecurityMetaData().getCustomAttribute(LDAPUtils.getNrSecCustomAttribName(filter.hashCode()), String.class), this.getClass().getName(), methodName);
+            LDAPOperation ldapOperation = new LDAPOperation(name, LDAPUtils.getParsedFilters().get(filter), this.getClass().getName(), methodName);
             NewRelicSecurity.getAgent().registerOperation(ldapOperation);
             return ldapOperation;
         } catch (Throwable e) {
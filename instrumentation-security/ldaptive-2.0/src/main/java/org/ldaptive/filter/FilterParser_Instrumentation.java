@@ -14,14 +14,14 @@ import com.newrelic.agent.security.instrumentation.ldaptive2.LDAPUtils;
 @Weave(type = MatchType.ExactClass, originalName = "org.ldaptive.filter.FilterParser")
 public final class FilterParser_Instrumentation {
 
-    private static AbstractOperation preprocessSecurityHook (String filter, int hashCode){
+    private static AbstractOperation preprocessSecurityHook (String filter, Filter filterObj){
         try {
             if (!NewRelicSecurity.isHookProcessingActive() ||
                     NewRelicSecurity.getAgent().getSecurityMetaData().getRequest().isEmpty() ||
-                    StringUtils.isBlank(filter)){
+                    StringUtils.isBlank(filter) || filterObj == null){
                 return null;
             }
-            NewRelicSecurity.getAgent().getSecurityMetaData().addCustomAttribute(LDAPUtils.getNrSecCustomAttribName(hashCode), filter);
+            LDAPUtils.getParsedFilters().put(filterObj, filter);
         } catch (Throwable e) {
             if (e instanceof NewRelicSecurityException) {
                 NewRelicSecurity.getAgent().log(LogLevel.WARNING, String.format(GenericHelper.SECURITY_EXCEPTION_MESSAGE, LDAPUtils.LDAPTIVE_2_0, e.getMessage()), e, FilterParser_Instrumentation.class.getName());
@@ -38,7 +38,7 @@ public final class FilterParser_Instrumentation {
             throws FilterParseException
     {
         Filter filterObj = Weaver.callOriginal();
-        preprocessSecurityHook(filter, filterObj.hashCode());
+        preprocessSecurityHook(filter, filterObj);
         return filterObj;
     }
 }
@@ -4,11 +4,6 @@ public class LettuceUtils {
 
     public static final String NR_SEC_CUSTOM_ATTRIB_NAME = "REDIS_OPERATION_LOCK_LETTUCE-";
 
-    public static final String NR_SEC_CUSTOM_ATTR_FILTER_NAME = "REDIS_FILTER-";
     public static final String METHOD_DISPATCH = "dispatch";
     public static final String LETTUCE_5_0 = "LETTUCE-5.0";
-
-    public static String getNrSecCustomAttribName(int hashCode) {
-        return NR_SEC_CUSTOM_ATTR_FILTER_NAME + hashCode;
-    }
 }
@@ -22,12 +22,12 @@ import static com.newrelic.agent.security.instrumentation.random.RandomUtils.WEA
 public class Random_Instrumentation {
 
     public int nextInt() {
-        boolean isLockAcquired = acquireLockIfPossible(hashCode());
+        // Gate first, so that calls outside of a request to report neither lock nor allocate.
+        boolean isOwaspHookEnabled = NewRelicSecurity.getAgent().isLowPriorityInstrumentationEnabled() && LowSeverityHelper.isOwaspHookProcessingNeeded();
+        boolean isLockAcquired = isOwaspHookEnabled && acquireLockIfPossible(hashCode());
         AbstractOperation operation = null;
-        boolean isOwaspHookEnabled = NewRelicSecurity.getAgent().isLowPriorityInstrumentationEnabled();
-        if (isOwaspHookEnabled && LowSeverityHelper.isOwaspHookProcessingNeeded()){
-            if (isLockAcquired)
-                operation = preprocessSecurityHook(getClass().getName(), "nextInt");
+        if (isLockAcquired) {
+            operation = preprocessSecurityHook(getClass().getName(), "nextInt");
         }
         int returnValue = -1;
         try {
@@ -44,12 +44,11 @@ public class Random_Instrumentation {
     }
 
     public int nextInt(int bound) {
-        boolean isLockAcquired = acquireLockIfPossible(hashCode());
+        boolean isOwaspHookEnabled = NewRelicSecurity.getAgent().isLowPriorityInstrumentationEnabled() && LowSeverityHelper.isOwaspHookProcessingNeeded();
+        boolean isLockAcquired = isOwaspHookEnabled && acquireLockIfPossible(hashCode());
         AbstractOperation operation = null;
-        boolean isOwaspHookEnabled = NewRelicSecurity.getAgent().isLowPriorityInstrumentationEnabled();
-        if (isOwaspHookEnabled && LowSeverityHelper.isOwaspHookProcessingNeeded()){
-            if (isLockAcquired)
-                operation = preprocessSecurityHook(getClass().getName(), "nextInt");
+        if (isLockAcquired) {
+            operation = preprocessSecurityHook(getClass().getName(), "nextInt");
         }
         int returnValue = -1;
         try {
@@ -66,12 +65,11 @@ public class Random_Instrumentation {
     }
 
     public void nextBytes(byte[] bytes) {
-        boolean isLockAcquired = acquireLockIfPossible(hashCode());
+        boolean isOwaspHookEnabled = NewRelicSecurity.getAgent().isLowPriorityInstrumentationEnabled() && LowSeverityHelper.isOwaspHookProcessingNeeded();
+        boolean isLockAcquired = isOwaspHookEnabled && acquireLockIfPossible(hashCode());
         AbstractOperation operation = null;
-        boolean isOwaspHookEnabled = NewRelicSecurity.getAgent().isLowPriorityInstrumentationEnabled();
-        if (isOwaspHookEnabled && LowSeverityHelper.isOwaspHookProcessingNeeded()){
-            if (isLockAcquired)
-                operation = preprocessSecurityHook(getClass().getName(), "nextBytes");
+        if (isLockAcquired) {
+            operation = preprocessSecurityHook(getClass().getName(), "nextBytes");
         }
         try {
             Weaver.callOriginal();
@@ -86,12 +84,11 @@ public class Random_Instrumentation {
     }
 
     public long nextLong() {
-        boolean isLockAcquired = acquireLockIfPossible(hashCode());
+        boolean isOwaspHookEnabled = NewRelicSecurity.getAgent().isLowPriorityInstrumentationEnabled() && LowSeverityHelper.isOwaspHookProcessingNeeded();
+        boolean isLockAcquired = isOwaspHookEnabled && acquireLockIfPossible(hashCode());
         AbstractOperation operation = null;
-        boolean isOwaspHookEnabled = NewRelicSecurity.getAgent().isLowPriorityInstrumentationEnabled();
-        if (isOwaspHookEnabled && LowSeverityHelper.isOwaspHookProcessingNeeded()){
-            if (isLockAcquired)
-                operation = preprocessSecurityHook(getClass().getName(), "nextLong");
+        if (isLockAcquired) {
+            operation = preprocessSecurityHook(getClass().getName(), "nextLong");
         }
         long returnValue = -1;
         try {
@@ -108,12 +105,11 @@ public class Random_Instrumentation {
     }
 
     public float nextFloat() {
-        boolean isLockAcquired = acquireLockIfPossible(hashCode());
+        boolean isOwaspHookEnabled = NewRelicSecurity.getAgent().isLowPriorityInstrumentationEnabled() && LowSeverityHelper.isOwaspHookProcessingNeeded();
+        boolean isLockAcquired = isOwaspHookEnabled && acquireLockIfPossible(hashCode());
         AbstractOperation operation = null;
-        boolean isOwaspHookEnabled = NewRelicSecurity.getAgent().isLowPriorityInstrumentationEnabled();
-        if (isOwaspHookEnabled && LowSeverityHelper.isOwaspHookProcessingNeeded()){
-            if (isLockAcquired)
-                operation = preprocessSecurityHook(getClass().getName(), "nextFloat");
+        if (isLockAcquired) {
+            operation = preprocessSecurityHook(getClass().getName(), "nextFloat");
         }
         float returnValue = -1;
         try {
@@ -130,12 +126,11 @@ public class Random_Instrumentation {
     }
 
     public double nextDouble() {
-        boolean isLockAcquired = acquireLockIfPossible(hashCode());
+        boolean isOwaspHookEnabled = NewRelicSecurity.getAgent().isLowPriorityInstrumentationEnabled() && LowSeverityHelper.isOwaspHookProcessingNeeded();
+        boolean isLockAcquired = isOwaspHookEnabled && acquireLockIfPossible(hashCode());
         AbstractOperation operation = null;
-        boolean isOwaspHookEnabled = NewRelicSecurity.getAgent().isLowPriorityInstrumentationEnabled();
-        if (isOwaspHookEnabled && LowSeverityHelper.isOwaspHookProcessingNeeded()){
-            if (isLockAcquired)
-                operation = preprocessSecurityHook(getClass().getName(), "nextDouble");
+        if (isLockAcquired) {
+            operation = preprocessSecurityHook(getClass().getName(), "nextDouble");
         }
         double returnValue = -1;
         try {
@@ -152,12 +147,11 @@ public class Random_Instrumentation {
     }
 
     public double nextGaussian() {
-        boolean isLockAcquired = acquireLockIfPossible(hashCode());
+        boolean isOwaspHookEnabled = NewRelicSecurity.getAgent().isLowPriorityInstrumentationEnabled() && LowSeverityHelper.isOwaspHookProcessingNeeded();
+        boolean isLockAcquired = isOwaspHookEnabled && acquireLockIfPossible(hashCode());
         AbstractOperation operation = null;
-        boolean isOwaspHookEnabled = NewRelicSecurity.getAgent().isLowPriorityInstrumentationEnabled();
-        if (isOwaspHookEnabled && LowSeverityHelper.isOwaspHookProcessingNeeded()){
-            if (isLockAcquired)
-                operation = preprocessSecurityHook(getClass().getName(), "nextGaussian");
+        if (isLockAcquired) {
+            operation = preprocessSecurityHook(getClass().getName(), "nextGaussian");
         }
         double returnValue = -1;
         try {
@@ -174,12 +168,11 @@ public class Random_Instrumentation {
     }
 
     public boolean nextBoolean() {
-        boolean isLockAcquired = acquireLockIfPossible(hashCode());
+        boolean isOwaspHookEnabled = NewRelicSecurity.getAgent().isLowPriorityInstrumentationEnabled() && LowSeverityHelper.isOwaspHookProcessingNeeded();
+        boolean isLockAcquired = isOwaspHookEnabled && acquireLockIfPossible(hashCode());
         AbstractOperation operation = null;
-        boolean isOwaspHookEnabled = NewRelicSecurity.getAgent().isLowPriorityInstrumentationEnabled();
-        if (isOwaspHookEnabled && LowSeverityHelper.isOwaspHookProcessingNeeded()){
-            if (isLockAcquired)
-                operation = preprocessSecurityHook(getClass().getName(), "nextBoolean");
+        if (isLockAcquired) {
+            operation = preprocessSecurityHook(getClass().getName(), "nextBoolean");
         }
         boolean returnValue;
         try {
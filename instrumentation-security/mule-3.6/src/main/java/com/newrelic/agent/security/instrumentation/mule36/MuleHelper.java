@@ -13,7 +13,7 @@ import java.util.Map;
 import static org.mule.module.http.api.HttpHeaders.Names.X_FORWARDED_FOR;
 
 public class MuleHelper {
-    private static final String MULE_LOCK_CUSTOM_ATTRIB_NAME = "MULE_LOCK-";
+    public static final String MULE_LOCK_CUSTOM_ATTRIB_NAME = "MULE_LOCK-";
     public static final String MULE_SERVER_PORT_ATTRIB_NAME = "MULE_SERVER_PORT";
 
     public static final String TRANSFORM_METHOD = "transform";
@@ -84,8 +84,5 @@ public class MuleHelper {
     public static String getContentType(HttpRequest httpRequest) {
         return httpRequest.getHeaderValue(HttpHeaders.Names.CONTENT_TYPE);
     }
-    public static String getNrSecCustomAttribName(int hashcode) {
-        return MULE_LOCK_CUSTOM_ATTRIB_NAME + Thread.currentThread().getId() + hashcode;
-    }
 
 }
@@ -114,14 +114,14 @@ public class HttpRequestToMuleEvent_Instrumentation {
 
     private static boolean acquireLockIfPossible(int hashcode) {
         try {
-            return GenericHelper.acquireLockIfPossible(MuleHelper.getNrSecCustomAttribName(hashcode));
+            return GenericHelper.acquireLockIfPossible(MuleHelper.MULE_LOCK_CUSTOM_ATTRIB_NAME, hashcode);
         } catch (Throwable ignored) {}
         return false;
     }
 
     private static void releaseLock(int hashcode) {
         try {
-            GenericHelper.releaseLock(MuleHelper.getNrSecCustomAttribName(hashcode));
+            GenericHelper.releaseLock(MuleHelper.MULE_LOCK_CUSTOM_ATTRIB_NAME, hashcode);
         } catch (Throwable e) {}
     }
 }
@@ -7,11 +7,14 @@ import com.newrelic.api.agent.security.instrumentation.helpers.GenericHelper;
 import com.newrelic.api.agent.security.instrumentation.helpers.LowSeverityHelper;
 import com.newrelic.api.agent.security.instrumentation.helpers.ServletHelper;
 import com.newrelic.api.agent.security.schema.AgentMetaData;
+import com.newrelic.api.agent.security.schema.LockKind;
 import com.newrelic.api.agent.security.schema.SecurityMetaData;
 import com.newrelic.api.agent.security.schema.StringUtils;
 import com.newrelic.api.agent.security.schema.exceptions.NewRelicSecurityException;
 import com.newrelic.api.agent.security.schema.operation.RXSSOperation;
 import com.newrelic.api.agent.security.schema.policy.AgentPolicy;
+import com.newrelic.api.agent.security.utils.StackTraceCapture;
+import com.newrelic.api.agent.security.utils.logging.LogLevel;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.http.FullHttpResponse;
 import io.netty.handler.codec.http.HttpContent;
@@ -19,7 +22,6 @@ import io.netty.handler.codec.http.HttpRequest;
 import io.netty.handler.codec.http.HttpResponse;
 
 import java.nio.charset.StandardCharsets;
-import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -33,6 +35,8 @@ public class NettyUtils {
 
     public static final String IO_NETTY = "io.netty.";
 
+    public static final String NETTY_4_0_0 = "NETTY-4.0.0";
+
     public static void processSecurityRequest(ChannelHandlerContext ctx, Object msg, String className) {
         try {
             Transaction tx = NewRelic.getAgent().getTransaction();
@@ -53,14 +57,17 @@ public class NettyUtils {
                 securityRequest.setUrl(((HttpRequest) msg).getUri());
                 setClientAddressDetails(securityMetaData, ctx.channel().remoteAddress().toString());
                 setServerPortDetails(securityRequest, ctx.channel().localAddress().toString());
-                processHttpRequestHeader((HttpRequest)msg, securityRequest);
-                securityMetaData.setTracingHeaderValue(getTraceHeader(securityRequest.getHeaders()));
+                processEntryHeaders((HttpRequest) msg, securityMetaData);
+                // Headers of a decoded message are not reused by netty, they can still be read once the request
+                // completed.
+                securityRequest.setDeferredParser(new HeaderParser((HttpRequest) msg));
 
                 securityRequest.setProtocol(((HttpRequest) msg).getProtocolVersion().protocolName());
-                securityRequest.setContentType(securityRequest.getHeaders().get("content-type"));
-                StackTraceElement[] stack = Thread.currentThread().getStackTrace();
-                securityMetaData.getMetaData().setServiceTrace(Arrays.copyOfRange(stack, 2, stack.length));
+                securityRequest.setContentType(((HttpRequest) msg).headers().get("content-type"));
+                // Skips this method, the trace starts at its caller.
+                securityMetaData.getMetaData().setServiceTrace(StackTraceCapture.capture(1));
                 securityRequest.setRequestParsed(true);
+                ServletHelper.checkClientIpBlocking(securityMetaData);
             } else if (msg instanceof HttpContent) {
                 if (!(secMetaObj instanceof SecurityMetaData) ||
                         NewRelicSecurity.getAgent().getSecurityMetaData() == null) {
@@ -76,11 +83,15 @@ public class NettyUtils {
                 if (reqBodyTrackerContextId.equals(ctx.hashCode())) {
                     com.newrelic.api.agent.security.schema.HttpRequest securityRequest =
                             NewRelicSecurity.getAgent().getSecurityMetaData().getRequest();
-                    securityRequest.getBody().append(((HttpContent) msg).content().toString(StandardCharsets.UTF_8));
+                    securityRequest.appendBody(((HttpContent) msg).content().nioBuffer(), StandardCharsets.UTF_8);
                 }
             }
-        } catch (Throwable ignored) {
-            ignored.printStackTrace();
+        } catch (Throwable e) {
+            if (e instanceof NewRelicSecurityException) {
+                NewRelicSecurity.getAgent().log(LogLevel.FINE, String.format(GenericHelper.SECURITY_EXCEPTION_MESSAGE, NETTY_4_0_0, e.getMessage()), NettyUtils.class.getName());
+                throw e;
+            }
+            NewRelicSecurity.getAgent().log(LogLevel.WARNING, String.format(GenericHelper.ERROR_GENERATING_HTTP_REQUEST, NETTY_4_0_0, e.getMessage()), e, NettyUtils.class.getName());
         }
     }
 
@@ -107,41 +118,56 @@ public class NettyUtils {
         }
     }
 
+    /**
+     * Reads the headers needed at the request entry: the IAST fuzz request and parent ids, the client IP from
+     * X-Forwarded-For if the policy asks for it, and the distributed tracing header. The other headers are copied by
+     * {@link HeaderParser} once they are read.
+     */
+    public static void processEntryHeaders(HttpRequest request, SecurityMetaData securityMetaData) {
+        com.newrelic.api.agent.security.schema.HttpRequest securityRequest = securityMetaData.getRequest();
+        String fuzzRequestId = request.headers().get(ServletHelper.CSEC_IAST_FUZZ_REQUEST_ID);
+        if (fuzzRequestId != null) {
+            // TODO: May think of removing this intermediate obj and directly create K2 Identifier.
+            securityMetaData.setFuzzRequestIdentifier(ServletHelper.parseFuzzRequestIdentifierHeader(fuzzRequestId));
+        }
+        String parentId = request.headers().get(GenericHelper.CSEC_PARENT_ID);
+        if (parentId != null) {
+            securityMetaData.addCustomAttribute(GenericHelper.CSEC_PARENT_ID, parentId);
+        }
+        AgentPolicy agentPolicy = NewRelicSecurity.getAgent().getCurrentPolicy();
+        if (agentPolicy != null
+                && agentPolicy.getProtectionMode().getEnabled()
+                && agentPolicy.getProtectionMode().getIpBlocking().getEnabled()
+                && agentPolicy.getProtectionMode().getIpBlocking().getIpDetectViaXFF()) {
+            for (String headerValue : request.headers().getAll(X_FORWARDED_FOR)) {
+                if (headerValue != null && !headerValue.trim().isEmpty()) {
+                    AgentMetaData agentMetaData = securityMetaData.getMetaData();
+                    agentMetaData.setClientDetectedFromXFF(true);
+                    securityRequest.setClientIP(headerValue);
+                    agentMetaData.getIps().add(securityRequest.getClientIP());
+                    securityRequest.setClientPort(EMPTY);
+                    break;
+                }
+            }
+        }
+        String traceHeader = request.headers().get(ServletHelper.CSEC_DISTRIBUTED_TRACING_HEADER);
+        securityMetaData.setTracingHeaderValue(traceHeader != null ? traceHeader : EMPTY);
+    }
+
+    /**
+     * Copies the headers of the request, with lower case names and the values of a repeated header joined.
+     */
     public static void processHttpRequestHeader(HttpRequest request, com.newrelic.api.agent.security.schema.HttpRequest securityRequest) {
+        Map<String, String> headers = securityRequest.getHeaders();
         Set<String> headerNames = request.headers().names();
         for (String headerKey : headerNames) {
-            boolean takeNextValue = false;
-            if (headerKey != null) {
-                headerKey = headerKey.toLowerCase();
-            }
-            AgentPolicy agentPolicy = NewRelicSecurity.getAgent().getCurrentPolicy();
-            AgentMetaData agentMetaData = NewRelicSecurity.getAgent().getSecurityMetaData().getMetaData();
-            if (agentPolicy != null
-                    && agentPolicy.getProtectionMode().getEnabled()
-                    && agentPolicy.getProtectionMode().getIpBlocking().getEnabled()
-                    && agentPolicy.getProtectionMode().getIpBlocking().getIpDetectViaXFF()
-                    && X_FORWARDED_FOR.equals(headerKey)) {
-                takeNextValue = true;
-            } else if (ServletHelper.CSEC_IAST_FUZZ_REQUEST_ID.equals(headerKey)) {
-                // TODO: May think of removing this intermediate obj and directly create K2 Identifier.
-                NewRelicSecurity.getAgent().getSecurityMetaData().setFuzzRequestIdentifier(ServletHelper.parseFuzzRequestIdentifierHeader(request.headers().get(headerKey)));
-            } else if(GenericHelper.CSEC_PARENT_ID.equals(headerKey)) {
-                NewRelicSecurity.getAgent().getSecurityMetaData()
-                        .addCustomAttribute(GenericHelper.CSEC_PARENT_ID, request.headers().get(headerKey));
+            if (headerKey == null) {
+                continue;
             }
-
             String headerFullValue = EMPTY;
             List<String> headerElements = request.headers().getAll(headerKey);
             for (String headerValue : headerElements) {
                 if (headerValue != null && !headerValue.trim().isEmpty()) {
-                    if (takeNextValue) {
-                        agentMetaData.setClientDetectedFromXFF(true);
-                        securityRequest.setClientIP(headerValue);
-                        agentMetaData.getIps()
-                                .add(securityRequest.getClientIP());
-                        securityRequest.setClientPort(EMPTY);
-                        takeNextValue = false;
-                    }
                     if (headerFullValue.trim().isEmpty()) {
                         headerFullValue = headerValue;
                     } else {
@@ -149,9 +175,25 @@ public class NettyUtils {
                     }
                 }
             }
-            securityRequest.getHeaders().put(headerKey, headerFullValue);
+            headers.put(headerKey.toLowerCase(), headerFullValue);
         }
+    }
+
+    /**
+     * Copies the headers of the netty request on first use, see
+     * {@link com.newrelic.api.agent.security.schema.HttpRequest#setDeferredParser}.
+     */
+    public static final class HeaderParser implements com.newrelic.api.agent.security.schema.HttpRequest.DeferredParser {
+        private final HttpRequest request;
 
+        public HeaderParser(HttpRequest request) {
+            this.request = request;
+        }
+
+        @Override
+        public void parse(com.newrelic.api.agent.security.schema.HttpRequest securityRequest) {
+            processHttpRequestHeader(request, securityRequest);
+        }
     }
 
     public static String getTraceHeader(Map<String, String> headers) {
@@ -179,7 +221,7 @@ public class NettyUtils {
                         securityMetaData.getResponse();
                 processResponseHeaders((HttpResponse) msg, securityResponse);
                 securityResponse.setResponseContentType(((FullHttpResponse) msg).headers().get("content-type"));
-                securityResponse.getResponseBody().append(((FullHttpResponse) msg).content().toString(StandardCharsets.UTF_8));
+                securityResponse.appendResponseBody(((FullHttpResponse) msg).content().nioBuffer(), StandardCharsets.UTF_8);
             }
         } catch (Throwable e) {
             e.printStackTrace();
@@ -201,6 +243,7 @@ public class NettyUtils {
                 NewRelicSecurity.getAgent().registerOperation(rxssOperation);
             }
             ServletHelper.tmpFileCleanUp(NewRelicSecurity.getAgent().getSecurityMetaData().getFuzzRequestIdentifier().getTempFiles());
+            ServletHelper.releaseBodyCaptures(NewRelicSecurity.getAgent().getSecurityMetaData());
         } catch (Throwable e) {
             if (e instanceof NewRelicSecurityException) {
                 e.printStackTrace();
@@ -218,33 +261,14 @@ public class NettyUtils {
     }
 
     public static boolean isNettyLockAcquired() {
-        try {
-            return NewRelicSecurity.isHookProcessingActive() &&
-                    Boolean.TRUE.equals(NewRelicSecurity.getAgent().getSecurityMetaData().getCustomAttribute(getNrSecOperationalLockName(), Boolean.class));
-        } catch (Throwable ignored) {}
-        return false;
+        return GenericHelper.isLockAcquired(LockKind.NETTY_OPERATION);
     }
 
     public static boolean acquireNettyLockIfPossible() {
-        try {
-            if (NewRelicSecurity.isHookProcessingActive() &&
-                    !isNettyLockAcquired()) {
-                NewRelicSecurity.getAgent().getSecurityMetaData().addCustomAttribute(getNrSecOperationalLockName(), true);
-                return true;
-            }
-        } catch (Throwable ignored){}
-        return false;
+        return GenericHelper.acquireLockIfPossible(LockKind.NETTY_OPERATION);
     }
 
     public static void releaseNettyLock() {
-        try {
-            if(NewRelicSecurity.isHookProcessingActive()) {
-                NewRelicSecurity.getAgent().getSecurityMetaData().addCustomAttribute(getNrSecOperationalLockName(), null);
-            }
-        } catch (Throwable ignored){}
-    }
-
-    private static String getNrSecOperationalLockName() {
-        return NR_SEC_NETTY_OPERATIONAL_LOCK + Thread.currentThread().getId();
+        GenericHelper.releaseLock(LockKind.NETTY_OPERATION);
     }
 }
@@ -77,13 +77,13 @@ public class ScriptRuntime_Instrumentation {
 
     private static void releaseLock(int code) {
         try {
-            GenericHelper.releaseLock(JSEngineUtils.NR_SEC_CUSTOM_ATTRIB_NAME+code);
+            GenericHelper.releaseLock(JSEngineUtils.NR_SEC_CUSTOM_ATTRIB_NAME, code);
         } catch (Throwable ignored) {}
     }
 
     private static boolean acquireLockIfPossible(int code) {
         try {
-            return GenericHelper.acquireLockIfPossible(JSEngineUtils.NR_SEC_CUSTOM_ATTRIB_NAME+code);
+            return GenericHelper.acquireLockIfPossible(JSEngineUtils.NR_SEC_CUSTOM_ATTRIB_NAME, code);
         } catch (Throwable ignored) {}
         return false;
     }
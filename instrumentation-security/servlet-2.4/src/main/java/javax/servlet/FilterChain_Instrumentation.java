@@ -9,6 +9,7 @@ import com.newrelic.api.agent.security.schema.HttpRequest;
 import com.newrelic.api.agent.security.schema.SecurityMetaData;
 import com.newrelic.api.agent.security.schema.exceptions.NewRelicSecurityException;
 import com.newrelic.api.agent.security.schema.operation.RXSSOperation;
+import com.newrelic.api.agent.security.utils.StackTraceCapture;
 import com.newrelic.api.agent.security.utils.logging.LogLevel;
 import com.newrelic.api.agent.weaver.MatchType;
 import com.newrelic.api.agent.weaver.Weave;
@@ -17,7 +18,6 @@ import com.newrelic.agent.security.instrumentation.servlet24.HttpServletHelper;
 
 import javax.servlet.http.HttpServletRequest;
 import java.io.IOException;
-import java.util.Arrays;
 
 @Weave(type = MatchType.Interface, originalName = "javax.servlet.FilterChain")
 public abstract class FilterChain_Instrumentation {
@@ -65,9 +65,8 @@ public abstract class FilterChain_Instrumentation {
                 securityRequest.setClientPort(String.valueOf(httpServletRequest.getRemotePort()));
             }
 
-            HttpServletHelper.processHttpRequestHeader(httpServletRequest, securityRequest);
-
-            securityMetaData.setTracingHeaderValue(HttpServletHelper.getTraceHeader(securityRequest.getHeaders()));
+            HttpServletHelper.processEntryHeaders(httpServletRequest, securityMetaData);
+            securityRequest.setDeferredParser(new HttpServletHelper.HeaderParser(httpServletRequest));
 
             securityRequest.setProtocol(httpServletRequest.getScheme());
             securityRequest.setUrl(httpServletRequest.getRequestURI());
@@ -81,10 +80,15 @@ public abstract class FilterChain_Instrumentation {
             securityRequest.setContentType(httpServletRequest.getContentType());
 
 
-            StackTraceElement[] trace = Thread.currentThread().getStackTrace();
-            securityMetaData.getMetaData().setServiceTrace(Arrays.copyOfRange(trace, 1, trace.length));
+            // Captured in this method so that it is the first frame of the trace.
+            securityMetaData.getMetaData().setServiceTrace(StackTraceCapture.capture(0));
             securityRequest.setRequestParsed(true);
+            ServletHelper.checkClientIpBlocking(securityMetaData);
         } catch (Throwable e){
+            if (e instanceof NewRelicSecurityException) {
+                NewRelicSecurity.getAgent().log(LogLevel.FINE, String.format(GenericHelper.SECURITY_EXCEPTION_MESSAGE, HttpServletHelper.SERVLET_2_4, e.getMessage()), this.getClass().getName());
+                throw e;
+            }
             NewRelicSecurity.getAgent().log(LogLevel.WARNING, String.format(GenericHelper.ERROR_GENERATING_HTTP_REQUEST, HttpServletHelper.SERVLET_2_4, e.getMessage()), e, this.getClass().getName());
         }
     }
@@ -106,6 +110,8 @@ public abstract class FilterChain_Instrumentation {
                 NewRelicSecurity.getAgent().registerOperation(rxssOperation);
             }
             ServletHelper.tmpFileCleanUp(NewRelicSecurity.getAgent().getSecurityMetaData().getFuzzRequestIdentifier().getTempFiles());
+            ServletHelper.releaseBodyCaptures(NewRelicSecurity.getAgent().getSecurityMetaData());
+            HttpServletHelper.releaseDeferredParser(request, NewRelicSecurity.getAgent().getSecurityMetaData().getRequest());
         } catch (Throwable e) {
             if (e instanceof NewRelicSecurityException) {
                 NewRelicSecurity.getAgent().log(LogLevel.WARNING, String.format(GenericHelper.SECURITY_EXCEPTION_MESSAGE, HttpServletHelper.SERVLET_2_4, e.getMessage()), e, FilterChain_Instrumentation.class.getName());
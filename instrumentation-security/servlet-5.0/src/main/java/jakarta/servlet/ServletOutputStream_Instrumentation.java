@@ -42,7 +42,7 @@ public abstract class ServletOutputStream_Instrumentation {
         // Preprocess Phase
         if(isLockAcquired){
             try {
-                NewRelicSecurity.getAgent().getSecurityMetaData().getResponse().getResponseBody().append((char) b);
+                NewRelicSecurity.getAgent().getSecurityMetaData().getResponse().appendResponseBody(b);
             } catch (Throwable ignored) {
 //                ignored.printStackTrace(System.out);
             }
@@ -64,7 +64,7 @@ public abstract class ServletOutputStream_Instrumentation {
         // Preprocess Phase
         if(isLockAcquired){
             try {
-                NewRelicSecurity.getAgent().getSecurityMetaData().getResponse().getResponseBody().append(o);
+                NewRelicSecurity.getAgent().getSecurityMetaData().getResponse().appendResponseBody(o);
             } catch (Throwable ignored) {
 //                ignored.printStackTrace(System.out);
             }
@@ -86,7 +86,7 @@ public abstract class ServletOutputStream_Instrumentation {
         // Preprocess Phase
         if(isLockAcquired){
             try {
-                NewRelicSecurity.getAgent().getSecurityMetaData().getResponse().getResponseBody().append(o);
+                NewRelicSecurity.getAgent().getSecurityMetaData().getResponse().appendResponseBody(String.valueOf(o));
             } catch (Throwable ignored) {
 //                ignored.printStackTrace(System.out);
             }
@@ -107,7 +107,7 @@ public abstract class ServletOutputStream_Instrumentation {
         // Preprocess Phase
         if(isLockAcquired){
             try {
-                NewRelicSecurity.getAgent().getSecurityMetaData().getResponse().getResponseBody().append(o);
+                NewRelicSecurity.getAgent().getSecurityMetaData().getResponse().appendResponseBody(String.valueOf(o));
             } catch (Throwable ignored) {
 //                ignored.printStackTrace(System.out);
             }
@@ -128,7 +128,7 @@ public abstract class ServletOutputStream_Instrumentation {
         // Preprocess Phase
         if(isLockAcquired){
             try {
-                NewRelicSecurity.getAgent().getSecurityMetaData().getResponse().getResponseBody().append(o);
+                NewRelicSecurity.getAgent().getSecurityMetaData().getResponse().appendResponseBody(String.valueOf(o));
             } catch (Throwable ignored) {
 //                ignored.printStackTrace(System.out);
             }
@@ -149,7 +149,7 @@ public abstract class ServletOutputStream_Instrumentation {
         // Preprocess Phase
         if(isLockAcquired){
             try {
-                NewRelicSecurity.getAgent().getSecurityMetaData().getResponse().getResponseBody().append(o);
+                NewRelicSecurity.getAgent().getSecurityMetaData().getResponse().appendResponseBody(String.valueOf(o));
             } catch (Throwable ignored) {
 //                ignored.printStackTrace(System.out);
             }
@@ -170,7 +170,7 @@ public abstract class ServletOutputStream_Instrumentation {
         // Preprocess Phase
         if(isLockAcquired){
             try {
-                NewRelicSecurity.getAgent().getSecurityMetaData().getResponse().getResponseBody().append(o);
+                NewRelicSecurity.getAgent().getSecurityMetaData().getResponse().appendResponseBody(String.valueOf(o));
             } catch (Throwable ignored) {
 //                ignored.printStackTrace(System.out);
             }
@@ -191,7 +191,7 @@ public abstract class ServletOutputStream_Instrumentation {
         // Preprocess Phase
         if(isLockAcquired){
             try {
-                NewRelicSecurity.getAgent().getSecurityMetaData().getResponse().getResponseBody().append(o);
+                NewRelicSecurity.getAgent().getSecurityMetaData().getResponse().appendResponseBody(String.valueOf(o));
             } catch (Throwable ignored) {
 //                ignored.printStackTrace(System.out);
             }
@@ -212,7 +212,7 @@ public abstract class ServletOutputStream_Instrumentation {
         // Preprocess Phase
         if(isLockAcquired){
             try {
-                NewRelicSecurity.getAgent().getSecurityMetaData().getResponse().getResponseBody().append(ServletResponseCallback.LF);
+                NewRelicSecurity.getAgent().getSecurityMetaData().getResponse().appendResponseBody(ServletResponseCallback.LF);
             } catch (Throwable ignored) {
 //                ignored.printStackTrace(System.out);
             }
@@ -233,8 +233,8 @@ public abstract class ServletOutputStream_Instrumentation {
         // Preprocess Phase
         if(isLockAcquired){
             try {
-                NewRelicSecurity.getAgent().getSecurityMetaData().getResponse().getResponseBody().append(o);
-                NewRelicSecurity.getAgent().getSecurityMetaData().getResponse().getResponseBody().append(ServletResponseCallback.LF);
+                NewRelicSecurity.getAgent().getSecurityMetaData().getResponse().appendResponseBody(o);
+                NewRelicSecurity.getAgent().getSecurityMetaData().getResponse().appendResponseBody(ServletResponseCallback.LF);
             } catch (Throwable ignored) {
 //                ignored.printStackTrace(System.out);
             }
@@ -255,8 +255,8 @@ public abstract class ServletOutputStream_Instrumentation {
         // Preprocess Phase
         if(isLockAcquired){
             try {
-                NewRelicSecurity.getAgent().getSecurityMetaData().getResponse().getResponseBody().append(o);
-                NewRelicSecurity.getAgent().getSecurityMetaData().getResponse().getResponseBody().append(ServletResponseCallback.LF);
+                NewRelicSecurity.getAgent().getSecurityMetaData().getResponse().appendResponseBody(String.valueOf(o));
+                NewRelicSecurity.getAgent().getSecurityMetaData().getResponse().appendResponseBody(ServletResponseCallback.LF);
             } catch (Throwable ignored) {
 //                ignored.printStackTrace(System.out);
             }
@@ -277,8 +277,8 @@ public abstract class ServletOutputStream_Instrumentation {
         // Preprocess Phase
         if(isLockAcquired){
             try {
-                NewRelicSecurity.getAgent().getSecurityMetaData().getResponse().getResponseBody().append(o);
-                NewRelicSecurity.getAgent().getSecurityMetaData().getResponse().getResponseBody().append(ServletResponseCallback.LF);
+                NewRelicSecurity.getAgent().getSecurityMetaData().getResponse().appendResponseBody(String.valueOf(o));
+                NewRelicSecurity.getAgent().getSecurityMetaData().getResponse().appendResponseBody(ServletResponseCallback.LF);
             } catch (Throwable ignored) {
 //                ignored.printStackTrace(System.out);
             }
@@ -299,8 +299,8 @@ public abstract class ServletOutputStream_Instrumentation {
         // Preprocess Phase
         if(isLockAcquired){
             try {
-                NewRelicSecurity.getAgent().getSecurityMetaData().getResponse().getResponseBody().append(o);
-                NewRelicSecurity.getAgent().getSecurityMetaData().getResponse().getResponseBody().append(ServletResponseCallback.LF);
+                NewRelicSecurity.getAgent().getSecurityMetaData().getResponse().appendResponseBody(String.valueOf(o));
+                NewRelicSecurity.getAgent().getSecurityMetaData().getResponse().appendResponseBody(ServletResponseCallback.LF);
             } catch (Throwable ignored) {
 //                ignored.printStackTrace(System.out);
             }
@@ -321,8 +321,8 @@ public abstract class ServletOutputStream_Instrumentation {
         // Preprocess Phase
         if(isLockAcquired){
             try {
-                NewRelicSecurity.getAgent().getSecurityMetaData().getResponse().getResponseBody().append(o);
-                NewRelicSecurity.getAgent().getSecurityMetaData().getResponse().getResponseBody().append(ServletResponseCallback.LF);
+                NewRelicSecurity.getAgent().getSecurityMetaData().getResponse().appendResponseBody(String.valueOf(o));
+                NewRelicSecurity.getAgent().getSecurityMetaData().getResponse().appendResponseBody(ServletResponseCallback.LF);
             } catch (Throwable ignored) {
 //                ignored.printStackTrace(System.out);
             }
@@ -343,8 +343,8 @@ public abstract class ServletOutputStream_Instrumentation {
         // Preprocess Phase
         if(isLockAcquired){
             try {
-                NewRelicSecurity.getAgent().getSecurityMetaData().getResponse().getResponseBody().append(o);
-                NewRelicSecurity.getAgent().getSecurityMetaData().getResponse().getResponseBody().append(ServletResponseCallback.LF);
+                NewRelicSecurity.getAgent().getSecurityMetaData().getResponse().appendResponseBody(String.valueOf(o));
+                NewRelicSecurity.getAgent().getSecurityMetaData().getResponse().appendResponseBody(ServletResponseCallback.LF);
             } catch (Throwable ignored) {
 //                ignored.printStackTrace(System.out);
             }
@@ -365,8 +365,8 @@ public abstract class ServletOutputStream_Instrumentation {
         // Preprocess Phase
         if(isLockAcquired){
             try {
-                NewRelicSecurity.getAgent().getSecurityMetaData().getResponse().getResponseBody().append(o);
-                NewRelicSecurity.getAgent().getSecurityMetaData().getResponse().getResponseBody().append(ServletResponseCallback.LF);
+                NewRelicSecurity.getAgent().getSecurityMetaData().getResponse().appendResponseBody(String.valueOf(o));
+                NewRelicSecurity.getAgent().getSecurityMetaData().getResponse().appendResponseBody(ServletResponseCallback.LF);
             } catch (Throwable ignored) {
 //                ignored.printStackTrace(System.out);
             }
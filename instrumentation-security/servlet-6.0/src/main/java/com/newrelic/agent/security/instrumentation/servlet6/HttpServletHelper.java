@@ -5,10 +5,13 @@ import com.newrelic.api.agent.security.instrumentation.helpers.*;
 import com.newrelic.api.agent.security.schema.AgentMetaData;
 import com.newrelic.api.agent.security.schema.ApplicationURLMapping;
 import com.newrelic.api.agent.security.schema.HttpRequest;
+import com.newrelic.api.agent.security.schema.LockKind;
+import com.newrelic.api.agent.security.schema.SecurityMetaData;
 import com.newrelic.api.agent.security.schema.policy.AgentPolicy;
 import com.newrelic.api.agent.security.utils.logging.LogLevel;
 import jakarta.servlet.ServletContext;
 import jakarta.servlet.ServletRegistration;
+import jakarta.servlet.ServletRequest;
 import jakarta.servlet.http.HttpServletRequest;
 
 import java.util.Collection;
@@ -28,43 +31,60 @@ public class HttpServletHelper {
     private static final String SEPARATOR = "/";
     public static final String SERVLET_6_0 = "SERVLET-6.0";
 
+    /**
+     * Reads the headers needed at the request entry: the IAST fuzz request and parent ids, the client IP from
+     * X-Forwarded-For if the policy asks for it, and the distributed tracing header. The other headers are copied by
+     * {@link HeaderParser} once they are read.
+     */
+    public static void processEntryHeaders(HttpServletRequest request, SecurityMetaData securityMetaData) {
+        HttpRequest securityRequest = securityMetaData.getRequest();
+        String fuzzRequestId = request.getHeader(ServletHelper.CSEC_IAST_FUZZ_REQUEST_ID);
+        if (fuzzRequestId != null) {
+            // TODO: May think of removing this intermediate obj and directly create K2 Identifier.
+            securityMetaData.setFuzzRequestIdentifier(ServletHelper.parseFuzzRequestIdentifierHeader(fuzzRequestId));
+        }
+        String parentId = request.getHeader(GenericHelper.CSEC_PARENT_ID);
+        if (parentId != null) {
+            securityMetaData.addCustomAttribute(GenericHelper.CSEC_PARENT_ID, parentId);
+        }
+        AgentPolicy agentPolicy = NewRelicSecurity.getAgent().getCurrentPolicy();
+        if (agentPolicy != null
+                && agentPolicy.getProtectionMode().getEnabled()
+                && agentPolicy.getProtectionMode().getIpBlocking().getEnabled()
+                && agentPolicy.getProtectionMode().getIpBlocking().getIpDetectViaXFF()) {
+            Enumeration<String> headerElements = request.getHeaders(X_FORWARDED_FOR);
+            while (headerElements != null && headerElements.hasMoreElements()) {
+                String headerValue = headerElements.nextElement();
+                if (headerValue != null && !headerValue.trim().isEmpty()) {
+                    AgentMetaData agentMetaData = securityMetaData.getMetaData();
+                    agentMetaData.setClientDetectedFromXFF(true);
+                    securityRequest.setClientIP(headerValue);
+                    agentMetaData.getIps().add(securityRequest.getClientIP());
+                    securityRequest.setClientPort(EMPTY);
+                    break;
+                }
+            }
+        }
+        String traceHeader = request.getHeader(ServletHelper.CSEC_DISTRIBUTED_TRACING_HEADER);
+        securityMetaData.setTracingHeaderValue(traceHeader != null ? traceHeader : EMPTY);
+    }
+
+    /**
+     * Copies the headers of the request, with lower case names and the values of a repeated header joined.
+     */
     public static void processHttpRequestHeader(HttpServletRequest request, HttpRequest securityRequest){
+        Map<String, String> headers = securityRequest.getHeaders();
         Enumeration<String> headerNames = request.getHeaderNames();
-        while (headerNames.hasMoreElements()) {
-            boolean takeNextValue = false;
+        while (headerNames != null && headerNames.hasMoreElements()) {
             String headerKey = headerNames.nextElement();
-            if(headerKey != null){
-                headerKey = headerKey.toLowerCase();
-            }
-            AgentPolicy agentPolicy = NewRelicSecurity.getAgent().getCurrentPolicy();
-            AgentMetaData agentMetaData = NewRelicSecurity.getAgent().getSecurityMetaData().getMetaData();
-            if (agentPolicy != null
-                    && agentPolicy.getProtectionMode().getEnabled()
-                    && agentPolicy.getProtectionMode().getIpBlocking().getEnabled()
-                    && agentPolicy.getProtectionMode().getIpBlocking().getIpDetectViaXFF()
-                    && X_FORWARDED_FOR.equals(headerKey)) {
-                takeNextValue = true;
-            } else if (ServletHelper.CSEC_IAST_FUZZ_REQUEST_ID.equals(headerKey)) {
-                // TODO: May think of removing this intermediate obj and directly create K2 Identifier.
-                NewRelicSecurity.getAgent().getSecurityMetaData().setFuzzRequestIdentifier(ServletHelper.parseFuzzRequestIdentifierHeader(request.getHeader(headerKey)));
-            } else if(GenericHelper.CSEC_PARENT_ID.equals(headerKey)) {
-                NewRelicSecurity.getAgent().getSecurityMetaData()
-                        .addCustomAttribute(GenericHelper.CSEC_PARENT_ID, request.getHeader(headerKey));
+            if (headerKey == null) {
+                continue;
             }
-
             String headerFullValue = EMPTY;
             Enumeration<String> headerElements = request.getHeaders(headerKey);
             while (headerElements.hasMoreElements()) {
                 String headerValue = headerElements.nextElement();
                 if (headerValue != null && !headerValue.trim().isEmpty()) {
-                    if (takeNextValue) {
-                        agentMetaData.setClientDetectedFromXFF(true);
-                        securityRequest.setClientIP(headerValue);
-                        agentMetaData.getIps()
-                                .add(securityRequest.getClientIP());
-                        securityRequest.setClientPort(EMPTY);
-                        takeNextValue = false;
-                    }
                     if (headerFullValue.trim().isEmpty()) {
                         headerFullValue = headerValue;
                     } else {
@@ -72,9 +92,41 @@ public class HttpServletHelper {
                     }
                 }
             }
-            securityRequest.getHeaders().put(headerKey, headerFullValue);
+            headers.put(headerKey.toLowerCase(), headerFullValue);
         }
+    }
+
+    /**
+     * Copies the headers of the server request on first use, see {@link HttpRequest#setDeferredParser}.
+     */
+    public static final class HeaderParser implements HttpRequest.DeferredParser {
+        private final HttpServletRequest request;
 
+        public HeaderParser(HttpServletRequest request) {
+            this.request = request;
+        }
+
+        @Override
+        public void parse(HttpRequest securityRequest) {
+            processHttpRequestHeader(request, securityRequest);
+        }
+    }
+
+    /**
+     * Lets go of the server request once it completed. Async processing may still read the deferred parts of the
+     * request, so they are parsed first if it started. Otherwise they are dropped unparsed.
+     */
+    public static void releaseDeferredParser(ServletRequest request, HttpRequest securityRequest) {
+        boolean asyncStarted = false;
+        try {
+            asyncStarted = request.isAsyncStarted();
+        } catch (Throwable ignored) {
+            // No async processing before Servlet 3.0.
+        }
+        if (asyncStarted) {
+            securityRequest.materialize();
+        }
+        securityRequest.releaseDeferredParser();
     }
 
     public static String getTraceHeader(Map<String, String> headers) {
@@ -89,34 +141,15 @@ public class HttpServletHelper {
     }
 
     public static boolean isServletLockAcquired() {
-        try {
-            return NewRelicSecurity.isHookProcessingActive() &&
-                    Boolean.TRUE.equals(NewRelicSecurity.getAgent().getSecurityMetaData().getCustomAttribute(getNrSecCustomAttribName(), Boolean.class));
-        } catch (Throwable ignored) {}
-        return false;
+        return GenericHelper.isLockAcquired(LockKind.SERVLET);
     }
 
     public static boolean acquireServletLockIfPossible() {
-        try {
-            if (NewRelicSecurity.isHookProcessingActive() &&
-                    !isServletLockAcquired()) {
-                NewRelicSecurity.getAgent().getSecurityMetaData().addCustomAttribute(getNrSecCustomAttribName(), true);
-                return true;
-            }
-        } catch (Throwable ignored){}
-        return false;
+        return GenericHelper.acquireLockIfPossible(LockKind.SERVLET);
     }
 
     public static void releaseServletLock() {
-        try {
-            if(NewRelicSecurity.isHookProcessingActive()) {
-                NewRelicSecurity.getAgent().getSecurityMetaData().addCustomAttribute(getNrSecCustomAttribName(), null);
-            }
-        } catch (Throwable ignored){}
-    }
-
-    private static String getNrSecCustomAttribName() {
-        return NR_SEC_CUSTOM_ATTRIB_NAME + Thread.currentThread().getId();
+        GenericHelper.releaseLock(LockKind.SERVLET);
     }
 
     public static void gatherURLMappings(ServletContext servletContext) {
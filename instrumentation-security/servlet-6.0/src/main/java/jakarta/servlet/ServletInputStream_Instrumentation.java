@@ -55,7 +55,7 @@ public abstract class ServletInputStream_Instrumentation{
         // Postprocess Phase
         if(isLockAcquired && returnData>0){
             try {
-                NewRelicSecurity.getAgent().getSecurityMetaData().getRequest().getBody().append((char) returnData);
+                NewRelicSecurity.getAgent().getSecurityMetaData().getRequest().appendBody(returnData);
             } catch (Throwable ignored) {
 //                ignored.printStackTrace(System.out);
             }
@@ -81,12 +81,7 @@ public abstract class ServletInputStream_Instrumentation{
         // Postprocess Phase
         if(isLockAcquired && returnData>0){
             try {
-                char[] data = new char[returnData];
-                for (int i = off, y = 0; i < off + returnData; i++, y++) {
-                    data[y] = (char) b[i];
-                }
-//                    System.out.println("Writing from IS 4" + this.hashCode() + " : " + String.valueOf(data));
-                NewRelicSecurity.getAgent().getSecurityMetaData().getRequest().getBody().append(data);
+                NewRelicSecurity.getAgent().getSecurityMetaData().getRequest().appendBody(b, off, returnData);
             } catch (Throwable e) {
                 NewRelicSecurity.getAgent().log(LogLevel.WARNING, String.format(IOStreamHelper.ERROR_WHILE_READING_STREAM, HttpServletHelper.SERVLET_6_0, e.getMessage()), e, ServletInputStream_Instrumentation.class.getName());
             }
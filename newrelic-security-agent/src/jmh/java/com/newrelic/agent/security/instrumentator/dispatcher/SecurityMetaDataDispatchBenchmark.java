@@ -0,0 +1,71 @@
+package com.newrelic.agent.security.instrumentator.dispatcher;
+
+import com.newrelic.api.agent.security.schema.SecurityMetaData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static com.newrelic.agent.security.intcodeagent.logging.IAgentConstants.NR_APM_SPAN_ID;
+import static com.newrelic.agent.security.intcodeagent.logging.IAgentConstants.NR_APM_TRACE_ID;
+
+/**
+ * Measures the per event cost of handing the transaction metadata over to a {@link Dispatcher}, as done by
+ * {@link DispatcherPool#dispatchEvent}, for different request body sizes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SecurityMetaDataDispatchBenchmark {
+
+    @Param({"1024", "65536", "1048576"})
+    private int bodySize;
+
+    private SecurityMetaData securityMetaData;
+
+    private long eventCount;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        char[] body = new char[bodySize];
+        Arrays.fill(body, 'a');
+
+        securityMetaData = new SecurityMetaData();
+        securityMetaData.getRequest().setMethod("POST");
+        securityMetaData.getRequest().setUrl("/benchmark?id=1");
+        securityMetaData.getRequest().setContentType("application/json");
+        securityMetaData.getRequest().getBody().append(body);
+        for (int i = 0; i < 20; i++) {
+            securityMetaData.getRequest().getHeaders().put("header-" + i, "value-" + i);
+            securityMetaData.getRequest().getParameterMap().put("param-" + i, new String[]{"value-" + i});
+        }
+        securityMetaData.getMetaData().setApiBlocked(false);
+    }
+
+    private void updateTraceInfo() {
+        // Every event carries its own span, like in DispatcherPool#dispatchEvent.
+        eventCount++;
+        securityMetaData.addCustomAttribute(NR_APM_TRACE_ID, "trace");
+        securityMetaData.addCustomAttribute(NR_APM_SPAN_ID, Long.toHexString(eventCount));
+    }
+
+    @Benchmark
+    public SecurityMetaData deepCopy() {
+        updateTraceInfo();
+        return new SecurityMetaData(securityMetaData);
+    }
+
+    @Benchmark
+    public SecurityMetaData snapshot() {
+        updateTraceInfo();
+        return securityMetaData.snapshot();
+    }
+}
@@ -0,0 +1,102 @@
+package com.newrelic.agent.security.instrumentator.httpclient;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replayed requests per second against a local test server, with as many threads as {@link RestRequestThreadPool}
+ * runs: a per thread client whose connection is evicted after every request, as {@link RestClient} used to do,
+ * versus the shared keep-alive client of {@link RestClient}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(5)
+public class ReplayClientBenchmark {
+
+    private static final byte[] RESPONSE = "{\"status\":\"ok\"}".getBytes(StandardCharsets.UTF_8);
+
+    private HttpServer server;
+
+    private Request request;
+
+    private OkHttpClient sharedClient;
+
+    private final ThreadLocal<OkHttpClient> perThreadClient = new ThreadLocal<OkHttpClient>() {
+        @Override
+        protected OkHttpClient initialValue() {
+            return new OkHttpClient.Builder()
+                    .connectionPool(new ConnectionPool(1, 5, TimeUnit.MINUTES))
+                    .callTimeout(10, TimeUnit.SECONDS)
+                    .build();
+        }
+    };
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 50);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, RESPONSE.length);
+                try (OutputStream body = exchange.getResponseBody()) {
+                    body.write(RESPONSE);
+                }
+            }
+        });
+        server.setExecutor(Executors.newFixedThreadPool(8));
+        server.start();
+
+        request = new Request.Builder()
+                .url("http://localhost:" + server.getAddress().getPort() + "/api/v1/users?id=1")
+                .header("NR-CSEC-FUZZ-REQUEST-ID", "benchmark")
+                .build();
+        sharedClient = RestClient.getInstance().getClient();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Benchmark
+    public int evictAfterEachRequest() throws IOException {
+        OkHttpClient client = perThreadClient.get();
+        try (Response response = client.newCall(request).execute()) {
+            response.body().string();
+            client.connectionPool().evictAll();
+            return response.code();
+        }
+    }
+
+    @Benchmark
+    public int sharedKeepAlive() throws IOException {
+        try (Response response = sharedClient.newCall(request).execute()) {
+            response.body().string();
+            return response.code();
+        }
+    }
+}
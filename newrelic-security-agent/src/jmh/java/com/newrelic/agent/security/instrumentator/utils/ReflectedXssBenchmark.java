@@ -0,0 +1,92 @@
+package com.newrelic.agent.security.instrumentator.utils;
+
+import com.newrelic.api.agent.security.schema.HttpRequest;
+import com.newrelic.api.agent.security.schema.HttpResponse;
+import org.apache.commons.lang3.StringUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reflected XSS lookup of the request constructs in a JSON response, for response sizes from 10 KB to 5 MB: the
+ * former approach of unescaping the whole response until a fixpoint and searching every construct in the joined
+ * response forms, versus the streamed unescaping and single pass multi-pattern search of
+ * {@link CallbackUtils#checkForReflectedXSS}.
+ * <p>
+ * The reflected construct is escaped twice and sits at the end of the response, so both approaches go through
+ * every unescaping round and the whole text.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ReflectedXssBenchmark {
+
+    @Param({"10240", "102400", "1048576", "5242880"})
+    private int responseSize;
+
+    private HttpRequest request;
+
+    private HttpResponse response;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        request = new HttpRequest();
+        request.setUrl("/search?q=test");
+        request.getParameterMap().put("q", new String[]{"<script>alert(document.cookie)</script>"});
+        request.getParameterMap().put("img", new String[]{"<img src=x onerror=alert(1)>"});
+        request.getParameterMap().put("link", new String[]{"<a href=\"javascript:alert(1)\">click</a>"});
+
+        StringBuilder body = new StringBuilder(responseSize + 256);
+        body.append("{\"results\":[");
+        int i = 0;
+        while (body.length() < responseSize) {
+            body.append("{\"id\":").append(i).append(",\"title\":\"Result \\\"").append(i)
+                    .append("\\\" for <b>test</b>\",\"html\":\"<div class=\\\"row\\\">item ").append(i++).append("</div>\"},");
+        }
+        // Reflected payload, escaped twice.
+        body.append("{\"echo\":\"<script>alert(document.cookie)<\\\\/script>\"}]}");
+
+        response = new HttpResponse();
+        response.setResponseContentType(CallbackUtils.APPLICATION_JSON);
+        response.getResponseBody().append(body);
+    }
+
+    @Benchmark
+    public Set<String> joinAndContains() {
+        Set<String> constructs = CallbackUtils.isXSS(CallbackUtils.decodeRequestData(request));
+        String combinedResponse = StringUtils.joinWith(CallbackUtils.FIVE_COLON, CallbackUtils.decodeResponseData(response));
+        Set<String> found = new HashSet<>();
+        for (String construct : constructs) {
+            if (StringUtils.containsIgnoreCase(combinedResponse, construct)) {
+                found.add(construct);
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public Set<String> streamingMultiPattern() {
+        List<String> constructs = new ArrayList<>(CallbackUtils.isXSS(CallbackUtils.decodeRequestData(request)));
+        MultiPatternMatcher.Scan scan = new MultiPatternMatcher(constructs).newScan(false);
+        CallbackUtils.scanResponseData(response, scan);
+        Set<String> found = new HashSet<>();
+        BitSet matched = scan.getMatched();
+        for (int i = matched.nextSetBit(0); i >= 0; i = matched.nextSetBit(i + 1)) {
+            found.add(constructs.get(i));
+        }
+        return found;
+    }
+}
@@ -0,0 +1,119 @@
+package com.newrelic.agent.security.intcodeagent.ipblocking;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client IP lookup at request entry against the blocked IPs of the policy parameters, with up to 100k IPv4 and IPv6
+ * CIDR ranges, and the rebuild of the ranges done on every policy parameters update.
+ * <p>
+ * The IPv4 ranges all start with an octet below 127 and the missed addresses with an octet above 199, so the hit and
+ * miss lookups are deterministic. Addresses rotate over a pool larger than the caches of the trie nodes they touch.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class IpAddressRangesBenchmark {
+
+    private static final int ADDRESS_POOL_SIZE = 4096;
+
+    @Param({"1000", "100000"})
+    private int rangeCount;
+
+    private List<String> ranges;
+
+    private IpAddressRanges ipAddressRanges;
+
+    private String[] ipv4Hits;
+
+    private String[] ipv4Misses;
+
+    private String[] ipv6Hits;
+
+    private String[] forwardedForHits;
+
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(42);
+        ranges = new ArrayList<>(rangeCount);
+        List<int[]> ipv4Ranges = new ArrayList<>();
+        List<int[]> ipv6Ranges = new ArrayList<>();
+        for (int i = 0; i < rangeCount; i++) {
+            if (i % 5 == 4) {
+                int[] groups = new int[4];
+                groups[0] = 0x2001;
+                for (int g = 1; g < groups.length; g++) {
+                    groups[g] = random.nextInt(0x10000);
+                }
+                int prefixLength = 32 + random.nextInt(33);
+                ipv6Ranges.add(groups);
+                ranges.add(String.format("%x:%x:%x:%x::/%d", groups[0], groups[1], groups[2], groups[3], prefixLength));
+            } else {
+                int[] octets = {1 + random.nextInt(126), random.nextInt(256), random.nextInt(256), random.nextInt(256)};
+                int prefixLength = 16 + random.nextInt(17);
+                ipv4Ranges.add(octets);
+                ranges.add(octets[0] + "." + octets[1] + "." + octets[2] + "." + octets[3] + "/" + prefixLength);
+            }
+        }
+        ipAddressRanges = IpAddressRanges.build(ranges);
+
+        ipv4Hits = new String[ADDRESS_POOL_SIZE];
+        ipv4Misses = new String[ADDRESS_POOL_SIZE];
+        ipv6Hits = new String[ADDRESS_POOL_SIZE];
+        forwardedForHits = new String[ADDRESS_POOL_SIZE];
+        for (int i = 0; i < ADDRESS_POOL_SIZE; i++) {
+            // Ranges are at most /32 for IPv4 and /64 for IPv6, the address of the range itself is always in it.
+            int[] octets = ipv4Ranges.get(random.nextInt(ipv4Ranges.size()));
+            ipv4Hits[i] = octets[0] + "." + octets[1] + "." + octets[2] + "." + octets[3];
+            ipv4Misses[i] = (200 + random.nextInt(24)) + "." + random.nextInt(256) + "." + random.nextInt(256) + "." + random.nextInt(256);
+            int[] groups = ipv6Ranges.isEmpty() ? new int[]{0x2001, 0, 0, 0} : ipv6Ranges.get(random.nextInt(ipv6Ranges.size()));
+            ipv6Hits[i] = String.format("%x:%x:%x:%x:%x:%x:%x:%x", groups[0], groups[1], groups[2], groups[3],
+                    random.nextInt(0x10000), random.nextInt(0x10000), random.nextInt(0x10000), random.nextInt(0x10000));
+            forwardedForHits[i] = ipv4Hits[i] + ", 10.0.0.1, 172.16.0.1";
+        }
+    }
+
+    private int next() {
+        return index++ & (ADDRESS_POOL_SIZE - 1);
+    }
+
+    @Benchmark
+    public boolean ipv4Hit() {
+        return ipAddressRanges.contains(ipv4Hits[next()]);
+    }
+
+    @Benchmark
+    public boolean ipv4Miss() {
+        return ipAddressRanges.contains(ipv4Misses[next()]);
+    }
+
+    @Benchmark
+    public boolean ipv6Hit() {
+        return ipAddressRanges.contains(ipv6Hits[next()]);
+    }
+
+    @Benchmark
+    public boolean forwardedForHit() {
+        return ipAddressRanges.contains(forwardedForHits[next()]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public IpAddressRanges build() {
+        return IpAddressRanges.build(ranges);
+    }
+}
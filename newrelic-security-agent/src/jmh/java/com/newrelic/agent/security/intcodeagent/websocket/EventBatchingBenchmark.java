@@ -0,0 +1,203 @@
+package com.newrelic.agent.security.intcodeagent.websocket;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.java_websocket.WebSocket;
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.drafts.Draft;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.extensions.IExtension;
+import org.java_websocket.extensions.permessage_deflate.PerMessageDeflateExtension;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.handshake.ServerHandshake;
+import org.java_websocket.server.WebSocketServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the events per second delivered to a local stand-in validator, one event per frame as
+ * {@link WSClient#send(String)} does, versus {@link EventBatcher} frames, with and without permessage-deflate.
+ * <p>
+ * The stand-in validator checks the framing of every received frame: a single JSON object when batching is off and
+ * a JSON array of events when it is on.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class EventBatchingBenchmark {
+
+    private static final int EVENTS_PER_INVOCATION = 1000;
+
+    @Param({"false", "true"})
+    private boolean batching;
+
+    @Param({"false", "true"})
+    private boolean compression;
+
+    private StandInValidator validator;
+
+    private WebSocketClient client;
+
+    private EventBatcher batcher;
+
+    private String event;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        StringBuilder payload = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            payload.append("/app/path/segment").append(i);
+        }
+        event = "{\"jsonName\":\"Event\",\"caseType\":\"SQL_DB_COMMAND\",\"eventCategory\":\"SQL\",\"applicationUUID\":"
+                + "\"5c4a5d6e-3b2a-4f1e-9d8c-7b6a5f4e3d2c\",\"parameters\":[\"SELECT * FROM users WHERE id = ?\"],"
+                + "\"stacktrace\":[\"" + payload + "\"],\"httpRequest\":{\"method\":\"GET\",\"url\":\"/users?id=1\"}}";
+
+        validator = new StandInValidator(batching, draft());
+        validator.start();
+        validator.started.await(10, TimeUnit.SECONDS);
+
+        client = new WebSocketClient(new URI("ws://localhost:" + validator.getPort()), draft()) {
+            @Override
+            public void onOpen(ServerHandshake handshakedata) {
+            }
+
+            @Override
+            public void onMessage(String message) {
+            }
+
+            @Override
+            public void onClose(int code, String reason, boolean remote) {
+            }
+
+            @Override
+            public void onError(Exception ex) {
+            }
+        };
+        client.setTcpNoDelay(true);
+        client.connectBlocking(10, TimeUnit.SECONDS);
+
+        batcher = new EventBatcher(new EventBatcher.FrameSink() {
+            @Override
+            public boolean send(String frame) {
+                client.send(frame);
+                return true;
+            }
+
+            @Override
+            public boolean isBacklogged() {
+                return client.hasBufferedData();
+            }
+
+            @Override
+            public void unsent(String event) {
+                throw new IllegalStateException("Frame not sent");
+            }
+        }, 100, 512 * 1024, 100);
+    }
+
+    private Draft draft() {
+        if (compression) {
+            return new Draft_6455(Collections.<IExtension>singletonList(new PerMessageDeflateExtension()));
+        }
+        return new Draft_6455();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        client.closeBlocking();
+        validator.stop(1000);
+        if (validator.framingErrors.get() > 0) {
+            throw new IllegalStateException(validator.framingErrors.get() + " malformed frames received");
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS_PER_INVOCATION)
+    public void send() throws InterruptedException {
+        long expected = validator.events.get() + EVENTS_PER_INVOCATION;
+        for (int i = 0; i < EVENTS_PER_INVOCATION; i++) {
+            if (batching) {
+                batcher.add(event, null, i < EVENTS_PER_INVOCATION - 1);
+            } else {
+                client.send(event);
+            }
+        }
+        // Events are only delivered once the validator has read them.
+        while (validator.events.get() < expected && validator.framingErrors.get() == 0) {
+            Thread.sleep(0, 100_000);
+        }
+    }
+
+    private static final class StandInValidator extends WebSocketServer {
+
+        private final ObjectMapper mapper = new ObjectMapper();
+
+        private final boolean batching;
+
+        private final CountDownLatch started = new CountDownLatch(1);
+
+        private final AtomicLong events = new AtomicLong();
+
+        private final AtomicLong framingErrors = new AtomicLong();
+
+        private StandInValidator(boolean batching, Draft draft) {
+            super(new InetSocketAddress("localhost", 0), Collections.singletonList(draft));
+            this.batching = batching;
+            setReuseAddr(true);
+        }
+
+        @Override
+        public void onStart() {
+            started.countDown();
+        }
+
+        @Override
+        public void onMessage(WebSocket conn, String message) {
+            try {
+                JsonNode frame = mapper.readTree(message);
+                if (batching && frame.isArray()) {
+                    for (JsonNode event : frame) {
+                        if (!event.isObject()) {
+                            framingErrors.incrementAndGet();
+                        }
+                    }
+                    events.addAndGet(frame.size());
+                } else if (!batching && frame.isObject()) {
+                    events.incrementAndGet();
+                } else {
+                    framingErrors.incrementAndGet();
+                }
+            } catch (Exception e) {
+                framingErrors.incrementAndGet();
+            }
+        }
+
+        @Override
+        public void onOpen(WebSocket conn, ClientHandshake handshake) {
+        }
+
+        @Override
+        public void onClose(WebSocket conn, int code, String reason, boolean remote) {
+        }
+
+        @Override
+        public void onError(WebSocket conn, Exception ex) {
+        }
+    }
+}
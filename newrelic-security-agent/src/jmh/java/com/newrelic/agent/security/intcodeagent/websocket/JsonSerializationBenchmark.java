@@ -0,0 +1,86 @@
+package com.newrelic.agent.security.intcodeagent.websocket;
+
+import com.newrelic.agent.security.intcodeagent.models.javaagent.JavaAgentEventBean;
+import com.newrelic.api.agent.security.schema.AgentMetaData;
+import com.newrelic.api.agent.security.schema.HttpRequest;
+import org.json.simple.JSONArray;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the per event cost of turning a {@link JavaAgentEventBean} into the UTF-8 payload of a WebSocket frame:
+ * through an intermediate String, as {@link WSClient#send(String)} needs it, versus streaming into the thread's
+ * reusable buffer with {@link JsonConverter#toJSONBytes(Object)}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JsonSerializationBenchmark {
+
+    private static final int STACK_DEPTH = 100;
+
+    private JavaAgentEventBean event;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        HttpRequest request = new HttpRequest();
+        request.setMethod("POST");
+        request.setUrl("/api/v1/users/search?name=john&sort=asc");
+        request.setContentType("application/json");
+        request.setClientIP("10.20.30.40");
+        request.setServerPort(8080);
+        request.getBody().append("{\"name\":\"john\",\"filters\":{\"age\":30,\"city\":\"Los Angeles\"},\"note\":\"<script>alert('x')</script>\"}");
+        for (int i = 0; i < 20; i++) {
+            request.getHeaders().put("x-header-" + i, "value-" + i + "; charset=utf-8");
+            request.getParameterMap().put("param-" + i, new String[]{"value-" + i});
+        }
+
+        StackTraceElement[] stackTrace = new StackTraceElement[STACK_DEPTH];
+        for (int i = 0; i < STACK_DEPTH; i++) {
+            stackTrace[i] = new StackTraceElement("com.example.app.layer" + (i % 7) + ".Component" + i,
+                    "handle" + (i % 5), "Component" + i + ".java", 40 + i);
+        }
+
+        JSONArray parameters = new JSONArray();
+        parameters.add("SELECT * FROM users WHERE name = ? AND city = ? ORDER BY created_at");
+        parameters.add("john");
+
+        event = new JavaAgentEventBean();
+        event.setHttpRequest(request);
+        event.setMetaData(new AgentMetaData());
+        event.setCaseType("SQL_DB_COMMAND");
+        event.setEventCategory("MYSQL");
+        event.setSourceMethod("java.sql.Statement.executeQuery");
+        event.setParameters(parameters);
+        event.setStacktrace(stackTrace);
+        event.setApplicationUUID("5c4a5d6e-3b2a-4f1e-9d8c-7b6a5f4e3d2c");
+        event.setId("1234:5678");
+        event.setApiId("0f8c0e2c7f2b1a9f8e7d6c5b4a39281706f5e4d3c2b1a09f8e7d6c5b4a392817");
+        event.setStartTime(System.currentTimeMillis());
+    }
+
+    @Benchmark
+    public byte[] string() {
+        return JsonConverter.toJSONObjectMapper(event).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] k2String() {
+        return JsonConverter.toJSONK2Impl(event).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public ByteBuffer streaming() {
+        return JsonConverter.toJSONBytes(event);
+    }
+}
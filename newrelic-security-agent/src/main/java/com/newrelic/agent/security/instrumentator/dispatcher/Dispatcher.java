@@ -5,16 +5,15 @@ import com.newrelic.agent.security.AgentInfo;
 import com.newrelic.agent.security.instrumentator.helper.DynamoDBRequestConverter;
 import com.newrelic.agent.security.instrumentator.utils.AgentUtils;
 import com.newrelic.agent.security.instrumentator.utils.CallbackUtils;
-import com.newrelic.agent.security.instrumentator.utils.INRSettingsKey;
 import com.newrelic.agent.security.intcodeagent.filelogging.FileLoggerThreadPool;
 import com.newrelic.api.agent.security.Agent;
 import com.newrelic.api.agent.security.utils.logging.LogLevel;
 import com.newrelic.agent.security.intcodeagent.logging.DeployedApplication;
+import com.newrelic.agent.security.intcodeagent.models.config.SecurityConfigSnapshot;
 import com.newrelic.agent.security.intcodeagent.models.javaagent.ExitEventBean;
 import com.newrelic.agent.security.intcodeagent.models.javaagent.JavaAgentEventBean;
 import com.newrelic.agent.security.intcodeagent.websocket.EventSendPool;
 import com.newrelic.agent.security.intcodeagent.websocket.JsonConverter;
-import com.newrelic.api.agent.NewRelic;
 import com.newrelic.api.agent.security.instrumentation.helpers.AppServerInfoHelper;
 import com.newrelic.api.agent.security.instrumentation.helpers.GenericHelper;
 import com.newrelic.api.agent.security.instrumentation.helpers.SystemCommandUtils;
@@ -69,6 +68,7 @@ public class Dispatcher implements Callable {
     private SecurityMetaData securityMetaData;
     private Map<String, Object> extraInfo = new HashMap<String, Object>();
     private boolean isNRCode = false;
+    private int duplicateEventCount;
     private static AtomicBoolean firstEventSent = new AtomicBoolean(false);
     private final String SQL_STORED_PROCEDURE ="SQL_STORED_PROCEDURE";
 
@@ -92,6 +92,14 @@ public class Dispatcher implements Callable {
         extraInfo.put(BLOCKING_END_TIME, System.currentTimeMillis());
     }
 
+    /**
+     * @param duplicateEventCount number of identical events coalesced into this one by {@link RaspEventSampler}
+     */
+    public Dispatcher(AbstractOperation operation, SecurityMetaData securityMetaData, int duplicateEventCount) {
+        this(operation, securityMetaData);
+        this.duplicateEventCount = duplicateEventCount;
+    }
+
 
     public Dispatcher(ExitEventBean exitEventBean) {
         this.exitEventBean = exitEventBean;
@@ -297,8 +305,7 @@ public class Dispatcher implements Callable {
     private JavaAgentEventBean processFileOperationEvent(JavaAgentEventBean eventBean, FileOperation fileOperationalBean) {
         prepareFileEvent(eventBean, fileOperationalBean);
         String URL = StringUtils.substringBefore(securityMetaData.getRequest().getUrl(), QUESTION_CHAR);
-        if (!(AgentUtils.getInstance().getAgentPolicy().getVulnerabilityScan().getEnabled()
-                && AgentUtils.getInstance().getAgentPolicy().getVulnerabilityScan().getIastScan().getEnabled()) && allowedExtensionFileIO(eventBean.getParameters(), eventBean.getSourceMethod(), URL)) {
+        if (!AgentUtils.getInstance().getConfigSnapshot().isIastEnabled() && allowedExtensionFileIO(eventBean.getParameters(), eventBean.getSourceMethod(), URL)) {
             // Event is bypassed. Drop it.
             return null;
         }
@@ -310,13 +317,13 @@ public class Dispatcher implements Callable {
      * Validate and send if required event for REFLECTED XSS
      */
     private void processReflectedXSSEvent(JavaAgentEventBean eventBean) {
-        if (!NewRelic.getAgent().getConfig().getValue(INRSettingsKey.SECURITY_DETECTION_RXSS_ENABLED, true)) {
+        SecurityConfigSnapshot config = AgentUtils.getInstance().getConfigSnapshot();
+        if (!config.isRxssDetectionEnabled()) {
             return;
         }
         Set<String> xssConstructs = CallbackUtils.checkForReflectedXSS(securityMetaData.getRequest(), securityMetaData.getResponse());
         if ((!xssConstructs.isEmpty() && !actuallyEmpty(xssConstructs) && StringUtils.isNotBlank(securityMetaData.getResponse().getResponseBody())) ||
-                (AgentUtils.getInstance().getAgentPolicy().getVulnerabilityScan().getEnabled()
-                        && AgentUtils.getInstance().getAgentPolicy().getVulnerabilityScan().getIastScan().getEnabled())) {
+                config.isIastEnabled()) {
             JSONArray params = new JSONArray();
             params.addAll(xssConstructs);
             params.add(securityMetaData.getResponse().getResponseBody());
@@ -631,6 +638,7 @@ public class Dispatcher implements Callable {
             VulnerabilityCaseType vulnerabilityCaseType, boolean deserialisationCheck) {
 
         String klassName = null;
+        deserialisationCheck = deserialisationCheck && AgentUtils.getInstance().getConfigSnapshot().isDeserializationDetectionEnabled();
         for (int i = 0; i < operation.getStackTrace().length; i++) {
             // TODO : check this sequence. Why this is being set from inside Deserialisation check.
 
@@ -662,9 +670,6 @@ public class Dispatcher implements Callable {
     }
 
     private void deserializationTriggerCheck(int index, JavaAgentEventBean eventBean, String klassName) {
-        if (!NewRelic.getAgent().getConfig().getValue(INRSettingsKey.SECURITY_DETECTION_DESERIALIZATION_ENABLED, true)) {
-            return;
-        }
         if (ObjectInputStream.class.getName().equals(klassName)
                 && StringUtils.equals(operation.getStackTrace()[index].getMethodName(), READ_OBJECT)) {
             eventBean.getMetaData().setTriggerViaDeserialisation(true);
@@ -672,7 +677,7 @@ public class Dispatcher implements Callable {
     }
 
     private void rciTriggerCheck(int index, JavaAgentEventBean eventBean, String klassName) {
-        if (!NewRelic.getAgent().getConfig().getValue(INRSettingsKey.SECURITY_DETECTION_RCI_ENABLED, true)) {
+        if (!AgentUtils.getInstance().getConfigSnapshot().isRciDetectionEnabled()) {
             return;
         }
 
@@ -699,6 +704,9 @@ public class Dispatcher implements Callable {
         eventBean.setStartTime(objectBean.getStartTime());
         eventBean.setBlockingProcessingTime((Long) extraInfo.get(BLOCKING_END_TIME) - eventBean.getStartTime());
         eventBean.setApiId(objectBean.getApiID());
+        if (duplicateEventCount > 0) {
+            eventBean.setDuplicateEventCount(duplicateEventCount);
+        }
         eventBean.setUserAPIInfo(operation.getUserClassEntity().getUserClassElement().getLineNumber(),
                 operation.getUserClassEntity().getUserClassElement().getClassName(),
                 operation.getUserClassEntity().getUserClassElement().getMethodName());
@@ -717,7 +725,7 @@ public class Dispatcher implements Callable {
         eventBean.setIsAPIBlocked(metaData.isApiBlocked());
         eventBean.setStacktrace(operation.getStackTrace());
         eventBean.setIsIASTRequest(k2RequestIdentifier.getK2Request());
-        if (AgentUtils.getInstance().getAgentPolicy().getVulnerabilityScan().getEnabled() && AgentUtils.getInstance().getAgentPolicy().getVulnerabilityScan().getIastScan().getEnabled()) {
+        if (AgentUtils.getInstance().getConfigSnapshot().isIastEnabled()) {
             eventBean.setIsIASTEnable(true);
         }
         return eventBean;
@@ -4,6 +4,8 @@ import com.newrelic.agent.security.AgentInfo;
 import com.newrelic.agent.security.instrumentator.httpclient.RestRequestThreadPool;
 import com.newrelic.agent.security.intcodeagent.executor.CustomFutureTask;
 import com.newrelic.agent.security.intcodeagent.executor.CustomThreadPoolExecutor;
+import com.newrelic.agent.security.intcodeagent.executor.DispatchLane;
+import com.newrelic.agent.security.intcodeagent.executor.PriorityLaneQueue;
 import com.newrelic.agent.security.intcodeagent.filelogging.FileLoggerThreadPool;
 import com.newrelic.api.agent.security.utils.logging.LogLevel;
 import com.newrelic.agent.security.intcodeagent.logging.IAgentConstants;
@@ -12,7 +14,6 @@ import com.newrelic.agent.security.intcodeagent.models.javaagent.ExitEventBean;
 import com.newrelic.api.agent.NewRelic;
 import com.newrelic.api.agent.TraceMetadata;
 import com.newrelic.api.agent.security.NewRelicSecurity;
-import com.newrelic.agent.security.util.AgentUsageMetric;
 import com.newrelic.agent.security.util.IUtilConstants;
 import com.newrelic.api.agent.security.instrumentation.helpers.GenericHelper;
 import com.newrelic.api.agent.security.instrumentation.helpers.GrpcClientRequestReplayHelper;
@@ -24,6 +25,7 @@ import java.util.HashSet;
 import java.util.Set;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 import static com.newrelic.agent.security.intcodeagent.logging.IAgentConstants.NR_APM_SPAN_ID;
 import static com.newrelic.agent.security.intcodeagent.logging.IAgentConstants.NR_APM_TRACE_ID;
@@ -36,7 +38,10 @@ public class DispatcherPool {
     private ThreadPoolExecutor executor;
     private static final FileLoggerThreadPool logger = FileLoggerThreadPool.getInstance();
 
-    final int queueSize = 300;
+    final int iastQueueSize = 300;
+    final int raspQueueSize = 200;
+    final int exitQueueSize = 100;
+    final int controlQueueSize = 50;
     final int maxPoolSize = 7;
     final int corePoolSize = 4;
     final long keepAliveTime = 10;
@@ -50,7 +55,26 @@ public class DispatcherPool {
     }
 
     public int getMaxQueueSize() {
-        return queueSize;
+        return iastQueueSize + raspQueueSize + exitQueueSize + controlQueueSize;
+    }
+
+    public PriorityLaneQueue getQueue() {
+        return (PriorityLaneQueue) executor.getQueue();
+    }
+
+    /**
+     * Lane of a task submitted to this pool.
+     */
+    static DispatchLane laneOf(Runnable r) {
+        if (r instanceof CustomFutureTask<?> && ((CustomFutureTask<?>) r).getTask() instanceof Dispatcher) {
+            Dispatcher dispatcher = (Dispatcher) ((CustomFutureTask<?>) r).getTask();
+            if (dispatcher.getSecurityMetaData() != null) {
+                return dispatcher.getSecurityMetaData().getFuzzRequestIdentifier().getK2Request() ? DispatchLane.IAST : DispatchLane.RASP;
+            } else if (dispatcher.getExitEventBean() != null) {
+                return DispatchLane.EXIT;
+            }
+        }
+        return DispatchLane.CONTROL;
     }
 
 
@@ -101,9 +125,14 @@ public class DispatcherPool {
     }
 
     private DispatcherPool() {
-        LinkedBlockingQueue<Runnable> processQueue;
+        PriorityLaneQueue processQueue;
         // load the settings
-        processQueue = new LinkedBlockingQueue<>(queueSize);
+        processQueue = new PriorityLaneQueue(new Function<Runnable, DispatchLane>() {
+            @Override
+            public DispatchLane apply(Runnable r) {
+                return laneOf(r);
+            }
+        }, iastQueueSize, raspQueueSize, exitQueueSize, controlQueueSize);
         eid = ConcurrentHashMap.newKeySet();
         executor = new CustomThreadPoolExecutor(corePoolSize, maxPoolSize, keepAliveTime, timeUnit, processQueue,
                 new EventAbortPolicy()) {
@@ -199,10 +228,12 @@ public class DispatcherPool {
             return;
         }
 
-        if(!securityMetaData.getFuzzRequestIdentifier().getK2Request() && !AgentUsageMetric.isRASPProcessingActive()){
-            AgentInfo.getInstance().getJaHealthCheck().getRaspEventStats().incrementRejectedCount();
-            AgentInfo.getInstance().getJaHealthCheck().incrementEventRejectionCount();
-            return;
+        int duplicateEventCount = 0;
+        if (!securityMetaData.getFuzzRequestIdentifier().getK2Request()) {
+            duplicateEventCount = RaspEventSampler.getInstance().admit(operation, securityMetaData);
+            if (duplicateEventCount == RaspEventSampler.REJECTED) {
+                return;
+            }
         }
 
         if (!operation.isEmpty() && securityMetaData.getFuzzRequestIdentifier().getK2Request()) {
@@ -228,11 +259,28 @@ public class DispatcherPool {
             }
         }
 
+        this.executor.submit(new Dispatcher(operation, snapshotForDispatch(securityMetaData), duplicateEventCount));
+    }
+
+    /**
+     * Dispatches an event held back by {@link RaspEventSampler}.
+     *
+     * @param securityMetaData    metadata snapshot taken through {@link #snapshotForDispatch(SecurityMetaData)}
+     * @param duplicateEventCount number of identical events coalesced into this one
+     */
+    void dispatchCoalescedEvent(AbstractOperation operation, SecurityMetaData securityMetaData, int duplicateEventCount) {
+        if (executor.isShutdown()) {
+            return;
+        }
+        this.executor.submit(new Dispatcher(operation, securityMetaData, duplicateEventCount));
+    }
+
+    static SecurityMetaData snapshotForDispatch(SecurityMetaData securityMetaData) {
         // Update NR Trace info
         TraceMetadata traceMetadata = NewRelic.getAgent().getTraceMetadata();
         securityMetaData.addCustomAttribute(NR_APM_TRACE_ID, traceMetadata.getTraceId());
         securityMetaData.addCustomAttribute(NR_APM_SPAN_ID, traceMetadata.getSpanId());
-        this.executor.submit(new Dispatcher(operation, new SecurityMetaData(securityMetaData)));
+        return securityMetaData.snapshot();
     }
 
     public void dispatchExitEvent(ExitEventBean exitEventBean) {
@@ -274,5 +322,6 @@ public class DispatcherPool {
 
     public void reset() {
         executor.getQueue().clear();
+        RaspEventSampler.getInstance().reset();
     }
 }
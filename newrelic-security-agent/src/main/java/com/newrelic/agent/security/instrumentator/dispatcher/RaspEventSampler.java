@@ -0,0 +1,370 @@
+package com.newrelic.agent.security.instrumentator.dispatcher;
+
+import com.newrelic.agent.security.AgentInfo;
+import com.newrelic.agent.security.instrumentator.utils.AgentUtils;
+import com.newrelic.agent.security.intcodeagent.models.config.SecurityConfigSnapshot;
+import com.newrelic.api.agent.security.schema.AbstractOperation;
+import com.newrelic.api.agent.security.schema.SecurityMetaData;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Pre-dispatch stage for RASP events.
+ * <p>
+ * Identical events, i.e. same API ID, case type and operation payload, raised within the deduplication window are
+ * coalesced: only the first one is dispatched and the number of suppressed copies is reported with the first event of
+ * the next window. If no copy arrives after the window, the first suppressed copy is held back and dispatched with the
+ * count once the window expires. Windows are swept for expiry once per window length, as events are admitted.
+ * <p>
+ * When enabled through the agent config, events which are not duplicates are then rate limited per API ID with a
+ * token bucket, so a single hot API can not fill up the dispatcher queue on its own. Deduplication and rate limiting
+ * only apply in RASP mode: IAST needs every event of the application traffic to scan its APIs, and with API or
+ * attacker IP blocking the response to any event may block the request.
+ */
+public class RaspEventSampler {
+
+    /**
+     * Returned by {@link #admit(AbstractOperation)} when the event must not be dispatched.
+     */
+    public static final int REJECTED = -1;
+
+    private static final int MAX_TRACKED_EVENTS = 10000;
+
+    private static final int MAX_TRACKED_APIS = 4096;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final Map<EventKey, Window> windows = new ConcurrentHashMap<>();
+
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    private final Map<Class<?>, Field[]> payloadFields = new ConcurrentHashMap<>();
+
+    private final AtomicLong lastSweep = new AtomicLong();
+
+    /**
+     * Makes payloads which can not be compared by value unique, so that they are never coalesced.
+     */
+    private final AtomicLong uniquePayloads = new AtomicLong();
+
+    private RaspEventSampler() {
+    }
+
+    private static final class InstanceHolder {
+        static final RaspEventSampler instance = new RaspEventSampler();
+    }
+
+    public static RaspEventSampler getInstance() {
+        return InstanceHolder.instance;
+    }
+
+    /**
+     * Decides whether the RASP event of the given operation is to be dispatched.
+     *
+     * @param operation        the operation to be dispatched
+     * @param securityMetaData metadata of the transaction raising the operation
+     * @return {@link #REJECTED} if the event is a duplicate or is sampled out, otherwise the number of identical
+     * events suppressed since this event was last dispatched
+     */
+    public int admit(AbstractOperation operation, SecurityMetaData securityMetaData) {
+        SecurityConfigSnapshot config = AgentUtils.getInstance().getConfigSnapshot();
+        boolean sampled = isSampled(config);
+        boolean rateLimited = sampled && config.isEventSamplingEnabled();
+        long now = System.currentTimeMillis();
+        if (!sampled || !config.isEventDeduplicationEnabled()) {
+            if (rateLimited && !acquireToken(operation.getApiID(), now, config)) {
+                AgentInfo.getInstance().getJaHealthCheck().getRaspEventStats().incrementSampledOutCount();
+                return REJECTED;
+            }
+            return 0;
+        }
+        long windowMillis = TimeUnit.SECONDS.toMillis(config.getEventDeduplicationWindowSeconds());
+        long sweptAt = lastSweep.get();
+        if (now - sweptAt >= windowMillis && lastSweep.compareAndSet(sweptAt, now)) {
+            expire(now, windowMillis);
+        }
+
+        EventKey key = new EventKey(operation.getApiID(), String.valueOf(operation.getCaseType()), payloadHash(operation));
+        Window window = windows.get(key);
+        if (window != null && now - window.start < windowMillis) {
+            return suppress(window, operation, securityMetaData);
+        }
+
+        if (rateLimited && !acquireToken(operation.getApiID(), now, config)) {
+            AgentInfo.getInstance().getJaHealthCheck().getRaspEventStats().incrementSampledOutCount();
+            return REJECTED;
+        }
+
+        if (windows.size() >= MAX_TRACKED_EVENTS) {
+            expire(now, windowMillis);
+        }
+        Window next = new Window(now);
+        if (window == null) {
+            Window current = windows.putIfAbsent(key, next);
+            if (current != null) {
+                // Another thread opened the window meanwhile, this event is its duplicate.
+                return suppress(current, operation, securityMetaData);
+            }
+            return 0;
+        }
+        if (!windows.replace(key, window, next)) {
+            Window current = windows.get(key);
+            if (current != null) {
+                return suppress(current, operation, securityMetaData);
+            }
+            AgentInfo.getInstance().getJaHealthCheck().getRaspEventStats().incrementCoalescedCount();
+            return REJECTED;
+        }
+        // This event reports the copies of the previous window, including the one held back for it.
+        return window.suppressed.get();
+    }
+
+    public void reset() {
+        windows.clear();
+        buckets.clear();
+    }
+
+    /**
+     * @return whether the events may be deduplicated and rate limited, see the class description
+     */
+    private static boolean isSampled(SecurityConfigSnapshot config) {
+        return !config.isIastEnabled() && !config.isApiBlockingEnabled() && !config.isAttackerIpBlockingEnabled();
+    }
+
+    /**
+     * Counts a duplicate of the window's event. The first duplicate is held back, to be dispatched with the count
+     * of the window if no copy arrives after it expires.
+     */
+    private int suppress(Window window, AbstractOperation operation, SecurityMetaData securityMetaData) {
+        window.suppressed.incrementAndGet();
+        if (window.heldBack.get() == null) {
+            window.heldBack.compareAndSet(null, new HeldBackEvent(operation, DispatcherPool.snapshotForDispatch(securityMetaData)));
+        }
+        AgentInfo.getInstance().getJaHealthCheck().getRaspEventStats().incrementCoalescedCount();
+        return REJECTED;
+    }
+
+    private boolean acquireToken(String apiId, long now, SecurityConfigSnapshot config) {
+        double rate = config.getEventSamplingRate();
+        if (rate <= 0) {
+            return true;
+        }
+        double burst = Math.max(1, config.getEventSamplingBurst());
+        TokenBucket bucket = buckets.get(apiId);
+        if (bucket == null) {
+            if (buckets.size() >= MAX_TRACKED_APIS) {
+                buckets.clear();
+            }
+            TokenBucket created = new TokenBucket(burst, now);
+            bucket = buckets.putIfAbsent(apiId, created);
+            if (bucket == null) {
+                bucket = created;
+            }
+        }
+        return bucket.tryAcquire(now, rate, burst);
+    }
+
+    private void expire(long now, long windowMillis) {
+        Iterator<Window> iterator = windows.values().iterator();
+        while (iterator.hasNext()) {
+            Window window = iterator.next();
+            if (now - window.start >= windowMillis) {
+                iterator.remove();
+                flush(window);
+            }
+        }
+        if (windows.size() >= MAX_TRACKED_EVENTS) {
+            for (Window window : windows.values()) {
+                flush(window);
+            }
+            windows.clear();
+        }
+    }
+
+    /**
+     * Dispatches the duplicate held back by a window which is dropped, with the number of the other copies.
+     */
+    private static void flush(Window window) {
+        HeldBackEvent event = window.heldBack.getAndSet(null);
+        if (event != null) {
+            DispatcherPool.getInstance().dispatchCoalescedEvent(event.operation, event.securityMetaData,
+                    window.suppressed.get() - 1);
+        }
+    }
+
+    /**
+     * 64 bit hash of the operation specific fields, i.e. everything but the fields of {@link AbstractOperation}
+     * which identify the particular invocation.
+     */
+    private long payloadHash(AbstractOperation operation) {
+        long hash = FNV_OFFSET_BASIS;
+        try {
+            for (Field field : getPayloadFields(operation.getClass())) {
+                hash = combine(hash, hash64(field.get(operation)));
+            }
+        } catch (Throwable e) {
+            return uniquePayloads.incrementAndGet();
+        }
+        return hash;
+    }
+
+    private Field[] getPayloadFields(Class<?> operationClass) {
+        Field[] fields = payloadFields.get(operationClass);
+        if (fields == null) {
+            List<Field> fieldList = new ArrayList<>();
+            for (Class<?> klass = operationClass; klass != null && klass != AbstractOperation.class; klass = klass.getSuperclass()) {
+                for (Field field : klass.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers())) {
+                        field.setAccessible(true);
+                        fieldList.add(field);
+                    }
+                }
+            }
+            fields = fieldList.toArray(new Field[0]);
+            payloadFields.put(operationClass, fields);
+        }
+        return fields;
+    }
+
+    private long hash64(Object value) {
+        if (value == null) {
+            return 0;
+        } else if (value instanceof CharSequence) {
+            CharSequence chars = (CharSequence) value;
+            long hash = FNV_OFFSET_BASIS;
+            for (int i = 0; i < chars.length(); i++) {
+                hash = (hash ^ chars.charAt(i)) * FNV_PRIME;
+            }
+            return hash;
+        } else if (value instanceof Number || value instanceof Boolean || value instanceof Character || value instanceof Enum) {
+            return combine(FNV_OFFSET_BASIS, value.hashCode());
+        } else if (value instanceof Map) {
+            long hash = 0;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                hash += combine(hash64(entry.getKey()), hash64(entry.getValue()));
+            }
+            return hash;
+        } else if (value instanceof Set) {
+            long hash = 0;
+            for (Object element : (Set<?>) value) {
+                hash += hash64(element);
+            }
+            return hash;
+        } else if (value instanceof Collection) {
+            long hash = FNV_OFFSET_BASIS;
+            for (Object element : (Collection<?>) value) {
+                hash = combine(hash, hash64(element));
+            }
+            return hash;
+        } else if (value instanceof Object[]) {
+            long hash = FNV_OFFSET_BASIS;
+            for (Object element : (Object[]) value) {
+                hash = combine(hash, hash64(element));
+            }
+            return hash;
+        }
+        // No value semantics to rely on.
+        return uniquePayloads.incrementAndGet();
+    }
+
+    private static long combine(long hash, long value) {
+        return (hash ^ value) * FNV_PRIME + (value >>> 29);
+    }
+
+    private static final class EventKey {
+
+        private final String apiId;
+
+        private final String caseType;
+
+        private final long payloadHash;
+
+        private EventKey(String apiId, String caseType, long payloadHash) {
+            this.apiId = apiId;
+            this.caseType = caseType;
+            this.payloadHash = payloadHash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof EventKey)) {
+                return false;
+            }
+            EventKey eventKey = (EventKey) o;
+            return payloadHash == eventKey.payloadHash && Objects.equals(apiId, eventKey.apiId)
+                    && Objects.equals(caseType, eventKey.caseType);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(apiId, caseType, payloadHash);
+        }
+    }
+
+    private static final class Window {
+
+        private final long start;
+
+        private final AtomicInteger suppressed = new AtomicInteger();
+
+        private final AtomicReference<HeldBackEvent> heldBack = new AtomicReference<>();
+
+        private Window(long start) {
+            this.start = start;
+        }
+    }
+
+    private static final class HeldBackEvent {
+
+        private final AbstractOperation operation;
+
+        private final SecurityMetaData securityMetaData;
+
+        private HeldBackEvent(AbstractOperation operation, SecurityMetaData securityMetaData) {
+            this.operation = operation;
+            this.securityMetaData = securityMetaData;
+        }
+    }
+
+    private static final class TokenBucket {
+
+        private double tokens;
+
+        private long lastRefill;
+
+        private TokenBucket(double tokens, long now) {
+            this.tokens = tokens;
+            this.lastRefill = now;
+        }
+
+        private synchronized boolean tryAcquire(long now, double rate, double burst) {
+            if (now > lastRefill) {
+                tokens = Math.min(burst, tokens + (now - lastRefill) * rate / 1000d);
+                lastRefill = now;
+            }
+            if (tokens >= 1) {
+                tokens--;
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.newrelic.agent.security.instrumentator.helper;
+
+import com.newrelic.agent.security.intcodeagent.websocket.JsonConverter;
+import com.newrelic.api.agent.security.schema.SecurityMetaData;
+
+import java.util.List;
+
+/**
+ * JSON body of the gRPC messages of a transaction, as the array of the converted messages collected by the gRPC
+ * instrumentation under a custom attribute of the {@link SecurityMetaData}.
+ * <p>
+ * Each message is serialized once, the first time the body is needed after it arrived, and appended to the body built
+ * so far. The body is only rebuilt when messages were added since the previous call, so operations of a transaction
+ * share the same body instance until a new message arrives.
+ */
+public class GrpcMessageBody {
+
+    private static final String BODY_ATTRIBUTE_SUFFIX = "-json";
+
+    private static final String NULL = "null";
+
+    private List<?> messages;
+
+    private int serializedCount;
+
+    private final StringBuilder json = new StringBuilder();
+
+    private StringBuilder body;
+
+    private GrpcMessageBody() {
+    }
+
+    /**
+     * @param securityMetaData  the transaction metadata
+     * @param messagesAttribute custom attribute holding the converted messages
+     * @return the body of the given messages, or {@code null} if it did not change since the previous call for this
+     * transaction
+     */
+    public static StringBuilder getUpdatedBody(SecurityMetaData securityMetaData, String messagesAttribute) {
+        String bodyAttribute = messagesAttribute + BODY_ATTRIBUTE_SUFFIX;
+        GrpcMessageBody messageBody = securityMetaData.getCustomAttribute(bodyAttribute, GrpcMessageBody.class);
+        if (messageBody == null) {
+            messageBody = new GrpcMessageBody();
+            securityMetaData.addCustomAttribute(bodyAttribute, messageBody);
+        }
+        return messageBody.update(securityMetaData.getCustomAttribute(messagesAttribute, List.class));
+    }
+
+    private StringBuilder update(List<?> currentMessages) {
+        if (currentMessages != messages || (currentMessages != null && currentMessages.size() < serializedCount)) {
+            // Not the list the body was built from, start over.
+            messages = currentMessages;
+            serializedCount = 0;
+            json.setLength(0);
+            body = null;
+        }
+        if (messages == null) {
+            if (body == null) {
+                body = new StringBuilder(NULL);
+                return body;
+            }
+            return null;
+        }
+        if (body != null && serializedCount == messages.size()) {
+            return null;
+        }
+        for (; serializedCount < messages.size(); serializedCount++) {
+            json.append(serializedCount == 0 ? '[' : ',');
+            json.append(JsonConverter.toJSON(messages.get(serializedCount)));
+        }
+        // A new instance, so that copies taken from the previous body remain valid.
+        body = serializedCount == 0 ? new StringBuilder("[]") : new StringBuilder(json.length() + 1).append(json).append(']');
+        return body;
+    }
+}
@@ -1,5 +1,6 @@
 package com.newrelic.agent.security.instrumentator.httpclient;
 
+import com.newrelic.agent.security.instrumentator.utils.AgentUtils;
 import com.newrelic.agent.security.intcodeagent.filelogging.FileLoggerThreadPool;
 import com.newrelic.api.agent.security.utils.logging.LogLevel;
 import com.newrelic.agent.security.intcodeagent.models.IASTDataTransferRequest;
@@ -7,7 +8,6 @@ import com.newrelic.agent.security.intcodeagent.websocket.JsonConverter;
 import com.newrelic.agent.security.intcodeagent.websocket.WSClient;
 import com.newrelic.agent.security.intcodeagent.websocket.WSUtils;
 import com.newrelic.agent.security.util.AgentUsageMetric;
-import com.newrelic.api.agent.NewRelic;
 import com.newrelic.api.agent.security.NewRelicSecurity;
 import com.newrelic.api.agent.security.instrumentation.helpers.GrpcClientRequestReplayHelper;
 
@@ -26,8 +26,6 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
-import static com.newrelic.agent.security.instrumentator.utils.INRSettingsKey.SECURITY_POLICY_VULNERABILITY_SCAN_IAST_SCAN_PROBING_THRESHOLD;
-
 public class IASTDataTransferRequestProcessor {
     private static final FileLoggerThreadPool logger = FileLoggerThreadPool.getInstance();
     public static final String UNABLE_TO_SEND_IAST_DATA_REQUEST_DUE_TO_ERROR_S_S = "Unable to send IAST data request due to error: %s : %s";
@@ -73,8 +71,7 @@ public class IASTDataTransferRequestProcessor {
                 return;
             }
 
-            int currentFetchThreshold = NewRelic.getAgent().getConfig()
-                    .getValue(SECURITY_POLICY_VULNERABILITY_SCAN_IAST_SCAN_PROBING_THRESHOLD, 300);
+            int currentFetchThreshold = AgentUtils.getInstance().getConfigSnapshot().getProbingThreshold();
 
             int remainingRecordCapacityRest = RestRequestThreadPool.getInstance().getQueue().remainingCapacity();
             int currentRecordBacklogRest = RestRequestThreadPool.getInstance().getQueue().size();
@@ -85,7 +82,7 @@ public class IASTDataTransferRequestProcessor {
             int remainingRecordCapacity = Math.min(remainingRecordCapacityRest, remainingRecordCapacityGrpc);
 
             int batchSize = currentFetchThreshold - currentRecordBacklog;
-            if(!AgentUsageMetric.isRASPProcessingActive()){
+            if(AgentUsageMetric.isIASTBatchThrottled()){
                 batchSize /= 2;
             }
 
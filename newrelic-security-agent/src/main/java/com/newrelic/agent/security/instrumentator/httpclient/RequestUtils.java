@@ -21,7 +21,7 @@ public class RequestUtils {
 
     public static Request generateK2Request(FuzzRequestBean httpRequest, String endpoint) {
         try {
-            logger.log(LogLevel.FINER, String.format("Firing request : %s", JsonConverter.toJSON(httpRequest)), RequestUtils.class.getName());
+            logger.log(LogLevel.FINER, () -> String.format("Firing request : %s", JsonConverter.toJSON(httpRequest)), RequestUtils.class.getName());
             StringBuilder url = new StringBuilder(endpoint);
             url.append(httpRequest.getUrl());
             RequestBody requestBody = null;
@@ -16,6 +16,7 @@ import javax.net.ssl.*;
 import java.io.IOException;
 import java.io.InterruptedIOException;
 import java.security.cert.CertificateException;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
@@ -62,48 +63,64 @@ public class RestClient {
             x509TrustManager
     };
     
-    private final ThreadLocal<OkHttpClient> clientThreadLocal = new ThreadLocal<OkHttpClient>() {
-        @Override
-        protected OkHttpClient initialValue() {
+    /**
+     * Replay client shared by all the request repeater threads, so that connections to the application and TLS
+     * sessions are reused across replayed requests.
+     */
+    private final OkHttpClient client;
 
-            Builder builder = new OkHttpClient.Builder();
-            try {
-                ConnectionPool connectionPool = new ConnectionPool(1, 5, TimeUnit.MINUTES);
-                builder = builder.connectionPool(connectionPool);
-                builder = builder.callTimeout(10, TimeUnit.SECONDS);
-
-                // Install the all-trusting trust manager
-                final SSLContext sslContext = SSLContext.getInstance("TLSv1.2");
-                sslContext.init(null, trustAllCerts, new java.security.SecureRandom());
-                // Create an ssl socket factory with our all-trusting manager
-                final SSLSocketFactory sslSocketFactory = sslContext.getSocketFactory();
-                builder = builder.sslSocketFactory(sslSocketFactory, x509TrustManager);
-                builder.addInterceptor(new Interceptor() {
-                    @NotNull
-                    @Override
-                    public Response intercept(@NotNull Chain chain) throws IOException {
-                        Request request = chain.request();
-                        Response response = chain.proceed(request);
-                        RestClient.getInstance().setConnected(!(response.code() == 503 || response.code() == 504));
-                        return response;
-                    }
-                });
-
-                builder = builder.hostnameVerifier(new HostnameVerifier() {
-                    @Override
-                    public boolean verify(String hostname, SSLSession session) {
-                        return true;
-                    }
-                });
-            } catch (Exception e) {
-                throw new RuntimeException(e);
-            }
+    private RestClient() {
+        // Requests are only fired synchronously by the repeater threads, one at a time each, so the replays in flight
+        // are bounded by the thread count and no more connections are needed.
+        int maxConnections = RestRequestThreadPool.getInstance().getExecutor().getMaximumPoolSize();
+        client = buildClient(maxConnections);
+    }
+
+    private OkHttpClient buildClient(int maxConnections) {
+        Builder builder = new OkHttpClient.Builder();
+        try {
+            ConnectionPool connectionPool = new ConnectionPool(maxConnections, 5, TimeUnit.MINUTES);
+            builder = builder.connectionPool(connectionPool);
+            builder = builder.callTimeout(10, TimeUnit.SECONDS);
+            // HTTP/2 drops the connection specific headers, such as Connection, Keep-Alive, TE or Upgrade, while the
+            // replayed request must carry the same headers as the original one.
+            builder = builder.protocols(Collections.singletonList(Protocol.HTTP_1_1));
+
+            Dispatcher dispatcher = new Dispatcher();
+            dispatcher.setMaxRequests(maxConnections);
+            dispatcher.setMaxRequestsPerHost(maxConnections);
+            builder = builder.dispatcher(dispatcher);
+
+            // Install the all-trusting trust manager
+            final SSLContext sslContext = SSLContext.getInstance("TLSv1.2");
+            sslContext.init(null, trustAllCerts, new java.security.SecureRandom());
+            // Keep TLS sessions around for abbreviated handshakes on new connections.
+            sslContext.getClientSessionContext().setSessionTimeout((int) TimeUnit.HOURS.toSeconds(1));
+            // Create an ssl socket factory with our all-trusting manager
+            final SSLSocketFactory sslSocketFactory = sslContext.getSocketFactory();
+            builder = builder.sslSocketFactory(sslSocketFactory, x509TrustManager);
+            builder.addInterceptor(new Interceptor() {
+                @NotNull
+                @Override
+                public Response intercept(@NotNull Chain chain) throws IOException {
+                    Request request = chain.request();
+                    Response response = chain.proceed(request);
+                    RestClient.getInstance().setConnected(!(response.code() == 503 || response.code() == 504));
+                    return response;
+                }
+            });
 
-            return builder.build();
+            builder = builder.hostnameVerifier(new HostnameVerifier() {
+                @Override
+                public boolean verify(String hostname, SSLSession session) {
+                    return true;
+                }
+            });
+        } catch (Exception e) {
+            throw new RuntimeException(e);
         }
-    };
 
-    private RestClient() {
+        return builder.build();
     }
 
     public static RestClient getInstance() {
@@ -118,7 +135,7 @@ public class RestClient {
     }
 
     public OkHttpClient getClient() {
-        return clientThreadLocal.get();
+        return client;
     }
 
     public void fireRequest(FuzzRequestBean httpRequest, List<String> endpoints, int repeatCount, String fuzzRequestId){
@@ -130,7 +147,7 @@ public class RestClient {
                 try {
                     responseCode = RestClient.getInstance().fireRequest(request, repeatCount + endpoints.size() -1, fuzzRequestId);
                 } catch (SSLException e) {
-                    logger.log(LogLevel.FINER, String.format(CALL_FAILED_REQUEST_S_REASON, request), e, RestClient.class.getName());
+                    logger.log(LogLevel.FINER, () -> String.format(CALL_FAILED_REQUEST_S_REASON, request), e, RestClient.class.getName());
                     logger.postLogMessageIfNecessary(LogLevel.WARNING,
                             String.format(CALL_FAILED_REQUEST_S_REASON, fuzzRequestId),
                             e, RestRequestProcessor.class.getName());
@@ -152,7 +169,7 @@ public class RestClient {
                 if(responseCode == 301){continue;}
                 break;
             } catch (SSLException e){
-                logger.log(LogLevel.FINER, String.format(CALL_FAILED_REQUEST_S_REASON, request), e, RestClient.class.getName());
+                logger.log(LogLevel.FINER, () -> String.format(CALL_FAILED_REQUEST_S_REASON, request), e, RestClient.class.getName());
             }
         }
 
@@ -160,16 +177,14 @@ public class RestClient {
     }
 
     public int fireRequest(Request request, int repeatCount, String fuzzRequestId) throws SSLException {
-        OkHttpClient client = clientThreadLocal.get();
-
-        logger.log(LogLevel.FINER, String.format(FIRING_REQUEST_METHOD_S, request.method()), RestClient.class.getName());
-        logger.log(LogLevel.FINER, String.format(FIRING_REQUEST_URL_S, request.url()), RestClient.class.getName());
-        logger.log(LogLevel.FINER, String.format(FIRING_REQUEST_HEADERS_S, request.headers()), RestClient.class.getName());
+        logger.log(LogLevel.FINER, () -> String.format(FIRING_REQUEST_METHOD_S, request.method()), RestClient.class.getName());
+        logger.log(LogLevel.FINER, () -> String.format(FIRING_REQUEST_URL_S, request.url()), RestClient.class.getName());
+        logger.log(LogLevel.FINER, () -> String.format(FIRING_REQUEST_HEADERS_S, request.headers()), RestClient.class.getName());
 
         Call call = client.newCall(request);
-        try {
-            Response response = call.execute();
-            logger.log(LogLevel.FINER, String.format(REQUEST_FIRED_SUCCESS, request), RestClient.class.getName());
+        boolean retry = false;
+        try (Response response = call.execute()) {
+            logger.log(LogLevel.FINER, () -> String.format(REQUEST_FIRED_SUCCESS, request), RestClient.class.getName());
             if(response.code() >= 400 && response.code() < 500){
                 RestRequestThreadPool.getInstance().getProcessedIds().putIfAbsent(fuzzRequestId, new HashSet<>());
                 logger.postLogMessageIfNecessary(LogLevel.WARNING,
@@ -177,23 +192,17 @@ public class RestClient {
                         RestRequestProcessor.class.getName());
             } else if(response.isSuccessful()){
                 RestRequestThreadPool.getInstance().getProcessedIds().putIfAbsent(fuzzRequestId, new HashSet<>());
-            }else {
+            } else if (logger.isLogLevelEnabled(LogLevel.FINER)) {
                 logger.log(LogLevel.FINER, String.format(REQUEST_SUCCESS_S_RESPONSE_S_S, request, response, response.body().string()), RestClient.class.getName());
             }
-            response.body().close();
-            if (client.connectionPool() != null) {
-                client.connectionPool().evictAll();
-            }
             return response.code();
         } catch (SSLException e){
-            logger.log(LogLevel.FINE, String.format("Request failed due to SSL Exception %s ", request, e), RestClient.class.getName());
+            logger.log(LogLevel.FINE, () -> String.format("Request failed due to SSL Exception %s ", request, e), RestClient.class.getName());
             throw e;
         } catch (InterruptedIOException e){
-            if(repeatCount >= 0){
-                return fireRequest(request, --repeatCount, fuzzRequestId);
-            }
+            retry = repeatCount >= 0;
         } catch (IOException e) {
-            logger.log(LogLevel.FINER, String.format(CALL_FAILED_REQUEST_S_REASON, request), e, RestClient.class.getName());
+            logger.log(LogLevel.FINER, () -> String.format(CALL_FAILED_REQUEST_S_REASON, request), e, RestClient.class.getName());
             logger.postLogMessageIfNecessary(LogLevel.WARNING,
                     String.format(CALL_FAILED_REQUEST_S_REASON, fuzzRequestId),
                     e, RestRequestProcessor.class.getName());
@@ -204,6 +213,9 @@ public class RestClient {
             EventSendPool.getInstance().sendEvent(fuzzFailEvent);
         }
 
+        if (retry) {
+            return fireRequest(request, --repeatCount, fuzzRequestId);
+        }
         return 999;
     }
 
@@ -92,7 +92,9 @@ public class RestRequestProcessor implements Callable<Boolean> {
             if (httpRequest.getIsGrpc()){
                 List<String> payloadList = new ArrayList<>();
                 try{
-                    logger.log(LogLevel.FINER, String.format("Firing request : %s", objectMapper.writeValueAsString(httpRequest)), RestRequestProcessor.class.getName());
+                    if (logger.isLogLevelEnabled(LogLevel.FINER)) {
+                        logger.log(LogLevel.FINER, String.format("Firing request : %s", objectMapper.writeValueAsString(httpRequest)), RestRequestProcessor.class.getName());
+                    }
                     List<?> list = objectMapper.readValue(String.valueOf(httpRequest.getBody()), List.class);
                     for (Object o : list) {
                         payloadList.add(objectMapper.writeValueAsString(o));
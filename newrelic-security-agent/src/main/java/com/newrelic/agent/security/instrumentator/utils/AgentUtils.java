@@ -8,6 +8,7 @@ import com.newrelic.api.agent.security.utils.logging.LogLevel;
 import com.newrelic.agent.security.intcodeagent.logging.DeployedApplication;
 import com.newrelic.agent.security.intcodeagent.logging.IAgentConstants;
 import com.newrelic.agent.security.intcodeagent.models.config.AgentPolicyParameters;
+import com.newrelic.agent.security.intcodeagent.models.config.SecurityConfigSnapshot;
 import com.newrelic.agent.security.intcodeagent.models.javaagent.ApplicationURLMappings;
 import com.newrelic.agent.security.intcodeagent.models.javaagent.EventResponse;
 import com.newrelic.agent.security.intcodeagent.websocket.EventSendPool;
@@ -18,6 +19,7 @@ import com.newrelic.api.agent.security.Agent;
 import com.newrelic.api.agent.security.NewRelicSecurity;
 import com.newrelic.api.agent.security.instrumentation.helpers.URLMappingsHelper;
 import com.newrelic.api.agent.security.schema.policy.AgentPolicy;
+import com.newrelic.api.agent.security.utils.BodyCapture;
 import com.sun.jna.Pointer;
 import com.sun.jna.platform.win32.Kernel32;
 import com.sun.jna.platform.win32.WinNT;
@@ -46,6 +48,7 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Pattern;
 
 import static com.newrelic.agent.security.intcodeagent.logging.IAgentConstants.STARTED_MODULE_LOG;
@@ -64,6 +67,7 @@ public class AgentUtils {
     public static final String PROTECTION_DOMAIN = "Protection domain : ";
     public static final String VFS = "vfs";
     public static final String ORG_JBOSS_VFS_VIRTUAL_FILE = "org.jboss.vfs.VirtualFile";
+    public static final long CONFIG_SNAPSHOT_REFRESH_SECONDS = 30;
     public static final String GET_PHYSICAL_FILE = "getPhysicalFile";
     public static final String JBOSS_PROTECTION_DOMAIN = "Jboss Protection domain : ";
     public static final String CLASS_DIR_NOT_FOUND_IN_JBOSS_PROTECTION_DOMAIN = "Class dir not found in Jboss protection domain : ";
@@ -118,6 +122,10 @@ public class AgentUtils {
 
     private AgentPolicyParameters agentPolicyParameters = new AgentPolicyParameters();
 
+    private final AtomicLong configSnapshotVersion = new AtomicLong();
+
+    private volatile SecurityConfigSnapshot configSnapshot;
+
     private AtomicInteger outboundHttpConnectionId = new AtomicInteger(1000);
 
     private boolean collectAppInfoFromEnv = false;
@@ -136,7 +144,7 @@ public class AgentUtils {
         rxssSentUrls = new HashSet<>();
         deployedApplicationUnderProcessing = new HashSet<>();
         TRACE_PATTERN = Pattern.compile(IAgentConstants.TRACE_REGEX);
-
+        refreshConfigSnapshot();
     }
 
     public static AgentUtils getInstance() {
@@ -184,6 +192,35 @@ public class AgentUtils {
 
     public void setAgentPolicyParameters(AgentPolicyParameters agentPolicyParameters) {
         this.agentPolicyParameters = agentPolicyParameters;
+        refreshConfigSnapshot();
+    }
+
+    /**
+     * @return the settings currently in effect, to be read once per operation instead of querying the agent config
+     * and walking the policy
+     */
+    public SecurityConfigSnapshot getConfigSnapshot() {
+        return configSnapshot;
+    }
+
+    /**
+     * Rebuilds the config snapshot from the current policy, policy parameters and agent config, and publishes it.
+     */
+    public void refreshConfigSnapshot() {
+        synchronized (configSnapshotVersion) {
+            configSnapshot = SecurityConfigSnapshot.build(configSnapshotVersion.incrementAndGet(), agentPolicy, agentPolicyParameters);
+            BodyCapture.setMaxBytes(configSnapshot.getBodyCaptureMaxBytes());
+        }
+    }
+
+    /**
+     * Rebuilds the config snapshot if the settings it reads from the agent config changed, so a change of the agent
+     * config takes effect without waiting for the next policy update.
+     */
+    public void refreshConfigSnapshotIfAgentConfigChanged() {
+        if (configSnapshot.isAgentConfigChanged()) {
+            refreshConfigSnapshot();
+        }
     }
 
     public boolean isPolicyOverridden() {
@@ -389,12 +426,14 @@ public class AgentUtils {
 
     public void setAgentPolicy(AgentPolicy agentPolicy) {
         this.agentPolicy = agentPolicy;
+        refreshConfigSnapshot();
     }
 
     public boolean applyPolicyOverrideIfApplicable() {
         AgentUtils.getInstance().applyNRPolicyOverride();
         if (AgentUtils.getInstance().isPolicyOverridden()) {
             AgentUtils.getInstance().getAgentPolicy().setVersion(OVERRIDDEN);
+            AgentUtils.getInstance().refreshConfigSnapshot();
             logger.log(LogLevel.INFO, String.format(NR_POLICY_OVER_RIDE_IN_PLACE_UPDATED_POLICY_S,
                     JsonConverter.toJSON(AgentUtils.getInstance().getAgentPolicy())), AgentUtils.class.getName());
             try {
@@ -428,9 +467,7 @@ public class AgentUtils {
             EventSendPool.getInstance().sendEvent(AgentInfo.getInstance().getApplicationInfo());
 
             // Start IAST data pull if policy allows
-            if (NewRelicSecurity.getAgent().getCurrentPolicy().getVulnerabilityScan().getEnabled() &&
-                    NewRelicSecurity.getAgent().getCurrentPolicy().getVulnerabilityScan().getIastScan().getEnabled()
-            ) {
+            if (AgentUtils.getInstance().getConfigSnapshot().isIastEnabled()) {
                 IASTDataTransferRequestProcessor.getInstance().startDataRequestSchedule(
                         NewRelicSecurity.getAgent().getCurrentPolicy()
                                 .getVulnerabilityScan().getIastScan().getProbing().getInterval(), TimeUnit.SECONDS);
@@ -1,6 +1,9 @@
 package com.newrelic.agent.security.instrumentator.utils;
 
+import com.newrelic.agent.security.AgentInfo;
 import com.newrelic.agent.security.intcodeagent.filelogging.FileLoggerThreadPool;
+import com.newrelic.agent.security.intcodeagent.websocket.EventSendPool;
+import com.newrelic.agent.security.intcodeagent.websocket.WSUtils;
 import com.newrelic.api.agent.security.utils.logging.LogLevel;
 import com.newrelic.agent.security.intcodeagent.models.collectorconfig.CollectorConfig;
 import com.newrelic.agent.security.intcodeagent.models.javaagent.*;
@@ -23,6 +26,7 @@ import java.net.*;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static com.newrelic.agent.security.intcodeagent.logging.IAgentConstants.*;
 import static com.newrelic.agent.security.util.IUtilConstants.NOT_AVAILABLE;
@@ -39,6 +43,10 @@ public class ApplicationInfoUtils {
     private static final String APP_INFO_GATHERING_FINISHED = "[APP_INFO] Application info generated for pid : %s.";
     private static final String APP_INFO_GATHERING_STARTED = "[STEP-3][BEGIN][APP_INFO] Gathering application info for current process.";
 
+    private static volatile String binarySha256;
+
+    private static final AtomicBoolean binaryShaSent = new AtomicBoolean();
+
     public static String getContainerID() {
 
         File cgroupFile = new File(CGROUP_FILE_NAME);
@@ -192,6 +200,28 @@ public class ApplicationInfoUtils {
         return null;
     }
 
+    /**
+     * Hashes the process binary off the startup path, the application info is sent again with the hash if it was
+     * already sent without it. The binary is hashed once per process, later application infos get the known hash.
+     */
+    private static void calculateBinarySha256(ApplicationInfoBean applicationInfoBean) {
+        String sha256 = binarySha256;
+        if (sha256 != null) {
+            applicationInfoBean.setSha256(sha256);
+            return;
+        }
+        File binary = new File(applicationInfoBean.getBinaryPath());
+        HashGenerator.calculateAsync(() -> {
+            String checksum = HashGenerator.getCachedChecksum(binary);
+            applicationInfoBean.setSha256(checksum);
+            binarySha256 = checksum;
+            if (WSUtils.isConnected() && applicationInfoBean == AgentInfo.getInstance().getApplicationInfo()
+                    && binaryShaSent.compareAndSet(false, true)) {
+                EventSendPool.getInstance().sendEvent(applicationInfoBean);
+            }
+        });
+    }
+
     /**
      * Gather all required information of current process.
      * Generates an {@link ApplicationInfoBean} using the information
@@ -225,7 +255,7 @@ public class ApplicationInfoUtils {
                 AgentUtils.getInstance().getStatusLogValues().put(PROCESS_BINARY, applicationInfoBean.getBinaryPath());
                 applicationInfoBean
                         .setBinaryName(FileUtils.readFileToString(new File(String.format(PROC_S_COMM, applicationInfoBean.getPid())), StandardCharsets.UTF_8));
-                applicationInfoBean.setSha256(HashGenerator.getChecksum(new File(applicationInfoBean.getBinaryPath())));
+                calculateBinarySha256(applicationInfoBean);
             } catch (IOException e) {
             }
 
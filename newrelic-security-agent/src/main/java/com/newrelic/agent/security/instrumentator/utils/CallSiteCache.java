@@ -0,0 +1,191 @@
+package com.newrelic.agent.security.instrumentator.utils;
+
+import com.newrelic.agent.security.AgentInfo;
+import com.newrelic.api.agent.security.schema.VulnerabilityCaseType;
+import com.newrelic.api.agent.security.utils.StackTraceCapture;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded cache of the stack trace processing results of an operation, keyed by the fingerprint of its call site.
+ * A second, independent fingerprint of the frames and the rest of the call site are kept along each entry and
+ * compared on lookup, so that call sites with colliding fingerprints are not mixed up.
+ * <p>
+ * The same code path always yields the same trimmed stack trace, source method, API ID and user class element, so
+ * they are computed once per call site. When the cache is full, entries that were not hit since the previous
+ * eviction round are dropped first (second chance eviction).
+ */
+public class CallSiteCache {
+
+    private static final int MAX_ENTRIES = 4096;
+
+    private final Map<Long, CallSite> callSites = new ConcurrentHashMap<>();
+
+    private CallSiteCache() {
+    }
+
+    private static final class InstanceHolder {
+        static final CallSiteCache instance = new CallSiteCache();
+    }
+
+    public static CallSiteCache getInstance() {
+        return InstanceHolder.instance;
+    }
+
+    /**
+     * @return the cached call site matching the captured stack and the rest of the call site, or {@code null}
+     */
+    public CallSite get(long fingerprint, StackTraceCapture stack, StackTraceElement[] serviceTrace,
+                        VulnerabilityCaseType caseType, String sourceMethod) {
+        CallSite callSite = callSites.get(fingerprint);
+        if (callSite != null && !callSite.key.matches(stack, serviceTrace, caseType, sourceMethod)) {
+            callSite = null;
+        }
+        if (callSite != null) {
+            callSite.referenced = true;
+            AgentInfo.getInstance().getJaHealthCheck().incrementApiIdCacheHitCount();
+        } else {
+            AgentInfo.getInstance().getJaHealthCheck().incrementApiIdCacheMissCount();
+        }
+        return callSite;
+    }
+
+    public void put(long fingerprint, Key key, CallSite callSite) {
+        callSite.key = key;
+        if (callSites.size() >= MAX_ENTRIES) {
+            evict();
+        }
+        callSites.put(fingerprint, callSite);
+    }
+
+    public int size() {
+        return callSites.size();
+    }
+
+    public void clear() {
+        callSites.clear();
+    }
+
+    private void evict() {
+        Iterator<CallSite> iterator = callSites.values().iterator();
+        while (iterator.hasNext() && callSites.size() >= MAX_ENTRIES) {
+            CallSite callSite = iterator.next();
+            if (callSite.referenced) {
+                callSite.referenced = false;
+            } else {
+                iterator.remove();
+            }
+        }
+        // Every entry got a second chance during this round, drop from the start.
+        iterator = callSites.values().iterator();
+        while (iterator.hasNext() && callSites.size() >= MAX_ENTRIES) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Everything the processed stack trace of a call site depends on: the signature of the captured frames, the
+     * service trace which bounds the stack and locates the user class, the case type and the source method set by
+     * the hook.
+     */
+    public static final class Key {
+
+        private final StackTraceCapture.FrameSignature frames;
+
+        private final int serviceTraceLength;
+
+        private final StackTraceElement serviceTraceTop;
+
+        private final VulnerabilityCaseType caseType;
+
+        private final String sourceMethod;
+
+        public Key(StackTraceCapture stack, StackTraceElement[] serviceTrace, VulnerabilityCaseType caseType,
+                   String sourceMethod) {
+            this.frames = stack.signature();
+            this.serviceTraceLength = serviceTrace != null ? serviceTrace.length : -1;
+            this.serviceTraceTop = serviceTrace != null && serviceTrace.length > 0 ? serviceTrace[0] : null;
+            this.caseType = caseType;
+            this.sourceMethod = sourceMethod;
+        }
+
+        private boolean matches(StackTraceCapture stack, StackTraceElement[] serviceTrace,
+                                VulnerabilityCaseType caseType, String sourceMethod) {
+            return this.caseType == caseType
+                    && Objects.equals(this.sourceMethod, sourceMethod)
+                    && serviceTraceLength == (serviceTrace != null ? serviceTrace.length : -1)
+                    && Objects.equals(serviceTraceTop, serviceTrace != null && serviceTrace.length > 0 ? serviceTrace[0] : null)
+                    && stack.matches(frames);
+        }
+    }
+
+    /**
+     * Processed stack trace of a call site.
+     */
+    public static class CallSite {
+
+        private final boolean nrGenerated;
+
+        private final StackTraceElement[] stackTrace;
+
+        private final String sourceMethod;
+
+        private final String apiID;
+
+        private final StackTraceElement userClassElement;
+
+        private final List<String> rciMethodsCalls;
+
+        private volatile boolean referenced;
+
+        private Key key;
+
+        public CallSite(boolean nrGenerated, StackTraceElement[] stackTrace, String sourceMethod, String apiID,
+                        StackTraceElement userClassElement, List<String> rciMethodsCalls) {
+            this.nrGenerated = nrGenerated;
+            this.stackTrace = stackTrace;
+            this.sourceMethod = sourceMethod;
+            this.apiID = apiID;
+            this.userClassElement = userClassElement;
+            this.rciMethodsCalls = rciMethodsCalls;
+        }
+
+        /**
+         * @return whether the operation was raised by the New Relic agent itself
+         */
+        public boolean isNrGenerated() {
+            return nrGenerated;
+        }
+
+        /**
+         * @return the processed stack trace, shared between all the operations of this call site
+         */
+        public StackTraceElement[] getStackTrace() {
+            return stackTrace;
+        }
+
+        public String getSourceMethod() {
+            return sourceMethod;
+        }
+
+        public String getApiID() {
+            return apiID;
+        }
+
+        public StackTraceElement getUserClassElement() {
+            return userClassElement;
+        }
+
+        /**
+         * @return the frames flagged for RCI, empty if none
+         */
+        public List<String> getRciMethodsCalls() {
+            return rciMethodsCalls;
+        }
+    }
+}
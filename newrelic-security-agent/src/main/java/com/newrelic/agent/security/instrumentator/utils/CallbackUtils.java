@@ -8,8 +8,10 @@ import com.newrelic.api.agent.security.schema.HttpResponse;
 import org.apache.commons.lang3.RegExUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.text.StringEscapeUtils;
+import org.apache.commons.text.translate.CharSequenceTranslator;
 import org.unbescape.html.HtmlEscape;
 
+import java.io.Writer;
 import java.net.URLDecoder;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
@@ -61,25 +63,27 @@ public class CallbackUtils {
             toReturn.add(StringUtils.EMPTY);
             return toReturn;
         }
-        Set<String> combinedResponseData = decodeResponseData(httpResponse);
-        if (combinedResponseData.isEmpty()) {
+
+        if (logger.isLogLevelEnabled(LogLevel.FINER)) {
+            logger.log(LogLevel.FINER, String.format("Checking reflected XSS : %s :: response of %s chars", combinedRequestData,
+                    httpResponse.getResponseBody().length()), CallbackUtils.class.getName());
+        }
+
+        List<String> attackContructs = new ArrayList<>(isXSS(combinedRequestData));
+        if (attackContructs.isEmpty()) {
             toReturn.add(StringUtils.EMPTY);
             return toReturn;
         }
-        String combinedResponseDataString = StringUtils.joinWith(FIVE_COLON, combinedResponseData);
 
-        logger.log(LogLevel.FINER, String.format("Checking reflected XSS : %s :: %s", combinedRequestData, combinedResponseDataString), CallbackUtils.class.getName());
+        boolean reportAll = AgentUtils.getInstance().getConfigSnapshot().isIastEnabled();
+        MultiPatternMatcher.Scan scan = new MultiPatternMatcher(attackContructs).newScan(!reportAll);
+        scanResponseData(httpResponse, scan);
 
-        Set<String> attackContructs = isXSS(combinedRequestData);
-
-        for (String construct : attackContructs) {
-            if (StringUtils.containsIgnoreCase(combinedResponseDataString, construct)) {
-                toReturn.add(construct);
-
-                if (!(AgentUtils.getInstance().getAgentPolicy().getVulnerabilityScan().getEnabled()
-                        && AgentUtils.getInstance().getAgentPolicy().getVulnerabilityScan().getIastScan().getEnabled())) {
-                    break;
-                }
+        BitSet matched = scan.getMatched();
+        for (int i = matched.nextSetBit(0); i >= 0; i = matched.nextSetBit(i + 1)) {
+            toReturn.add(attackContructs.get(i));
+            if (!reportAll) {
+                break;
             }
         }
         if (toReturn.isEmpty()) {
@@ -88,6 +92,98 @@ public class CallbackUtils {
         return toReturn;
     }
 
+    /**
+     * Searches the response body and each of its successive JSON/XML unescaped forms, as listed by
+     * {@link #decodeResponseData(HttpResponse)}, without materialising them all. Every unescaping round is streamed
+     * into the scan while it is being produced, and a round only happens if the previous form still has escapes.
+     *
+     * @param httpResponse the response to search
+     * @param scan         scan over the attack constructs
+     */
+    static void scanResponseData(HttpResponse httpResponse, MultiPatternMatcher.Scan scan) {
+        CharSequence current = httpResponse.getResponseBody();
+        scan.accept(current);
+        if (current.length() == 0 || scan.isDone()) {
+            return;
+        }
+        CharSequenceTranslator unescaper;
+        char escapeStart;
+        String contentType = httpResponse.getResponseContentType();
+        if (StringUtils.equals(contentType, APPLICATION_JSON)) {
+            unescaper = StringEscapeUtils.UNESCAPE_JSON;
+            escapeStart = '\\';
+        } else if (StringUtils.equals(contentType, APPLICATION_XML)) {
+            unescaper = StringEscapeUtils.UNESCAPE_XML;
+            escapeStart = '&';
+        } else {
+            return;
+        }
+        try {
+            StringBuilder decoded = new StringBuilder(current.length());
+            // Our buffer holding the current form, none while it is the response body itself.
+            StringBuilder currentBuffer = null;
+            while (!scan.isDone() && StringUtils.indexOf(current, escapeStart) >= 0) {
+                scan.newText();
+                unescaper.translate(current, new ScanningWriter(scan, decoded));
+                // Unescaping only ever shortens the text, same length means nothing was left to decode.
+                if (decoded.length() == current.length()) {
+                    break;
+                }
+                StringBuilder free = currentBuffer != null ? currentBuffer : new StringBuilder(decoded.length());
+                current = currentBuffer = decoded;
+                decoded = free;
+                decoded.setLength(0);
+            }
+        } catch (Throwable e) {
+            logger.log(LogLevel.SEVERE, ERROR, e, CallbackUtils.class.getName());
+        }
+    }
+
+    /**
+     * Feeds everything written to it to a scan, and keeps a copy for the next decoding round.
+     */
+    private static final class ScanningWriter extends Writer {
+
+        private final MultiPatternMatcher.Scan scan;
+
+        private final StringBuilder copy;
+
+        private ScanningWriter(MultiPatternMatcher.Scan scan, StringBuilder copy) {
+            this.scan = scan;
+            this.copy = copy;
+        }
+
+        @Override
+        public void write(int c) {
+            scan.accept((char) c);
+            copy.append((char) c);
+        }
+
+        @Override
+        public void write(char[] chars, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                scan.accept(chars[i]);
+            }
+            copy.append(chars, off, len);
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                scan.accept(str.charAt(i));
+            }
+            copy.append(str, off, off + len);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
     /**
      * Method to url decode given encodedString under UTF-8 encoding. If the
      * conversion is not possible, <code>original string</code> is returned.
@@ -124,7 +220,7 @@ public class CallbackUtils {
 
 
     static Set<String> getXSSConstructs(String data) {
-        logger.log(LogLevel.FINER, CAME_TO_XSS_CHECK + data, CallbackUtils.class.getName());
+        logger.log(LogLevel.FINER, () -> CAME_TO_XSS_CHECK + data, CallbackUtils.class.getName());
         List<String> construct = new ArrayList<>();
         boolean isAttackConstruct = false;
 
@@ -140,9 +236,15 @@ public class CallbackUtils {
         //
         int tmpStartPos = 0;
 
+        // No tag can start without an opening angle bracket.
+        if (StringUtils.indexOf(data, ANGLE_START) < 0) {
+            return new HashSet<>(construct);
+        }
+        Matcher matcher = tagNameRegex.matcher(data);
+        Matcher attribMatcher = attribRegex.matcher(data);
+
         // iterate over the complete data string.
         while (currPos < data.length()) {
-            Matcher matcher = tagNameRegex.matcher(data);
             if (!matcher.find(currPos)) {
                 return new HashSet<>(construct);
             }
@@ -168,7 +270,6 @@ public class CallbackUtils {
                 tmpStartPos = startPos;
             }
 
-            Matcher attribMatcher = attribRegex.matcher(data);
             while (attribMatcher.find(currPos)) {
                 String attribData = attribMatcher.group().trim();
                 currPos = attribMatcher.end() - 1;
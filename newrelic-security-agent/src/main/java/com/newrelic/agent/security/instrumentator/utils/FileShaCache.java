@@ -0,0 +1,194 @@
+package com.newrelic.agent.security.instrumentator.utils;
+
+import com.newrelic.agent.security.AgentConfig;
+import com.newrelic.agent.security.instrumentator.os.OsVariablesInstance;
+import com.newrelic.agent.security.intcodeagent.filelogging.FileLoggerThreadPool;
+import com.newrelic.api.agent.security.utils.logging.LogLevel;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * SHA-256 of application files keyed by path, size and modification time, persisted under the agent home so that
+ * files unchanged since a previous run are not read again.
+ */
+public class FileShaCache {
+
+    private static final FileLoggerThreadPool logger = FileLoggerThreadPool.getInstance();
+
+    private static final String CACHE_FILE_NAME = "sha256-cache";
+
+    private static final String FIELD_SEPARATOR = "\t";
+
+    /**
+     * Entries are only written back if the cache holds fewer, others are dropped starting with those not used by this
+     * run.
+     */
+    private static final int MAX_PERSISTED_ENTRIES = 200000;
+
+    public static final String UNABLE_TO_LOAD_SHA_CACHE_S = "Unable to load file SHA cache %s : %s";
+
+    public static final String UNABLE_TO_SAVE_SHA_CACHE_S = "Unable to save file SHA cache %s : %s";
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private volatile boolean loaded = false;
+
+    private volatile boolean modified = false;
+
+    private static final class Entry {
+        private final long size;
+
+        private final long lastModified;
+
+        private final String sha256;
+
+        private volatile boolean used;
+
+        private Entry(long size, long lastModified, String sha256, boolean used) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.sha256 = sha256;
+            this.used = used;
+        }
+    }
+
+    private FileShaCache() {
+    }
+
+    private static final class InstanceHolder {
+        static final FileShaCache instance = new FileShaCache();
+    }
+
+    public static FileShaCache getInstance() {
+        return InstanceHolder.instance;
+    }
+
+    /**
+     * @param file the file to hash
+     * @return the SHA-256 of the file, read from the cache if the file did not change since it was hashed, or
+     * {@code null} if the file can not be read
+     */
+    public String getChecksum(File file) {
+        loadIfNeeded();
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+        String path = file.getAbsolutePath();
+        long size = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        Entry entry = entries.get(path);
+        if (entry != null && entry.size == size && entry.lastModified == lastModified) {
+            entry.used = true;
+            return entry.sha256;
+        }
+        String sha256 = HashGenerator.getChecksum(file);
+        if (sha256 != null) {
+            entries.put(path, new Entry(size, lastModified, sha256, true));
+            modified = true;
+        }
+        return sha256;
+    }
+
+    private void loadIfNeeded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (loaded) {
+                return;
+            }
+            Path cacheFile = getCacheFile();
+            if (cacheFile != null && Files.isRegularFile(cacheFile)) {
+                try (BufferedReader reader = Files.newBufferedReader(cacheFile, StandardCharsets.UTF_8)) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        String[] fields = StringUtils.split(line, FIELD_SEPARATOR, 4);
+                        if (fields.length == 4) {
+                            entries.putIfAbsent(fields[3], new Entry(Long.parseLong(fields[1]), Long.parseLong(fields[2]), fields[0], false));
+                        }
+                    }
+                } catch (IOException | RuntimeException e) {
+                    logger.log(LogLevel.FINER, String.format(UNABLE_TO_LOAD_SHA_CACHE_S, cacheFile, e.getMessage()), e, FileShaCache.class.getName());
+                }
+            }
+            loaded = true;
+        }
+    }
+
+    /**
+     * Writes the cache to disk if files were hashed since the previous call. Entries not used by this run are only
+     * kept while their file still exists.
+     */
+    public synchronized void save() {
+        if (!modified) {
+            return;
+        }
+        Path cacheFile = getCacheFile();
+        if (cacheFile == null) {
+            return;
+        }
+        modified = false;
+        entries.entrySet().removeIf(entry -> !entry.getValue().used && !new File(entry.getKey()).isFile());
+        Path tmpFile = null;
+        try {
+            Files.createDirectories(cacheFile.getParent());
+            // Other JVMs may save the same cache concurrently, the last one replaces it as a whole.
+            tmpFile = Files.createTempFile(cacheFile.getParent(), CACHE_FILE_NAME, null);
+            int count = 0;
+            try (BufferedWriter writer = Files.newBufferedWriter(tmpFile, StandardCharsets.UTF_8)) {
+                for (boolean used : new boolean[]{true, false}) {
+                    for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                        if (entry.getValue().used != used || count >= MAX_PERSISTED_ENTRIES) {
+                            continue;
+                        }
+                        writer.write(entry.getValue().sha256);
+                        writer.write(FIELD_SEPARATOR);
+                        writer.write(String.valueOf(entry.getValue().size));
+                        writer.write(FIELD_SEPARATOR);
+                        writer.write(String.valueOf(entry.getValue().lastModified));
+                        writer.write(FIELD_SEPARATOR);
+                        writer.write(entry.getKey());
+                        writer.newLine();
+                        count++;
+                    }
+                }
+            }
+            Files.move(tmpFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            logger.log(LogLevel.FINER, String.format(UNABLE_TO_SAVE_SHA_CACHE_S, cacheFile, e.getMessage()), e, FileShaCache.class.getName());
+            try {
+                if (tmpFile != null) {
+                    Files.deleteIfExists(tmpFile);
+                }
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private static Path getCacheFile() {
+        try {
+            String home = AgentConfig.getInstance().getK2Home();
+            if (StringUtils.isBlank(home)) {
+                return null;
+            }
+            return Paths.get(home, OsVariablesInstance.TMP, CACHE_FILE_NAME);
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+}
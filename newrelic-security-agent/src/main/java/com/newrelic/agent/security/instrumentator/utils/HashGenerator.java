@@ -3,6 +3,7 @@ package com.newrelic.agent.security.instrumentator.utils;
 import com.newrelic.agent.security.intcodeagent.filelogging.FileLoggerThreadPool;
 import com.newrelic.api.agent.security.utils.logging.LogLevel;
 import com.newrelic.agent.security.intcodeagent.logging.DeployedApplication;
+import com.newrelic.agent.security.intcodeagent.logging.IAgentConstants;
 import net.openhft.hashing.LongHashFunction;
 import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
 import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
@@ -13,12 +14,18 @@ import org.apache.commons.io.filefilter.TrueFileFilter;
 import org.apache.commons.lang3.StringUtils;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.stream.Collectors;
 
 public class HashGenerator {
 
@@ -43,6 +50,29 @@ public class HashGenerator {
     public static final String STRING_SEP = "-";
     private static final LongHashFunction xxHashFunction = LongHashFunction.xx3(3214658854114272368L);
 
+    private static final int READ_BUFFER_SIZE = 256 * 1024;
+
+    /**
+     * Files are read through a buffer reused by each hashing thread rather than memory mapped, mapped regions keep the
+     * file locked on Windows until they are garbage collected.
+     */
+    private static final ThreadLocal<ByteBuffer> readBuffer = ThreadLocal.withInitial(() -> ByteBuffer.allocate(READ_BUFFER_SIZE));
+
+    private static final int MAX_SHA_CALC_THREADS = 4;
+
+    /**
+     * Hashes application files off the critical path, created on first use.
+     */
+    private static final class ShaCalcPool {
+        static final ForkJoinPool pool = new ForkJoinPool(
+                Math.max(1, Math.min(MAX_SHA_CALC_THREADS, Runtime.getRuntime().availableProcessors() / 2)),
+                pool -> {
+                    ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                    thread.setName(IAgentConstants.SHA_CALC_THREAD_ + thread.getPoolIndex());
+                    return thread;
+                }, null, false);
+    }
+
     /**
      * generates hash of a file content according to the algorithm provided.
      *
@@ -68,24 +98,51 @@ public class HashGenerator {
      * @return It returns the hash in string format
      */
     public static String getChecksum(File file) {
-        try (FileInputStream inputStream = new FileInputStream(file)) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
             MessageDigest digest = MessageDigest.getInstance(SHA_256);
-
-            byte[] bytesBuffer = new byte[102400];
-            int bytesRead = -1;
-
-            while ((bytesRead = inputStream.read(bytesBuffer)) != -1) {
-                digest.update(bytesBuffer, 0, bytesRead);
+            ByteBuffer bytesBuffer = readBuffer.get();
+            bytesBuffer.clear();
+            while (channel.read(bytesBuffer) != -1) {
+                bytesBuffer.flip();
+                digest.update(bytesBuffer);
+                bytesBuffer.clear();
             }
 
             byte[] hashedBytes = digest.digest();
             return convertByteArrayToHexString(hashedBytes);
-        } catch (FileNotFoundException e) {
-        } catch (NoSuchAlgorithmException | IOException e) {
+        } catch (NoSuchAlgorithmException | IOException | RuntimeException e) {
         }
         return null;
     }
 
+    /**
+     * Same as {@link #getChecksum(File)}, the hash is taken from {@link FileShaCache} if the file did not change since
+     * it was last hashed.
+     *
+     * @param file file object whose hash is to be calculated
+     * @return It returns the hash in string format
+     */
+    public static String getCachedChecksum(File file) {
+        return FileShaCache.getInstance().getChecksum(file);
+    }
+
+    /**
+     * Runs the task on the pool hashing application files, so that the caller does not wait for it.
+     *
+     * @param task the hash calculation to run
+     */
+    public static void calculateAsync(Runnable task) {
+        ShaCalcPool.pool.execute(() -> {
+            try {
+                task.run();
+            } catch (Throwable e) {
+                logger.log(LogLevel.SEVERE, ERROR, e, HashGenerator.class.getName());
+            } finally {
+                FileShaCache.getInstance().save();
+            }
+        });
+    }
+
     /**
      * convertByteArrayToHexString converts byte array to hex string.
      *
@@ -111,7 +168,7 @@ public class HashGenerator {
             return;
         }
         if (deplyementDirFile.isFile()) {
-            deployedApplication.setSha256(getChecksum(deplyementDirFile));
+            deployedApplication.setSha256(getCachedChecksum(deplyementDirFile));
             deployedApplication.setSize(FileUtils.byteCountToDisplaySize(FileUtils.sizeOf(deplyementDirFile)));
         } else {
             deployedApplication.setSha256(getSHA256ForDirectory(deplyementDirFile.getAbsolutePath()));
@@ -119,23 +176,30 @@ public class HashGenerator {
         }
     }
 
+    /**
+     * Hashes the relevant files of the directory in parallel on the SHA calculation pool, unchanged files are taken
+     * from {@link FileShaCache}. The digest does not depend on the order the files are hashed in.
+     */
     public static String getSHA256ForDirectory(String file) {
         try {
             File dir = new File(file);
             if (dir.isDirectory()) {
-                List<String> sha256s = new ArrayList<>();
                 Collection<File> allFiles = FileUtils.listFiles(dir, TrueFileFilter.INSTANCE, TrueFileFilter.INSTANCE);
                 List<File> sortedFiles = new ArrayList<>(allFiles);
                 Collections.sort(sortedFiles);
-                for (File tempFile : sortedFiles) {
-                    String extension = FilenameUtils.getExtension(tempFile.getName());
-                    if (OTHER_CRITICAL_FILE_EXT.contains(extension)
-                            || JAVA_APPLICATION_ALLOWED_FILE_EXT.contains(extension)) {
-                        sha256s.add(getChecksum(tempFile));
-                    }
-                }
-                return getSHA256HexDigest(sha256s);
+                List<String> sha256s = ShaCalcPool.pool.submit(() -> sortedFiles.parallelStream()
+                        .filter(tempFile -> {
+                            String extension = FilenameUtils.getExtension(tempFile.getName());
+                            return OTHER_CRITICAL_FILE_EXT.contains(extension)
+                                    || JAVA_APPLICATION_ALLOWED_FILE_EXT.contains(extension);
+                        })
+                        .map(HashGenerator::getCachedChecksum)
+                        .collect(Collectors.toList())).get();
+                FileShaCache.getInstance().save();
+                return getSHA256HexDigest(new ArrayList<>(sha256s));
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         } catch (Exception e) {
             logger.log(LogLevel.SEVERE, ERROR, e, HashGenerator.class.getName());
         }
@@ -175,6 +239,18 @@ public class HashGenerator {
         return String.valueOf(xxHashFunction.hashInts(data));
     }
 
+    /**
+     * Gets the xxHash64 digest of a range of the given array.
+     *
+     * @param data   array of Integers whose hash is to be generated
+     * @param offset index of the first element to hash
+     * @param length number of elements to hash
+     * @return the digest as a string
+     */
+    public static String getXxHash64Digest(int[] data, int offset, int length) throws IOException {
+        return String.valueOf(xxHashFunction.hashInts(data, offset, length));
+    }
+
     public static void createTarGz(File tmpAppDir, File tmpTarFile) throws IOException {
         BufferedOutputStream bOutputStream = null;
         TarArchiveOutputStream tarArchiveOutputStream = null;
@@ -17,6 +17,23 @@ public interface INRSettingsKey {
     String SECURITY_DETECTION_RXSS_ENABLED = "security.detection.rxss.enabled";
     String SECURITY_DETECTION_DESERIALIZATION_ENABLED = "security.detection.deserialization.enabled";
 
+    String SECURITY_EVENT_DEDUPLICATION_ENABLED = "security.event.deduplication.enabled";
+    String SECURITY_EVENT_DEDUPLICATION_WINDOW = "security.event.deduplication.window";
+    String SECURITY_EVENT_SAMPLING_ENABLED = "security.event.sampling.enabled";
+    String SECURITY_EVENT_SAMPLING_RATE = "security.event.sampling.rate";
+    String SECURITY_EVENT_SAMPLING_BURST = "security.event.sampling.burst";
+    String SECURITY_EVENT_BATCHING_ENABLED = "security.event.batching.enabled";
+    String SECURITY_EVENT_BATCHING_MAX_EVENTS = "security.event.batching.max_events";
+    String SECURITY_EVENT_BATCHING_MAX_BYTES = "security.event.batching.max_bytes";
+    String SECURITY_EVENT_BATCHING_LINGER = "security.event.batching.linger";
+    String SECURITY_EVENT_COMPRESSION_ENABLED = "security.event.compression.enabled";
+    String SECURITY_EVENT_SPOOL_ENABLED = "security.event.spool.enabled";
+    String SECURITY_EVENT_SPOOL_MAX_BYTES = "security.event.spool.max_bytes";
+    String SECURITY_EVENT_SPOOL_SEGMENT_BYTES = "security.event.spool.segment_bytes";
+    String SECURITY_EVENT_SPOOL_MAX_AGE = "security.event.spool.max_age";
+    String SECURITY_EVENT_SPOOL_REPLAY_RATE = "security.event.spool.replay_rate";
+    String SECURITY_BODY_CAPTURE_MAX_BYTES = "security.body_capture.max_bytes";
+
     String SECURITY_POLICY_ENFORCE = "security.policy.enforce";
 
     String NR_ENTITY_GUID = "entity.guid";
@@ -0,0 +1,216 @@
+package com.newrelic.agent.security.instrumentator.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Case insensitive Aho-Corasick automaton over a fixed set of patterns.
+ * <p>
+ * Text is fed one character at a time through a {@link Scan}, so it can be searched while it is being produced
+ * (e.g. decoded) and in several separate pieces, in a single pass whatever the number of patterns. Characters are
+ * compared the way {@link String#regionMatches(boolean, int, String, int, int)} ignores case, which is what
+ * {@code StringUtils.containsIgnoreCase} relies on.
+ */
+public class MultiPatternMatcher {
+
+    private static final char[] NO_KEYS = new char[0];
+
+    private static final int[] NO_TARGETS = new int[0];
+
+    private final int patternCount;
+
+    /**
+     * Sorted outgoing characters of each node, and the node they lead to.
+     */
+    private char[][] keys;
+
+    private int[][] targets;
+
+    private int[] failure;
+
+    /**
+     * Nearest node on the failure chain, including the node itself, that ends a pattern. {@code -1} if none.
+     */
+    private int[] outputLink;
+
+    private int[][] outputs;
+
+    private final BitSet emptyPatterns = new BitSet();
+
+    private int nodeCount = 1;
+
+    public MultiPatternMatcher(List<String> patterns) {
+        this.patternCount = patterns.size();
+        int capacity = 1;
+        for (String pattern : patterns) {
+            capacity += pattern.length();
+        }
+        keys = new char[capacity][];
+        targets = new int[capacity][];
+        outputs = new int[capacity][];
+        keys[0] = NO_KEYS;
+        targets[0] = NO_TARGETS;
+        for (int i = 0; i < patterns.size(); i++) {
+            addPattern(patterns.get(i), i);
+        }
+        buildFailureLinks();
+    }
+
+    static char fold(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    private void addPattern(String pattern, int id) {
+        if (pattern.isEmpty()) {
+            emptyPatterns.set(id);
+            return;
+        }
+        int node = 0;
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = fold(pattern.charAt(i));
+            int next = child(node, c);
+            if (next < 0) {
+                next = nodeCount++;
+                keys[next] = NO_KEYS;
+                targets[next] = NO_TARGETS;
+                insertChild(node, c, next);
+            }
+            node = next;
+        }
+        outputs[node] = outputs[node] == null ? new int[]{id} : append(outputs[node], id);
+    }
+
+    private static int[] append(int[] array, int value) {
+        int[] result = Arrays.copyOf(array, array.length + 1);
+        result[array.length] = value;
+        return result;
+    }
+
+    private int child(int node, char c) {
+        int index = Arrays.binarySearch(keys[node], c);
+        return index >= 0 ? targets[node][index] : -1;
+    }
+
+    private void insertChild(int node, char c, int child) {
+        char[] nodeKeys = keys[node];
+        int[] nodeTargets = targets[node];
+        int index = -(Arrays.binarySearch(nodeKeys, c) + 1);
+        char[] newKeys = new char[nodeKeys.length + 1];
+        int[] newTargets = new int[nodeTargets.length + 1];
+        System.arraycopy(nodeKeys, 0, newKeys, 0, index);
+        System.arraycopy(nodeTargets, 0, newTargets, 0, index);
+        newKeys[index] = c;
+        newTargets[index] = child;
+        System.arraycopy(nodeKeys, index, newKeys, index + 1, nodeKeys.length - index);
+        System.arraycopy(nodeTargets, index, newTargets, index + 1, nodeTargets.length - index);
+        keys[node] = newKeys;
+        targets[node] = newTargets;
+    }
+
+    private void buildFailureLinks() {
+        failure = new int[nodeCount];
+        outputLink = new int[nodeCount];
+        outputLink[0] = -1;
+        List<Integer> queue = new ArrayList<>(nodeCount);
+        for (int child : targets[0]) {
+            failure[child] = 0;
+            outputLink[child] = outputs[child] != null ? child : -1;
+            queue.add(child);
+        }
+        for (int head = 0; head < queue.size(); head++) {
+            int node = queue.get(head);
+            for (int i = 0; i < keys[node].length; i++) {
+                char c = keys[node][i];
+                int child = targets[node][i];
+                int fallback = failure[node];
+                while (fallback != 0 && child(fallback, c) < 0) {
+                    fallback = failure[fallback];
+                }
+                int link = child(fallback, c);
+                failure[child] = link >= 0 ? link : 0;
+                outputLink[child] = outputs[child] != null ? child : outputLink[failure[child]];
+                queue.add(child);
+            }
+        }
+    }
+
+    public int getPatternCount() {
+        return patternCount;
+    }
+
+    /**
+     * @param stopAtFirstMatch whether the scan is done as soon as any pattern matched
+     * @return a new scan over this automaton
+     */
+    public Scan newScan(boolean stopAtFirstMatch) {
+        return new Scan(stopAtFirstMatch);
+    }
+
+    /**
+     * Matching state over a text fed piece by piece.
+     */
+    public class Scan {
+
+        private final boolean stopAtFirstMatch;
+
+        private final BitSet matched = new BitSet();
+
+        private int matchedCount;
+
+        private int state = 0;
+
+        private Scan(boolean stopAtFirstMatch) {
+            this.stopAtFirstMatch = stopAtFirstMatch;
+            matched.or(emptyPatterns);
+            matchedCount = matched.cardinality();
+        }
+
+        /**
+         * Ends the current piece of text, so that no pattern matches across the boundary. Matches found so far
+         * are kept.
+         */
+        public void newText() {
+            state = 0;
+        }
+
+        public void accept(char c) {
+            c = fold(c);
+            int next = child(state, c);
+            while (next < 0 && state != 0) {
+                state = failure[state];
+                next = child(state, c);
+            }
+            state = next >= 0 ? next : 0;
+            for (int node = outputLink[state]; node >= 0; node = outputLink[failure[node]]) {
+                for (int id : outputs[node]) {
+                    if (!matched.get(id)) {
+                        matched.set(id);
+                        matchedCount++;
+                    }
+                }
+            }
+        }
+
+        public void accept(CharSequence text) {
+            for (int i = 0; i < text.length() && !isDone(); i++) {
+                accept(text.charAt(i));
+            }
+        }
+
+        /**
+         * @return whether feeding more text can not change the outcome
+         */
+        public boolean isDone() {
+            return matchedCount == patternCount || (stopAtFirstMatch && matchedCount > 0);
+        }
+
+        /**
+         * @return the indexes of the matched patterns
+         */
+        public BitSet getMatched() {
+            return matched;
+        }
+    }
+}
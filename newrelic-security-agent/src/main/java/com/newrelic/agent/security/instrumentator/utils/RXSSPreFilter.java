@@ -0,0 +1,95 @@
+package com.newrelic.agent.security.instrumentator.utils;
+
+import com.newrelic.agent.security.intcodeagent.models.config.SecurityConfigSnapshot;
+import com.newrelic.api.agent.security.instrumentation.helpers.ServletHelper;
+import com.newrelic.api.agent.security.schema.HttpRequest;
+import com.newrelic.api.agent.security.schema.SecurityMetaData;
+import com.newrelic.api.agent.security.utils.MarkupCandidateScanner;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides on the request thread whether a reflected XSS operation is worth dispatching, before its stack trace is
+ * processed and the request is copied for the dispatcher. {@link CallbackUtils#checkForReflectedXSS} only finds
+ * constructs in request data holding an opening angle bracket once decoded, requests without any are skipped when
+ * the event would not be sent anyway.
+ */
+public class RXSSPreFilter {
+
+    private static final AtomicLong evaluatedCount = new AtomicLong();
+
+    private static final AtomicLong skippedCount = new AtomicLong();
+
+    /**
+     * @param securityMetaData the transaction of the reflected XSS operation
+     * @return {@code false} if the reflected XSS check can not lead to an event for this request
+     */
+    public static boolean isEvaluationNeeded(SecurityMetaData securityMetaData) {
+        boolean needed = securityMetaData == null || evaluate(securityMetaData);
+        if (needed) {
+            evaluatedCount.incrementAndGet();
+        } else {
+            skippedCount.incrementAndGet();
+        }
+        return needed;
+    }
+
+    private static boolean evaluate(SecurityMetaData securityMetaData) {
+        SecurityConfigSnapshot config = AgentUtils.getInstance().getConfigSnapshot();
+        if (!config.isRxssDetectionEnabled()) {
+            return false;
+        }
+        // IAST expects the event of every request, with or without constructs.
+        if (config.isIastEnabled()) {
+            return true;
+        }
+        return StringUtils.isNotBlank(securityMetaData.getResponse().getResponseBody())
+                && hasMarkupCandidate(securityMetaData.getRequest());
+    }
+
+    /**
+     * Checks the same request data as {@link CallbackUtils#decodeRequestData}. The body is scanned incrementally, only
+     * the part captured since the previous check is read. Headers come last, reading them parses the deferred part of
+     * the request.
+     */
+    static boolean hasMarkupCandidate(HttpRequest request) {
+        if (MarkupCandidateScanner.containsCandidate(request.getUrl())) {
+            return true;
+        }
+        for (Map.Entry<String, String[]> entry : request.getParameterMap().entrySet()) {
+            if (MarkupCandidateScanner.containsCandidate(entry.getKey())) {
+                return true;
+            }
+            if (entry.getValue() != null) {
+                for (String value : entry.getValue()) {
+                    if (MarkupCandidateScanner.containsCandidate(value)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        if (request.isBodyMarkupCandidate()) {
+            return true;
+        }
+        for (Map.Entry<String, String> entry : request.getHeaders().entrySet()) {
+            if (StringUtils.equals(ServletHelper.CSEC_IAST_FUZZ_REQUEST_ID, entry.getKey())) {
+                continue;
+            }
+            if (MarkupCandidateScanner.containsCandidate(entry.getKey())
+                    || MarkupCandidateScanner.containsCandidate(entry.getValue())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static long getAndResetEvaluatedCount() {
+        return evaluatedCount.getAndSet(0);
+    }
+
+    public static long getAndResetSkippedCount() {
+        return skippedCount.getAndSet(0);
+    }
+}
@@ -7,9 +7,11 @@ import com.newrelic.agent.security.instrumentator.httpclient.RestRequestThreadPo
 import com.newrelic.agent.security.instrumentator.utils.AgentUtils;
 import com.newrelic.agent.security.instrumentator.utils.InstrumentationUtils;
 import com.newrelic.agent.security.intcodeagent.filelogging.FileLoggerThreadPool;
+import com.newrelic.agent.security.intcodeagent.ipblocking.AttackerIpBlocklist;
 import com.newrelic.api.agent.security.utils.logging.LogLevel;
 import com.newrelic.agent.security.intcodeagent.logging.IAgentConstants;
 import com.newrelic.agent.security.intcodeagent.models.config.AgentPolicyParameters;
+import com.newrelic.agent.security.intcodeagent.models.config.SecurityConfigSnapshot;
 import com.newrelic.agent.security.intcodeagent.models.javaagent.EventResponse;
 import com.newrelic.agent.security.intcodeagent.models.javaagent.IntCodeControlCommand;
 import com.newrelic.agent.security.intcodeagent.utils.CommonUtils;
@@ -17,7 +19,6 @@ import com.newrelic.agent.security.intcodeagent.websocket.EventSendPool;
 import com.newrelic.agent.security.intcodeagent.websocket.JsonConverter;
 import com.newrelic.agent.security.intcodeagent.websocket.WSClient;
 import com.newrelic.agent.security.intcodeagent.websocket.WSUtils;
-import com.newrelic.api.agent.security.NewRelicSecurity;
 import com.newrelic.api.agent.security.instrumentation.helpers.GrpcClientRequestReplayHelper;
 import com.newrelic.api.agent.security.schema.policy.AgentPolicy;
 import org.apache.commons.lang3.StringUtils;
@@ -29,6 +30,7 @@ import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 public class ControlCommandProcessor implements Runnable {
 
@@ -43,6 +45,7 @@ public class ControlCommandProcessor implements Runnable {
     public static final String SETTING_NEW_IP_BLOCKING_TIMEOUT_TO_S_MS = "Setting new IP Blocking timeout to %s ms";
     public static final String ATTACKED_API_BLOCKED_S = "Attacked API added to blocked list : %s";
     public static final String ADDING_IP_ADDRESS_S_TO_BLOCKING_LIST_WITH_TIMEOUT_S = "Adding IP address %s to blocking list with timeout %s";
+    public static final String UNABLE_TO_ADD_IP_ADDRESS_S_TO_BLOCKING_LIST = "Unable to add IP address %s to blocking list, invalid address or %s IPs already blocked";
     public static final String ERROR_IN_EVENT_RESPONSE = "Error in EVENT_RESPONSE : ";
     public static final String FUZZ_REQUEST = "Fuzz request : ";
     public static final String POLICY_PARAMETERS_ARE_UPDATED_TO_S = "Policy parameters are updated to : %s";
@@ -153,19 +156,20 @@ public class ControlCommandProcessor implements Runnable {
                     AgentUtils.getInstance().getEventResponseSet().put(receivedEventResponse.getId(),
                             receivedEventResponse);
 
-                    logger.log(LogLevel.FINER, EVENT_RESPONSE + receivedEventResponse,
+                    logger.log(LogLevel.FINER, () -> EVENT_RESPONSE + receivedEventResponse,
                             ControlCommandProcessor.class.getName());
 
                     receivedEventResponse.getResponseSemaphore().release();
                     if (cleanUp) {
                         AgentUtils.getInstance().getEventResponseSet().remove(receivedEventResponse.getId());
                     }
+                    blockAttackerIp(receivedEventResponse);
                 } catch (Exception e) {
                     logger.log(LogLevel.SEVERE, ERROR_IN_EVENT_RESPONSE, e, ControlCommandProcessor.class.getSimpleName());
                 }
                 break;
             case IntCodeControlCommand.FUZZ_REQUEST:
-                logger.log(LogLevel.FINER, FUZZ_REQUEST + controlCommandMessage,
+                logger.log(LogLevel.FINER, () -> FUZZ_REQUEST + controlCommandMessage,
                         ControlCommandProcessor.class.getName());
                 IASTDataTransferRequestProcessor.getInstance().setLastFuzzCCTimestamp(Instant.now().toEpochMilli());
                 RestRequestProcessor.processControlCommand(controlCommand);
@@ -215,9 +219,7 @@ public class ControlCommandProcessor implements Runnable {
                 try {
                     //TODO no need for draining IAST since last leg has complete ledger.
                     logger.log(LogLevel.INFO, RECEIVED_WS_RECONNECT_COMMAND_FROM_SERVER_INITIATING_SEQUENCE, this.getClass().getName());
-                    if (NewRelicSecurity.getAgent().getCurrentPolicy().getVulnerabilityScan().getEnabled() &&
-                            NewRelicSecurity.getAgent().getCurrentPolicy().getVulnerabilityScan().getIastScan().getEnabled()
-                    ) {
+                    if (AgentUtils.getInstance().getConfigSnapshot().isIastEnabled()) {
                         WSUtils.getInstance().setReconnecting(true);
                         while (EventSendPool.getInstance().getExecutor().getActiveCount() > 0 && !EventSendPool.getInstance().isWaiting().get()) {
                             Thread.sleep(100);
@@ -227,7 +229,7 @@ public class ControlCommandProcessor implements Runnable {
                         while (RestRequestThreadPool.getInstance().getExecutor().getActiveCount() > 0 && !RestRequestThreadPool.getInstance().isWaiting().get()) {
                             Thread.sleep(100);
                         }
-                        logger.log(LogLevel.FINER, String.format("Request = %s, in process = %s", GrpcClientRequestReplayHelper.getInstance().getRequestQueue().size(), GrpcClientRequestReplayHelper.getInstance().getInProcessRequestQueue().size()), this.getClass().getName());
+                        logger.log(LogLevel.FINER, () -> String.format("Request = %s, in process = %s", GrpcClientRequestReplayHelper.getInstance().getRequestQueue().size(), GrpcClientRequestReplayHelper.getInstance().getInProcessRequestQueue().size()), this.getClass().getName());
                         while (GrpcClientRequestReplayHelper.getInstance().getRequestQueue().size() > 0 && GrpcClientRequestReplayHelper.getInstance().getInProcessRequestQueue().size() > 0 && !GrpcClientRequestReplayHelper.getInstance().isWaiting().get()) {
                             Thread.sleep(100);
                         }
@@ -272,4 +274,20 @@ public class ControlCommandProcessor implements Runnable {
         ControlCommandProcessorThreadPool.getInstance().executor
                 .submit(new ControlCommandProcessor(controlCommandMessage, receiveTimestamp));
     }
+
+    private static void blockAttackerIp(EventResponse eventResponse) {
+        SecurityConfigSnapshot config = AgentUtils.getInstance().getConfigSnapshot();
+        if (!eventResponse.isAttack() || StringUtils.isBlank(eventResponse.getClientIP())
+                || !config.isAttackerIpBlockingEnabled() || config.getAllowedIpRanges().contains(eventResponse.getClientIP())) {
+            return;
+        }
+        if (!AttackerIpBlocklist.getInstance().block(eventResponse.getClientIP(),
+                TimeUnit.MINUTES.toMillis(config.getAttackerIpTimeoutMinutes()))) {
+            logger.log(LogLevel.WARNING, String.format(UNABLE_TO_ADD_IP_ADDRESS_S_TO_BLOCKING_LIST,
+                    eventResponse.getClientIP(), AttackerIpBlocklist.MAX_ENTRIES), ControlCommandProcessor.class.getName());
+            return;
+        }
+        logger.log(LogLevel.INFO, String.format(ADDING_IP_ADDRESS_S_TO_BLOCKING_LIST_WITH_TIMEOUT_S,
+                eventResponse.getClientIP(), config.getAttackerIpTimeoutMinutes() + " minutes"), ControlCommandProcessor.class.getName());
+    }
 }
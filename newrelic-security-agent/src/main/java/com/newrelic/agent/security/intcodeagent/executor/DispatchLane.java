@@ -0,0 +1,39 @@
+package com.newrelic.agent.security.intcodeagent.executor;
+
+/**
+ * Priority lanes of the event processing queues, highest priority first.
+ * <p>
+ * The weight of a lane is the share of the pool it gets while all the lanes have work pending.
+ */
+public enum DispatchLane {
+
+    /**
+     * Events generated while replaying IAST requests.
+     */
+    IAST(8),
+
+    /**
+     * Events generated by the application traffic.
+     */
+    RASP(4),
+
+    /**
+     * Exit events.
+     */
+    EXIT(2),
+
+    /**
+     * Application info, heartbeat and any other agent generated messages.
+     */
+    CONTROL(1);
+
+    private final int weight;
+
+    DispatchLane(int weight) {
+        this.weight = weight;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+}
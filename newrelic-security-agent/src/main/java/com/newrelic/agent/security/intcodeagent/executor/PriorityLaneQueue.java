@@ -0,0 +1,408 @@
+package com.newrelic.agent.security.intcodeagent.executor;
+
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Work queue of a thread pool made of one bounded FIFO lane per {@link DispatchLane}.
+ * <p>
+ * Each task is put on the lane chosen by the classifier. A full lane rejects new tasks, which are then handed to the
+ * rejection handler of the pool, while the other lanes keep accepting work. Lanes are drained with smooth weighted
+ * round-robin, so a busy lane gets a share of the pool proportional to its weight but never starves the others.
+ */
+public class PriorityLaneQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+
+    private static final DispatchLane[] LANES = DispatchLane.values();
+
+    private final Function<Runnable, DispatchLane> classifier;
+
+    private final int[] capacities;
+
+    private final ArrayDeque<Runnable>[] lanes;
+
+    /**
+     * Running credit of each lane for the weighted round-robin.
+     */
+    private final int[] credits;
+
+    private final AtomicInteger[] rejected;
+
+    private int count;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition notEmpty = lock.newCondition();
+
+    private final Condition notFull = lock.newCondition();
+
+    /**
+     * @param classifier maps a task to its lane, {@code null} results go to {@link DispatchLane#CONTROL}
+     * @param capacities capacity of each lane, indexed by {@link DispatchLane#ordinal()}
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public PriorityLaneQueue(Function<Runnable, DispatchLane> classifier, int... capacities) {
+        if (capacities.length != LANES.length) {
+            throw new IllegalArgumentException("Expected " + LANES.length + " lane capacities, got " + capacities.length);
+        }
+        this.classifier = classifier;
+        this.capacities = capacities.clone();
+        this.lanes = new ArrayDeque[LANES.length];
+        this.credits = new int[LANES.length];
+        this.rejected = new AtomicInteger[LANES.length];
+        for (int i = 0; i < LANES.length; i++) {
+            if (capacities[i] <= 0) {
+                throw new IllegalArgumentException("Lane capacity must be positive : " + LANES[i]);
+            }
+            lanes[i] = new ArrayDeque<>(Math.min(capacities[i], 64));
+            rejected[i] = new AtomicInteger();
+        }
+    }
+
+    private DispatchLane laneOf(Runnable task) {
+        DispatchLane lane = null;
+        try {
+            lane = classifier.apply(task);
+        } catch (Throwable ignored) {
+        }
+        return lane != null ? lane : DispatchLane.CONTROL;
+    }
+
+    private void enqueue(int lane, Runnable task) {
+        lanes[lane].addLast(task);
+        count++;
+        notEmpty.signal();
+    }
+
+    /**
+     * Picks the next task with smooth weighted round-robin over the non empty lanes. Must be called with the lock
+     * held and {@code count > 0}.
+     */
+    private Runnable dequeue() {
+        int selected = -1;
+        int totalWeight = 0;
+        for (int i = 0; i < LANES.length; i++) {
+            if (lanes[i].isEmpty()) {
+                continue;
+            }
+            credits[i] += LANES[i].getWeight();
+            totalWeight += LANES[i].getWeight();
+            if (selected < 0 || credits[i] > credits[selected]) {
+                selected = i;
+            }
+        }
+        credits[selected] -= totalWeight;
+        Runnable task = lanes[selected].pollFirst();
+        if (lanes[selected].isEmpty()) {
+            // Idle lanes do not accumulate credit.
+            credits[selected] = 0;
+        }
+        count--;
+        notFull.signal();
+        return task;
+    }
+
+    @Override
+    public boolean offer(Runnable task) {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        int lane = laneOf(task).ordinal();
+        lock.lock();
+        try {
+            if (lanes[lane].size() >= capacities[lane]) {
+                rejected[lane].incrementAndGet();
+                return false;
+            }
+            enqueue(lane, task);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(Runnable task, long timeout, TimeUnit unit) throws InterruptedException {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        int lane = laneOf(task).ordinal();
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (lanes[lane].size() >= capacities[lane]) {
+                if (nanos <= 0) {
+                    rejected[lane].incrementAndGet();
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            enqueue(lane, task);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void put(Runnable task) throws InterruptedException {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        int lane = laneOf(task).ordinal();
+        lock.lockInterruptibly();
+        try {
+            while (lanes[lane].size() >= capacities[lane]) {
+                notFull.await();
+            }
+            enqueue(lane, task);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable poll() {
+        lock.lock();
+        try {
+            return count > 0 ? dequeue() : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                notEmpty.await();
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the head of the highest priority non empty lane, which is not necessarily the next task to be taken
+     */
+    @Override
+    public Runnable peek() {
+        lock.lock();
+        try {
+            for (ArrayDeque<Runnable> lane : lanes) {
+                if (!lane.isEmpty()) {
+                    return lane.peekFirst();
+                }
+            }
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (o == null) {
+            return false;
+        }
+        lock.lock();
+        try {
+            for (ArrayDeque<Runnable> lane : lanes) {
+                if (lane.removeFirstOccurrence(o)) {
+                    count--;
+                    notFull.signalAll();
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (o == null) {
+            return false;
+        }
+        lock.lock();
+        try {
+            for (ArrayDeque<Runnable> lane : lanes) {
+                if (lane.contains(o)) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int remainingCapacity() {
+        lock.lock();
+        try {
+            int remaining = 0;
+            for (int i = 0; i < LANES.length; i++) {
+                remaining += capacities[i] - lanes[i].size();
+            }
+            return remaining;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.lock();
+        try {
+            for (int i = 0; i < LANES.length; i++) {
+                lanes[i].clear();
+                credits[i] = 0;
+            }
+            count = 0;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c, int maxElements) {
+        if (c == null) {
+            throw new NullPointerException();
+        }
+        if (c == this) {
+            throw new IllegalArgumentException();
+        }
+        lock.lock();
+        try {
+            int drained = 0;
+            while (drained < maxElements && count > 0) {
+                c.add(dequeue());
+                drained++;
+            }
+            return drained;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Weakly consistent iterator over a snapshot of the queue, in lane priority order.
+     */
+    @Override
+    public Iterator<Runnable> iterator() {
+        final List<Runnable> snapshot;
+        lock.lock();
+        try {
+            snapshot = new ArrayList<>(count);
+            for (ArrayDeque<Runnable> lane : lanes) {
+                snapshot.addAll(lane);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return new Iterator<Runnable>() {
+            private int cursor = 0;
+            private Runnable lastReturned;
+
+            @Override
+            public boolean hasNext() {
+                return cursor < snapshot.size();
+            }
+
+            @Override
+            public Runnable next() {
+                if (cursor >= snapshot.size()) {
+                    throw new NoSuchElementException();
+                }
+                lastReturned = snapshot.get(cursor++);
+                return lastReturned;
+            }
+
+            @Override
+            public void remove() {
+                if (lastReturned == null) {
+                    throw new IllegalStateException();
+                }
+                PriorityLaneQueue.this.remove(lastReturned);
+                lastReturned = null;
+            }
+        };
+    }
+
+    /**
+     * @return number of tasks waiting in the lane
+     */
+    public int size(DispatchLane lane) {
+        lock.lock();
+        try {
+            return lanes[lane.ordinal()].size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int capacity(DispatchLane lane) {
+        return capacities[lane.ordinal()];
+    }
+
+    /**
+     * @return fill level of the lane, between {@code 0} and {@code 1}
+     */
+    public double fillRatio(DispatchLane lane) {
+        return (double) size(lane) / capacities[lane.ordinal()];
+    }
+
+    /**
+     * @return number of tasks the lane turned down since the previous call
+     */
+    public int getAndResetRejectedCount(DispatchLane lane) {
+        return rejected[lane.ordinal()].getAndSet(0);
+    }
+}
@@ -9,12 +9,29 @@ import com.newrelic.agent.security.intcodeagent.websocket.JsonConverter;
 import com.newrelic.api.agent.security.utils.logging.LogLevel;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 public class FileLoggerThreadPool {
+    /**
+     * Records of the agent log waiting to be written, producers never block on it.
+     */
+    private static final int LOG_BUFFER_CAPACITY = 15000;
+
+    private static final int LOG_BATCH_SIZE = 512;
+
+    private static final long LOG_POLL_TIMEOUT_MILLIS = 500;
+
     private ThreadPoolExecutor executor;
 
-    private static FileLoggerThreadPool instance;
+    private final ArrayBlockingQueue<LogWriter> logBuffer = new ArrayBlockingQueue<>(LOG_BUFFER_CAPACITY);
+
+    private final AtomicInteger droppedLogCount = new AtomicInteger();
+
+    private final Thread logWriterThread;
 
     private boolean isLoggingActive = true;
 
@@ -68,11 +85,43 @@ public class FileLoggerThreadPool {
             }
         } catch (NumberFormatException e){}
 
+        logWriterThread = new Thread(Thread.currentThread().getThreadGroup(), this::writeLogRecords, "NR-CSEC-Log-Writer");
+        logWriterThread.setDaemon(true);
+    }
+
+    /**
+     * Single consumer of the log buffer, writes the records in batches until interrupted and then writes what is
+     * left.
+     */
+    private void writeLogRecords() {
+        List<LogWriter> batch = new ArrayList<>(LOG_BATCH_SIZE);
+        StringBuilder buffer = new StringBuilder(1024);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                LogWriter record = logBuffer.poll(LOG_POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                if (record != null) {
+                    batch.add(record);
+                    logBuffer.drainTo(batch, LOG_BATCH_SIZE - 1);
+                }
+                LogWriter.write(batch, buffer, logBuffer.isEmpty());
+            } catch (InterruptedException e) {
+                break;
+            } catch (Throwable ignored) {
+            } finally {
+                batch.clear();
+            }
+        }
+        try {
+            logBuffer.drainTo(batch);
+            LogWriter.write(batch, buffer, true);
+        } catch (Throwable ignored) {
+        }
     }
 
 
     public void shutDownThreadPoolExecutor() {
 
+        logWriterThread.interrupt();
         if (executor != null) {
             try {
                 executor.shutdown(); // disable new tasks from being submitted
@@ -109,30 +158,74 @@ public class FileLoggerThreadPool {
         }
     }
 
+    private static final class InstanceHolder {
+        static final FileLoggerThreadPool instance = create();
+    }
+
+    private static FileLoggerThreadPool create() {
+        try {
+            FileLoggerThreadPool pool = new FileLoggerThreadPool();
+            // The records it writes refer back to the instance, the writer waits for the holder to be initialised.
+            pool.logWriterThread.start();
+            return pool;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
     /**
      * @return the instance
      */
     public static FileLoggerThreadPool getInstance() {
-        if (instance == null)
-            try {
-                instance = new FileLoggerThreadPool();
-            } catch (IOException e) {
-            }
-        return instance;
+        return InstanceHolder.instance;
     }
 
     public void log(LogLevel logLevel, String event, String logSourceClassName) {
-        if (logLevel.getLevel() == 1 || logLevel.getLevel() > LogWriter.defaultLogLevel) {
+        if (!isLogLevelEnabled(logLevel)) {
             return;
         }
-        executor.submit(new LogWriter(logLevel, event, logSourceClassName, Thread.currentThread().getName()));
+        enqueue(new LogWriter(logLevel, event, logSourceClassName, Thread.currentThread().getName()));
     }
 
     public void log(LogLevel logLevel, String event, Throwable throwableEvent, String logSourceClassName) {
-        if (logLevel.getLevel() == 1 || logLevel.getLevel() > LogWriter.defaultLogLevel) {
+        if (!isLogLevelEnabled(logLevel)) {
+            return;
+        }
+        enqueue(new LogWriter(logLevel, event, throwableEvent, logSourceClassName, Thread.currentThread().getName()));
+    }
+
+    /**
+     * Same as {@link #log(LogLevel, String, String)}, but the message is only built if the level is enabled. To be
+     * used when building the message formats or serializes objects.
+     */
+    public void log(LogLevel logLevel, Supplier<String> event, String logSourceClassName) {
+        if (!isLogLevelEnabled(logLevel)) {
             return;
         }
-        executor.submit(new LogWriter(logLevel, event, throwableEvent, logSourceClassName, Thread.currentThread().getName()));
+        enqueue(new LogWriter(logLevel, event.get(), logSourceClassName, Thread.currentThread().getName()));
+    }
+
+    /**
+     * Same as {@link #log(LogLevel, String, Throwable, String)}, but the message is only built if the level is enabled.
+     */
+    public void log(LogLevel logLevel, Supplier<String> event, Throwable throwableEvent, String logSourceClassName) {
+        if (!isLogLevelEnabled(logLevel)) {
+            return;
+        }
+        enqueue(new LogWriter(logLevel, event.get(), throwableEvent, logSourceClassName, Thread.currentThread().getName()));
+    }
+
+    private void enqueue(LogWriter record) {
+        if (!logBuffer.offer(record)) {
+            droppedLogCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return the number of agent log messages dropped because the log buffer was full, since the previous call
+     */
+    public int getAndResetDroppedLogCount() {
+        return droppedLogCount.getAndSet(0);
     }
 
     public void logInit(LogLevel logLevel, String event, String logSourceClassName) {
@@ -189,7 +282,11 @@ public class FileLoggerThreadPool {
         isInitLoggingActive = initLoggingActive;
     }
 
+    /**
+     * @param logLevel the level to check
+     * @return whether messages of the given level are written to the agent log
+     */
     public boolean isLogLevelEnabled(LogLevel logLevel) {
-        return (logLevel.getLevel() >= LogWriter.defaultLogLevel);
+        return logLevel.getLevel() != LogLevel.OFF.getLevel() && logLevel.getLevel() <= LogWriter.defaultLogLevel;
     }
 }
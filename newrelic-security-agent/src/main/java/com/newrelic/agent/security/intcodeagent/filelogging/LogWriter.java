@@ -15,12 +15,19 @@ import java.nio.channels.FileLock;
 import java.nio.file.Files;
 import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.PosixFilePermissions;
-import java.text.SimpleDateFormat;
 import java.time.Instant;
-import java.util.Calendar;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
-public class LogWriter implements Runnable {
+/**
+ * Record of a message for the agent log file, and writer of the records.
+ * <p>
+ * Records only capture their inputs and the time, they are formatted and written in batches by the single consumer
+ * of {@link FileLoggerThreadPool}, see {@link #write(List, StringBuilder, boolean)}.
+ */
+public class LogWriter {
 
     private static final String STRING_DOT = ".";
 
@@ -29,6 +36,12 @@ public class LogWriter implements Runnable {
     private static final String STR_COLON = " : ";
 
     public static final String THREAD_NAME_TEMPLATE = " [%s] [%s] ";
+
+    private static final String THREAD_NAME_OPEN = " [";
+
+    private static final String THREAD_NAME_SEPARATOR = "] [";
+
+    private static final String THREAD_NAME_CLOSE = "] ";
     public static final String CAUSED_BY = "Caused by: ";
 
     public static int defaultLogLevel = LogLevel.INFO.getLevel();
@@ -45,11 +58,23 @@ public class LogWriter implements Runnable {
 
     private static long maxFileSize;
 
-    Calendar cal = Calendar.getInstance();
-    SimpleDateFormat sdf = new SimpleDateFormat(DATE_FORMAT_NOW);
-
     public static final String DATE_FORMAT_NOW = "yyyy-MM-dd HH:mm:ss.SSS";
 
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern(DATE_FORMAT_NOW).withZone(ZoneId.systemDefault());
+
+    /**
+     * Buffered records are flushed at least this often while messages keep coming.
+     */
+    private static final long FLUSH_INTERVAL_MILLIS = 1000;
+
+    private static final Object writeLock = new Object();
+
+    private static long lastFlushTime = 0L;
+
+    private static boolean unflushed = false;
+
+    private static char[] chars = new char[1024];
+
     private static String fileName;
 
     private static String currentLogFileName;
@@ -61,7 +86,8 @@ public class LogWriter implements Runnable {
     private String threadName;
 
     private static OSVariables osVariables = OsVariablesInstance.getInstance().getOsVariables();
-    private String logTime;
+
+    private final long logTime;
 
     private static boolean createLogFile() {
         CommonUtils.forceMkdirs(currentLogFile.getParentFile().toPath(), IUtilConstants.DIRECTORY_PERMISSION);
@@ -108,7 +134,7 @@ public class LogWriter implements Runnable {
         this.logLevelName = logLevel.name();
         this.loggingClassName = loggingClassName;
         this.threadName = threadName;
-        this.logTime = sdf.format(cal.getTime());
+        this.logTime = System.currentTimeMillis();
     }
 
     public LogWriter(LogLevel logLevel, String logEntry, Throwable throwableLogEntry, String loggingClassName, String threadName) {
@@ -118,19 +144,13 @@ public class LogWriter implements Runnable {
         this.logLevelName = logLevel.name();
         this.loggingClassName = loggingClassName;
         this.threadName = threadName;
-        this.logTime = sdf.format(cal.getTime());
+        this.logTime = System.currentTimeMillis();
     }
 
-    @Override
-    public void run() {
-        if (this.logLevel == 1 || this.logLevel > defaultLogLevel) {
-            return;
-        }
-        StringBuilder sb = new StringBuilder();
-//		sb.append(K2_LOG);
-        sb.append(logTime);
+    private void appendTo(StringBuilder sb) {
+        DATE_FORMATTER.formatTo(Instant.ofEpochMilli(logTime), sb);
         sb.append(STR_COLON);
-        sb.append(String.format(THREAD_NAME_TEMPLATE, AgentInfo.getInstance().getVMPID(), threadName));
+        sb.append(THREAD_NAME_OPEN).append(AgentInfo.getInstance().getVMPID()).append(THREAD_NAME_SEPARATOR).append(threadName).append(THREAD_NAME_CLOSE);
         sb.append(this.logLevelName);
         if (this.loggingClassName != null)
             sb.append(STR_COLON);
@@ -139,38 +159,64 @@ public class LogWriter implements Runnable {
         if (this.logEntry != null)
             sb.append(this.logEntry);
         if (this.throwableLogEntry != null) {
-//			this.throwableLogEntry.printStackTrace();
             sb.append(this.throwableLogEntry.toString());
             sb.append(StringUtils.LF);
-            sb.append(StringUtils.join(this.throwableLogEntry.getStackTrace(), StringUtils.LF));
-            sb.append(StringUtils.LF);
+            appendStackTrace(sb, this.throwableLogEntry.getStackTrace());
             Throwable cause = this.throwableLogEntry.getCause();
             while (cause != null) {
                 sb.append(CAUSED_BY);
-                sb.append(this.throwableLogEntry.getCause().getMessage());
-                sb.append(StringUtils.LF);
-                sb.append(StringUtils.join(this.throwableLogEntry.getCause().getStackTrace(), StringUtils.LF));
+                sb.append(cause.getMessage());
                 sb.append(StringUtils.LF);
+                appendStackTrace(sb, cause.getStackTrace());
                 cause = cause.getCause();
             }
         }
         sb.append(StringUtils.LF);
-        try {
+    }
 
-//            if (!currentLogFile.isFile()) {
-//                createLogFile();
-//            }
-//			System.out.println(sb.toString());
-            writer.write(sb.toString());
-            writer.flush();
-            FileLoggerThreadPool.getInstance().setLoggingActive(true);
-
-//			writer.newLine();
-            rollover(currentLogFileName);
-        } catch (IOException e) {
-            if (FileLoggerThreadPool.getInstance().isLoggingActive()) {
-                //TODO report to cloud
-                FileLoggerThreadPool.getInstance().setLoggingActive(false);
+    private static void appendStackTrace(StringBuilder sb, StackTraceElement[] stackTrace) {
+        for (StackTraceElement element : stackTrace) {
+            sb.append(element).append(StringUtils.LF);
+        }
+    }
+
+    /**
+     * Writes a batch of records to the log file. Written records are flushed when the producers are idle, or at
+     * least every {@link #FLUSH_INTERVAL_MILLIS} otherwise, followed by the rollover check.
+     *
+     * @param batch  records to write, possibly empty
+     * @param buffer reusable formatting buffer
+     * @param idle   whether no more records are waiting
+     */
+    static void write(List<LogWriter> batch, StringBuilder buffer, boolean idle) {
+        synchronized (writeLock) {
+            try {
+                for (LogWriter record : batch) {
+                    if (record.logLevel == 1 || record.logLevel > defaultLogLevel) {
+                        continue;
+                    }
+                    buffer.setLength(0);
+                    record.appendTo(buffer);
+                    if (chars.length < buffer.length()) {
+                        chars = new char[Math.max(buffer.length(), chars.length * 2)];
+                    }
+                    buffer.getChars(0, buffer.length(), chars, 0);
+                    writer.write(chars, 0, buffer.length());
+                    unflushed = true;
+                }
+                long now = System.currentTimeMillis();
+                if (unflushed && (idle || now - lastFlushTime >= FLUSH_INTERVAL_MILLIS)) {
+                    writer.flush();
+                    unflushed = false;
+                    lastFlushTime = now;
+                    FileLoggerThreadPool.getInstance().setLoggingActive(true);
+                    rollover(currentLogFileName);
+                }
+            } catch (IOException e) {
+                if (FileLoggerThreadPool.getInstance().isLoggingActive()) {
+                    //TODO report to cloud
+                    FileLoggerThreadPool.getInstance().setLoggingActive(false);
+                }
             }
         }
     }
@@ -226,6 +272,12 @@ public class LogWriter implements Runnable {
     }
 
     public static void setWriter(BufferedWriter writer) {
-        LogWriter.writer = writer;
+        synchronized (writeLock) {
+            try {
+                LogWriter.writer.flush();
+            } catch (Throwable ignored) {
+            }
+            LogWriter.writer = writer;
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,212 @@
+package com.newrelic.agent.security.intcodeagent.ipblocking;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * IPs of detected attackers, blocked for a limited time.
+ * <p>
+ * Expiry uses a hierarchical timing wheel of {@value #LEVELS} levels of {@value #SLOTS} slots with a one second tick,
+ * instead of a scheduled task per IP. An IP is kept in the slot of the coarsest level its deadline falls into and is
+ * moved down a level each time that level wraps, so a single periodic {@link #advance()} expires any number of IPs at
+ * a cost proportional to the IPs actually due.
+ * <p>
+ * Blocked IPs are single addresses, looked up in a concurrent set of parsed addresses which attacks and expiries update
+ * one IP at a time. Lookups parse the client IP into an address kept per thread, so they do not allocate. At most {@value #MAX_ENTRIES} IPs are blocked at once, further attackers are not blocked until
+ * some blocks expire.
+ */
+public class AttackerIpBlocklist {
+
+    public static final long TICK_MILLIS = 1000;
+
+    private static final int SLOT_BITS = 6;
+
+    private static final int SLOTS = 1 << SLOT_BITS;
+
+    private static final int LEVELS = 4;
+
+    /**
+     * Longest block supported, about 194 days, longer ones are shortened to it.
+     */
+    private static final long MAX_TICKS = (1L << (SLOT_BITS * LEVELS)) - 1;
+
+    public static final int MAX_ENTRIES = 10000;
+
+    /**
+     * Only used to look up {@link #blocked}, never added to it.
+     */
+    private static final ThreadLocal<IpAddressRanges.Address> LOOKUP_ADDRESS = ThreadLocal.withInitial(IpAddressRanges.Address::new);
+
+    private final Map<IpAddressRanges.Address, Entry> entries = new HashMap<>();
+
+    private final Set<IpAddressRanges.Address> blocked = ConcurrentHashMap.newKeySet();
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private final List<Entry>[][] wheel = new List[LEVELS][SLOTS];
+
+    private long currentTick;
+
+    private static final class Entry {
+
+        private final IpAddressRanges.Address ip;
+
+        private final long deadlineTick;
+
+        private Entry(IpAddressRanges.Address ip, long deadlineTick) {
+            this.ip = ip;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+
+    private AttackerIpBlocklist() {
+        this(System.currentTimeMillis());
+    }
+
+    AttackerIpBlocklist(long nowMillis) {
+        currentTick = nowMillis / TICK_MILLIS;
+    }
+
+    private static final class InstanceHolder {
+        static final AttackerIpBlocklist instance = new AttackerIpBlocklist();
+    }
+
+    public static AttackerIpBlocklist getInstance() {
+        return InstanceHolder.instance;
+    }
+
+    /**
+     * Blocks an IP, or extends or shortens its block if it is already blocked.
+     *
+     * @param ip             the IP of the attacker
+     * @param durationMillis how long the IP stays blocked
+     * @return {@code false} if the IP is not valid, or not blocked yet and {@value #MAX_ENTRIES} IPs already are
+     */
+    public boolean block(String ip, long durationMillis) {
+        return block(ip, durationMillis, System.currentTimeMillis());
+    }
+
+    synchronized boolean block(String ip, long durationMillis, long nowMillis) {
+        IpAddressRanges.Address address = IpAddressRanges.parseAddress(ip);
+        if (address == null) {
+            return false;
+        }
+        advanceTo(nowMillis / TICK_MILLIS);
+        if (entries.size() >= MAX_ENTRIES && !entries.containsKey(address)) {
+            return false;
+        }
+        long ticks = Math.min(Math.max((durationMillis + TICK_MILLIS - 1) / TICK_MILLIS, 1), MAX_TICKS);
+        Entry entry = new Entry(address, currentTick + ticks);
+        if (entries.put(address, entry) == null) {
+            blocked.add(address);
+        }
+        schedule(entry);
+        return true;
+    }
+
+    /**
+     * @param address the client IP of a request, in any of the forms accepted by
+     *                {@link IpAddressRanges#contains(CharSequence)}
+     * @return whether the IP is currently blocked
+     */
+    public boolean contains(CharSequence address) {
+        if (blocked.isEmpty()) {
+            return false;
+        }
+        IpAddressRanges.Address parsed = LOOKUP_ADDRESS.get();
+        return IpAddressRanges.parseAddress(address, parsed) && blocked.contains(parsed);
+    }
+
+    public int size() {
+        return blocked.size();
+    }
+
+    /**
+     * Expires the IPs whose block ended, called every {@link #TICK_MILLIS} milliseconds.
+     */
+    public void advance() {
+        advance(System.currentTimeMillis());
+    }
+
+    synchronized void advance(long nowMillis) {
+        advanceTo(nowMillis / TICK_MILLIS);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        blocked.clear();
+        for (List<Entry>[] level : wheel) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                level[slot] = null;
+            }
+        }
+    }
+
+    private void advanceTo(long nowTick) {
+        if (nowTick - currentTick > MAX_TICKS) {
+            // The clock jumped past every deadline.
+            clear();
+            currentTick = nowTick;
+            return;
+        }
+        while (currentTick < nowTick) {
+            currentTick++;
+            // Move the IPs of the coarser levels that wrap down before expiring the IPs due now.
+            int level = 1;
+            while (level < LEVELS && (currentTick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                level++;
+            }
+            for (int cascaded = level - 1; cascaded >= 1; cascaded--) {
+                for (Entry entry : takeSlot(cascaded, slotOf(currentTick, cascaded))) {
+                    if (entries.get(entry.ip) == entry) {
+                        schedule(entry);
+                    }
+                }
+            }
+            for (Entry entry : takeSlot(0, slotOf(currentTick, 0))) {
+                // Entries replaced by a later block of the same IP are skipped.
+                if (entries.get(entry.ip) != entry) {
+                    continue;
+                }
+                if (entry.deadlineTick <= currentTick) {
+                    entries.remove(entry.ip);
+                    blocked.remove(entry.ip);
+                } else {
+                    schedule(entry);
+                }
+            }
+        }
+    }
+
+    private void schedule(Entry entry) {
+        long delta = Math.max(entry.deadlineTick - currentTick, 0);
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= (1L << (SLOT_BITS * (level + 1)))) {
+            level++;
+        }
+        int slot = slotOf(entry.deadlineTick, level);
+        List<Entry> slotEntries = wheel[level][slot];
+        if (slotEntries == null) {
+            slotEntries = new ArrayList<>();
+            wheel[level][slot] = slotEntries;
+        }
+        slotEntries.add(entry);
+    }
+
+    private List<Entry> takeSlot(int level, int slot) {
+        List<Entry> slotEntries = wheel[level][slot];
+        if (slotEntries == null) {
+            return Collections.emptyList();
+        }
+        wheel[level][slot] = null;
+        return slotEntries;
+    }
+
+    private static int slotOf(long tick, int level) {
+        return (int) ((tick >>> (SLOT_BITS * level)) & (SLOTS - 1));
+    }
+}
@@ -0,0 +1,576 @@
+package com.newrelic.agent.security.intcodeagent.ipblocking;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Immutable set of IPv4 and IPv6 addresses and CIDR ranges, stored as a binary radix trie with one root per address
+ * family.
+ * <p>
+ * A lookup walks at most one node per bit of the address, 32 for IPv4 and 128 for IPv6, and parses the address in
+ * place without allocating. Large sets index the nodes reached after the first 16 bits directly. Ranges covered by a
+ * shorter range are not stored, a lookup stops at the first range that contains the address. IPv4-mapped IPv6
+ * addresses are looked up as IPv4.
+ */
+public final class IpAddressRanges {
+
+    public static final IpAddressRanges EMPTY = build(null);
+
+    private static final int IPV4_ROOT = 0;
+
+    private static final int IPV6_ROOT = 1;
+
+    /**
+     * Returned by {@link #walk} when a range containing the address was reached.
+     */
+    private static final int MATCH = -1;
+
+    /**
+     * Returned by {@link #walk} when the trie has no node for the next bit of the address.
+     */
+    private static final int NO_MATCH = -2;
+
+    private static final int IPV4_BITS = 32;
+
+    private static final int IPV6_BITS = 128;
+
+    /**
+     * Lower half of the IPv4-mapped IPv6 address of {@code 0.0.0.0}.
+     */
+    private static final long IPV4_MAPPED = 0xFFFFL << IPV4_BITS;
+
+    private static final int STRIDE_BITS = 16;
+
+    private static final int STRIDE_MIN_NODES = 1 << 16;
+
+    /**
+     * Children of node {@code n} at {@code 2 * n} for bit 0 and {@code 2 * n + 1} for bit 1, 0 if there is none. The
+     * roots are never a child.
+     */
+    private final int[] children;
+
+    /**
+     * Whether the range ending at a node is part of the set.
+     */
+    private final boolean[] terminal;
+
+    /**
+     * Result of the walk of the first {@link #STRIDE_BITS} bits of an address from the IPv4 and the IPv6 root, indexed
+     * by these bits. Only built for large sets, where the nodes of these levels are spread over much more memory than
+     * the caches hold.
+     */
+    private final int[] ipv4Stride;
+
+    private final int[] ipv6Stride;
+
+    private final int size;
+
+    private IpAddressRanges(int[] children, boolean[] terminal, int size) {
+        this.children = children;
+        this.terminal = terminal;
+        this.size = size;
+        if (terminal.length >= STRIDE_MIN_NODES) {
+            this.ipv4Stride = buildStride(IPV4_ROOT);
+            this.ipv6Stride = buildStride(IPV6_ROOT);
+        } else {
+            this.ipv4Stride = null;
+            this.ipv6Stride = null;
+        }
+    }
+
+    private int[] buildStride(int root) {
+        int[] stride = new int[1 << STRIDE_BITS];
+        for (int prefix = 0; prefix < stride.length; prefix++) {
+            stride[prefix] = walk(root, (long) prefix << (64 - STRIDE_BITS), STRIDE_BITS);
+        }
+        return stride;
+    }
+
+    /**
+     * @param entries addresses such as {@code 10.1.2.3} or {@code 2001:db8::1}, and CIDR ranges such as
+     *                {@code 10.0.0.0/8} or {@code 2001:db8::/32}. Invalid entries are skipped.
+     * @return the set of the valid entries
+     */
+    public static IpAddressRanges build(Collection<String> entries) {
+        Builder builder = new Builder(entries != null ? entries.size() : 0);
+        if (entries != null) {
+            for (String entry : entries) {
+                builder.add(entry);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return the number of valid entries the set was built from
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @param address an IPv4 or IPv6 address. Surrounding spaces, a list of addresses as found in X-Forwarded-For of
+     *                which the first one is used, brackets, an IPv6 zone and an IPv4 port are ignored.
+     * @return whether the address is in one of the ranges of the set, {@code false} if it is not a valid address
+     */
+    public boolean contains(CharSequence address) {
+        if (size == 0) {
+            return false;
+        }
+        long bounds = addressBounds(address);
+        if (bounds < 0) {
+            return false;
+        }
+        int start = (int) (bounds >>> 32);
+        int end = (int) bounds;
+        int colon = indexOf(address, ':', start, end);
+        int dot = indexOf(address, '.', start, end);
+        if (colon < 0 || (dot >= 0 && dot < colon)) {
+            // IPv4, possibly followed by a port.
+            long ipv4 = parseIpv4(address, start, colon < 0 ? end : colon);
+            return ipv4 >= 0 && containsIpv4((int) ipv4);
+        }
+        int zone = indexOf(address, '%', start, end);
+        if (zone >= 0) {
+            end = zone;
+        }
+        int layout = ipv6Layout(address, start, end);
+        if (layout < 0) {
+            return false;
+        }
+        long high = ipv6Half(address, start, end, layout, false);
+        long low = ipv6Half(address, start, end, layout, true);
+        if (high == 0 && (low >>> IPV4_BITS) == 0xFFFFL) {
+            return containsIpv4((int) low);
+        }
+        int node = ipv6Stride != null
+                ? walk(ipv6Stride[(int) (high >>> (64 - STRIDE_BITS))], high << STRIDE_BITS, 64 - STRIDE_BITS)
+                : walk(IPV6_ROOT, high, 64);
+        if (node >= 0) {
+            node = walk(node, low, 64);
+        }
+        return node == MATCH || (node >= 0 && terminal[node]);
+    }
+
+    /**
+     * Parses a single address, for exact matches.
+     *
+     * @param address an IPv4 or IPv6 address, in any of the forms accepted by {@link #contains(CharSequence)}
+     * @return the address, or {@code null} if it is not a valid address
+     */
+    static Address parseAddress(CharSequence address) {
+        Address parsed = new Address();
+        return parseAddress(address, parsed) ? parsed : null;
+    }
+
+    /**
+     * Parses a single address into an existing instance, without allocating.
+     *
+     * @param address an IPv4 or IPv6 address, in any of the forms accepted by {@link #contains(CharSequence)}
+     * @param parsed  receives the address, left as is if it is not a valid address
+     * @return whether the address is valid
+     */
+    static boolean parseAddress(CharSequence address, Address parsed) {
+        long bounds = addressBounds(address);
+        if (bounds < 0) {
+            return false;
+        }
+        int start = (int) (bounds >>> 32);
+        int end = (int) bounds;
+        int colon = indexOf(address, ':', start, end);
+        int dot = indexOf(address, '.', start, end);
+        if (colon < 0 || (dot >= 0 && dot < colon)) {
+            long ipv4 = parseIpv4(address, start, colon < 0 ? end : colon);
+            if (ipv4 < 0) {
+                return false;
+            }
+            parsed.set(0, IPV4_MAPPED | ipv4);
+            return true;
+        }
+        int zone = indexOf(address, '%', start, end);
+        if (zone >= 0) {
+            end = zone;
+        }
+        int layout = ipv6Layout(address, start, end);
+        if (layout < 0) {
+            return false;
+        }
+        parsed.set(ipv6Half(address, start, end, layout, false), ipv6Half(address, start, end, layout, true));
+        return true;
+    }
+
+    /**
+     * Drops what surrounds the address itself: the addresses after the first one in a list, spaces and brackets.
+     *
+     * @return the start of the address in the upper 32 bits and its end in the lower ones, or -1 if there is no address
+     */
+    private static long addressBounds(CharSequence address) {
+        if (address == null) {
+            return -1;
+        }
+        int start = 0;
+        int end = address.length();
+        for (int i = start; i < end; i++) {
+            if (address.charAt(i) == ',') {
+                end = i;
+                break;
+            }
+        }
+        while (start < end && address.charAt(start) == ' ') {
+            start++;
+        }
+        while (end > start && address.charAt(end - 1) == ' ') {
+            end--;
+        }
+        if (start < end && address.charAt(start) == '[') {
+            start++;
+            int closing = indexOf(address, ']', start, end);
+            if (closing < 0) {
+                return -1;
+            }
+            end = closing;
+        }
+        return ((long) start << 32) | end;
+    }
+
+    private boolean containsIpv4(int ipv4) {
+        long bits = (long) ipv4 << IPV4_BITS;
+        int node = ipv4Stride != null
+                ? walk(ipv4Stride[ipv4 >>> (IPV4_BITS - STRIDE_BITS)], bits << STRIDE_BITS, IPV4_BITS - STRIDE_BITS)
+                : walk(IPV4_ROOT, bits, IPV4_BITS);
+        return node == MATCH || (node >= 0 && terminal[node]);
+    }
+
+    /**
+     * @param node  the node to start from, or the result of a previous walk
+     * @param bits  the bits to follow, from the most significant one
+     * @param count the number of bits to follow
+     * @return the node reached, or {@link #MATCH} or {@link #NO_MATCH} if the walk ended before
+     */
+    private int walk(int node, long bits, int count) {
+        if (node < 0) {
+            return node;
+        }
+        for (int i = 0; i < count; i++) {
+            if (terminal[node]) {
+                return MATCH;
+            }
+            node = children[2 * node + (int) ((bits >>> (63 - i)) & 1)];
+            if (node == 0) {
+                return NO_MATCH;
+            }
+        }
+        return node;
+    }
+
+    /**
+     * A single IPv4 or IPv6 address, IPv4 addresses are held as IPv4-mapped IPv6 addresses. Only instances reused for
+     * lookups are parsed into more than once, addresses used as keys are not changed.
+     */
+    static final class Address {
+
+        private long high;
+
+        private long low;
+
+        Address() {
+        }
+
+        private void set(long high, long low) {
+            this.high = high;
+            this.low = low;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Address)) {
+                return false;
+            }
+            Address address = (Address) o;
+            return high == address.high && low == address.low;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(high * 31 + low);
+        }
+    }
+
+    private static final class Builder {
+
+        private int[] children;
+
+        private boolean[] terminal;
+
+        private int nodeCount = 2;
+
+        private int size;
+
+        private Builder(int expectedEntries) {
+            int capacity = Math.max(64, Math.min(expectedEntries * 8, 1 << 20));
+            children = new int[2 * capacity];
+            terminal = new boolean[capacity];
+        }
+
+        private void add(String entry) {
+            if (entry == null) {
+                return;
+            }
+            String value = entry.trim();
+            int end = value.length();
+            int slash = value.indexOf('/');
+            int prefixLength = -1;
+            if (slash >= 0) {
+                prefixLength = parsePrefixLength(value, slash + 1, end);
+                if (prefixLength < 0) {
+                    return;
+                }
+                end = slash;
+            }
+            if (indexOf(value, ':', 0, end) < 0) {
+                long ipv4 = parseIpv4(value, 0, end);
+                if (ipv4 < 0 || prefixLength > IPV4_BITS) {
+                    return;
+                }
+                insert(IPV4_ROOT, ipv4 << IPV4_BITS, 0, prefixLength < 0 ? IPV4_BITS : prefixLength);
+                return;
+            }
+            int layout = ipv6Layout(value, 0, end);
+            if (layout < 0 || prefixLength > IPV6_BITS) {
+                return;
+            }
+            long high = ipv6Half(value, 0, end, layout, false);
+            long low = ipv6Half(value, 0, end, layout, true);
+            if (prefixLength < 0) {
+                prefixLength = IPV6_BITS;
+            }
+            if (high == 0 && (low >>> IPV4_BITS) == 0xFFFFL && prefixLength >= IPV6_BITS - IPV4_BITS) {
+                // IPv4-mapped addresses are looked up as IPv4.
+                insert(IPV4_ROOT, low << IPV4_BITS, 0, prefixLength - (IPV6_BITS - IPV4_BITS));
+                return;
+            }
+            insert(IPV6_ROOT, high, low, prefixLength);
+        }
+
+        private void insert(int root, long high, long low, int prefixLength) {
+            size++;
+            int node = root;
+            for (int i = 0; i < prefixLength; i++) {
+                if (terminal[node]) {
+                    // Already covered by a shorter range.
+                    return;
+                }
+                long bits = i < 64 ? high : low;
+                int bit = (int) ((bits >>> (63 - (i & 63))) & 1);
+                int child = children[2 * node + bit];
+                if (child == 0) {
+                    child = newNode();
+                    children[2 * node + bit] = child;
+                }
+                node = child;
+            }
+            terminal[node] = true;
+            // Longer ranges below this one are covered by it.
+            children[2 * node] = 0;
+            children[2 * node + 1] = 0;
+        }
+
+        private int newNode() {
+            if (nodeCount == terminal.length) {
+                children = Arrays.copyOf(children, children.length * 2);
+                terminal = Arrays.copyOf(terminal, terminal.length * 2);
+            }
+            return nodeCount++;
+        }
+
+        private IpAddressRanges build() {
+            return new IpAddressRanges(Arrays.copyOf(children, 2 * nodeCount), Arrays.copyOf(terminal, nodeCount), size);
+        }
+    }
+
+    private static int parsePrefixLength(CharSequence s, int start, int end) {
+        if (start == end || end - start > 3) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * @return the address as an unsigned 32 bit value, or -1 if the text is not a dotted quad
+     */
+    private static long parseIpv4(CharSequence s, int start, int end) {
+        long value = 0;
+        int octets = 0;
+        int i = start;
+        while (true) {
+            int octet = 0;
+            int digits = 0;
+            while (i < end && s.charAt(i) >= '0' && s.charAt(i) <= '9') {
+                octet = octet * 10 + (s.charAt(i) - '0');
+                if (++digits > 3) {
+                    return -1;
+                }
+                i++;
+            }
+            if (digits == 0 || octet > 255) {
+                return -1;
+            }
+            value = (value << 8) | octet;
+            octets++;
+            if (i == end) {
+                return octets == 4 ? value : -1;
+            }
+            if (s.charAt(i) != '.' || octets == 4) {
+                return -1;
+            }
+            i++;
+        }
+    }
+
+    /**
+     * Validates an IPv6 address and counts its groups, a trailing dotted quad counts as two groups.
+     *
+     * @return the number of groups before {@code ::} in bits 8 to 15, after it in bits 0 to 7 and bit 16 set if the
+     * address has a {@code ::}, or -1 if the text is not an IPv6 address
+     */
+    private static int ipv6Layout(CharSequence s, int start, int end) {
+        int before = 0;
+        int after = 0;
+        boolean compressed = false;
+        int i = start;
+        if (end - start >= 2 && s.charAt(i) == ':' && s.charAt(i + 1) == ':') {
+            compressed = true;
+            i += 2;
+        } else if (i < end && s.charAt(i) == ':') {
+            return -1;
+        }
+        while (i < end) {
+            int groupEnd = i;
+            boolean dotted = false;
+            while (groupEnd < end && s.charAt(groupEnd) != ':') {
+                dotted |= s.charAt(groupEnd) == '.';
+                groupEnd++;
+            }
+            int count;
+            if (dotted) {
+                if (groupEnd != end || parseIpv4(s, i, groupEnd) < 0) {
+                    return -1;
+                }
+                count = 2;
+            } else {
+                if (groupEnd == i || groupEnd - i > 4 || parseHex(s, i, groupEnd) < 0) {
+                    return -1;
+                }
+                count = 1;
+            }
+            if (compressed) {
+                after += count;
+            } else {
+                before += count;
+            }
+            i = groupEnd;
+            if (i < end) {
+                i++;
+                if (i == end) {
+                    return -1;
+                }
+                if (s.charAt(i) == ':') {
+                    if (compressed) {
+                        return -1;
+                    }
+                    compressed = true;
+                    i++;
+                }
+            }
+        }
+        int groups = before + after;
+        if (compressed ? groups > 7 : groups != 8) {
+            return -1;
+        }
+        return (compressed ? 1 << 16 : 0) | (before << 8) | after;
+    }
+
+    /**
+     * @param layout as returned by {@link #ipv6Layout} for the same address
+     * @param low    {@code true} for the last 64 bits of the address, {@code false} for the first ones
+     * @return the requested half of the address
+     */
+    private static long ipv6Half(CharSequence s, int start, int end, int layout, boolean low) {
+        int before = (layout >>> 8) & 0xFF;
+        int after = layout & 0xFF;
+        long half = 0;
+        int group = 0;
+        int i = start;
+        if ((layout & (1 << 16)) != 0 && before == 0) {
+            group = 8 - after;
+            i += 2;
+        }
+        while (i < end) {
+            int groupEnd = i;
+            boolean dotted = false;
+            while (groupEnd < end && s.charAt(groupEnd) != ':') {
+                dotted |= s.charAt(groupEnd) == '.';
+                groupEnd++;
+            }
+            if (dotted) {
+                long ipv4 = parseIpv4(s, i, groupEnd);
+                half = putGroup(half, group++, (int) (ipv4 >>> 16), low);
+                half = putGroup(half, group++, (int) (ipv4 & 0xFFFF), low);
+            } else {
+                half = putGroup(half, group++, parseHex(s, i, groupEnd), low);
+            }
+            i = groupEnd;
+            if (i < end) {
+                i++;
+                if (s.charAt(i) == ':') {
+                    group = 8 - after;
+                    i++;
+                }
+            }
+        }
+        return half;
+    }
+
+    private static long putGroup(long half, int group, int value, boolean low) {
+        if ((group >= 4) != low) {
+            return half;
+        }
+        return half | ((long) value << (16 * (3 - (group & 3))));
+    }
+
+    private static int parseHex(CharSequence s, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = Character.digit(s.charAt(i), 16);
+            if (digit < 0) {
+                return -1;
+            }
+            value = (value << 4) | digit;
+        }
+        return value;
+    }
+
+    private static int indexOf(CharSequence s, char c, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (s.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -7,15 +7,25 @@ import com.newrelic.agent.security.instrumentator.httpclient.RestRequestThreadPo
 import com.newrelic.agent.security.instrumentator.os.OSVariables;
 import com.newrelic.agent.security.instrumentator.os.OsVariablesInstance;
 import com.newrelic.agent.security.instrumentator.utils.AgentUtils;
+import com.newrelic.agent.security.instrumentator.utils.RXSSPreFilter;
+import com.newrelic.agent.security.intcodeagent.executor.DispatchLane;
+import com.newrelic.agent.security.intcodeagent.executor.PriorityLaneQueue;
 import com.newrelic.agent.security.intcodeagent.filelogging.FileLoggerThreadPool;
 import com.newrelic.api.agent.security.utils.logging.LogLevel;
+import com.newrelic.agent.security.intcodeagent.models.javaagent.EventSpoolStats;
 import com.newrelic.agent.security.intcodeagent.models.javaagent.JAHealthCheck;
+import com.newrelic.agent.security.intcodeagent.models.javaagent.QueueLaneStats;
+import com.newrelic.agent.security.intcodeagent.models.javaagent.RXSSPreFilterStats;
+import com.newrelic.agent.security.intcodeagent.models.javaagent.LowSeverityFilterStats;
 import com.newrelic.agent.security.intcodeagent.models.javaagent.ThreadPoolStats;
 import com.newrelic.agent.security.intcodeagent.schedulers.SchedulerHelper;
 import com.newrelic.agent.security.intcodeagent.websocket.EventSendPool;
+import com.newrelic.agent.security.intcodeagent.websocket.EventSpool;
 import com.newrelic.agent.security.intcodeagent.websocket.JsonConverter;
 import com.newrelic.agent.security.intcodeagent.websocket.WSClient;
 import com.newrelic.agent.security.intcodeagent.websocket.WSUtils;
+import com.newrelic.api.agent.security.instrumentation.helpers.LowSeverityHelper;
+import com.newrelic.api.agent.security.utils.DecayingBloomFilter;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.math.NumberUtils;
@@ -57,6 +67,8 @@ public class HealthCheckScheduleThread {
 
     private static boolean isStatusLoggingActive = true;
 
+    private long lastEventSpoolStatsTime = 0;
+
     private static OSVariables osVariables = OsVariablesInstance.getInstance().getOsVariables();
 
     private Runnable runnable = new Runnable() {
@@ -70,6 +82,10 @@ public class HealthCheckScheduleThread {
                 AgentInfo.getInstance().getJaHealthCheck().setStats(populateJVMStats());
                 AgentInfo.getInstance().getJaHealthCheck().setServiceStatus(getServiceStatus());
                 AgentInfo.getInstance().getJaHealthCheck().setThreadPoolStats(populateThreadPoolStats());
+                AgentInfo.getInstance().getJaHealthCheck().setLowSeverityFilterStats(populateLowSeverityFilterStats());
+                AgentInfo.getInstance().getJaHealthCheck().setEventSpoolStats(populateEventSpoolStats());
+                AgentInfo.getInstance().getJaHealthCheck().setRxssPreFilterStats(populateRXSSPreFilterStats());
+                AgentInfo.getInstance().getJaHealthCheck().addDroppedLogCount(logger.getAndResetDroppedLogCount());
 
                 if (!AgentInfo.getInstance().isAgentActive()) {
                     return;
@@ -103,9 +119,38 @@ public class HealthCheckScheduleThread {
         ThreadPoolStats threadPoolStats = new ThreadPoolStats();
         threadPoolStats.setDispatcherQueueSize(DispatcherPool.getInstance().getExecutor().getQueue().size());
         threadPoolStats.setEventSendQueueSize(EventSendPool.getInstance().getExecutor().getQueue().size());
+        threadPoolStats.setDispatcherLanes(populateLaneStats(DispatcherPool.getInstance().getQueue()));
+        threadPoolStats.setEventSendLanes(populateLaneStats(EventSendPool.getInstance().getQueue()));
         return threadPoolStats;
     }
 
+    private LowSeverityFilterStats populateLowSeverityFilterStats() {
+        DecayingBloomFilter filter = LowSeverityHelper.getLowSeverityEventFilter();
+        return new LowSeverityFilterStats(filter.getAndResetLookupCount(), filter.getAndResetHitCount(),
+                filter.getAndResetInsertCount(), filter.getAndResetEarlyRotationCount(), filter.getGeneration(), filter.getCurrentFillRatio());
+    }
+
+    private EventSpoolStats populateEventSpoolStats() {
+        EventSpool spool = EventSpool.getInstance();
+        long now = System.currentTimeMillis();
+        long intervalMillis = lastEventSpoolStatsTime > 0 ? now - lastEventSpoolStatsTime : 0;
+        lastEventSpoolStatsTime = now;
+        return new EventSpoolStats(spool.getDepth(), spool.getDepthBytes(), spool.getAndResetSpooledCount(),
+                spool.getAndResetReplayedCount(), intervalMillis, spool.getAndResetDroppedCount(), spool.getAndResetCorruptedCount());
+    }
+
+    private RXSSPreFilterStats populateRXSSPreFilterStats() {
+        return new RXSSPreFilterStats(RXSSPreFilter.getAndResetEvaluatedCount(), RXSSPreFilter.getAndResetSkippedCount());
+    }
+
+    private Map<String, QueueLaneStats> populateLaneStats(PriorityLaneQueue queue) {
+        Map<String, QueueLaneStats> laneStats = new HashMap<>();
+        for (DispatchLane lane : DispatchLane.values()) {
+            laneStats.put(lane.name(), new QueueLaneStats(queue.size(lane), queue.capacity(lane), queue.getAndResetRejectedCount(lane)));
+        }
+        return laneStats;
+    }
+
     private HealthCheckScheduleThread() {}
 
     public void scheduleNewTask() {
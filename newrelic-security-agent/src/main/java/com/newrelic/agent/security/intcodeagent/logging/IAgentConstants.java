@@ -464,6 +464,8 @@ public interface IAgentConstants {
 
     String WSRECONNECTSCHEDULEDTHREAD_ = "NR-CSEC-WSReconnect-";
 
+    String SHA_CALC_THREAD_ = "NR-CSEC-SHA-Calc-";
+
     String ACK_MSG = "ACK";
     // EventThreadPool.java file constants
 
@@ -0,0 +1,322 @@
+package com.newrelic.agent.security.intcodeagent.models.config;
+
+import com.newrelic.agent.security.instrumentator.utils.INRSettingsKey;
+import com.newrelic.agent.security.intcodeagent.ipblocking.IpAddressRanges;
+import com.newrelic.agent.security.intcodeagent.utils.CommonUtils;
+import com.newrelic.api.agent.NewRelic;
+import com.newrelic.api.agent.security.instrumentation.helpers.LowSeverityHelper;
+import com.newrelic.api.agent.security.schema.policy.AgentPolicy;
+import com.newrelic.api.agent.security.utils.BodyCapture;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Immutable view of the settings read on the hook and event processing paths: the detection and event flags of the
+ * agent config, the effective policy and the policy parameters.
+ * <p>
+ * A new snapshot is built whenever the policy or the policy parameters are applied, or once the agent config changed,
+ * and replaces the previous one as a whole, so readers see a consistent set of values through a single volatile read,
+ * see {@link com.newrelic.agent.security.instrumentator.utils.AgentUtils#getConfigSnapshot()}.
+ */
+public final class SecurityConfigSnapshot {
+
+    public static final int DEFAULT_PROBING_THRESHOLD = 300;
+
+    public static final long DEFAULT_DEDUPLICATION_WINDOW_SECONDS = 60;
+
+    public static final double DEFAULT_SAMPLING_RATE = 10;
+
+    public static final double DEFAULT_SAMPLING_BURST = 50;
+
+    public static final int DEFAULT_ATTACKER_IP_TIMEOUT_MINUTES = 10;
+
+    private final long version;
+
+    private final String policyVersion;
+
+    private final boolean iastEnabled;
+
+    private final boolean protectionModeEnabled;
+
+    private final boolean ipBlockingEnabled;
+
+    private final boolean attackerIpBlockingEnabled;
+
+    private final boolean apiBlockingEnabled;
+
+    private final AgentSettings agentSettings;
+
+    private final Set<String> allowedApis;
+
+    private final Set<String> blockedApis;
+
+    private final Set<String> allowedIps;
+
+    private final Set<String> blockedIps;
+
+    private final IpAddressRanges allowedIpRanges;
+
+    private final IpAddressRanges blockedIpRanges;
+
+    private final int attackerIpTimeoutMinutes;
+
+    private SecurityConfigSnapshot(long version, AgentPolicy policy, AgentPolicyParameters parameters) {
+        this.version = version;
+        this.policyVersion = policy.getVersion();
+        this.iastEnabled = isTrue(policy.getVulnerabilityScan().getEnabled())
+                && isTrue(policy.getVulnerabilityScan().getIastScan().getEnabled());
+        this.protectionModeEnabled = isTrue(policy.getProtectionMode().getEnabled());
+        this.ipBlockingEnabled = protectionModeEnabled && isTrue(policy.getProtectionMode().getIpBlocking().getEnabled());
+        this.attackerIpBlockingEnabled = ipBlockingEnabled && isTrue(policy.getProtectionMode().getIpBlocking().getAttackerIpBlocking());
+        this.apiBlockingEnabled = protectionModeEnabled && isTrue(policy.getProtectionMode().getApiBlocking().getEnabled());
+
+        this.agentSettings = AgentSettings.read();
+
+        this.allowedApis = copyOf(parameters.getAllowedApis());
+        this.blockedApis = copyOf(parameters.getBlockedApis());
+        this.allowedIps = copyOf(parameters.getAllowedIps());
+        this.blockedIps = copyOf(parameters.getBlockedIps());
+        this.allowedIpRanges = IpAddressRanges.build(allowedIps);
+        this.blockedIpRanges = IpAddressRanges.build(blockedIps);
+        Integer attackerIpTimeout = parameters.getAttackerIpTimeout();
+        this.attackerIpTimeoutMinutes = attackerIpTimeout != null && attackerIpTimeout > 0 ? attackerIpTimeout : DEFAULT_ATTACKER_IP_TIMEOUT_MINUTES;
+    }
+
+    /**
+     * @param version    version of the new snapshot, higher than the one it replaces
+     * @param policy     the effective policy
+     * @param parameters the policy parameters
+     * @return the snapshot of the given policy, parameters and of the current agent config
+     */
+    public static SecurityConfigSnapshot build(long version, AgentPolicy policy, AgentPolicyParameters parameters) {
+        return new SecurityConfigSnapshot(version, policy, parameters);
+    }
+
+    /**
+     * The agent config can change at runtime, while the snapshot is otherwise only rebuilt when the policy or the
+     * policy parameters are applied.
+     *
+     * @return whether the settings read from the agent config changed since this snapshot was built
+     */
+    public boolean isAgentConfigChanged() {
+        return !agentSettings.equals(AgentSettings.read());
+    }
+
+    private static boolean isTrue(Boolean value) {
+        return value != null && value;
+    }
+
+    private static Set<String> copyOf(Collection<String> values) {
+        if (values == null || values.isEmpty()) {
+            return Collections.emptySet();
+        }
+        return Collections.unmodifiableSet(new HashSet<>(values));
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public String getPolicyVersion() {
+        return policyVersion;
+    }
+
+    /**
+     * @return whether both vulnerability scan and IAST scan are enabled by the policy
+     */
+    public boolean isIastEnabled() {
+        return iastEnabled;
+    }
+
+    public boolean isProtectionModeEnabled() {
+        return protectionModeEnabled;
+    }
+
+    /**
+     * @return whether both protection mode and IP blocking are enabled by the policy
+     */
+    public boolean isIpBlockingEnabled() {
+        return ipBlockingEnabled;
+    }
+
+    /**
+     * @return whether IP blocking and the blocking of the IPs of detected attackers are enabled by the policy
+     */
+    public boolean isAttackerIpBlockingEnabled() {
+        return attackerIpBlockingEnabled;
+    }
+
+    /**
+     * @return whether both protection mode and API blocking are enabled by the policy
+     */
+    public boolean isApiBlockingEnabled() {
+        return apiBlockingEnabled;
+    }
+
+    public int getProbingThreshold() {
+        return agentSettings.probingThreshold;
+    }
+
+    public boolean isLowPriorityHooksEnabled() {
+        return agentSettings.lowPriorityHooksEnabled;
+    }
+
+    public boolean isRciDetectionEnabled() {
+        return agentSettings.rciDetectionEnabled;
+    }
+
+    public boolean isRxssDetectionEnabled() {
+        return agentSettings.rxssDetectionEnabled;
+    }
+
+    public boolean isDeserializationDetectionEnabled() {
+        return agentSettings.deserializationDetectionEnabled;
+    }
+
+    public boolean isEventDeduplicationEnabled() {
+        return agentSettings.eventDeduplicationEnabled;
+    }
+
+    public long getEventDeduplicationWindowSeconds() {
+        return agentSettings.eventDeduplicationWindowSeconds;
+    }
+
+    /**
+     * @return whether the RASP events are rate limited per API ID, opt-in through the agent config
+     */
+    public boolean isEventSamplingEnabled() {
+        return agentSettings.eventSamplingEnabled;
+    }
+
+    public double getEventSamplingRate() {
+        return agentSettings.eventSamplingRate;
+    }
+
+    public double getEventSamplingBurst() {
+        return agentSettings.eventSamplingBurst;
+    }
+
+    /**
+     * @return the maximum number of bytes of a request or response body captured by the stream hooks, bodies are
+     * captured in full if not positive
+     */
+    public int getBodyCaptureMaxBytes() {
+        return agentSettings.bodyCaptureMaxBytes;
+    }
+
+    public Set<String> getAllowedApis() {
+        return allowedApis;
+    }
+
+    public Set<String> getBlockedApis() {
+        return blockedApis;
+    }
+
+    public Set<String> getAllowedIps() {
+        return allowedIps;
+    }
+
+    public Set<String> getBlockedIps() {
+        return blockedIps;
+    }
+
+    /**
+     * @return the addresses and CIDR ranges of {@link #getAllowedIps()}, never blocked
+     */
+    public IpAddressRanges getAllowedIpRanges() {
+        return allowedIpRanges;
+    }
+
+    /**
+     * @return the addresses and CIDR ranges of {@link #getBlockedIps()}
+     */
+    public IpAddressRanges getBlockedIpRanges() {
+        return blockedIpRanges;
+    }
+
+    /**
+     * @return how long the IP of a detected attacker stays blocked, in minutes
+     */
+    public int getAttackerIpTimeoutMinutes() {
+        return attackerIpTimeoutMinutes;
+    }
+
+    /**
+     * Settings of the snapshot read from the agent config.
+     */
+    private static final class AgentSettings {
+
+        private final int probingThreshold;
+
+        private final boolean lowPriorityHooksEnabled;
+
+        private final boolean rciDetectionEnabled;
+
+        private final boolean rxssDetectionEnabled;
+
+        private final boolean deserializationDetectionEnabled;
+
+        private final boolean eventDeduplicationEnabled;
+
+        private final long eventDeduplicationWindowSeconds;
+
+        private final boolean eventSamplingEnabled;
+
+        private final double eventSamplingRate;
+
+        private final double eventSamplingBurst;
+
+        private final int bodyCaptureMaxBytes;
+
+        private AgentSettings() {
+            this.probingThreshold = CommonUtils.getNumberConfig(INRSettingsKey.SECURITY_POLICY_VULNERABILITY_SCAN_IAST_SCAN_PROBING_THRESHOLD, DEFAULT_PROBING_THRESHOLD).intValue();
+            this.lowPriorityHooksEnabled = NewRelic.getAgent().getConfig().getValue(LowSeverityHelper.LOW_SEVERITY_HOOKS_ENABLED, LowSeverityHelper.DEFAULT);
+            this.rciDetectionEnabled = NewRelic.getAgent().getConfig().getValue(INRSettingsKey.SECURITY_DETECTION_RCI_ENABLED, true);
+            this.rxssDetectionEnabled = NewRelic.getAgent().getConfig().getValue(INRSettingsKey.SECURITY_DETECTION_RXSS_ENABLED, true);
+            this.deserializationDetectionEnabled = NewRelic.getAgent().getConfig().getValue(INRSettingsKey.SECURITY_DETECTION_DESERIALIZATION_ENABLED, true);
+            this.eventDeduplicationEnabled = NewRelic.getAgent().getConfig().getValue(INRSettingsKey.SECURITY_EVENT_DEDUPLICATION_ENABLED, true);
+            this.eventDeduplicationWindowSeconds = CommonUtils.getNumberConfig(INRSettingsKey.SECURITY_EVENT_DEDUPLICATION_WINDOW, DEFAULT_DEDUPLICATION_WINDOW_SECONDS).longValue();
+            this.eventSamplingEnabled = NewRelic.getAgent().getConfig().getValue(INRSettingsKey.SECURITY_EVENT_SAMPLING_ENABLED, false);
+            this.eventSamplingRate = CommonUtils.getNumberConfig(INRSettingsKey.SECURITY_EVENT_SAMPLING_RATE, DEFAULT_SAMPLING_RATE).doubleValue();
+            this.eventSamplingBurst = CommonUtils.getNumberConfig(INRSettingsKey.SECURITY_EVENT_SAMPLING_BURST, DEFAULT_SAMPLING_BURST).doubleValue();
+            this.bodyCaptureMaxBytes = CommonUtils.getNumberConfig(INRSettingsKey.SECURITY_BODY_CAPTURE_MAX_BYTES, BodyCapture.DEFAULT_MAX_BYTES).intValue();
+        }
+
+        private static AgentSettings read() {
+            return new AgentSettings();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof AgentSettings)) {
+                return false;
+            }
+            AgentSettings that = (AgentSettings) o;
+            return probingThreshold == that.probingThreshold
+                    && lowPriorityHooksEnabled == that.lowPriorityHooksEnabled
+                    && rciDetectionEnabled == that.rciDetectionEnabled
+                    && rxssDetectionEnabled == that.rxssDetectionEnabled
+                    && deserializationDetectionEnabled == that.deserializationDetectionEnabled
+                    && eventDeduplicationEnabled == that.eventDeduplicationEnabled
+                    && eventDeduplicationWindowSeconds == that.eventDeduplicationWindowSeconds
+                    && eventSamplingEnabled == that.eventSamplingEnabled
+                    && Double.compare(eventSamplingRate, that.eventSamplingRate) == 0
+                    && Double.compare(eventSamplingBurst, that.eventSamplingBurst) == 0
+                    && bodyCaptureMaxBytes == that.bodyCaptureMaxBytes;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(probingThreshold, lowPriorityHooksEnabled, rciDetectionEnabled, rxssDetectionEnabled,
+                    deserializationDetectionEnabled, eventDeduplicationEnabled, eventDeduplicationWindowSeconds,
+                    eventSamplingEnabled, eventSamplingRate, eventSamplingBurst, bodyCaptureMaxBytes);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.newrelic.agent.security.intcodeagent.models.javaagent;
+
+import com.newrelic.agent.security.intcodeagent.websocket.JsonConverter;
+
+public class EventSpoolStats {
+
+    private Long depth;
+
+    private Long depthBytes;
+
+    private Long spooled;
+
+    private Long replayed;
+
+    private Double replayRate;
+
+    private Long dropped;
+
+    private Long corrupted;
+
+    public EventSpoolStats() {
+    }
+
+    public EventSpoolStats(Long depth, Long depthBytes, Long spooled, Long replayed, Long intervalMillis, Long dropped, Long corrupted) {
+        this.depth = depth;
+        this.depthBytes = depthBytes;
+        this.spooled = spooled;
+        this.replayed = replayed;
+        this.replayRate = intervalMillis > 0 ? replayed * 1000d / intervalMillis : 0d;
+        this.dropped = dropped;
+        this.corrupted = corrupted;
+    }
+
+    public EventSpoolStats(EventSpoolStats eventSpoolStats) {
+        this.depth = eventSpoolStats.depth;
+        this.depthBytes = eventSpoolStats.depthBytes;
+        this.spooled = eventSpoolStats.spooled;
+        this.replayed = eventSpoolStats.replayed;
+        this.replayRate = eventSpoolStats.replayRate;
+        this.dropped = eventSpoolStats.dropped;
+        this.corrupted = eventSpoolStats.corrupted;
+    }
+
+    public Long getDepth() {
+        return depth;
+    }
+
+    public void setDepth(Long depth) {
+        this.depth = depth;
+    }
+
+    public Long getDepthBytes() {
+        return depthBytes;
+    }
+
+    public void setDepthBytes(Long depthBytes) {
+        this.depthBytes = depthBytes;
+    }
+
+    public Long getSpooled() {
+        return spooled;
+    }
+
+    public void setSpooled(Long spooled) {
+        this.spooled = spooled;
+    }
+
+    public Long getReplayed() {
+        return replayed;
+    }
+
+    public void setReplayed(Long replayed) {
+        this.replayed = replayed;
+    }
+
+    /**
+     * @return the number of events replayed per second since the previous health check
+     */
+    public Double getReplayRate() {
+        return replayRate;
+    }
+
+    public void setReplayRate(Double replayRate) {
+        this.replayRate = replayRate;
+    }
+
+    public Long getDropped() {
+        return dropped;
+    }
+
+    public void setDropped(Long dropped) {
+        this.dropped = dropped;
+    }
+
+    public Long getCorrupted() {
+        return corrupted;
+    }
+
+    public void setCorrupted(Long corrupted) {
+        this.corrupted = corrupted;
+    }
+
+    public String toString() {
+        return JsonConverter.toJSON(this);
+    }
+}
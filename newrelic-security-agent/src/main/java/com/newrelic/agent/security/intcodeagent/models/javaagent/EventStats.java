@@ -14,11 +14,17 @@ public class EventStats {
 
     private AtomicInteger errorCount;
 
+    private AtomicInteger coalesced;
+
+    private AtomicInteger sampledOut;
+
     public EventStats() {
         this.processed = new AtomicInteger(0);
         this.sent = new AtomicInteger(0);
         this.rejected = new AtomicInteger(0);
         this.errorCount = new AtomicInteger(0);
+        this.coalesced = new AtomicInteger(0);
+        this.sampledOut = new AtomicInteger(0);
     }
 
     public EventStats(EventStats eventStats) {
@@ -26,6 +32,8 @@ public class EventStats {
         this.sent = new AtomicInteger(eventStats.sent.intValue());
         this.rejected = new AtomicInteger(eventStats.rejected.intValue());
         this.errorCount = new AtomicInteger(eventStats.errorCount.intValue());
+        this.coalesced = new AtomicInteger(eventStats.coalesced.intValue());
+        this.sampledOut = new AtomicInteger(eventStats.sampledOut.intValue());
     }
 
     public AtomicInteger getProcessed() {
@@ -76,11 +84,37 @@ public class EventStats {
         this.errorCount = errorCount;
     }
 
+    public AtomicInteger getCoalesced() {
+        return coalesced;
+    }
+
+    public void setCoalesced(AtomicInteger coalesced) {
+        this.coalesced = coalesced;
+    }
+
+    public int incrementCoalescedCount(){
+        return this.coalesced.incrementAndGet();
+    }
+
+    public AtomicInteger getSampledOut() {
+        return sampledOut;
+    }
+
+    public void setSampledOut(AtomicInteger sampledOut) {
+        this.sampledOut = sampledOut;
+    }
+
+    public int incrementSampledOutCount(){
+        return this.sampledOut.incrementAndGet();
+    }
+
     public void reset(){
         this.processed.set(0);
         this.sent.set(0);
         this.errorCount.set(0);
         this.rejected.set(0);
+        this.coalesced.set(0);
+        this.sampledOut.set(0);
     }
 
 
@@ -42,6 +42,12 @@ public class JAHealthCheck extends AgentBasicInfo {
 
     private AtomicInteger httpRequestCount;
 
+    private AtomicInteger apiIdCacheHitCount;
+
+    private AtomicInteger apiIdCacheMissCount;
+
+    private AtomicInteger droppedLogCount;
+
     private EventStats raspEventStats;
 
     private EventStats iastEventStats;
@@ -50,6 +56,12 @@ public class JAHealthCheck extends AgentBasicInfo {
 
     private ThreadPoolStats threadPoolStats;
 
+    private LowSeverityFilterStats lowSeverityFilterStats;
+
+    private EventSpoolStats eventSpoolStats;
+
+    private RXSSPreFilterStats rxssPreFilterStats;
+
     private Map<String, Object> stats;
 
     private Map<String, Object> serviceStatus;
@@ -71,10 +83,16 @@ public class JAHealthCheck extends AgentBasicInfo {
         this.eventProcessingErrorCount = new AtomicInteger(0);
         this.eventSendRejectionCount = new AtomicInteger(0);
         this.eventSendErrorCount = new AtomicInteger(0);
+        this.apiIdCacheHitCount = new AtomicInteger(0);
+        this.apiIdCacheMissCount = new AtomicInteger(0);
+        this.droppedLogCount = new AtomicInteger(0);
         this.raspEventStats = new EventStats();
         this.iastEventStats = new EventStats();
         this.exitEventStats = new EventStats();
         this.threadPoolStats = new ThreadPoolStats();
+        this.lowSeverityFilterStats = new LowSeverityFilterStats();
+        this.eventSpoolStats = new EventSpoolStats();
+        this.rxssPreFilterStats = new RXSSPreFilterStats();
         this.stats = new HashMap<>();
         this.serviceStatus = new HashMap<>();
         this.setKind(AgentInfo.getInstance().getApplicationInfo().getIdentifier().getKind());
@@ -94,10 +112,16 @@ public class JAHealthCheck extends AgentBasicInfo {
         this.eventProcessingErrorCount =  new AtomicInteger(jaHealthCheck.eventProcessingErrorCount.intValue());
         this.eventSendRejectionCount =  new AtomicInteger(jaHealthCheck.eventSendRejectionCount.intValue());
         this.eventSendErrorCount =  new AtomicInteger(jaHealthCheck.eventSendErrorCount.intValue());
+        this.apiIdCacheHitCount =  new AtomicInteger(jaHealthCheck.apiIdCacheHitCount.intValue());
+        this.apiIdCacheMissCount =  new AtomicInteger(jaHealthCheck.apiIdCacheMissCount.intValue());
+        this.droppedLogCount =  new AtomicInteger(jaHealthCheck.droppedLogCount.intValue());
         this.raspEventStats = new EventStats(jaHealthCheck.raspEventStats);
         this.iastEventStats = new EventStats(jaHealthCheck.iastEventStats);
         this.exitEventStats = new EventStats(jaHealthCheck.exitEventStats);
         this.threadPoolStats = new ThreadPoolStats(jaHealthCheck.threadPoolStats);
+        this.lowSeverityFilterStats = new LowSeverityFilterStats(jaHealthCheck.lowSeverityFilterStats);
+        this.eventSpoolStats = new EventSpoolStats(jaHealthCheck.eventSpoolStats);
+        this.rxssPreFilterStats = new RXSSPreFilterStats(jaHealthCheck.rxssPreFilterStats);
         this.kind = jaHealthCheck.kind;
         this.stats = new HashMap<>(jaHealthCheck.stats);
         this.serviceStatus = new HashMap<>(jaHealthCheck.serviceStatus);
@@ -193,6 +217,42 @@ public class JAHealthCheck extends AgentBasicInfo {
         return this.eventSendErrorCount.incrementAndGet();
     }
 
+    public AtomicInteger getApiIdCacheHitCount() {
+        return apiIdCacheHitCount;
+    }
+
+    public void setApiIdCacheHitCount(int apiIdCacheHitCount) {
+        this.apiIdCacheHitCount.set(apiIdCacheHitCount);
+    }
+
+    public int incrementApiIdCacheHitCount() {
+        return this.apiIdCacheHitCount.incrementAndGet();
+    }
+
+    public AtomicInteger getApiIdCacheMissCount() {
+        return apiIdCacheMissCount;
+    }
+
+    public void setApiIdCacheMissCount(int apiIdCacheMissCount) {
+        this.apiIdCacheMissCount.set(apiIdCacheMissCount);
+    }
+
+    public int incrementApiIdCacheMissCount() {
+        return this.apiIdCacheMissCount.incrementAndGet();
+    }
+
+    public AtomicInteger getDroppedLogCount() {
+        return droppedLogCount;
+    }
+
+    public void setDroppedLogCount(int droppedLogCount) {
+        this.droppedLogCount.set(droppedLogCount);
+    }
+
+    public int addDroppedLogCount(int count) {
+        return this.droppedLogCount.addAndGet(count);
+    }
+
     public void incrementProcessedCount() {
         this.eventProcessed.getAndIncrement();
     }
@@ -318,6 +378,30 @@ public class JAHealthCheck extends AgentBasicInfo {
         this.threadPoolStats = threadPoolStats;
     }
 
+    public LowSeverityFilterStats getLowSeverityFilterStats() {
+        return lowSeverityFilterStats;
+    }
+
+    public void setLowSeverityFilterStats(LowSeverityFilterStats lowSeverityFilterStats) {
+        this.lowSeverityFilterStats = lowSeverityFilterStats;
+    }
+
+    public EventSpoolStats getEventSpoolStats() {
+        return eventSpoolStats;
+    }
+
+    public void setEventSpoolStats(EventSpoolStats eventSpoolStats) {
+        this.eventSpoolStats = eventSpoolStats;
+    }
+
+    public RXSSPreFilterStats getRxssPreFilterStats() {
+        return rxssPreFilterStats;
+    }
+
+    public void setRxssPreFilterStats(RXSSPreFilterStats rxssPreFilterStats) {
+        this.rxssPreFilterStats = rxssPreFilterStats;
+    }
+
     public EventStats getExitEventStats() {
         return exitEventStats;
     }
@@ -349,6 +433,9 @@ public class JAHealthCheck extends AgentBasicInfo {
         this.setEventProcessingErrorCount(0);
         this.setEventSendRejectionCount(0);
         this.setEventSendErrorCount(0);
+        this.setApiIdCacheHitCount(0);
+        this.setApiIdCacheMissCount(0);
+        this.setDroppedLogCount(0);
         this.raspEventStats.reset();
         this.iastEventStats.reset();
         this.exitEventStats.reset();
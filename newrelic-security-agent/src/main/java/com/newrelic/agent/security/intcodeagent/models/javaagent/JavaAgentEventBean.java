@@ -36,11 +36,20 @@ public class JavaAgentEventBean extends AgentBasicInfo {
     private boolean isIASTRequest = false;
     private String apiId;
     private DeployedApplication webappIdentifier;
+    private Integer duplicateEventCount;
 
     public JavaAgentEventBean() {
         super();
     }
 
+    public Integer getDuplicateEventCount() {
+        return duplicateEventCount;
+    }
+
+    public void setDuplicateEventCount(Integer duplicateEventCount) {
+        this.duplicateEventCount = duplicateEventCount;
+    }
+
     public void setUserAPIInfo(Integer lineNumber, String userClassName, String userMethodName) {
         this.userMethodName = userMethodName;
         this.userFileName = userClassName;
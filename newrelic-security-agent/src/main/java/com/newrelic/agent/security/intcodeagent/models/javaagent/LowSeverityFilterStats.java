@@ -0,0 +1,103 @@
+package com.newrelic.agent.security.intcodeagent.models.javaagent;
+
+import com.newrelic.agent.security.intcodeagent.websocket.JsonConverter;
+
+public class LowSeverityFilterStats {
+
+    private Long lookups;
+
+    private Long hits;
+
+    private Double hitRate;
+
+    private Long inserts;
+
+    private Long earlyRotations;
+
+    private Long generation;
+
+    private Double currentFillRatio;
+
+    public LowSeverityFilterStats() {
+    }
+
+    public LowSeverityFilterStats(Long lookups, Long hits, Long inserts, Long earlyRotations, Long generation, Double currentFillRatio) {
+        this.lookups = lookups;
+        this.hits = hits;
+        this.hitRate = lookups > 0 ? (double) hits / lookups : 0d;
+        this.inserts = inserts;
+        this.earlyRotations = earlyRotations;
+        this.generation = generation;
+        this.currentFillRatio = currentFillRatio;
+    }
+
+    public LowSeverityFilterStats(LowSeverityFilterStats lowSeverityFilterStats) {
+        this.lookups = lowSeverityFilterStats.lookups;
+        this.hits = lowSeverityFilterStats.hits;
+        this.hitRate = lowSeverityFilterStats.hitRate;
+        this.inserts = lowSeverityFilterStats.inserts;
+        this.earlyRotations = lowSeverityFilterStats.earlyRotations;
+        this.generation = lowSeverityFilterStats.generation;
+        this.currentFillRatio = lowSeverityFilterStats.currentFillRatio;
+    }
+
+    public Long getLookups() {
+        return lookups;
+    }
+
+    public void setLookups(Long lookups) {
+        this.lookups = lookups;
+    }
+
+    public Long getHits() {
+        return hits;
+    }
+
+    public void setHits(Long hits) {
+        this.hits = hits;
+    }
+
+    public Double getHitRate() {
+        return hitRate;
+    }
+
+    public void setHitRate(Double hitRate) {
+        this.hitRate = hitRate;
+    }
+
+    public Long getInserts() {
+        return inserts;
+    }
+
+    public void setInserts(Long inserts) {
+        this.inserts = inserts;
+    }
+
+    public Long getEarlyRotations() {
+        return earlyRotations;
+    }
+
+    public void setEarlyRotations(Long earlyRotations) {
+        this.earlyRotations = earlyRotations;
+    }
+
+    public Long getGeneration() {
+        return generation;
+    }
+
+    public void setGeneration(Long generation) {
+        this.generation = generation;
+    }
+
+    public Double getCurrentFillRatio() {
+        return currentFillRatio;
+    }
+
+    public void setCurrentFillRatio(Double currentFillRatio) {
+        this.currentFillRatio = currentFillRatio;
+    }
+
+    public String toString() {
+        return JsonConverter.toJSON(this);
+    }
+}
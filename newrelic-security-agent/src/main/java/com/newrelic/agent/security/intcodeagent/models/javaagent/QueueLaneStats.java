@@ -0,0 +1,55 @@
+package com.newrelic.agent.security.intcodeagent.models.javaagent;
+
+import com.newrelic.agent.security.intcodeagent.websocket.JsonConverter;
+
+public class QueueLaneStats {
+
+    private Integer size;
+
+    private Integer capacity;
+
+    private Integer rejected;
+
+    public QueueLaneStats() {
+    }
+
+    public QueueLaneStats(Integer size, Integer capacity, Integer rejected) {
+        this.size = size;
+        this.capacity = capacity;
+        this.rejected = rejected;
+    }
+
+    public QueueLaneStats(QueueLaneStats queueLaneStats) {
+        this.size = queueLaneStats.size;
+        this.capacity = queueLaneStats.capacity;
+        this.rejected = queueLaneStats.rejected;
+    }
+
+    public Integer getSize() {
+        return size;
+    }
+
+    public void setSize(Integer size) {
+        this.size = size;
+    }
+
+    public Integer getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(Integer capacity) {
+        this.capacity = capacity;
+    }
+
+    public Integer getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(Integer rejected) {
+        this.rejected = rejected;
+    }
+
+    public String toString() {
+        return JsonConverter.toJSON(this);
+    }
+}
@@ -0,0 +1,56 @@
+package com.newrelic.agent.security.intcodeagent.models.javaagent;
+
+import com.newrelic.agent.security.intcodeagent.websocket.JsonConverter;
+
+public class RXSSPreFilterStats {
+
+    private Long evaluated;
+
+    private Long skipped;
+
+    private Double skipRate;
+
+    public RXSSPreFilterStats() {
+    }
+
+    public RXSSPreFilterStats(Long evaluated, Long skipped) {
+        this.evaluated = evaluated;
+        this.skipped = skipped;
+        long total = evaluated + skipped;
+        this.skipRate = total > 0 ? (double) skipped / total : 0d;
+    }
+
+    public RXSSPreFilterStats(RXSSPreFilterStats rxssPreFilterStats) {
+        this.evaluated = rxssPreFilterStats.evaluated;
+        this.skipped = rxssPreFilterStats.skipped;
+        this.skipRate = rxssPreFilterStats.skipRate;
+    }
+
+    public Long getEvaluated() {
+        return evaluated;
+    }
+
+    public void setEvaluated(Long evaluated) {
+        this.evaluated = evaluated;
+    }
+
+    public Long getSkipped() {
+        return skipped;
+    }
+
+    public void setSkipped(Long skipped) {
+        this.skipped = skipped;
+    }
+
+    public Double getSkipRate() {
+        return skipRate;
+    }
+
+    public void setSkipRate(Double skipRate) {
+        this.skipRate = skipRate;
+    }
+
+    public String toString() {
+        return JsonConverter.toJSON(this);
+    }
+}
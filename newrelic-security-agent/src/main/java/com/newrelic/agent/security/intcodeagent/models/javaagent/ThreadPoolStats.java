@@ -2,12 +2,19 @@ package com.newrelic.agent.security.intcodeagent.models.javaagent;
 
 import com.newrelic.agent.security.intcodeagent.websocket.JsonConverter;
 
+import java.util.HashMap;
+import java.util.Map;
+
 public class ThreadPoolStats {
 
     private Integer dispatcherQueueSize;
 
     private Integer eventSendQueueSize;
 
+    private Map<String, QueueLaneStats> dispatcherLanes = new HashMap<>();
+
+    private Map<String, QueueLaneStats> eventSendLanes = new HashMap<>();
+
     public ThreadPoolStats() {
     }
 
@@ -19,6 +26,19 @@ public class ThreadPoolStats {
     public ThreadPoolStats(ThreadPoolStats threadPoolStats) {
         this.dispatcherQueueSize = threadPoolStats.dispatcherQueueSize;
         this.eventSendQueueSize = threadPoolStats.eventSendQueueSize;
+        this.dispatcherLanes = copyLanes(threadPoolStats.dispatcherLanes);
+        this.eventSendLanes = copyLanes(threadPoolStats.eventSendLanes);
+    }
+
+    private static Map<String, QueueLaneStats> copyLanes(Map<String, QueueLaneStats> lanes) {
+        Map<String, QueueLaneStats> copy = new HashMap<>();
+        if (lanes == null) {
+            return copy;
+        }
+        for (Map.Entry<String, QueueLaneStats> entry : lanes.entrySet()) {
+            copy.put(entry.getKey(), new QueueLaneStats(entry.getValue()));
+        }
+        return copy;
     }
 
     public Integer getDispatcherQueueSize() {
@@ -37,6 +57,21 @@ public class ThreadPoolStats {
         this.eventSendQueueSize = eventSendQueueSize;
     }
 
+    public Map<String, QueueLaneStats> getDispatcherLanes() {
+        return dispatcherLanes;
+    }
+
+    public void setDispatcherLanes(Map<String, QueueLaneStats> dispatcherLanes) {
+        this.dispatcherLanes = dispatcherLanes;
+    }
+
+    public Map<String, QueueLaneStats> getEventSendLanes() {
+        return eventSendLanes;
+    }
+
+    public void setEventSendLanes(Map<String, QueueLaneStats> eventSendLanes) {
+        this.eventSendLanes = eventSendLanes;
+    }
 
     public String toString() {
         return JsonConverter.toJSON(this);
@@ -66,6 +66,28 @@ public class SchedulerHelper {
         return future;
     }
 
+    public ScheduledFuture<?> scheduleAttackerIpExpiry(Runnable command,
+                                                       long initialDelay,
+                                                       long period,
+                                                       TimeUnit unit){
+        ScheduledFuture<?> future = commonExecutor.scheduleWithFixedDelay(command, initialDelay, period, unit);
+        scheduledFutureMap.put("attacker-ip-expiry", future);
+        return future;
+    }
+
+    public ScheduledFuture<?> scheduleConfigSnapshotRefresh(Runnable command,
+                                                            long initialDelay,
+                                                            long period,
+                                                            TimeUnit unit){
+        ScheduledFuture<?> previous = scheduledFutureMap.get("config-snapshot-refresh");
+        if (previous != null) {
+            previous.cancel(false);
+        }
+        ScheduledFuture<?> future = commonExecutor.scheduleWithFixedDelay(command, initialDelay, period, unit);
+        scheduledFutureMap.put("config-snapshot-refresh", future);
+        return future;
+    }
+
     public ScheduledFuture<?> scheduleDailyLogRollover(Runnable command) {
 
         if(LogFileHelper.isDailyRollover()) {
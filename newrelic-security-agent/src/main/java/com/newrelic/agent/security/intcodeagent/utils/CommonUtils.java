@@ -1,6 +1,7 @@
 package com.newrelic.agent.security.intcodeagent.utils;
 
 import com.newrelic.agent.security.intcodeagent.filelogging.FileLoggerThreadPool;
+import com.newrelic.api.agent.NewRelic;
 import com.newrelic.api.agent.security.utils.logging.LogLevel;
 import com.newrelic.api.agent.security.Agent;
 import org.apache.commons.io.FileUtils;
@@ -73,4 +74,23 @@ public class CommonUtils {
     public static int generateSecureRandomBetween(int start, int end) {
         return secureRandom.nextInt(end-start) + start;
     }
+
+    /**
+     * Reads a numeric agent setting, which may be configured either as a number or as a string.
+     * @param key setting name
+     * @param defaultValue value to use if the setting is missing or malformed
+     * @return the setting value
+     */
+    public static Number getNumberConfig(String key, Number defaultValue) {
+        try {
+            Object value = NewRelic.getAgent().getConfig().getValue(key);
+            if (value instanceof Number) {
+                return (Number) value;
+            } else if (value != null) {
+                return Double.parseDouble(value.toString());
+            }
+        } catch (Throwable ignored) {
+        }
+        return defaultValue;
+    }
 }
@@ -0,0 +1,176 @@
+package com.newrelic.agent.security.intcodeagent.websocket;
+
+import com.newrelic.agent.security.intcodeagent.models.javaagent.EventStats;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Coalesces serialized events into JSON array frames.
+ * <p>
+ * A batch is flushed as soon as it holds the target number of events, reaches the byte limit, gets older than the
+ * linger time, or when the caller has nothing else pending, so events are never held back on an idle sender.
+ * The target number of events adapts to the socket: it doubles while the previous frames are still buffered on the
+ * connection and shrinks back by one once the socket keeps up.
+ * <p>
+ * Events only count as sent once their frame is handed to the connection. The events of a frame which could not be
+ * sent, and the pending events dropped through {@link #drain()}, are handed back to the sink to be spooled.
+ * <p>
+ * Not thread safe on its own, all the calls are expected from the event sender thread.
+ */
+public class EventBatcher {
+
+    /**
+     * Destination of the batched frames.
+     */
+    public interface FrameSink {
+
+        /**
+         * @param frame the JSON array of the batched events
+         * @return whether the frame was handed to the connection
+         */
+        boolean send(String frame);
+
+        /**
+         * @return whether previously sent frames are still waiting to be written out
+         */
+        boolean isBacklogged();
+
+        /**
+         * Takes back an event which could not be sent.
+         *
+         * @param event the serialized event
+         */
+        void unsent(String event);
+    }
+
+    private final FrameSink sink;
+
+    private final int maxEvents;
+
+    private final int maxBytes;
+
+    private final long lingerMillis;
+
+    private final List<String> events = new ArrayList<>();
+
+    private final List<EventStats> eventStats = new ArrayList<>();
+
+    private int batchBytes = 0;
+
+    private long batchStart;
+
+    private int targetEvents = 1;
+
+    private long frameCount = 0;
+
+    private long eventCount = 0;
+
+    public EventBatcher(FrameSink sink, int maxEvents, int maxBytes, long lingerMillis) {
+        this.sink = sink;
+        this.maxEvents = Math.max(1, maxEvents);
+        this.maxBytes = Math.max(1, maxBytes);
+        this.lingerMillis = Math.max(0, lingerMillis);
+    }
+
+    /**
+     * Adds an event to the current batch.
+     *
+     * @param json        the serialized event
+     * @param stats       the stats to count the event as sent in, or {@code null}
+     * @param morePending whether more events are ready to be added right away
+     */
+    public void add(String json, EventStats stats, boolean morePending) {
+        if (!events.isEmpty() && batchBytes + json.length() + 1 > maxBytes) {
+            flush();
+        }
+        if (events.isEmpty()) {
+            // Opening and closing brackets.
+            batchBytes = 2;
+            batchStart = System.currentTimeMillis();
+        } else {
+            batchBytes++;
+        }
+        events.add(json);
+        eventStats.add(stats);
+        batchBytes += json.length();
+        if (!morePending || events.size() >= targetEvents || batchBytes >= maxBytes
+                || System.currentTimeMillis() - batchStart >= lingerMillis) {
+            flush();
+        }
+    }
+
+    /**
+     * Sends the pending batch, if any. If the frame can not be sent, its events are handed back to the sink.
+     *
+     * @return {@code false} if the pending batch could not be sent
+     */
+    public boolean flush() {
+        if (events.isEmpty()) {
+            return true;
+        }
+        StringBuilder frame = new StringBuilder(batchBytes);
+        frame.append('[');
+        for (int i = 0; i < events.size(); i++) {
+            if (i > 0) {
+                frame.append(',');
+            }
+            frame.append(events.get(i));
+        }
+        frame.append(']');
+        if (!sink.send(frame.toString())) {
+            drain();
+            return false;
+        }
+        for (EventStats stats : eventStats) {
+            if (stats != null) {
+                stats.incrementSentCount();
+            }
+        }
+        frameCount++;
+        eventCount += events.size();
+        clear();
+        adapt();
+        return true;
+    }
+
+    /**
+     * Hands the pending events back to the sink without sending them, to be called once the connection is lost.
+     */
+    public void drain() {
+        for (String event : events) {
+            sink.unsent(event);
+        }
+        clear();
+    }
+
+    private void clear() {
+        events.clear();
+        eventStats.clear();
+        batchBytes = 0;
+    }
+
+    private void adapt() {
+        if (sink.isBacklogged()) {
+            targetEvents = Math.min(maxEvents, targetEvents * 2);
+        } else if (targetEvents > 1) {
+            targetEvents--;
+        }
+    }
+
+    public int getPendingEvents() {
+        return events.size();
+    }
+
+    public int getTargetEvents() {
+        return targetEvents;
+    }
+
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    public long getEventCount() {
+        return eventCount;
+    }
+}
@@ -2,23 +2,36 @@ package com.newrelic.agent.security.intcodeagent.websocket;
 
 import com.newrelic.agent.security.AgentInfo;
 import com.newrelic.agent.security.instrumentator.httpclient.RestRequestThreadPool;
+import com.newrelic.agent.security.instrumentator.utils.INRSettingsKey;
 import com.newrelic.agent.security.intcodeagent.executor.CustomFutureTask;
 import com.newrelic.agent.security.intcodeagent.executor.CustomThreadPoolExecutor;
+import com.newrelic.agent.security.intcodeagent.executor.DispatchLane;
+import com.newrelic.agent.security.intcodeagent.executor.PriorityLaneQueue;
 import com.newrelic.agent.security.intcodeagent.filelogging.FileLoggerThreadPool;
 import com.newrelic.api.agent.security.utils.logging.LogLevel;
 import com.newrelic.agent.security.intcodeagent.models.javaagent.EventStats;
 import com.newrelic.agent.security.intcodeagent.models.javaagent.ExitEventBean;
+import com.newrelic.agent.security.intcodeagent.models.javaagent.FuzzFailEvent;
 import com.newrelic.agent.security.intcodeagent.models.javaagent.JavaAgentEventBean;
-import com.newrelic.agent.security.util.AgentUsageMetric;
+import com.newrelic.agent.security.intcodeagent.utils.CommonUtils;
 import com.newrelic.agent.security.util.IUtilConstants;
 import com.newrelic.api.agent.security.instrumentation.helpers.GrpcClientRequestReplayHelper;
 
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 
 public class EventSendPool {
 
-    public static final int QUEUE_SIZE = 1500;
+    public static final int IAST_QUEUE_SIZE = 1500;
+
+    public static final int RASP_QUEUE_SIZE = 750;
+
+    public static final int EXIT_QUEUE_SIZE = 500;
+
+    public static final int CONTROL_QUEUE_SIZE = 250;
     /**
      * Thread pool executor.
      */
@@ -26,11 +39,18 @@ public class EventSendPool {
 
     private static final FileLoggerThreadPool logger = FileLoggerThreadPool.getInstance();
 
+    public static final String UNABLE_TO_SEND_EVENT_BATCH = "Unable to send event batch : ";
+
+    public static final String CONNECTION_LOST = "connection lost";
+
+    public static final String DROPPED_BATCHED_EVENT = "Dropped batched event which could not be sent nor spooled : ";
+
     private AtomicBoolean isWaiting = new AtomicBoolean(false);
 
+    private final EventBatcher eventBatcher;
+
     private EventSendPool() {
         // load the settings
-        int queueSize = QUEUE_SIZE;
         int maxPoolSize = 1;
         int corePoolSize = 1;
         long keepAliveTime = 60;
@@ -39,11 +59,65 @@ public class EventSendPool {
 
         boolean allowCoreThreadTimeOut = false;
 
+        eventBatcher = new EventBatcher(new EventBatcher.FrameSink() {
+            @Override
+            public boolean send(String frame) {
+                try {
+                    WSClient client = WSClient.getInstance();
+                    // The connection may have been re-established meanwhile, without batching.
+                    if (client.isOpen() && client.isEventBatching()) {
+                        client.send(frame);
+                        return true;
+                    }
+                    logger.log(LogLevel.WARNING, UNABLE_TO_SEND_EVENT_BATCH + CONNECTION_LOST, EventSendPool.class.getName());
+                } catch (Throwable e) {
+                    logger.log(LogLevel.WARNING, UNABLE_TO_SEND_EVENT_BATCH + e.getMessage(), e, EventSendPool.class.getName());
+                }
+                return false;
+            }
+
+            @Override
+            public boolean isBacklogged() {
+                try {
+                    return WSClient.getInstance().hasBufferedData();
+                } catch (URISyntaxException | InterruptedException e) {
+                    return false;
+                }
+            }
+
+            @Override
+            public void unsent(String event) {
+                EventSpool spool = EventSpool.getInstance();
+                if (!spool.isEnabled() || !spool.append(StandardCharsets.UTF_8.encode(event))) {
+                    AgentInfo.getInstance().getJaHealthCheck().incrementDropCount();
+                    logger.log(LogLevel.FINER, () -> DROPPED_BATCHED_EVENT + event, EventSendPool.class.getName());
+                }
+            }
+        }, CommonUtils.getNumberConfig(INRSettingsKey.SECURITY_EVENT_BATCHING_MAX_EVENTS, 100).intValue(),
+                CommonUtils.getNumberConfig(INRSettingsKey.SECURITY_EVENT_BATCHING_MAX_BYTES, 512 * 1024).intValue(),
+                CommonUtils.getNumberConfig(INRSettingsKey.SECURITY_EVENT_BATCHING_LINGER, 100).longValue());
+
         executor = new CustomThreadPoolExecutor(corePoolSize, maxPoolSize, keepAliveTime, timeUnit,
-                new LinkedBlockingQueue<Runnable>(queueSize), new EventAbortPolicy()) {
+                new PriorityLaneQueue(new Function<Runnable, DispatchLane>() {
+                    @Override
+                    public DispatchLane apply(Runnable r) {
+                        return laneOf(r);
+                    }
+                }, IAST_QUEUE_SIZE, RASP_QUEUE_SIZE, EXIT_QUEUE_SIZE, CONTROL_QUEUE_SIZE), new EventAbortPolicy()) {
             @Override
             protected void afterExecute(Runnable r, Throwable t) {
                 try {
+                    if (t == null && r instanceof Future<?>) {
+                        try {
+                            if (Boolean.FALSE.equals(((Future<?>) r).get())) {
+                                // Batched, counted as sent once its frame is sent.
+                                super.afterExecute(r, t);
+                                return;
+                            }
+                        } catch (ExecutionException e) {
+                            t = e.getCause();
+                        }
+                    }
                     if (t != null) {
                         AgentInfo.getInstance().getJaHealthCheck().incrementDropCount();
                         AgentInfo.getInstance().getJaHealthCheck().incrementEventSendErrorCount();
@@ -68,7 +142,35 @@ public class EventSendPool {
     }
 
     public int getMaxQueueSize() {
-        return QUEUE_SIZE;
+        return IAST_QUEUE_SIZE + RASP_QUEUE_SIZE + EXIT_QUEUE_SIZE + CONTROL_QUEUE_SIZE;
+    }
+
+    /**
+     * @return the batcher of the event sender thread, only to be used from that thread
+     */
+    EventBatcher getEventBatcher() {
+        return eventBatcher;
+    }
+
+    public PriorityLaneQueue getQueue() {
+        return (PriorityLaneQueue) executor.getQueue();
+    }
+
+    /**
+     * Lane of a task submitted to this pool.
+     */
+    static DispatchLane laneOf(Runnable r) {
+        if (r instanceof CustomFutureTask<?> && ((CustomFutureTask<?>) r).getTask() instanceof EventSender) {
+            Object event = ((EventSender) ((CustomFutureTask<?>) r).getTask()).getEvent();
+            if (event instanceof JavaAgentEventBean) {
+                return ((JavaAgentEventBean) event).getIsIASTRequest() ? DispatchLane.IAST : DispatchLane.RASP;
+            } else if (event instanceof FuzzFailEvent) {
+                return DispatchLane.IAST;
+            } else if (event instanceof ExitEventBean) {
+                return DispatchLane.EXIT;
+            }
+        }
+        return DispatchLane.CONTROL;
     }
 
     private static final class InstanceHolder {
@@ -86,11 +188,6 @@ public class EventSendPool {
     }
 
     public void sendEvent(JavaAgentEventBean event) {
-        if(!event.getIsIASTRequest() && !AgentUsageMetric.isRASPProcessingActive()){
-            AgentInfo.getInstance().getJaHealthCheck().getRaspEventStats().incrementRejectedCount();
-            AgentInfo.getInstance().getJaHealthCheck().incrementEventSendRejectionCount();
-            return;
-        }
         executor.submit(new EventSender(event));
         AgentInfo.getInstance().getJaHealthCheck().incrementEventSentCount();
     }
@@ -172,20 +269,25 @@ public class EventSendPool {
         return executor;
     }
 
+    /**
+     * @return the stats the event is counted in, {@code null} if none
+     */
+    static EventStats statsOf(Object event) {
+        if (event instanceof JavaAgentEventBean) {
+            if (((JavaAgentEventBean) event).getIsIASTRequest()) {
+                return AgentInfo.getInstance().getJaHealthCheck().getIastEventStats();
+            }
+            return AgentInfo.getInstance().getJaHealthCheck().getRaspEventStats();
+        } else if (event instanceof ExitEventBean) {
+            return AgentInfo.getInstance().getJaHealthCheck().getExitEventStats();
+        }
+        return null;
+    }
+
     private void incrementCount(Runnable r, String type) {
         EventStats eventStats = null;
         if (r instanceof CustomFutureTask<?> && ((CustomFutureTask<?>) r).getTask() instanceof EventSender) {
-            EventSender eventSender = (EventSender) ((CustomFutureTask<?>) r).getTask();
-            if (eventSender.getEvent() instanceof JavaAgentEventBean) {
-                JavaAgentEventBean event = (JavaAgentEventBean) eventSender.getEvent();
-                if (event.getIsIASTRequest()) {
-                    eventStats = AgentInfo.getInstance().getJaHealthCheck().getIastEventStats();
-                } else {
-                    eventStats = AgentInfo.getInstance().getJaHealthCheck().getRaspEventStats();
-                }
-            } else if (eventSender.getEvent() instanceof ExitEventBean) {
-                eventStats = AgentInfo.getInstance().getJaHealthCheck().getExitEventStats();
-            }
+            eventStats = statsOf(((EventSender) ((CustomFutureTask<?>) r).getTask()).getEvent());
         }
 
         if(eventStats == null){
@@ -30,11 +30,18 @@ public class EventSender implements Callable<Boolean> {
     /**
      * Utility thread to carry and send event one by one.
      *
-     * @return
+     * @return {@code false} if the event was only added to the pending batch, it is counted as sent once the batch
+     * is sent
      * @throws Exception
      */
     @Override
     public Boolean call() throws Exception {
+        if (event instanceof JavaAgentEventBean) {
+            ((JavaAgentEventBean) event).setEventGenerationTime(System.currentTimeMillis());
+        }
+        if ((WSUtils.getInstance().isReconnecting() || !WSUtils.isConnected()) && spool()) {
+            return true;
+        }
         if (WSUtils.getInstance().isReconnecting()) {
             synchronized (WSUtils.getInstance()) {
                 EventSendPool.getInstance().isWaiting().set(true);
@@ -42,13 +49,35 @@ public class EventSender implements Callable<Boolean> {
                 EventSendPool.getInstance().isWaiting().set(false);
             }
         }
-        if (event instanceof JavaAgentEventBean) {
-            ((JavaAgentEventBean) event).setEventGenerationTime(System.currentTimeMillis());
-        }
         if(WSUtils.isConnected()) {
-            WSClient.getInstance().send(JsonConverter.toJSON(event));
+            WSClient client = WSClient.getInstance();
+            EventBatcher batcher = EventSendPool.getInstance().getEventBatcher();
+            if (client.isEventBatching() && event instanceof JavaAgentEventBean) {
+                batcher.add(JsonConverter.toJSON(event), EventSendPool.statsOf(event), !EventSendPool.getInstance().getQueue().isEmpty());
+                return false;
+            } else {
+                // Keep the order of events, anything batched so far goes first.
+                batcher.flush();
+                client.sendText(JsonConverter.toJSONBytes(event));
+            }
         }
         return true;
     }
 
+    /**
+     * Keeps the event on disk until the validator is connected again, instead of waiting for the connection or
+     * dropping the event.
+     *
+     * @return {@code false} if the event was not spooled
+     */
+    private boolean spool() {
+        EventSpool spool = EventSpool.getInstance();
+        if (!spool.isEnabled() || !EventSpool.isSpoolable(event)) {
+            return false;
+        }
+        // Events batched before the connection was lost go first.
+        EventSendPool.getInstance().getEventBatcher().drain();
+        return spool.append(JsonConverter.toJSONBytes(event));
+    }
+
 }
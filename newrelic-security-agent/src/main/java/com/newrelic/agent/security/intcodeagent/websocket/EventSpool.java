@@ -0,0 +1,480 @@
+package com.newrelic.agent.security.intcodeagent.websocket;
+
+import com.newrelic.agent.security.AgentConfig;
+import com.newrelic.agent.security.AgentInfo;
+import com.newrelic.agent.security.instrumentator.os.OsVariablesInstance;
+import com.newrelic.agent.security.instrumentator.utils.INRSettingsKey;
+import com.newrelic.agent.security.intcodeagent.filelogging.FileLoggerThreadPool;
+import com.newrelic.agent.security.intcodeagent.models.javaagent.ExitEventBean;
+import com.newrelic.agent.security.intcodeagent.models.javaagent.FuzzFailEvent;
+import com.newrelic.agent.security.intcodeagent.models.javaagent.JavaAgentEventBean;
+import com.newrelic.agent.security.intcodeagent.utils.CommonUtils;
+import com.newrelic.agent.security.util.IUtilConstants;
+import com.newrelic.api.agent.NewRelic;
+import com.newrelic.api.agent.security.utils.logging.LogLevel;
+import org.apache.commons.io.FileUtils;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only queue of the events that could not be sent while the validator was not connected, kept in segment files
+ * under the agent temp directory. The files are read and written at explicit positions through their channel, not
+ * memory mapped: a mapping is only released once its buffer is collected, and until then the file can not be deleted
+ * on Windows.
+ * <p>
+ * Each record is its length, the CRC-32 of its bytes and the UTF-8 JSON of the event. A segment is a file of fixed
+ * size, a new one is started once a record does not fit in the current one. The oldest segment is dropped when the
+ * spool reaches its size limit, and segments are dropped once their last record is older than the age limit. Records
+ * are replayed in order by {@link WSReconnectionST} once connected, events generated meanwhile are sent right away.
+ */
+public class EventSpool {
+
+    private static final FileLoggerThreadPool logger = FileLoggerThreadPool.getInstance();
+
+    public static final String SPOOL_DIR = "event-spool";
+
+    private static final String SEGMENT_FILE_FORMAT = "segment-%016d.spool";
+
+    /**
+     * Locked by the agent owning the spool directory for as long as it runs.
+     */
+    private static final String OWNER_LOCK_FILE = "owner.lock";
+
+    private static final int RECORD_HEADER_BYTES = 8;
+
+    /**
+     * Spooled events hold request data, segment files are only readable by the agent user.
+     */
+    private static final String SEGMENT_FILE_PERMISSIONS = "rw-------";
+
+    public static final long DEFAULT_MAX_BYTES = 64 * 1024 * 1024;
+
+    public static final int DEFAULT_SEGMENT_BYTES = 4 * 1024 * 1024;
+
+    public static final long DEFAULT_MAX_AGE_MINUTES = 30;
+
+    public static final int DEFAULT_REPLAY_RATE = 200;
+
+    public static final String UNABLE_TO_SPOOL_EVENT = "Unable to spool event : ";
+
+    public static final String UNABLE_TO_READ_SPOOLED_EVENT = "Unable to read spooled event : ";
+
+    public static final String DROPPED_SPOOL_SEGMENT_S_S = "Dropped event spool segment %s with %s events";
+
+    public static final String CORRUPTED_SPOOL_SEGMENT_S = "Skipping the rest of corrupted event spool segment %s";
+
+    public static final String UNABLE_TO_CREATE_SPOOL_DIR_S = "Unable to create event spool directory %s";
+
+    private final boolean enabled;
+
+    private final int segmentBytes;
+
+    private final int maxSegments;
+
+    private final long maxAgeMillis;
+
+    private final int replayRate;
+
+    private final Deque<Segment> segments = new ArrayDeque<>();
+
+    private Path directory;
+
+    private FileChannel ownerLockChannel;
+
+    private long nextSegmentId = 0;
+
+    private long depth = 0;
+
+    private long depthBytes = 0;
+
+    /**
+     * Segment and read position of the record returned by the last {@link #peek()}, the segment may be dropped before
+     * the record is removed.
+     */
+    private Segment peekedSegment;
+
+    private int peekedPosition;
+
+    private int peekedLength;
+
+    private final AtomicLong spooledCount = new AtomicLong();
+
+    private final AtomicLong replayedCount = new AtomicLong();
+
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    private final AtomicLong corruptedCount = new AtomicLong();
+
+    private final CRC32 crc = new CRC32();
+
+    private final ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+
+    private static final class Segment {
+        private final Path path;
+
+        private final FileChannel channel;
+
+        private int writePosition = 0;
+
+        private int readPosition = 0;
+
+        private int records = 0;
+
+        private long lastWriteTime;
+
+        private Segment(Path path, FileChannel channel) {
+            this.path = path;
+            this.channel = channel;
+            this.lastWriteTime = System.currentTimeMillis();
+        }
+    }
+
+    private EventSpool() {
+        enabled = NewRelic.getAgent().getConfig().getValue(INRSettingsKey.SECURITY_EVENT_SPOOL_ENABLED, true);
+        segmentBytes = Math.max(64 * 1024, CommonUtils.getNumberConfig(INRSettingsKey.SECURITY_EVENT_SPOOL_SEGMENT_BYTES, DEFAULT_SEGMENT_BYTES).intValue());
+        long maxBytes = CommonUtils.getNumberConfig(INRSettingsKey.SECURITY_EVENT_SPOOL_MAX_BYTES, DEFAULT_MAX_BYTES).longValue();
+        maxSegments = (int) Math.max(1, Math.min(Integer.MAX_VALUE, maxBytes / segmentBytes));
+        maxAgeMillis = TimeUnit.MINUTES.toMillis(CommonUtils.getNumberConfig(INRSettingsKey.SECURITY_EVENT_SPOOL_MAX_AGE, DEFAULT_MAX_AGE_MINUTES).longValue());
+        replayRate = Math.max(1, CommonUtils.getNumberConfig(INRSettingsKey.SECURITY_EVENT_SPOOL_REPLAY_RATE, DEFAULT_REPLAY_RATE).intValue());
+    }
+
+    private static final class InstanceHolder {
+        static final EventSpool instance = new EventSpool();
+    }
+
+    public static EventSpool getInstance() {
+        return InstanceHolder.instance;
+    }
+
+    /**
+     * Only events are spooled, control messages such as the application info are sent again on connect anyway.
+     */
+    public static boolean isSpoolable(Object event) {
+        return event instanceof JavaAgentEventBean || event instanceof ExitEventBean || event instanceof FuzzFailEvent;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the maximum number of records replayed per second
+     */
+    public int getReplayRate() {
+        return replayRate;
+    }
+
+    /**
+     * Appends the event to the spool.
+     *
+     * @param json the UTF-8 JSON of the event, from its position to its limit, the buffer is consumed
+     * @return {@code false} if the event could not be spooled
+     */
+    public synchronized boolean append(ByteBuffer json) {
+        if (!enabled) {
+            return false;
+        }
+        int length = json.remaining();
+        if (length == 0 || length > segmentBytes - RECORD_HEADER_BYTES) {
+            return false;
+        }
+        try {
+            dropExpired();
+            Segment segment = segments.peekLast();
+            if (segment == null || segmentBytes - segment.writePosition < RECORD_HEADER_BYTES + length) {
+                segment = newSegment();
+            }
+            ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_BYTES + length);
+            record.position(RECORD_HEADER_BYTES);
+            record.put(json);
+            crc.reset();
+            crc.update(record.array(), RECORD_HEADER_BYTES, length);
+            record.putInt(0, length);
+            record.putInt(Integer.BYTES, (int) crc.getValue());
+            record.flip();
+            write(segment.channel, record, segment.writePosition);
+            segment.writePosition += RECORD_HEADER_BYTES + length;
+            segment.records++;
+            segment.lastWriteTime = System.currentTimeMillis();
+            depth++;
+            depthBytes += RECORD_HEADER_BYTES + length;
+            spooledCount.incrementAndGet();
+            return true;
+        } catch (IOException | RuntimeException e) {
+            logger.log(LogLevel.FINER, UNABLE_TO_SPOOL_EVENT + e.getMessage(), e, EventSpool.class.getName());
+            return false;
+        }
+    }
+
+    /**
+     * @return the bytes of the oldest record, left in the spool until {@link #remove()}, or {@code null} if the spool
+     * is empty
+     */
+    public synchronized byte[] peek() {
+        dropExpired();
+        while (!segments.isEmpty()) {
+            Segment segment = segments.peekFirst();
+            byte[] record = readRecord(segment);
+            if (record != null) {
+                peekedSegment = segment;
+                peekedPosition = segment.readPosition;
+                peekedLength = record.length;
+                return record;
+            }
+            if (segment == segments.peekLast()) {
+                return null;
+            }
+            dropFirst(false);
+        }
+        return null;
+    }
+
+    /**
+     * Removes the record returned by the previous {@link #peek()}, once it was replayed. Nothing is removed if the
+     * record was dropped in the meantime.
+     */
+    public synchronized void remove() {
+        Segment segment = segments.peekFirst();
+        if (segment == null || segment != peekedSegment || segment.readPosition != peekedPosition || segment.records == 0) {
+            return;
+        }
+        peekedSegment = null;
+        int length = peekedLength;
+        segment.readPosition += RECORD_HEADER_BYTES + length;
+        segment.records--;
+        depth--;
+        depthBytes -= RECORD_HEADER_BYTES + length;
+        replayedCount.incrementAndGet();
+        if (segment.records == 0 && segment != segments.peekLast()) {
+            dropFirst(false);
+        }
+    }
+
+    private byte[] readRecord(Segment segment) {
+        if (segment.records == 0 || segment.readPosition + RECORD_HEADER_BYTES > segment.writePosition) {
+            return null;
+        }
+        try {
+            header.clear();
+            read(segment.channel, header, segment.readPosition);
+            int length = header.getInt(0);
+            int checksum = header.getInt(Integer.BYTES);
+            if (length > 0 && segment.readPosition + RECORD_HEADER_BYTES + length <= segment.writePosition) {
+                byte[] record = new byte[length];
+                read(segment.channel, ByteBuffer.wrap(record), segment.readPosition + RECORD_HEADER_BYTES);
+                crc.reset();
+                crc.update(record, 0, length);
+                if ((int) crc.getValue() == checksum) {
+                    return record;
+                }
+            }
+        } catch (IOException e) {
+            logger.log(LogLevel.FINER, UNABLE_TO_READ_SPOOLED_EVENT + e.getMessage(), e, EventSpool.class.getName());
+        }
+        logger.log(LogLevel.WARNING, String.format(CORRUPTED_SPOOL_SEGMENT_S, segment.path), EventSpool.class.getName());
+        corruptedCount.addAndGet(segment.records);
+        depth -= segment.records;
+        depthBytes -= segment.writePosition - segment.readPosition;
+        segment.records = 0;
+        segment.readPosition = segment.writePosition;
+        return null;
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static void read(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException();
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * @return the number of records waiting to be replayed
+     */
+    public synchronized long getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return the size of the records waiting to be replayed
+     */
+    public synchronized long getDepthBytes() {
+        return depthBytes;
+    }
+
+    public boolean hasPending() {
+        return getDepth() > 0;
+    }
+
+    public long getAndResetSpooledCount() {
+        return spooledCount.getAndSet(0);
+    }
+
+    public long getAndResetReplayedCount() {
+        return replayedCount.getAndSet(0);
+    }
+
+    public long getAndResetDroppedCount() {
+        return droppedCount.getAndSet(0);
+    }
+
+    public long getAndResetCorruptedCount() {
+        return corruptedCount.getAndSet(0);
+    }
+
+    /**
+     * Drops all the records and deletes the segment files.
+     */
+    public synchronized void clear() {
+        while (!segments.isEmpty()) {
+            dropFirst(false);
+        }
+        if (directory != null) {
+            closeQuietly(ownerLockChannel);
+            ownerLockChannel = null;
+            FileUtils.deleteQuietly(directory.toFile());
+            directory = null;
+        }
+    }
+
+    private Segment newSegment() throws IOException {
+        if (directory == null) {
+            directory = createDirectory();
+        } else {
+            createDirectories(directory);
+        }
+        while (segments.size() >= maxSegments) {
+            dropFirst(true);
+        }
+        Path path = directory.resolve(String.format(SEGMENT_FILE_FORMAT, nextSegmentId++));
+        Segment segment = new Segment(path, openFile(path, StandardOpenOption.CREATE_NEW));
+        segments.addLast(segment);
+        return segment;
+    }
+
+    /**
+     * The spool of each application run has a directory of its own, locked through its {@value #OWNER_LOCK_FILE} file
+     * while the run lasts. Directories left by earlier runs are deleted once older than the age limit, unless their
+     * owner, e.g. another JVM sharing the agent home, still holds the lock.
+     */
+    private Path createDirectory() throws IOException {
+        Path root = Paths.get(AgentConfig.getInstance().getK2Home(), OsVariablesInstance.TMP, SPOOL_DIR);
+        File[] previous = root.toFile().listFiles();
+        if (previous != null) {
+            long expiry = System.currentTimeMillis() - maxAgeMillis;
+            for (File dir : previous) {
+                if (dir.lastModified() < expiry && isOwnerGone(dir.toPath())) {
+                    FileUtils.deleteQuietly(dir);
+                }
+            }
+        }
+        Path dir = root.resolve(AgentInfo.getInstance().getApplicationUUID());
+        FileUtils.deleteQuietly(dir.toFile());
+        createDirectories(dir);
+        FileChannel lockChannel = openFile(dir.resolve(OWNER_LOCK_FILE), StandardOpenOption.CREATE);
+        try {
+            lockChannel.lock();
+        } catch (IOException | RuntimeException e) {
+            closeQuietly(lockChannel);
+            throw e;
+        }
+        ownerLockChannel = lockChannel;
+        return dir;
+    }
+
+    private static boolean isOwnerGone(Path dir) {
+        Path lockFile = dir.resolve(OWNER_LOCK_FILE);
+        if (!Files.exists(lockFile)) {
+            return true;
+        }
+        try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            FileLock lock = channel.tryLock();
+            if (lock == null) {
+                return false;
+            }
+            lock.release();
+            return true;
+        } catch (IOException | OverlappingFileLockException e) {
+            return false;
+        }
+    }
+
+    private static Path createDirectories(Path dir) throws IOException {
+        if (!CommonUtils.forceMkdirs(dir, IUtilConstants.DIRECTORY_PERMISSION)) {
+            throw new IOException(String.format(UNABLE_TO_CREATE_SPOOL_DIR_S, dir));
+        }
+        return dir;
+    }
+
+    private static FileChannel openFile(Path path, StandardOpenOption create) throws IOException {
+        Set<StandardOpenOption> options = EnumSet.of(create, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (OsVariablesInstance.getInstance().getOsVariables().getWindows()) {
+            return FileChannel.open(path, options);
+        }
+        return FileChannel.open(path, options, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString(SEGMENT_FILE_PERMISSIONS)));
+    }
+
+    private void dropExpired() {
+        long expiry = System.currentTimeMillis() - maxAgeMillis;
+        while (!segments.isEmpty() && segments.peekFirst().lastWriteTime < expiry) {
+            dropFirst(true);
+        }
+    }
+
+    private void dropFirst(boolean discarded) {
+        Segment segment = segments.pollFirst();
+        if (segment == peekedSegment) {
+            peekedSegment = null;
+        }
+        if (segment.records > 0) {
+            if (discarded) {
+                logger.log(LogLevel.WARNING, String.format(DROPPED_SPOOL_SEGMENT_S_S, segment.path, segment.records), EventSpool.class.getName());
+                droppedCount.addAndGet(segment.records);
+            }
+            depth -= segment.records;
+            depthBytes -= segment.writePosition - segment.readPosition;
+        }
+        closeQuietly(segment.channel);
+        try {
+            Files.deleteIfExists(segment.path);
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            // Also releases the lock held through the channel.
+            channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
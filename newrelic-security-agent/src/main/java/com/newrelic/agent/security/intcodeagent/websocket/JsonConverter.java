@@ -1,9 +1,12 @@
 package com.newrelic.agent.security.intcodeagent.websocket;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
 import com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector;
 import com.fasterxml.jackson.databind.module.SimpleModule;
@@ -17,8 +20,12 @@ import org.apache.commons.text.StringEscapeUtils;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -27,6 +34,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class JsonConverter {
 
@@ -40,6 +48,20 @@ public class JsonConverter {
 
     private static ObjectMapper mapper;
 
+    /**
+     * Buffers grown beyond this size are not kept for reuse.
+     */
+    private static final int MAX_RETAINED_BUFFER_SIZE = 1024 * 1024;
+
+    private static final Map<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+    private static final ThreadLocal<ReusableByteArrayOutputStream> buffers = new ThreadLocal<ReusableByteArrayOutputStream>() {
+        @Override
+        protected ReusableByteArrayOutputStream initialValue() {
+            return new ReusableByteArrayOutputStream();
+        }
+    };
+
     private static String serializerSelection = System.getenv().getOrDefault("K2_JSON_SERIALIZER", "Jackson");
 
     static {
@@ -70,12 +92,52 @@ public class JsonConverter {
 
     public static String toJSONObjectMapper(Object obj) {
         try {
-            return mapper.writeValueAsString(obj);
+            return getWriter(obj.getClass()).writeValueAsString(obj);
         } catch (JsonProcessingException e) {
             return StringUtils.EMPTY;
         }
     }
 
+    /**
+     * Serializes the object as UTF-8 JSON into a buffer owned by the calling thread, without building an
+     * intermediate String.
+     * <p>
+     * The returned buffer is only valid until the next call to this method on the same thread, it must be consumed
+     * (e.g. written to a frame) before that.
+     *
+     * @param obj the object to serialize
+     * @return the serialized object, empty if it could not be serialized
+     */
+    public static ByteBuffer toJSONBytes(Object obj) {
+        if (!StringUtils.equals(serializerSelection, "Jackson")) {
+            return ByteBuffer.wrap(toJSON(obj).getBytes(StandardCharsets.UTF_8));
+        }
+        ReusableByteArrayOutputStream buffer = buffers.get();
+        buffer.reset();
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(buffer, JsonEncoding.UTF8)) {
+            getWriter(obj.getClass()).writeValue(generator, obj);
+        } catch (IOException e) {
+            buffer.reset();
+        }
+        ByteBuffer bytes = buffer.toByteBuffer();
+        if (buffer.capacity() > MAX_RETAINED_BUFFER_SIZE) {
+            buffers.remove();
+        }
+        return bytes;
+    }
+
+    /**
+     * @return the writer of given type, created once per type
+     */
+    public static ObjectWriter getWriter(Class<?> type) {
+        ObjectWriter writer = writers.get(type);
+        if (writer == null) {
+            writer = mapper.writerFor(type);
+            writers.put(type, writer);
+        }
+        return writer;
+    }
+
     public static String toJSONK2Impl(Object obj) {
         StringBuilder jsonString = new StringBuilder(STR_START_CUELY_BRACKET);
 
@@ -195,6 +257,21 @@ public class JsonConverter {
         return mapper;
     }
 
+    private static final class ReusableByteArrayOutputStream extends ByteArrayOutputStream {
+
+        private ReusableByteArrayOutputStream() {
+            super(8 * 1024);
+        }
+
+        private ByteBuffer toByteBuffer() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+
+        private int capacity() {
+            return buf.length;
+        }
+    }
+
     //	public static void main(String[] args) {
 //
 //		String[] arr = new String[] {"as", "vd"};
@@ -18,8 +18,11 @@ import org.java_websocket.WebSocket;
 import org.java_websocket.WebSocketImpl;
 import org.java_websocket.client.WebSocketClient;
 import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.extensions.IExtension;
+import org.java_websocket.extensions.permessage_deflate.PerMessageDeflateExtension;
 import org.java_websocket.framing.CloseFrame;
 import org.java_websocket.framing.Framedata;
+import org.java_websocket.framing.TextFrame;
 import org.java_websocket.handshake.ServerHandshake;
 
 import javax.net.ssl.SSLContext;
@@ -29,6 +32,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.security.KeyStore;
@@ -37,6 +42,7 @@ import java.security.cert.X509Certificate;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
@@ -63,6 +69,16 @@ public class WSClient extends WebSocketClient {
 
     private WebSocketImpl connection = null;
 
+    public static final String EVENT_BATCHING_HEADER = "NR-CSEC-EVENT-BATCHING";
+
+    public static final String EVENT_BATCHING_JSON_ARRAY = "JSON_ARRAY";
+
+    public static final String EVENT_BATCHING_S = "Event batching %s by validator";
+
+    private final boolean eventBatchingRequested;
+
+    private volatile boolean eventBatching = false;
+
 
     private SSLContext createSSLContext() throws Exception {
         KeyStore keystore = KeyStore.getInstance(KeyStore.getDefaultType());
@@ -124,7 +140,7 @@ public class WSClient extends WebSocketClient {
 
     private WSClient() throws URISyntaxException {
         super(new URI(AgentConfig.getInstance().getConfig().getK2ServiceInfo().getValidatorServiceEndpointURL()),
-                new Draft_6455(), null, (int) TimeUnit.SECONDS.toMillis(15));
+                createDraft(), null, (int) TimeUnit.SECONDS.toMillis(15));
         this.setTcpNoDelay(true);
         this.setConnectionLostTimeout(30);
         this.addHeader("NR-CSEC-CONNECTION-TYPE", "LANGUAGE_COLLECTOR");
@@ -140,6 +156,10 @@ public class WSClient extends WebSocketClient {
         this.addHeader("NR-CSEC-JSON-VERSION", AgentInfo.getInstance().getBuildInfo().getJsonVersion());
         this.addHeader("NR-ACCOUNT-ID", AgentConfig.getInstance().getConfig().getCustomerInfo().getAccountId());
         this.addHeader("NR-CSEC-IAST-DATA-TRANSFER-MODE", "PULL");
+        this.eventBatchingRequested = NewRelic.getAgent().getConfig().getValue(INRSettingsKey.SECURITY_EVENT_BATCHING_ENABLED, false);
+        if (eventBatchingRequested) {
+            this.addHeader(EVENT_BATCHING_HEADER, EVENT_BATCHING_JSON_ARRAY);
+        }
         if (StringUtils.startsWithIgnoreCase(AgentConfig.getInstance().getConfig().getK2ServiceInfo().getValidatorServiceEndpointURL(), "wss:")) {
             try {
                 this.setSocketFactory(createSSLContext().getSocketFactory());
@@ -151,6 +171,32 @@ public class WSClient extends WebSocketClient {
         logger.log(LogLevel.INFO, String.format("Connecting to WS client %s", AgentConfig.getInstance().getConfig().getK2ServiceInfo().getValidatorServiceEndpointURL()), WSClient.class.getName());
     }
 
+    /**
+     * Offers permessage-deflate during the handshake if event compression is enabled. The validator is free to
+     * decline it, in which case frames are sent uncompressed.
+     */
+    private static Draft_6455 createDraft() {
+        if (NewRelic.getAgent().getConfig().getValue(INRSettingsKey.SECURITY_EVENT_COMPRESSION_ENABLED, false)) {
+            return new Draft_6455(Collections.<IExtension>singletonList(new PerMessageDeflateExtension()));
+        }
+        return new Draft_6455();
+    }
+
+    /**
+     * @return whether the validator accepted JSON array frames of events on this connection, by echoing the
+     * batching header in its handshake response
+     */
+    public boolean isEventBatching() {
+        return eventBatching;
+    }
+
+    /**
+     * @return whether frames sent earlier are still waiting to be written to the socket
+     */
+    public boolean hasBufferedData() {
+        return connection != null && connection.hasBufferedData();
+    }
+
     @Override
     public void addHeader(String key, String value) {
         String printValue = value;
@@ -185,6 +231,10 @@ public class WSClient extends WebSocketClient {
 //        GrpcClientRequestReplayHelper.getInstance().resetIASTProcessing();
 //        DispatcherPool.getInstance().reset();
 //        EventSendPool.getInstance().reset();
+        if (eventBatchingRequested) {
+            eventBatching = StringUtils.equalsIgnoreCase(handshakedata.getFieldValue(EVENT_BATCHING_HEADER), EVENT_BATCHING_JSON_ARRAY);
+            logger.log(LogLevel.INFO, String.format(EVENT_BATCHING_S, eventBatching ? "accepted" : "declined"), WSClient.class.getName());
+        }
         super.send(JsonConverter.toJSON(AgentInfo.getInstance().getApplicationInfo()));
         WSUtils.getInstance().setReconnecting(false);
         synchronized (WSUtils.getInstance()) {
@@ -218,6 +268,7 @@ public class WSClient extends WebSocketClient {
             return;
         }
         WSUtils.getInstance().setConnected(false);
+        eventBatching = false;
         if (code == CloseFrame.POLICY_VALIDATION) {
             WSReconnectionST.cancelTask(true);
         }
@@ -240,10 +291,33 @@ public class WSClient extends WebSocketClient {
             return;
         }
         if (this.isOpen()) {
-            logger.log(LogLevel.FINER, SENDING_EVENT + text, WSClient.class.getName());
+            logger.log(LogLevel.FINER, () -> SENDING_EVENT + text, WSClient.class.getName());
             super.send(text);
         } else {
-            logger.log(LogLevel.FINER, UNABLE_TO_SEND_EVENT + text, WSClient.class.getName());
+            logger.log(LogLevel.FINER, () -> UNABLE_TO_SEND_EVENT + text, WSClient.class.getName());
+        }
+    }
+
+    /**
+     * Sends already UTF-8 encoded JSON as a text frame, without decoding it to a String first. The buffer is consumed
+     * before this method returns, so the caller may reuse it afterwards.
+     *
+     * @param utf8Text the UTF-8 encoded text
+     */
+    public void sendText(ByteBuffer utf8Text) {
+        if (utf8Text == null || !utf8Text.hasRemaining()) {
+            return;
+        }
+        if (this.isOpen()) {
+            if (logger.isLogLevelEnabled(LogLevel.FINER)) {
+                logger.log(LogLevel.FINER, SENDING_EVENT + StandardCharsets.UTF_8.decode(utf8Text.duplicate()), WSClient.class.getName());
+            }
+            TextFrame frame = new TextFrame();
+            frame.setPayload(utf8Text);
+            frame.setFin(true);
+            super.sendFrame(frame);
+        } else if (logger.isLogLevelEnabled(LogLevel.FINER)) {
+            logger.log(LogLevel.FINER, UNABLE_TO_SEND_EVENT + StandardCharsets.UTF_8.decode(utf8Text.duplicate()), WSClient.class.getName());
         }
     }
 
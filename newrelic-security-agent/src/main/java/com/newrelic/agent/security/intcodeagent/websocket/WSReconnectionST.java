@@ -5,6 +5,7 @@ import com.newrelic.api.agent.security.utils.logging.LogLevel;
 import com.newrelic.agent.security.intcodeagent.logging.IAgentConstants;
 import com.newrelic.agent.security.intcodeagent.utils.CommonUtils;
 
+import java.nio.ByteBuffer;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -21,6 +22,45 @@ public class WSReconnectionST {
 
     private ScheduledFuture futureTask;
 
+    private ScheduledFuture<?> spoolDrainTask;
+
+    public static final String ERROR_WHILE_SPOOL_REPLAY = "Error while replaying spooled events : ";
+
+    /**
+     * Spooled events are replayed in rounds of at most {@link EventSpool#getReplayRate()} events, one round per
+     * second, while connected and as long as the socket keeps up.
+     */
+    private Runnable spoolDrainRunnable = new Runnable() {
+        @Override
+        public void run() {
+            try {
+                EventSpool spool = EventSpool.getInstance();
+                WSClient client = WSClient.getInstance();
+                for (int i = 0; i < spool.getReplayRate(); i++) {
+                    if (!WSUtils.isConnected() || !client.isOpen() || client.hasBufferedData()) {
+                        break;
+                    }
+                    byte[] record = spool.peek();
+                    if (record == null) {
+                        break;
+                    }
+                    client.sendText(ByteBuffer.wrap(record));
+                    spool.remove();
+                }
+            } catch (Throwable e) {
+                logger.log(LogLevel.FINER, ERROR_WHILE_SPOOL_REPLAY, e, WSReconnectionST.class.getName());
+            } finally {
+                synchronized (lock) {
+                    if (WSUtils.isConnected() && EventSpool.getInstance().hasPending() && !scheduledService.isShutdown()) {
+                        spoolDrainTask = scheduledService.schedule(spoolDrainRunnable, 1, TimeUnit.SECONDS);
+                    } else {
+                        spoolDrainTask = null;
+                    }
+                }
+            }
+        }
+    };
+
     private Runnable runnable = new Runnable() {
         @Override
         public void run() {
@@ -34,6 +74,7 @@ public class WSReconnectionST {
                 logger.log(LogLevel.FINER, ERROR_WHILE_WS_RECONNECTION, e, WSClient.class.getName());
                 logger.postLogMessageIfNecessary(LogLevel.SEVERE, ERROR_WHILE_WS_RECONNECTION + e.getMessage() + COLON_SEPARATOR + e.getCause(), e, WSClient.class.getName());
             } finally {
+                scheduleSpoolDrain();
                 int delay = CommonUtils.generateSecureRandomBetween(5, 15);
                 futureTask = scheduledService.schedule(runnable, delay, TimeUnit.SECONDS);
             }
@@ -84,6 +125,17 @@ public class WSReconnectionST {
         }
     }
 
+    /**
+     * Starts replaying the spooled events if connected and not already replaying.
+     */
+    private void scheduleSpoolDrain() {
+        synchronized (lock) {
+            if ((spoolDrainTask == null || spoolDrainTask.isDone()) && WSUtils.isConnected() && EventSpool.getInstance().hasPending()) {
+                spoolDrainTask = scheduledService.schedule(spoolDrainRunnable, 0, TimeUnit.SECONDS);
+            }
+        }
+    }
+
     public static void cancelTask(boolean force) {
         if (instance != null) {
             if (instance.futureTask == null) {
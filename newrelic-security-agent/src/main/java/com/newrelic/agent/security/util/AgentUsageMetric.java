@@ -1,29 +1,33 @@
 package com.newrelic.agent.security.util;
 
 import com.newrelic.agent.security.instrumentator.dispatcher.DispatcherPool;
+import com.newrelic.agent.security.intcodeagent.executor.DispatchLane;
 import com.newrelic.agent.security.intcodeagent.websocket.EventSendPool;
 
+/**
+ * Back-pressure signals derived from the IAST lanes of the event processing queues. RASP, exit and control events
+ * are bounded by their own lanes and do not throttle IAST request fetching.
+ */
 public class AgentUsageMetric {
 
-    public static Boolean isRASPProcessingActive() {
-        if(EventSendPool.getInstance().getExecutor().getQueue().size() >
-                EventSendPool.getInstance().getMaxQueueSize()/2){
-            return false;
+    /**
+     * @return whether the IAST lanes are loaded enough to fetch smaller batches of replay requests
+     */
+    public static Boolean isIASTBatchThrottled() {
+        if(EventSendPool.getInstance().getQueue().fillRatio(DispatchLane.IAST) > 0.5){
+            return true;
         }
-        if(DispatcherPool.getInstance().getExecutor().getQueue().size() >
-                DispatcherPool.getInstance().getMaxQueueSize()*2/3){
-            return false;
+        if(DispatcherPool.getInstance().getQueue().fillRatio(DispatchLane.IAST) > 2d/3){
+            return true;
         }
-        return true;
+        return false;
     }
 
     public static Boolean isIASTRequestProcessingActive() {
-        if(EventSendPool.getInstance().getExecutor().getQueue().size() >
-                EventSendPool.getInstance().getMaxQueueSize()*2/3){
+        if(EventSendPool.getInstance().getQueue().fillRatio(DispatchLane.IAST) > 2d/3){
             return false;
         }
-        if(DispatcherPool.getInstance().getExecutor().getQueue().size() >
-                DispatcherPool.getInstance().getMaxQueueSize()*0.75){
+        if(DispatcherPool.getInstance().getQueue().fillRatio(DispatchLane.IAST) > 0.75){
             return false;
         }
         return true;
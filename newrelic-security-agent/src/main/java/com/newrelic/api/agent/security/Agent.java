@@ -4,15 +4,19 @@ import com.fasterxml.jackson.dataformat.javaprop.JavaPropsMapper;
 import com.newrelic.agent.security.AgentConfig;
 import com.newrelic.agent.security.AgentInfo;
 import com.newrelic.agent.security.instrumentator.dispatcher.DispatcherPool;
+import com.newrelic.agent.security.instrumentator.helper.GrpcMessageBody;
+import com.newrelic.agent.security.instrumentator.httpclient.RestRequestThreadPool;
 import com.newrelic.agent.security.instrumentator.os.OsVariablesInstance;
 import com.newrelic.agent.security.instrumentator.utils.*;
 import com.newrelic.agent.security.intcodeagent.constants.AgentServices;
 import com.newrelic.agent.security.intcodeagent.filelogging.FileLoggerThreadPool;
 import com.newrelic.agent.security.intcodeagent.filelogging.LogFileHelper;
+import com.newrelic.agent.security.intcodeagent.ipblocking.AttackerIpBlocklist;
 import com.newrelic.agent.security.intcodeagent.utils.EncryptorUtils;
 import com.newrelic.api.agent.security.utils.logging.LogLevel;
 import com.newrelic.agent.security.intcodeagent.logging.HealthCheckScheduleThread;
 import com.newrelic.agent.security.intcodeagent.logging.IAgentConstants;
+import com.newrelic.agent.security.intcodeagent.models.config.SecurityConfigSnapshot;
 import com.newrelic.agent.security.intcodeagent.models.javaagent.ExitEventBean;
 import com.newrelic.agent.security.intcodeagent.properties.BuildInfo;
 import com.newrelic.agent.security.intcodeagent.schedulers.FileCleaner;
@@ -24,11 +28,13 @@ import com.newrelic.api.agent.NewRelic;
 import com.newrelic.api.agent.Transaction;
 import com.newrelic.api.agent.security.instrumentation.helpers.GrpcHelper;
 import com.newrelic.api.agent.security.instrumentation.helpers.AppServerInfoHelper;
+import com.newrelic.api.agent.security.instrumentation.helpers.GrpcClientRequestReplayHelper;
 import com.newrelic.api.agent.security.instrumentation.helpers.InstrumentedClass;
 import com.newrelic.api.agent.security.instrumentation.helpers.LowSeverityHelper;
 import com.newrelic.api.agent.security.schema.*;
 import com.newrelic.api.agent.security.schema.operation.RXSSOperation;
 import com.newrelic.api.agent.security.schema.policy.AgentPolicy;
+import com.newrelic.api.agent.security.utils.StackTraceCapture;
 import org.apache.commons.lang3.StringUtils;
 
 import java.io.File;
@@ -41,10 +47,13 @@ import java.net.URL;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 
 import static com.newrelic.agent.security.intcodeagent.logging.IAgentConstants.*;
@@ -58,6 +67,13 @@ public class Agent implements SecurityAgent {
     public static final String DROPPING_EVENT_AS_IT_WAS_GENERATED_BY_K_2_INTERNAL_API_CALL = "Dropping event as it was generated by agent internal API call : ";
     private static final AtomicBoolean firstEventProcessed = new AtomicBoolean(false);
 
+    /**
+     * Metadata handed out to threads without a transaction. It is reused until a hook actually materialises any
+     * part of it, at which point a new instance replaces it so that no state leaks between unrelated calls. The
+     * replacement keeps the reentrancy guard, hook locks are held across the replacement.
+     */
+    private static final ThreadLocal<SecurityMetaData> nonTransactionSecurityMetaData = new ThreadLocal<>();
+
     private AgentInfo info;
 
     private AgentConfig config;
@@ -173,9 +189,13 @@ public class Agent implements SecurityAgent {
     private void startK2Services() {
         HealthCheckScheduleThread.getInstance().scheduleNewTask();
         FileCleaner.scheduleNewTask();
-        SchedulerHelper.getInstance().scheduleLowSeverityFilterCleanup(LowSeverityHelper::clearLowSeverityEventFilter,
-                30 , 30, TimeUnit.MINUTES);
+        SchedulerHelper.getInstance().scheduleLowSeverityFilterCleanup(LowSeverityHelper::rotateLowSeverityEventFilter,
+                LowSeverityHelper.FILTER_ROTATION_PERIOD_MINUTES, LowSeverityHelper.FILTER_ROTATION_PERIOD_MINUTES, TimeUnit.MINUTES);
         SchedulerHelper.getInstance().scheduleDailyLogRollover(LogFileHelper::performDailyRollover);
+        SchedulerHelper.getInstance().scheduleAttackerIpExpiry(AttackerIpBlocklist.getInstance()::advance,
+                AttackerIpBlocklist.TICK_MILLIS, AttackerIpBlocklist.TICK_MILLIS, TimeUnit.MILLISECONDS);
+        SchedulerHelper.getInstance().scheduleConfigSnapshotRefresh(AgentUtils.getInstance()::refreshConfigSnapshotIfAgentConfigChanged,
+                AgentUtils.CONFIG_SNAPSHOT_REFRESH_SECONDS, AgentUtils.CONFIG_SNAPSHOT_REFRESH_SECONDS, TimeUnit.SECONDS);
         logger.logInit(
                 LogLevel.INFO,
                 String.format(STARTED_MODULE_LOG, AgentServices.HealthCheck.name()),
@@ -251,39 +271,33 @@ public class Agent implements SecurityAgent {
         // added to fetch request/response in case of grpc requests
         SecurityMetaData securityMetaData = NewRelicSecurity.getAgent().getSecurityMetaData();
         if (securityMetaData!=null && securityMetaData.getRequest().getIsGrpc()){
-            securityMetaData.getRequest().setBody(
-                    new StringBuilder(JsonConverter.toJSON(securityMetaData.getCustomAttribute(GrpcHelper.NR_SEC_GRPC_REQUEST_DATA, List.class))));
-            securityMetaData.getResponse().setResponseBody(
-                    new StringBuilder(JsonConverter.toJSON(securityMetaData.getCustomAttribute(GrpcHelper.NR_SEC_GRPC_RESPONSE_DATA, List.class))));
+            updateGrpcBodies(securityMetaData);
         }
         // end
 
         if (operation == null || operation.isEmpty()) {
             return;
         }
+        if (operation instanceof RXSSOperation && !RXSSPreFilter.isEvaluationNeeded(securityMetaData)) {
+            return;
+        }
         String executionId = ExecutionIDGenerator.getExecutionId();
         operation.setExecutionId(executionId);
         operation.setStartTime(Instant.now().toEpochMilli());
         if(securityMetaData!=null && securityMetaData.getFuzzRequestIdentifier().getK2Request()){
-            logger.log(LogLevel.FINEST, String.format("New Event generation with id %s of type %s", operation.getExecutionId(), operation.getClass().getSimpleName()), Agent.class.getName());
+            logger.log(LogLevel.FINEST, () -> String.format("New Event generation with id %s of type %s", operation.getExecutionId(), operation.getClass().getSimpleName()), Agent.class.getName());
         }
+        StackTraceCapture stack;
         if (operation instanceof RXSSOperation) {
-            operation.setStackTrace(securityMetaData.getMetaData().getServiceTrace());
+            stack = StackTraceCapture.of(securityMetaData.getMetaData().getServiceTrace());
         } else {
-            StackTraceElement[] trace = Thread.currentThread().getStackTrace();
-            operation.setStackTrace(Arrays.copyOfRange(trace, 2, trace.length));
+            stack = StackTraceCapture.capture(1);
         }
 
-        // added to fetch request/response in case of grpc requests
-        if (securityMetaData.getRequest().getIsGrpc()){
-            securityMetaData.getRequest().setBody(
-                    new StringBuilder(JsonConverter.toJSON(securityMetaData.getCustomAttribute(GrpcHelper.NR_SEC_GRPC_REQUEST_DATA, List.class))));
-            securityMetaData.getResponse().setResponseBody(
-                    new StringBuilder(JsonConverter.toJSON(securityMetaData.getCustomAttribute(GrpcHelper.NR_SEC_GRPC_RESPONSE_DATA, List.class))));
-        }
-
-        if(checkIfNRGeneratedEvent(operation)) {
-            logger.log(LogLevel.FINEST, DROPPING_EVENT_AS_IT_WAS_GENERATED_BY_K_2_INTERNAL_API_CALL +
+        CallSiteCache.CallSite callSite = resolveCallSite(operation, stack, securityMetaData);
+        if(callSite.isNrGenerated()) {
+            operation.setStackTrace(callSite.getStackTrace());
+            logger.log(LogLevel.FINEST, () -> DROPPING_EVENT_AS_IT_WAS_GENERATED_BY_K_2_INTERNAL_API_CALL +
                             JsonConverter.toJSON(operation),
                     Agent.class.getName());
             return;
@@ -291,9 +305,7 @@ public class Agent implements SecurityAgent {
 
         logIfIastScanForFirstTime(securityMetaData.getFuzzRequestIdentifier(), securityMetaData.getRequest());
 
-        setRequiredStackTrace(operation, securityMetaData);
-        operation.setUserClassEntity(setUserClassEntity(operation, securityMetaData));
-        processStackTrace(operation);
+        applyCallSite(operation, callSite, securityMetaData);
 //        boolean blockNeeded = checkIfBlockingNeeded(operation.getApiID());
 //        securityMetaData.getMetaData().setApiBlocked(blockNeeded);
         if (needToGenerateEvent(operation.getApiID())) {
@@ -320,77 +332,154 @@ public class Agent implements SecurityAgent {
         }
     }
 
-    private static boolean checkIfNRGeneratedEvent(AbstractOperation operation) {
-        for (int i = 1, j = 0; i < operation.getStackTrace().length; i++) {
+    /**
+     * Sets the request and response bodies of a gRPC transaction from its messages, serializing only the messages
+     * received since the previous operation.
+     */
+    private static void updateGrpcBodies(SecurityMetaData securityMetaData) {
+        StringBuilder requestBody = GrpcMessageBody.getUpdatedBody(securityMetaData, GrpcHelper.NR_SEC_GRPC_REQUEST_DATA);
+        if (requestBody != null) {
+            securityMetaData.getRequest().setBody(requestBody);
+        }
+        StringBuilder responseBody = GrpcMessageBody.getUpdatedBody(securityMetaData, GrpcHelper.NR_SEC_GRPC_RESPONSE_DATA);
+        if (responseBody != null) {
+            securityMetaData.getResponse().setResponseBody(responseBody);
+        }
+    }
+
+    private static boolean checkIfNRGeneratedEvent(StackTraceCapture stack) {
+        for (int i = 1, j = 0; i < stack.depth(); i++) {
             // Only remove consecutive top com.newrelic and com.nr. elements from stack.
-            if (i - 1 == j && StringUtils.startsWithAny(operation.getStackTrace()[i].getClassName(), "com.newrelic.", "com.nr.")) {
-                j++;
-            } else if (StringUtils.startsWithAny(operation.getStackTrace()[i].getClassName(), "com.newrelic.", "com.nr.")) {
-                return true;
+            if (isNRClass(stack.getClassName(i))) {
+                if (i - 1 == j) {
+                    j++;
+                } else {
+                    return true;
+                }
             }
         }
         return false;
     }
 
+    private static boolean isNRClass(String className) {
+        return className != null && (className.startsWith("com.newrelic.") || className.startsWith("com.nr."));
+    }
+
     private static boolean needToGenerateEvent(String apiID) {
-        return !(getInstance().getCurrentPolicy().getProtectionMode().getEnabled()
-                && getInstance().getCurrentPolicy().getProtectionMode().getApiBlocking().getEnabled()
-                && AgentUtils.getInstance().getAgentPolicyParameters().getAllowedApis().contains(apiID)
-        );
+        SecurityConfigSnapshot config = AgentUtils.getInstance().getConfigSnapshot();
+        return !(config.isApiBlockingEnabled() && config.getAllowedApis().contains(apiID));
+    }
+
+    /**
+     * Looks up the processed stack trace of the operation call site, processing and caching it on a miss.
+     */
+    private static CallSiteCache.CallSite resolveCallSite(AbstractOperation operation, StackTraceCapture stack, SecurityMetaData securityMetaData) {
+        long fingerprint = getCallSiteFingerprint(operation, stack, securityMetaData);
+        StackTraceElement[] serviceTrace = securityMetaData.getMetaData().getServiceTrace();
+        CallSiteCache.CallSite callSite = CallSiteCache.getInstance().get(fingerprint, stack, serviceTrace,
+                operation.getCaseType(), operation.getSourceMethod());
+        if (callSite == null) {
+            if (checkIfNRGeneratedEvent(stack)) {
+                callSite = new CallSiteCache.CallSite(true, stack.toStackTrace(0, stack.depth()), null, null,
+                        null, Collections.<String>emptyList());
+            } else {
+                StackTraceElement[] stackTrace = stack.toStackTrace(0, getRequiredStackDepth(stack, securityMetaData));
+                callSite = processStackTrace(stackTrace, operation.getCaseType(),
+                        getUserClassElement(stackTrace, operation.getSourceMethod(), securityMetaData));
+            }
+            CallSiteCache.getInstance().put(fingerprint, new CallSiteCache.Key(stack, serviceTrace,
+                    operation.getCaseType(), operation.getSourceMethod()), callSite);
+        }
+        return callSite;
+    }
+
+    /**
+     * Fingerprint of everything the processed stack trace depends on: the captured frames, the service trace which
+     * bounds the stack and locates the user class, the case type and the source method set by the hook.
+     */
+    private static long getCallSiteFingerprint(AbstractOperation operation, StackTraceCapture stack, SecurityMetaData securityMetaData) {
+        long fingerprint = stack.fingerprint();
+        StackTraceElement[] serviceTrace = securityMetaData.getMetaData().getServiceTrace();
+        fingerprint = 31 * fingerprint + (serviceTrace != null ? serviceTrace.length : -1);
+        fingerprint = 31 * fingerprint + (serviceTrace != null && serviceTrace.length > 0 ? serviceTrace[0].hashCode() : 0);
+        fingerprint = 31 * fingerprint + Objects.hashCode(operation.getCaseType());
+        fingerprint = 31 * fingerprint + Objects.hashCode(operation.getSourceMethod());
+        return fingerprint;
     }
 
-    private UserClassEntity setUserClassEntity(AbstractOperation operation, SecurityMetaData securityMetaData) {
+    private static void applyCallSite(AbstractOperation operation, CallSiteCache.CallSite callSite, SecurityMetaData securityMetaData) {
+        operation.setStackTrace(callSite.getStackTrace());
         UserClassEntity userClassEntity = new UserClassEntity();
+        if (callSite.getUserClassElement() != null) {
+            userClassEntity.setUserClassElement(callSite.getUserClassElement());
+            userClassEntity.setCalledByUserCode(securityMetaData.getMetaData().isUserLevelServiceMethodEncountered());
+        }
+        operation.setUserClassEntity(userClassEntity);
+        operation.setSourceMethod(callSite.getSourceMethod());
+        operation.setApiID(callSite.getApiID());
+
+        // Checks for RCI flagging.
+        if (!callSite.getRciMethodsCalls().isEmpty() && AgentUtils.getInstance().getConfigSnapshot().isRciDetectionEnabled()) {
+            AgentMetaData metaData = securityMetaData.getMetaData();
+            metaData.setTriggerViaRCI(true);
+            metaData.getRciMethodsCalls().addAll(callSite.getRciMethodsCalls());
+        }
+    }
+
+    private static StackTraceElement getUserClassElement(StackTraceElement[] stackTrace, String sourceMethod, SecurityMetaData securityMetaData) {
+        StackTraceElement userClassElement = null;
         StackTraceElement userStackTraceElement = null;
         if(securityMetaData.getMetaData().getServiceTrace() != null && securityMetaData.getMetaData().getServiceTrace().length > 0){
             userStackTraceElement = securityMetaData.getMetaData().getServiceTrace()[0];
         }
 
-        for (int i = 0; i < operation.getStackTrace().length; i++) {
-            StackTraceElement stackTraceElement = operation.getStackTrace()[i];
+        for (int i = 0; i < stackTrace.length; i++) {
+            StackTraceElement stackTraceElement = stackTrace[i];
             if(userStackTraceElement != null){
                 if(StringUtils.equals(stackTraceElement.getClassName(), userStackTraceElement.getClassName())
                         && StringUtils.equals(stackTraceElement.getMethodName(), userStackTraceElement.getMethodName())){
-                    userClassEntity.setUserClassElement(stackTraceElement);
-                    userClassEntity.setCalledByUserCode(securityMetaData.getMetaData().isUserLevelServiceMethodEncountered());
-                    return userClassEntity;
+                    return stackTraceElement;
                 }
             }
             // TODO: the `if` should be `else if` please check crypto case BenchmarkTest01978. service trace is being registered from doSomething()
-            if( i+1 < operation.getStackTrace().length && StringUtils.equals(operation.getSourceMethod(), stackTraceElement.toString())){
-                userClassEntity.setUserClassElement(operation.getStackTrace()[i + 1]);
-                userClassEntity.setCalledByUserCode(securityMetaData.getMetaData().isUserLevelServiceMethodEncountered());
+            if( i+1 < stackTrace.length && StringUtils.equals(sourceMethod, stackTraceElement.toString())){
+                userClassElement = stackTrace[i + 1];
             }
         }
 
-        if(userClassEntity.getUserClassElement() == null && operation.getStackTrace().length >= 2){
-            userClassEntity.setUserClassElement(operation.getStackTrace()[1]);
-            userClassEntity.setCalledByUserCode(securityMetaData.getMetaData().isUserLevelServiceMethodEncountered());
+        if(userClassElement == null && stackTrace.length >= 2){
+            userClassElement = stackTrace[1];
         }
-        return userClassEntity;
+        return userClassElement;
     }
 
-    private void setRequiredStackTrace(AbstractOperation operation, SecurityMetaData securityMetaData) {
-        StackTraceElement[] currentStackTrace = operation.getStackTrace();
-        if (securityMetaData.getMetaData().getServiceTrace() != null && securityMetaData.getMetaData().getServiceTrace().length + 3 < currentStackTrace.length) {
-            int targetBottomStackLength = currentStackTrace.length - securityMetaData.getMetaData().getServiceTrace().length + 3;
-            currentStackTrace = Arrays.copyOfRange(currentStackTrace, 0, targetBottomStackLength);
-            operation.setStackTrace(currentStackTrace);
+    /**
+     * Number of frames to keep from the top of the stack: the frames below the user level service method, which are
+     * already part of the service trace, are cut apart from the 3 closest to it. Only the kept frames are materialised.
+     */
+    private static int getRequiredStackDepth(StackTraceCapture stack, SecurityMetaData securityMetaData) {
+        StackTraceElement[] serviceTrace = securityMetaData.getMetaData().getServiceTrace();
+        if (serviceTrace != null && serviceTrace.length + 3 < stack.depth()) {
+            return stack.depth() - serviceTrace.length + 3;
         }
+        return stack.depth();
     }
 
-    private static void processStackTrace(AbstractOperation operation) {
-        StackTraceElement[] stackTrace = operation.getStackTrace();
+    private static CallSiteCache.CallSite processStackTrace(StackTraceElement[] stackTrace, VulnerabilityCaseType vulnerabilityCaseType,
+                                                            StackTraceElement userClassElement) {
         int resetFactor = 0;
 
-        ArrayList<Integer> newTraceForIdCalc = new ArrayList<>(stackTrace.length);
+        // One slot per frame plus the source method, hashed in place without boxing.
+        int[] traceForIdCalc = new int[stackTrace.length + 1];
+        int traceForIdCalcLength = 0;
+        List<String> rciMethodsCalls = Collections.emptyList();
 
         boolean markedForRemoval;
         for (int i = 0, j = -1; i < stackTrace.length; i++) {
             markedForRemoval = false;
 
             // Only remove consecutive top com.newrelic and com.nr. elements from stack.
-            if (i - 1 == j && StringUtils.startsWithAny(stackTrace[i].getClassName(), "com.newrelic.", "com.nr.")) {
+            if (i - 1 == j && isNRClass(stackTrace[i].getClassName())) {
                 resetFactor++;
                 j++;
                 markedForRemoval = true;
@@ -401,39 +490,36 @@ public class Agent implements SecurityAgent {
                     !StringUtils.endsWith(stackTrace[i].getFileName(), ".java")) {
                 markedForRemoval = true;
 
-                // Checks for RCI flagging.
-                if (NewRelic.getAgent().getConfig()
-                        .getValue(INRSettingsKey.SECURITY_DETECTION_RCI_ENABLED, true) && i > 0) {
-                    AgentMetaData metaData = NewRelicSecurity.getAgent().getSecurityMetaData().getMetaData();
-                    if (stackTrace[i - 1].getLineNumber() > 0 &&
-                            StringUtils.isNotBlank(stackTrace[i - 1].getFileName()) &&
-                            !StringUtils.startsWithAny(stackTrace[i - 1].getClassName(), "com.newrelic.", "com.nr.")
-                    ) {
-                        metaData.setTriggerViaRCI(true);
-                        metaData.getRciMethodsCalls()
-                                .add(AgentUtils.stackTraceElementToString(operation.getStackTrace()[i]));
-                        metaData.getRciMethodsCalls()
-                                .add(AgentUtils.stackTraceElementToString(operation.getStackTrace()[i - 1]));
+                // Candidates for RCI flagging, applied per operation depending on the RCI setting.
+                if (i > 0 && stackTrace[i - 1].getLineNumber() > 0 &&
+                        StringUtils.isNotBlank(stackTrace[i - 1].getFileName()) &&
+                        !isNRClass(stackTrace[i - 1].getClassName())) {
+                    if (rciMethodsCalls.isEmpty()) {
+                        rciMethodsCalls = new ArrayList<>();
                     }
+                    rciMethodsCalls.add(AgentUtils.stackTraceElementToString(stackTrace[i]));
+                    rciMethodsCalls.add(AgentUtils.stackTraceElementToString(stackTrace[i - 1]));
                 }
             }
 
             if (!markedForRemoval) {
-                newTraceForIdCalc.add(stackTrace[i].hashCode());
+                traceForIdCalc[traceForIdCalcLength++] = stackTrace[i].hashCode();
             }
         }
-        stackTrace = Arrays.copyOfRange(stackTrace, resetFactor, stackTrace.length);
-        operation.setStackTrace(stackTrace);
-        operation.setSourceMethod(operation.getStackTrace()[0].toString());
-        setAPIId(operation, newTraceForIdCalc, operation.getCaseType());
+        if (resetFactor > 0) {
+            stackTrace = Arrays.copyOfRange(stackTrace, resetFactor, stackTrace.length);
+        }
+        String sourceMethod = stackTrace[0].toString();
+        traceForIdCalc[traceForIdCalcLength++] = sourceMethod.hashCode();
+        return new CallSiteCache.CallSite(false, stackTrace, sourceMethod,
+                getAPIId(traceForIdCalc, traceForIdCalcLength, vulnerabilityCaseType), userClassElement, rciMethodsCalls);
     }
 
-    private static void setAPIId(AbstractOperation operation, List<Integer> traceForIdCalc, VulnerabilityCaseType vulnerabilityCaseType) {
+    private static String getAPIId(int[] traceForIdCalc, int length, VulnerabilityCaseType vulnerabilityCaseType) {
         try {
-            traceForIdCalc.add(operation.getSourceMethod().hashCode());
-            operation.setApiID(vulnerabilityCaseType.getCaseType() + "-" + HashGenerator.getXxHash64Digest(traceForIdCalc.stream().mapToInt(Integer::intValue).toArray()));
+            return vulnerabilityCaseType.getCaseType() + "-" + HashGenerator.getXxHash64Digest(traceForIdCalc, 0, length);
         } catch (IOException e) {
-            operation.setApiID("UNDEFINED");
+            return "UNDEFINED";
         }
     }
 
@@ -451,7 +537,7 @@ public class Agent implements SecurityAgent {
                     && StringUtils.equals(k2RequestIdentifier.getNextStage().getStatus(), IAgentConstants.VULNERABLE)) {
                 ExitEventBean exitEventBean = new ExitEventBean(operation.getExecutionId(), operation.getCaseType().getCaseType());
                 exitEventBean.setK2RequestIdentifier(k2RequestIdentifier.getRaw());
-                logger.log(LogLevel.FINER, "Exit event : " + exitEventBean, this.getClass().getName());
+                logger.log(LogLevel.FINER, () -> "Exit event : " + exitEventBean, this.getClass().getName());
                 DispatcherPool.getInstance().dispatchExitEvent(exitEventBean);
                 AgentInfo.getInstance().getJaHealthCheck().incrementExitEventSentCount();
             }
@@ -485,7 +571,19 @@ public class Agent implements SecurityAgent {
                 }
             }
         } catch (Throwable ignored) {}
-        return new SecurityMetaData();
+        return getNonTransactionSecurityMetaData();
+    }
+
+    private static SecurityMetaData getNonTransactionSecurityMetaData() {
+        SecurityMetaData securityMetaData = nonTransactionSecurityMetaData.get();
+        if (securityMetaData == null) {
+            securityMetaData = new SecurityMetaData();
+            nonTransactionSecurityMetaData.set(securityMetaData);
+        } else if (!securityMetaData.isUntouched()) {
+            securityMetaData = securityMetaData.renew();
+            nonTransactionSecurityMetaData.set(securityMetaData);
+        }
+        return securityMetaData;
     }
 
     @Override
@@ -531,7 +629,16 @@ public class Agent implements SecurityAgent {
 
     @Override
     public boolean isLowPriorityInstrumentationEnabled() {
-        return NewRelicSecurity.isHookProcessingActive() && NewRelic.getAgent().getConfig().getValue(LowSeverityHelper.LOW_SEVERITY_HOOKS_ENABLED, LowSeverityHelper.DEFAULT);
+        return NewRelicSecurity.isHookProcessingActive() && AgentUtils.getInstance().getConfigSnapshot().isLowPriorityHooksEnabled()
+                && (!LowSeverityHelper.isAllEndpointsReported() || isReplayInProgress());
+    }
+
+    /**
+     * IAST replayed requests need the low priority hooks even once every endpoint has been reported.
+     */
+    private static boolean isReplayInProgress() {
+        return !RestRequestThreadPool.getInstance().getPendingIds().isEmpty()
+                || !GrpcClientRequestReplayHelper.getInstance().getPendingIds().isEmpty();
     }
 
     public void setApplicationConnectionConfig(int port, String scheme) {
@@ -639,6 +746,25 @@ public class Agent implements SecurityAgent {
         }
     }
 
+    @Override
+    public void log(LogLevel logLevel, Supplier<String> event, Throwable throwableEvent, String logSourceClassName) {
+        if(logger != null){
+            logger.log(logLevel, event, throwableEvent, logSourceClassName);
+        }
+    }
+
+    @Override
+    public void log(LogLevel logLevel, Supplier<String> event, String logSourceClassName) {
+        if(logger != null){
+            logger.log(logLevel, event, logSourceClassName);
+        }
+    }
+
+    @Override
+    public boolean isLogLevelEnabled(LogLevel logLevel) {
+        return logger != null && logger.isLogLevelEnabled(logLevel);
+    }
+
     @Override
     public void reportIncident(LogLevel logLevel, String event, Throwable exception, String caller) {
         if(logger != null){
@@ -669,4 +795,18 @@ public class Agent implements SecurityAgent {
             return null;
         }
     }
+
+    /**
+     * The allowed IPs take precedence over both the blocked IPs of the policy parameters and the IPs of detected
+     * attackers.
+     */
+    @Override
+    public boolean isIpBlocked(String ip) {
+        SecurityConfigSnapshot config = AgentUtils.getInstance().getConfigSnapshot();
+        if (!config.isIpBlockingEnabled() || StringUtils.isBlank(ip) || config.getAllowedIpRanges().contains(ip)) {
+            return false;
+        }
+        return config.getBlockedIpRanges().contains(ip)
+                || (config.isAttackerIpBlockingEnabled() && AttackerIpBlocklist.getInstance().contains(ip));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,128 @@
+package com.newrelic.agent.security.intcodeagent.ipblocking;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AttackerIpBlocklistTest {
+
+    private static final long START = 1_700_000_000_500L;
+
+    private static final long SECOND = AttackerIpBlocklist.TICK_MILLIS;
+
+    @Test
+    public void blockedIpIsMatchedInAnyForm() {
+        AttackerIpBlocklist blocklist = new AttackerIpBlocklist(START);
+        Assert.assertTrue(blocklist.block("10.1.2.3", 60 * SECOND, START));
+        Assert.assertTrue(blocklist.block("[2001:db8::1]:443", 60 * SECOND, START));
+        Assert.assertEquals(2, blocklist.size());
+
+        Assert.assertTrue(blocklist.contains("10.1.2.3"));
+        Assert.assertTrue(blocklist.contains("10.1.2.3:8080"));
+        Assert.assertTrue(blocklist.contains(" 10.1.2.3, 192.0.2.1"));
+        Assert.assertTrue(blocklist.contains("::ffff:10.1.2.3"));
+        Assert.assertTrue(blocklist.contains("2001:DB8:0:0:0:0:0:1"));
+        Assert.assertTrue(blocklist.contains("2001:db8::1%eth0"));
+
+        Assert.assertFalse(blocklist.contains("192.0.2.1, 10.1.2.3"));
+        Assert.assertFalse(blocklist.contains("10.1.2.4"));
+        Assert.assertFalse(blocklist.contains("2001:db8::2"));
+        Assert.assertFalse(blocklist.contains(null));
+    }
+
+    @Test
+    public void invalidIpIsNotBlocked() {
+        AttackerIpBlocklist blocklist = new AttackerIpBlocklist(START);
+        Assert.assertFalse(blocklist.block("not-an-ip", 60 * SECOND, START));
+        Assert.assertFalse(blocklist.block("10.0.0.0/8", 60 * SECOND, START));
+        Assert.assertEquals(0, blocklist.size());
+    }
+
+    @Test
+    public void blockExpiresAtItsDeadline() {
+        AttackerIpBlocklist blocklist = new AttackerIpBlocklist(START);
+        blocklist.block("10.1.2.3", 5 * SECOND, START);
+        blocklist.advance(START + 4 * SECOND);
+        Assert.assertTrue(blocklist.contains("10.1.2.3"));
+        blocklist.advance(START + 5 * SECOND);
+        Assert.assertFalse(blocklist.contains("10.1.2.3"));
+        Assert.assertEquals(0, blocklist.size());
+    }
+
+    @Test
+    public void shortBlockLastsOneTick() {
+        AttackerIpBlocklist blocklist = new AttackerIpBlocklist(START);
+        blocklist.block("10.1.2.3", 1, START);
+        Assert.assertTrue(blocklist.contains("10.1.2.3"));
+        blocklist.advance(START + SECOND);
+        Assert.assertFalse(blocklist.contains("10.1.2.3"));
+    }
+
+    @Test
+    public void blocksCascadeDownTheWheelLevels() {
+        AttackerIpBlocklist blocklist = new AttackerIpBlocklist(START);
+        // Deadlines in the second, third and fourth level of the wheel.
+        long[] durations = {100, 5_000, 300_000};
+        for (int i = 0; i < durations.length; i++) {
+            blocklist.block("10.0.0." + i, durations[i] * SECOND, START);
+        }
+        for (int i = 0; i < durations.length; i++) {
+            blocklist.advance(START + (durations[i] - 1) * SECOND);
+            Assert.assertTrue(blocklist.contains("10.0.0." + i));
+            blocklist.advance(START + durations[i] * SECOND);
+            Assert.assertFalse(blocklist.contains("10.0.0." + i));
+            Assert.assertEquals(durations.length - i - 1, blocklist.size());
+        }
+    }
+
+    @Test
+    public void repeatedBlockReplacesTheDeadline() {
+        AttackerIpBlocklist blocklist = new AttackerIpBlocklist(START);
+        blocklist.block("10.0.0.1", 10 * SECOND, START);
+        blocklist.block("10.0.0.1", 100 * SECOND, START);
+        blocklist.block("10.0.0.2", 100 * SECOND, START);
+        blocklist.block("10.0.0.2", 10 * SECOND, START);
+        Assert.assertEquals(2, blocklist.size());
+
+        blocklist.advance(START + 10 * SECOND);
+        Assert.assertTrue(blocklist.contains("10.0.0.1"));
+        Assert.assertFalse(blocklist.contains("10.0.0.2"));
+
+        blocklist.advance(START + 100 * SECOND);
+        Assert.assertFalse(blocklist.contains("10.0.0.1"));
+    }
+
+    @Test
+    public void blockingStopsAtTheEntryCap() {
+        AttackerIpBlocklist blocklist = new AttackerIpBlocklist(START);
+        for (int i = 0; i < AttackerIpBlocklist.MAX_ENTRIES; i++) {
+            Assert.assertTrue(blocklist.block("10.0." + (i >> 8) + "." + (i & 0xFF), 10 * SECOND, START));
+        }
+        Assert.assertFalse(blocklist.block("192.0.2.1", 10 * SECOND, START));
+        Assert.assertFalse(blocklist.contains("192.0.2.1"));
+        // Already blocked IPs can still be extended.
+        Assert.assertTrue(blocklist.block("10.0.0.0", 20 * SECOND, START));
+        Assert.assertEquals(AttackerIpBlocklist.MAX_ENTRIES, blocklist.size());
+
+        Assert.assertTrue(blocklist.block("192.0.2.1", 10 * SECOND, START + 10 * SECOND));
+        Assert.assertEquals(2, blocklist.size());
+    }
+
+    @Test
+    public void clockJumpExpiresEveryBlock() {
+        AttackerIpBlocklist blocklist = new AttackerIpBlocklist(START);
+        blocklist.block("10.0.0.1", 60 * SECOND, START);
+        blocklist.advance(START + 365L * 24 * 3600 * SECOND);
+        Assert.assertEquals(0, blocklist.size());
+        Assert.assertFalse(blocklist.contains("10.0.0.1"));
+    }
+
+    @Test
+    public void clearUnblocksEveryIp() {
+        AttackerIpBlocklist blocklist = new AttackerIpBlocklist(START);
+        blocklist.block("10.0.0.1", 60 * SECOND, START);
+        blocklist.clear();
+        Assert.assertFalse(blocklist.contains("10.0.0.1"));
+        blocklist.advance(START + 60 * SECOND);
+        Assert.assertEquals(0, blocklist.size());
+    }
+}
@@ -0,0 +1,154 @@
+package com.newrelic.agent.security.intcodeagent.ipblocking;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class IpAddressRangesTest {
+
+    @Test
+    public void emptySetContainsNothing() {
+        Assert.assertTrue(IpAddressRanges.EMPTY.isEmpty());
+        Assert.assertFalse(IpAddressRanges.EMPTY.contains("10.0.0.1"));
+        Assert.assertFalse(IpAddressRanges.build(null).contains("10.0.0.1"));
+    }
+
+    @Test
+    public void invalidEntriesAreSkipped() {
+        IpAddressRanges ranges = IpAddressRanges.build(Arrays.asList("10.0.0.1", "256.0.0.1", "10.0.0", "1.2.3.4/33",
+                "2001:db8::/129", "2001:db8:::1", "1:2:3:4:5:6:7:8:9", "10.0.0.0/x", "", null));
+        Assert.assertEquals(1, ranges.size());
+        Assert.assertTrue(ranges.contains("10.0.0.1"));
+        Assert.assertFalse(ranges.contains("256.0.0.1"));
+    }
+
+    @Test
+    public void invalidAddressesAreNotContained() {
+        IpAddressRanges ranges = IpAddressRanges.build(Arrays.asList("0.0.0.0/0", "::/0"));
+        Assert.assertFalse(ranges.contains(null));
+        Assert.assertFalse(ranges.contains(""));
+        Assert.assertFalse(ranges.contains("1.2.3"));
+        Assert.assertFalse(ranges.contains("1.2.3.4.5"));
+        Assert.assertFalse(ranges.contains("1.2.3.1000"));
+        Assert.assertFalse(ranges.contains("[::1"));
+        Assert.assertFalse(ranges.contains("2001:db8::g"));
+        Assert.assertFalse(ranges.contains("localhost"));
+    }
+
+    @Test
+    public void ipv4Ranges() {
+        IpAddressRanges ranges = IpAddressRanges.build(Arrays.asList("10.0.0.0/8", "192.168.1.0/24", "172.16.5.4"));
+        Assert.assertTrue(ranges.contains("10.255.255.255"));
+        Assert.assertTrue(ranges.contains("192.168.1.77"));
+        Assert.assertTrue(ranges.contains("172.16.5.4"));
+        Assert.assertFalse(ranges.contains("11.0.0.0"));
+        Assert.assertFalse(ranges.contains("192.168.2.1"));
+        Assert.assertFalse(ranges.contains("172.16.5.5"));
+    }
+
+    @Test
+    public void ipv6Ranges() {
+        IpAddressRanges ranges = IpAddressRanges.build(Arrays.asList("2001:db8::/32", "fe80::1", "::1",
+                "2001:0:0:1:0:0:0:0/64"));
+        Assert.assertTrue(ranges.contains("2001:db8:ffff::1"));
+        Assert.assertTrue(ranges.contains("2001:DB8::"));
+        Assert.assertTrue(ranges.contains("fe80:0:0:0:0:0:0:1"));
+        Assert.assertTrue(ranges.contains("0:0:0:0:0:0:0:1"));
+        Assert.assertTrue(ranges.contains("2001:0:0:1:ffff:ffff:ffff:ffff"));
+        Assert.assertFalse(ranges.contains("2001:db9::1"));
+        Assert.assertFalse(ranges.contains("fe80::2"));
+        Assert.assertFalse(ranges.contains("2001:0:0:2::"));
+    }
+
+    @Test
+    public void shorterRangeCoversLongerOnes() {
+        IpAddressRanges ranges = IpAddressRanges.build(Arrays.asList("10.1.2.3", "10.1.0.0/16", "10.0.0.0/8"));
+        Assert.assertEquals(3, ranges.size());
+        Assert.assertTrue(ranges.contains("10.1.2.3"));
+        Assert.assertTrue(ranges.contains("10.200.0.1"));
+
+        IpAddressRanges reversed = IpAddressRanges.build(Arrays.asList("10.0.0.0/8", "10.1.2.3"));
+        Assert.assertTrue(reversed.contains("10.1.2.4"));
+    }
+
+    @Test
+    public void zeroPrefixCoversTheFamilyOnly() {
+        IpAddressRanges ipv4 = IpAddressRanges.build(Collections.singletonList("0.0.0.0/0"));
+        Assert.assertTrue(ipv4.contains("203.0.113.9"));
+        Assert.assertFalse(ipv4.contains("2001:db8::1"));
+
+        IpAddressRanges ipv6 = IpAddressRanges.build(Collections.singletonList("::/0"));
+        Assert.assertTrue(ipv6.contains("2001:db8::1"));
+        Assert.assertFalse(ipv6.contains("203.0.113.9"));
+    }
+
+    @Test
+    public void ipv4MappedAddressesMatchIpv4Ranges() {
+        IpAddressRanges ranges = IpAddressRanges.build(Arrays.asList("10.0.0.0/8", "::ffff:192.168.0.0/112"));
+        Assert.assertTrue(ranges.contains("::ffff:10.1.2.3"));
+        Assert.assertTrue(ranges.contains("::ffff:a01:203"));
+        Assert.assertTrue(ranges.contains("0:0:0:0:0:ffff:10.1.2.3"));
+        Assert.assertTrue(ranges.contains("192.168.4.5"));
+        Assert.assertFalse(ranges.contains("::ffff:11.1.2.3"));
+        Assert.assertFalse(ranges.contains("::10.1.2.3"));
+    }
+
+    @Test
+    public void surroundingsOfTheAddressAreIgnored() {
+        IpAddressRanges ranges = IpAddressRanges.build(Arrays.asList("10.0.0.0/8", "fe80::/10"));
+        Assert.assertTrue(ranges.contains("  10.1.2.3  "));
+        Assert.assertTrue(ranges.contains("10.1.2.3:8080"));
+        Assert.assertTrue(ranges.contains("10.1.2.3, 192.0.2.1, 198.51.100.1"));
+        Assert.assertFalse(ranges.contains("192.0.2.1, 10.1.2.3"));
+        Assert.assertTrue(ranges.contains("[fe80::1]"));
+        Assert.assertTrue(ranges.contains("[fe80::1]:443"));
+        Assert.assertTrue(ranges.contains("fe80::1%eth0"));
+        Assert.assertTrue(ranges.contains("[fe80::1%25eth0]:443"));
+    }
+
+    @Test
+    public void largeSetsUseTheStrideIndex() {
+        List<String> entries = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            entries.add("10." + (i >> 8) + "." + (i & 0xFF) + ".0/24");
+            entries.add("2001:db8:" + Integer.toHexString(i) + "::/48");
+        }
+        IpAddressRanges ranges = IpAddressRanges.build(entries);
+        Assert.assertEquals(40000, ranges.size());
+        Assert.assertTrue(ranges.contains("10.0.0.1"));
+        Assert.assertTrue(ranges.contains("10.78.31.200"));
+        Assert.assertFalse(ranges.contains("10.78.32.1"));
+        Assert.assertTrue(ranges.contains("2001:db8:4e1f::1"));
+        Assert.assertFalse(ranges.contains("2001:db8:4e20::1"));
+        Assert.assertFalse(ranges.contains("11.0.0.1"));
+    }
+
+    @Test
+    public void parsedAddressesAreEqualAcrossForms() {
+        Assert.assertEquals(IpAddressRanges.parseAddress("10.1.2.3"), IpAddressRanges.parseAddress("::ffff:10.1.2.3"));
+        Assert.assertEquals(IpAddressRanges.parseAddress("10.1.2.3"), IpAddressRanges.parseAddress("10.1.2.3:80, 10.0.0.1"));
+        Assert.assertEquals(IpAddressRanges.parseAddress("2001:db8::1"),
+                IpAddressRanges.parseAddress("[2001:DB8:0:0:0:0:0:1%eth0]:443"));
+        Assert.assertEquals(IpAddressRanges.parseAddress("2001:db8::1").hashCode(),
+                IpAddressRanges.parseAddress("2001:db8:0::1").hashCode());
+        Assert.assertNotEquals(IpAddressRanges.parseAddress("10.1.2.3"), IpAddressRanges.parseAddress("::10.1.2.3"));
+        Assert.assertNull(IpAddressRanges.parseAddress("10.1.2.3/8"));
+        Assert.assertNull(IpAddressRanges.parseAddress(null));
+        Assert.assertNull(IpAddressRanges.parseAddress("[::1"));
+    }
+
+    @Test
+    public void parsingIntoAnAddressOverwritesIt() {
+        IpAddressRanges.Address address = new IpAddressRanges.Address();
+        Assert.assertTrue(IpAddressRanges.parseAddress("2001:db8::1", address));
+        Assert.assertEquals(IpAddressRanges.parseAddress("2001:db8::1"), address);
+        Assert.assertTrue(IpAddressRanges.parseAddress("10.1.2.3", address));
+        Assert.assertEquals(IpAddressRanges.parseAddress("10.1.2.3"), address);
+        Assert.assertFalse(IpAddressRanges.parseAddress("10.1.2", address));
+        Assert.assertEquals(IpAddressRanges.parseAddress("10.1.2.3"), address);
+    }
+}
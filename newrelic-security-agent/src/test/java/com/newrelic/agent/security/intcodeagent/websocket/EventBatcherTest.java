@@ -0,0 +1,113 @@
+package com.newrelic.agent.security.intcodeagent.websocket;
+
+import com.newrelic.agent.security.intcodeagent.models.javaagent.EventStats;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class EventBatcherTest {
+
+    private static final class RecordingSink implements EventBatcher.FrameSink {
+
+        private final List<String> frames = new ArrayList<>();
+
+        private final List<String> unsent = new ArrayList<>();
+
+        private boolean connected = true;
+
+        private boolean backlogged = false;
+
+        @Override
+        public boolean send(String frame) {
+            if (connected) {
+                frames.add(frame);
+            }
+            return connected;
+        }
+
+        @Override
+        public boolean isBacklogged() {
+            return backlogged;
+        }
+
+        @Override
+        public void unsent(String event) {
+            unsent.add(event);
+        }
+    }
+
+    @Test
+    public void pendingEventsAreSentAsJsonArray() {
+        RecordingSink sink = new RecordingSink();
+        sink.backlogged = true;
+        EventBatcher batcher = new EventBatcher(sink, 100, 1024, 60000);
+        // Grows the target batch size while the socket is backlogged.
+        batcher.add("{\"id\":0}", null, false);
+        batcher.add("{\"id\":1}", null, true);
+        batcher.add("{\"id\":2}", null, false);
+        Assert.assertEquals(2, sink.frames.size());
+        Assert.assertEquals("[{\"id\":0}]", sink.frames.get(0));
+        Assert.assertEquals("[{\"id\":1},{\"id\":2}]", sink.frames.get(1));
+        Assert.assertEquals(3, batcher.getEventCount());
+    }
+
+    @Test
+    public void eventsCountAsSentOnceTheirFrameIsSent() {
+        RecordingSink sink = new RecordingSink();
+        EventStats stats = new EventStats();
+        EventBatcher batcher = new EventBatcher(sink, 100, 1024, 60000);
+        sink.backlogged = true;
+        batcher.add("{}", stats, false);
+        batcher.add("{}", stats, true);
+        Assert.assertEquals(1, stats.getSent().get());
+        Assert.assertEquals(1, batcher.getPendingEvents());
+        batcher.flush();
+        Assert.assertEquals(2, stats.getSent().get());
+    }
+
+    @Test
+    public void unsentFrameIsHandedBack() {
+        RecordingSink sink = new RecordingSink();
+        EventStats stats = new EventStats();
+        EventBatcher batcher = new EventBatcher(sink, 100, 1024, 60000);
+        sink.connected = false;
+        batcher.add("{\"id\":0}", stats, false);
+        Assert.assertTrue(sink.frames.isEmpty());
+        Assert.assertEquals(1, sink.unsent.size());
+        Assert.assertEquals("{\"id\":0}", sink.unsent.get(0));
+        Assert.assertEquals(0, stats.getSent().get());
+        Assert.assertEquals(0, batcher.getPendingEvents());
+    }
+
+    @Test
+    public void drainHandsBackPendingEvents() {
+        RecordingSink sink = new RecordingSink();
+        sink.backlogged = true;
+        EventBatcher batcher = new EventBatcher(sink, 100, 1024, 60000);
+        batcher.add("{\"id\":0}", null, false);
+        batcher.add("{\"id\":1}", null, true);
+        batcher.drain();
+        Assert.assertEquals(1, sink.frames.size());
+        Assert.assertEquals(1, sink.unsent.size());
+        Assert.assertTrue(batcher.flush());
+        Assert.assertEquals(1, sink.frames.size());
+    }
+
+    @Test
+    public void frameStaysUnderMaxBytes() {
+        RecordingSink sink = new RecordingSink();
+        EventBatcher batcher = new EventBatcher(sink, 100, 20, 60000);
+        sink.backlogged = true;
+        batcher.add("{\"id\":0}", null, false);
+        for (int i = 1; i <= 4; i++) {
+            batcher.add("{\"id\":" + i + "}", null, true);
+        }
+        batcher.flush();
+        for (String frame : sink.frames) {
+            Assert.assertTrue(frame, frame.length() <= 20);
+        }
+        Assert.assertEquals(5, batcher.getEventCount());
+    }
+}
@@ -17,6 +17,7 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 public class Agent implements SecurityAgent {
 
@@ -181,6 +182,21 @@ public class Agent implements SecurityAgent {
 
     }
 
+    @Override
+    public void log(LogLevel logLevel, Supplier<String> event, Throwable throwableEvent, String logSourceClassName) {
+
+    }
+
+    @Override
+    public void log(LogLevel logLevel, Supplier<String> event, String logSourceClassName) {
+
+    }
+
+    @Override
+    public boolean isLogLevelEnabled(LogLevel logLevel) {
+        return false;
+    }
+
     @Override
     public void reportIncident(LogLevel logLevel, String event, Throwable exception, String caller) {
 
@@ -195,4 +211,9 @@ public class Agent implements SecurityAgent {
     public String decryptAndVerify(String encryptedData, String hashVerifier) {
         return null;
     }
+
+    @Override
+    public boolean isIpBlocked(String ip) {
+        return false;
+    }
 }
\ No newline at end of file
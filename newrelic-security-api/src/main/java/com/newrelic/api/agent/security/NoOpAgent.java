@@ -17,6 +17,7 @@ import java.lang.instrument.Instrumentation;
 import java.net.URL;
 import java.util.Collections;
 import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  * Provides NoOps for API objects to avoid returning <code>null</code>. Do not call these objects directly.
@@ -113,6 +114,21 @@ class NoOpAgent implements SecurityAgent {
 
     }
 
+    @Override
+    public void log(LogLevel logLevel, Supplier<String> event, Throwable throwableEvent, String logSourceClassName) {
+
+    }
+
+    @Override
+    public void log(LogLevel logLevel, Supplier<String> event, String logSourceClassName) {
+
+    }
+
+    @Override
+    public boolean isLogLevelEnabled(LogLevel logLevel) {
+        return false;
+    }
+
     @Override
     public void reportIncident(LogLevel logLevel, String event, Throwable exception, String caller) {
 
@@ -126,5 +142,10 @@ class NoOpAgent implements SecurityAgent {
         return null;
     }
 
+    @Override
+    public boolean isIpBlocked(String ip) {
+        return false;
+    }
+
 
 }
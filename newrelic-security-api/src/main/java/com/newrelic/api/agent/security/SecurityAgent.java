@@ -15,6 +15,7 @@ import com.newrelic.api.agent.security.utils.logging.LogLevel;
 import java.lang.instrument.Instrumentation;
 import java.net.URL;
 import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  * The New Relic Security Java Agent's API.
@@ -62,9 +63,31 @@ public interface SecurityAgent {
 
     void log(LogLevel logLevel, String event, String logSourceClassName);
 
+    /**
+     * Same as {@link #log(LogLevel, String, Throwable, String)}, the message is only built if the level is enabled.
+     */
+    void log(LogLevel logLevel, Supplier<String> event, Throwable throwableEvent, String logSourceClassName);
+
+    /**
+     * Same as {@link #log(LogLevel, String, String)}, the message is only built if the level is enabled.
+     */
+    void log(LogLevel logLevel, Supplier<String> event, String logSourceClassName);
+
+    /**
+     * @param logLevel the level to check
+     * @return whether messages of the given level are written to the agent log
+     */
+    boolean isLogLevelEnabled(LogLevel logLevel);
+
     void reportIncident(LogLevel logLevel, String event, Throwable exception, String caller);
 
     void retransformUninstrumentedClass(Class<?> classToRetransform);
 
     String decryptAndVerify(String encryptedData, String hashVerifier);
+
+    /**
+     * @param ip the client IP of a request
+     * @return whether requests from the IP are blocked by the IP blocking of protection mode
+     */
+    boolean isIpBlocked(String ip);
 }
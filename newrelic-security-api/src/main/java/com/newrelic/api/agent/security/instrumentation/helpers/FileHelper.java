@@ -1,18 +1,15 @@
 package com.newrelic.api.agent.security.instrumentation.helpers;
 
 import com.newrelic.api.agent.security.NewRelicSecurity;
+import com.newrelic.api.agent.security.schema.LockKind;
 import com.newrelic.api.agent.security.schema.StringUtils;
 import com.newrelic.api.agent.security.schema.operation.FileIntegrityOperation;
+import com.newrelic.api.agent.security.utils.FileAttributeReader;
 
 import java.io.File;
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.nio.file.attribute.PosixFileAttributes;
-import java.nio.file.attribute.PosixFilePermission;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
 
 public class FileHelper {
 
@@ -88,71 +85,47 @@ public class FileHelper {
             return "";
     }
 
+    /**
+     * Records the state of a source file before it is operated on, once per request. The attributes are read with a
+     * single call to the file system, see {@link FileAttributeReader}.
+     */
     public static FileIntegrityOperation createEntryOfFileIntegrity(String fileName, String className, String methodName) {
-        File file = Paths.get(fileName).toFile();
-        String extension = getFileExtension(file);
-        if (SOURCE_EXENSIONS.contains(extension) &&
-                !NewRelicSecurity.getAgent().getSecurityMetaData().getFileLocalMap().containsKey(fileName)) {
-            long lastModified = file.exists()? file.lastModified() : -1;
-            String permissions = StringUtils.EMPTY;
-            try {
-                if(file.exists()) {
-                    PosixFileAttributes fileAttributes = Files.readAttributes(Paths.get(file.getPath()), PosixFileAttributes.class);
-                    Set<PosixFilePermission> permissionSet = fileAttributes.permissions();
-                    permissions = permissionSet.toString();
-                }
-            } catch (IOException e) {
-            }
-            long fileLength = file.length();
-            FileIntegrityOperation fbean = new FileIntegrityOperation(file.exists(), fileName, className,
-                    methodName, lastModified, permissions, fileLength);
-            NewRelicSecurity.getAgent().getSecurityMetaData().getFileLocalMap().put(fileName,
-                    fbean);
-            return fbean;
+        if (!SOURCE_EXENSIONS.contains(getFileExtension(new File(fileName)))) {
+            return null;
+        }
+        Map<String, FileIntegrityOperation> fileLocalMap = NewRelicSecurity.getAgent().getSecurityMetaData().getFileLocalMap();
+        if (fileLocalMap.containsKey(fileName)) {
+            return null;
         }
-        return null;
+        FileAttributeReader.Attributes attributes = FileAttributeReader.getAttributes(fileName);
+        FileIntegrityOperation fbean = new FileIntegrityOperation(attributes.exists(), fileName, className,
+                methodName, attributes.getLastModified(), attributes.getPermissions(), attributes.getLength());
+        fileLocalMap.put(fileName, fbean);
+        return fbean;
     }
 
     public static void checkEntryOfFileIntegrity(List<String> fileNames) {
+        Map<String, FileIntegrityOperation> fileLocalMap = NewRelicSecurity.getAgent().getSecurityMetaData().getFileLocalMap();
+        if (fileLocalMap.isEmpty()) {
+            return;
+        }
         for (String fileName : fileNames) {
-            File file = Paths.get(fileName).toFile();
-            if(NewRelicSecurity.getAgent().getSecurityMetaData().getFileLocalMap().containsKey(fileName)){
-                FileIntegrityOperation fbean = NewRelicSecurity.getAgent().getSecurityMetaData().getFileLocalMap().get(fileName);
-                if(fbean.isIntegrityBreached(file)){
-                    NewRelicSecurity.getAgent().registerOperation(fbean);
-                }
+            FileIntegrityOperation fbean = fileLocalMap.get(fileName);
+            if (fbean != null && fbean.isIntegrityBreached(FileAttributeReader.getAttributes(fileName))) {
+                NewRelicSecurity.getAgent().registerOperation(fbean);
             }
         }
     }
 
     public static boolean isFileLockAcquired() {
-        try {
-            return NewRelicSecurity.isHookProcessingActive() &&
-                    Boolean.TRUE.equals(NewRelicSecurity.getAgent().getSecurityMetaData().getCustomAttribute(getNrSecCustomAttribName(), Boolean.class));
-        } catch (Throwable ignored) {}
-        return false;
+        return GenericHelper.isLockAcquired(LockKind.FILE_OPERATION);
     }
 
     public static boolean acquireFileLockIfPossible() {
-        try {
-            if (NewRelicSecurity.isHookProcessingActive() &&
-                    !isFileLockAcquired()) {
-                NewRelicSecurity.getAgent().getSecurityMetaData().addCustomAttribute(getNrSecCustomAttribName(), true);
-                return true;
-            }
-        } catch (Throwable ignored){}
-        return false;
+        return GenericHelper.acquireLockIfPossible(LockKind.FILE_OPERATION);
     }
 
     public static void releaseFileLock() {
-        try {
-            if(NewRelicSecurity.isHookProcessingActive()) {
-                NewRelicSecurity.getAgent().getSecurityMetaData().addCustomAttribute(getNrSecCustomAttribName(), null);
-            }
-        } catch (Throwable ignored){}
-    }
-
-    private static String getNrSecCustomAttribName() {
-        return NR_SEC_CUSTOM_ATTRIB_NAME + Thread.currentThread().getId();
+        GenericHelper.releaseLock(LockKind.FILE_OPERATION);
     }
 }
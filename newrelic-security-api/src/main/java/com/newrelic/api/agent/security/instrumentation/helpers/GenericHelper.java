@@ -1,6 +1,7 @@
 package com.newrelic.api.agent.security.instrumentation.helpers;
 
 import com.newrelic.api.agent.security.NewRelicSecurity;
+import com.newrelic.api.agent.security.schema.LockKind;
 
 import java.util.regex.Pattern;
 
@@ -28,46 +29,76 @@ public class GenericHelper {
         return false;
     }
 
-    private static String getNrSecCustomAttribName(String nrSecCustomAttrName, int hashCode) {
-        return nrSecCustomAttrName + Thread.currentThread().getId() + hashCode;
-    }
-
     public static boolean isLockAcquired(String nrSecCustomAttrName) {
         return isLockAcquired(nrSecCustomAttrName, 0);
     }
 
     public static boolean isLockAcquired(String nrSecCustomAttrName, int hashCode) {
+        return isLockAcquired(nrSecCustomAttrName.hashCode(), hashCode, true);
+    }
+
+    public static boolean acquireLockIfPossible(String nrSecCustomAttrName, int hashCode) {
+        return acquireLockIfPossible(nrSecCustomAttrName.hashCode(), hashCode, true);
+    }
+
+    public static void releaseLock(String nrSecCustomAttrName, int hashCode) {
+        releaseLock(nrSecCustomAttrName.hashCode(), hashCode, true);
+    }
+
+    public static boolean acquireLockIfPossible(String nrSecCustomAttrName) {
+        return acquireLockIfPossible(nrSecCustomAttrName, 0);
+    }
+
+    public static void releaseLock(String nrSecCustomAttrName) {
+        releaseLock(nrSecCustomAttrName, 0);
+    }
+
+    public static boolean isLockAcquired(LockKind lockKind) {
+        return isLockAcquired(lockKind.getId(), 0, lockKind.isThreadScoped());
+    }
+
+    public static boolean isLockAcquired(LockKind lockKind, int hashCode) {
+        return isLockAcquired(lockKind.getId(), hashCode, lockKind.isThreadScoped());
+    }
+
+    public static boolean acquireLockIfPossible(LockKind lockKind) {
+        return acquireLockIfPossible(lockKind.getId(), 0, lockKind.isThreadScoped());
+    }
+
+    public static boolean acquireLockIfPossible(LockKind lockKind, int hashCode) {
+        return acquireLockIfPossible(lockKind.getId(), hashCode, lockKind.isThreadScoped());
+    }
+
+    public static void releaseLock(LockKind lockKind) {
+        releaseLock(lockKind.getId(), 0, lockKind.isThreadScoped());
+    }
+
+    public static void releaseLock(LockKind lockKind, int hashCode) {
+        releaseLock(lockKind.getId(), hashCode, lockKind.isThreadScoped());
+    }
+
+    private static boolean isLockAcquired(int lockKindId, int hashCode, boolean threadScoped) {
         try {
             return NewRelicSecurity.isHookProcessingActive() &&
-                    Boolean.TRUE.equals(NewRelicSecurity.getAgent().getSecurityMetaData().getCustomAttribute(getNrSecCustomAttribName(nrSecCustomAttrName, hashCode), Boolean.class));
+                    NewRelicSecurity.getAgent().getSecurityMetaData().getReentrancyGuard().isHeld(lockKindId, hashCode, threadScoped);
         } catch (Throwable ignored) {}
         return false;
     }
 
-    public static boolean acquireLockIfPossible(String nrSecCustomAttrName, int hashCode) {
+    private static boolean acquireLockIfPossible(int lockKindId, int hashCode, boolean threadScoped) {
         try {
-            if (NewRelicSecurity.isHookProcessingActive() &&
-                    !isLockAcquired(nrSecCustomAttrName, hashCode)) {
-                NewRelicSecurity.getAgent().getSecurityMetaData().addCustomAttribute(getNrSecCustomAttribName(nrSecCustomAttrName, hashCode), true);
-                return true;
+            if (NewRelicSecurity.isHookProcessingActive()) {
+                return NewRelicSecurity.getAgent().getSecurityMetaData().getReentrancyGuard().tryAcquire(lockKindId, hashCode, threadScoped);
             }
         } catch (Throwable ignored){}
         return false;
     }
 
-    public static void releaseLock(String nrSecCustomAttrName, int hashCode) {
+    private static void releaseLock(int lockKindId, int hashCode, boolean threadScoped) {
         try {
             if(NewRelicSecurity.isHookProcessingActive()) {
-                NewRelicSecurity.getAgent().getSecurityMetaData().addCustomAttribute(getNrSecCustomAttribName(nrSecCustomAttrName, hashCode), null);
+                NewRelicSecurity.getAgent().getSecurityMetaData().getReentrancyGuard().release(lockKindId, hashCode, threadScoped);
             }
         } catch (Throwable ignored){}
     }
-
-    public static boolean acquireLockIfPossible(String nrSecCustomAttrName) {
-        return acquireLockIfPossible(nrSecCustomAttrName, 0);
-    }
-
-    public static void releaseLock(String nrSecCustomAttrName) {
-        releaseLock(nrSecCustomAttrName, 0);
-    }
 }
@@ -1,13 +1,19 @@
 package com.newrelic.api.agent.security.instrumentation.helpers;
 
 import com.newrelic.api.agent.security.NewRelicSecurity;
+import com.newrelic.api.agent.security.schema.ApplicationURLMapping;
 import com.newrelic.api.agent.security.schema.HttpRequest;
 import com.newrelic.api.agent.security.schema.SecurityMetaData;
 import com.newrelic.api.agent.security.schema.StringUtils;
+import com.newrelic.api.agent.security.utils.DecayingBloomFilter;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 public class LowSeverityHelper {
 
@@ -15,34 +21,282 @@ public class LowSeverityHelper {
     public static final boolean DEFAULT = true;
     public static final String LOW_PRIORITY_INSTRUMENTATION = "LOW-PRIORITY-INSTRUMENTATION";
 
-    private static Set<Integer> encounteredLowSeverityEventURIHash = ConcurrentHashMap.newKeySet();
+    private static final String WILDCARD = "*";
+
+    private static final String QUESTION_MARK = "?";
+
+    /**
+     * The filter forgets a request URI between {@code (FILTER_GENERATIONS - 1) * FILTER_ROTATION_PERIOD_MINUTES} and
+     * {@code FILTER_GENERATIONS * FILTER_ROTATION_PERIOD_MINUTES} after it was added.
+     */
+    public static final int FILTER_GENERATIONS = 6;
+
+    public static final long FILTER_ROTATION_PERIOD_MINUTES = 5;
+
+    /**
+     * 2^17 bits per generation, about 0.1% false positives per generation with 5000 request URIs.
+     */
+    private static final int FILTER_LOG2_BITS_PER_GENERATION = 17;
+
+    private static final int FILTER_HASH_COUNT = 3;
+
+    /**
+     * A generation is rotated early past about 12k request URIs, with about 1.5% false positives per generation.
+     */
+    private static final double FILTER_MAX_FILL_RATIO = 0.25;
+
+    private static final DecayingBloomFilter encounteredLowSeverityEventURIHash = new DecayingBloomFilter(FILTER_GENERATIONS, FILTER_LOG2_BITS_PER_GENERATION, FILTER_HASH_COUNT, FILTER_MAX_FILL_RATIO);
+
+    /**
+     * Endpoints of the application URL mappings with the filter generation they were last reported in, rebuilt once
+     * the mappings changed so that reporting a request URI only takes map lookups.
+     */
+    private static volatile EndpointIndex endpointIndex = new EndpointIndex(-1, Collections.<ApplicationURLMapping>emptySet(), null);
+
+    private static final AtomicLong mappingsVersion = new AtomicLong();
+
+    private static final Object coverageLock = new Object();
+
+    private static volatile boolean allEndpointsReported = false;
+
+    /**
+     * Filter generation the reported endpoints were last expired at, the filter also rotates on its own once full.
+     */
+    private static volatile long expiredGeneration = 0;
+
+    private static long filterKey(int urlHashCode, String method) {
+        return ((long) urlHashCode << 32) | ((method == null ? 0 : method.hashCode()) & 0xFFFFFFFFL);
+    }
 
     public static boolean addLowSeverityEventToEncounteredList(Integer urlHashCode, String method) {
-        return encounteredLowSeverityEventURIHash.add(StringUtils.join(urlHashCode, method).hashCode());
+        return encounteredLowSeverityEventURIHash.add(filterKey(urlHashCode, method));
     }
 
     public static boolean checkIfLowSeverityEventAlreadyEncountered(Integer urlHashCode, String method) {
-        return encounteredLowSeverityEventURIHash.contains(StringUtils.join(urlHashCode, method).hashCode());
+        return encounteredLowSeverityEventURIHash.mightContain(filterKey(urlHashCode, method));
     }
 
     public static void clearLowSeverityEventFilter() {
-        encounteredLowSeverityEventURIHash.clear();
+        synchronized (coverageLock) {
+            encounteredLowSeverityEventURIHash.clear();
+            expiredGeneration = encounteredLowSeverityEventURIHash.getGeneration();
+            endpointIndex = new EndpointIndex(mappingsVersion.get(), URLMappingsHelper.getApplicationURLMappings(), null);
+            allEndpointsReported = false;
+        }
+    }
+
+    /**
+     * Forgets the request URIs of the oldest filter generation, so that their endpoints are reported again.
+     */
+    public static void rotateLowSeverityEventFilter() {
+        synchronized (coverageLock) {
+            encounteredLowSeverityEventURIHash.rotate();
+            expireEndpoints();
+        }
+    }
+
+    private static void expireEndpoints() {
+        long generation = encounteredLowSeverityEventURIHash.getGeneration();
+        expiredGeneration = generation;
+        long oldestLiveGeneration = generation - encounteredLowSeverityEventURIHash.getGenerationCount() + 1;
+        if (endpointIndex.expire(oldestLiveGeneration)) {
+            allEndpointsReported = false;
+        }
     }
 
+    public static DecayingBloomFilter getLowSeverityEventFilter() {
+        return encounteredLowSeverityEventURIHash;
+    }
+
+    /**
+     * Request URIs are keyed on their path, so that query strings do not make each request look new.
+     */
+    private static String filterPath(String url) {
+        return StringUtils.substringBefore(url, QUESTION_MARK);
+    }
 
     public static boolean addRrequestUriToEventFilter(HttpRequest request) {
         if(request!= null && StringUtils.isNotBlank(request.getUrl())) {
-            return addLowSeverityEventToEncounteredList(request.getUrl().hashCode(), request.getMethod());
+            String path = filterPath(request.getUrl());
+            if (allEndpointsReported) {
+                // Low priority hooks were turned off while this request ran, an endpoint seen for the first time
+                // must be served with them before it is filtered.
+                if (!checkIfLowSeverityEventAlreadyEncountered(path.hashCode(), request.getMethod())) {
+                    onNewEndpoint();
+                }
+                return false;
+            }
+            boolean added = addLowSeverityEventToEncounteredList(path.hashCode(), request.getMethod());
+            if (encounteredLowSeverityEventURIHash.getGeneration() != expiredGeneration) {
+                synchronized (coverageLock) {
+                    expireEndpoints();
+                }
+            }
+            if (added) {
+                updateEndpointCoverage(request.getMethod(), path);
+            }
+            return added;
         }
         return false;
     }
 
+    /**
+     * Whether every endpoint of the application URL mappings has been reported through the filter, in which case the
+     * low priority hooks can be turned off altogether until a new endpoint shows up. Only mappings with a literal
+     * path can be reported, so applications with templated routes keep the hooks on.
+     *
+     * @return {@code true} if all the known endpoints have been reported
+     */
+    public static boolean isAllEndpointsReported() {
+        return allEndpointsReported;
+    }
+
+    /**
+     * Turns the low priority hooks back on, to be called when an endpoint not reported yet appears.
+     */
+    public static void onNewEndpoint() {
+        synchronized (coverageLock) {
+            allEndpointsReported = false;
+        }
+    }
+
+    /**
+     * Turns the low priority hooks back on and has the endpoints indexed again, to be called when an application URL
+     * mapping is added.
+     */
+    public static void onApplicationURLMappingAdded() {
+        mappingsVersion.incrementAndGet();
+        onNewEndpoint();
+    }
+
+    private static void updateEndpointCoverage(String method, String path) {
+        EndpointIndex index = endpointIndex;
+        if (index.version != mappingsVersion.get()) {
+            synchronized (coverageLock) {
+                index = endpointIndex;
+                long version = mappingsVersion.get();
+                if (index.version != version) {
+                    index = new EndpointIndex(version, URLMappingsHelper.getApplicationURLMappings(), index);
+                    endpointIndex = index;
+                }
+            }
+        }
+        long generation = encounteredLowSeverityEventURIHash.getGeneration();
+        boolean covered = index.report(endpointKey(WILDCARD, path), generation);
+        covered |= index.report(endpointKey(method, path), generation);
+        if (covered) {
+            allEndpointsReported = true;
+            // A concurrent rotation may have expired an endpoint in the meantime.
+            if (!index.isCovered()) {
+                allEndpointsReported = false;
+            }
+        }
+    }
+
+    private static String endpointKey(String method, String path) {
+        return (method == null ? StringUtils.EMPTY : method.toUpperCase()) + ' ' + path;
+    }
+
+    /**
+     * The endpoints to report for the application URL mappings of a given version. A mapping without method, or with
+     * a wildcard method, is reported by any request to its path.
+     */
+    private static final class EndpointIndex {
+
+        private static final long NOT_REPORTED = Long.MIN_VALUE;
+
+        private final long version;
+
+        private final Map<String, Integer> endpoints = new HashMap<>();
+
+        private final AtomicLongArray reportedGenerations;
+
+        private final AtomicInteger unreported;
+
+        /**
+         * Only mappings with a literal path can be reported, so applications with templated routes keep the hooks on.
+         */
+        private final boolean coverable;
+
+        private EndpointIndex(long version, Set<ApplicationURLMapping> mappings, EndpointIndex previous) {
+            this.version = version;
+            boolean hasPathlessMapping = false;
+            for (ApplicationURLMapping mapping : mappings) {
+                if (mapping.getPath() == null) {
+                    hasPathlessMapping = true;
+                    continue;
+                }
+                String method = mapping.getMethod() == null ? WILDCARD : mapping.getMethod();
+                endpoints.putIfAbsent(endpointKey(method, mapping.getPath()), endpoints.size());
+            }
+            this.coverable = !hasPathlessMapping && !endpoints.isEmpty();
+            this.reportedGenerations = new AtomicLongArray(endpoints.size());
+            int unreportedCount = 0;
+            for (Map.Entry<String, Integer> endpoint : endpoints.entrySet()) {
+                long generation = previous == null ? NOT_REPORTED : previous.reportedGeneration(endpoint.getKey());
+                reportedGenerations.set(endpoint.getValue(), generation);
+                if (generation == NOT_REPORTED) {
+                    unreportedCount++;
+                }
+            }
+            this.unreported = new AtomicInteger(unreportedCount);
+        }
+
+        private long reportedGeneration(String endpointKey) {
+            Integer index = endpoints.get(endpointKey);
+            return index == null ? NOT_REPORTED : reportedGenerations.get(index);
+        }
+
+        /**
+         * @return {@code true} if reporting the endpoint completed the coverage of the mappings
+         */
+        private boolean report(String endpointKey, long generation) {
+            Integer index = endpoints.get(endpointKey);
+            if (index == null) {
+                return false;
+            }
+            if (reportedGenerations.getAndSet(index, generation) != NOT_REPORTED) {
+                return false;
+            }
+            return unreported.decrementAndGet() == 0 && coverable;
+        }
+
+        /**
+         * @return whether an endpoint reported before the given generation was forgotten
+         */
+        private boolean expire(long oldestLiveGeneration) {
+            boolean expired = false;
+            for (int i = 0; i < reportedGenerations.length(); i++) {
+                long generation = reportedGenerations.get(i);
+                if (generation != NOT_REPORTED && generation < oldestLiveGeneration
+                        && reportedGenerations.compareAndSet(i, generation, NOT_REPORTED)) {
+                    unreported.incrementAndGet();
+                    expired = true;
+                }
+            }
+            return expired;
+        }
+
+        private boolean isCovered() {
+            return coverable && unreported.get() == 0;
+        }
+    }
+
+    /**
+     * The decision is taken once per transaction and request URL, later calls only compare the URL reference.
+     */
     public static boolean isOwaspHookProcessingNeeded(){
         SecurityMetaData securityMetaData = NewRelicSecurity.getAgent().getSecurityMetaData();
         if(NewRelicSecurity.isHookProcessingActive() && securityMetaData != null && !securityMetaData.getRequest().isEmpty()) {
             String requestURL = securityMetaData.getRequest().getUrl();
-            return (securityMetaData.getFuzzRequestIdentifier() != null && securityMetaData.getFuzzRequestIdentifier().getK2Request())
-                    || (StringUtils.isNotBlank(requestURL) && !LowSeverityHelper.checkIfLowSeverityEventAlreadyEncountered(requestURL.hashCode(), securityMetaData.getRequest().getMethod()));
+            Boolean cached = securityMetaData.getLowSeverityHookProcessingNeeded(requestURL);
+            if (cached != null) {
+                return cached;
+            }
+            boolean needed = (securityMetaData.getFuzzRequestIdentifier() != null && securityMetaData.getFuzzRequestIdentifier().getK2Request())
+                    || (StringUtils.isNotBlank(requestURL) && !LowSeverityHelper.checkIfLowSeverityEventAlreadyEncountered(filterPath(requestURL).hashCode(), securityMetaData.getRequest().getMethod()));
+            securityMetaData.setLowSeverityHookProcessingNeeded(requestURL, needed);
+            return needed;
         }
         return false;
     }
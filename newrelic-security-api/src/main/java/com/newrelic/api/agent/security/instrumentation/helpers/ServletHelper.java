@@ -5,6 +5,8 @@ import com.newrelic.api.agent.security.schema.APIRecordStatus;
 import com.newrelic.api.agent.security.schema.K2RequestIdentifier;
 import com.newrelic.api.agent.security.schema.SecurityMetaData;
 import com.newrelic.api.agent.security.schema.StringUtils;
+import com.newrelic.api.agent.security.schema.exceptions.NewRelicSecurityException;
+import com.newrelic.api.agent.security.utils.StackTraceCapture;
 import com.newrelic.api.agent.security.utils.logging.LogLevel;
 
 import java.io.File;
@@ -13,7 +15,6 @@ import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -27,6 +28,8 @@ public class ServletHelper {
     public static final String CSEC_IAST_FUZZ_REQUEST_ID = "nr-csec-fuzz-request-id";
 
     public static final String CSEC_DISTRIBUTED_TRACING_HEADER = "NR-CSEC-TRACING-DATA";
+    public static final String IP_BLOCKED_MESSAGE = "Request from blocked IP %s";
+    public static final String REJECTING_REQUESTS_FROM_BLOCKED_IP_S = "Rejecting requests from blocked IP %s";
     public static final String SERVLET_GET_IS_OPERATION_LOCK = "SERVLET_GET_IS_OPERATION_LOCK-";
     public static final String SERVLET_GET_READER_OPERATION_LOCK = "SERVLET_GET_READER_OPERATION_LOCK-";
     public static final String SERVLET_GET_OS_OPERATION_LOCK = "SERVLET_GET_OS_OPERATION_LOCK-";
@@ -35,6 +38,13 @@ public class ServletHelper {
     public static final String NR_SEC_HTTP_SERVLET_RESPONSE_ATTRIB_NAME = "NR-CSEC-HTTP-SERVLET-RESPONSE-";
 
     private static Set<String> filesToRemove = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Blocked IPs already logged, cleared once it holds {@link #MAX_LOGGED_BLOCKED_IPS} IPs.
+     */
+    private static final Set<String> loggedBlockedIps = ConcurrentHashMap.newKeySet();
+    private static final int MAX_LOGGED_BLOCKED_IPS = 1000;
+
     private static final Set<String> unsupportedContentType = new HashSet<String>() {{
         add("application/zip");
         add("application/epub+zip");
@@ -165,8 +175,7 @@ public class ServletHelper {
             SecurityMetaData securityMetaData = NewRelicSecurity.getAgent().getSecurityMetaData();
             if (!securityMetaData.getMetaData().isUserLevelServiceMethodEncountered(frameworkName)) {
                 securityMetaData.getMetaData().setUserLevelServiceMethodEncountered(true);
-                StackTraceElement[] trace = Thread.currentThread().getStackTrace();
-                securityMetaData.getMetaData().setServiceTrace(Arrays.copyOfRange(trace, asyncContext?2:3, trace.length));
+                securityMetaData.getMetaData().setServiceTrace(StackTraceCapture.captureStackTrace(asyncContext ? 1 : 2));
                 return true;
             }
         } catch (Throwable ignored) {
@@ -175,6 +184,27 @@ public class ServletHelper {
     }
 
 
+    /**
+     * Rejects the request at entry if its client IP is blocked, to be called once the client IP of the request is
+     * known. Each blocked IP is logged once, the hooks log the rejected requests at FINE only.
+     *
+     * @throws NewRelicSecurityException if the client IP is blocked
+     */
+    public static void checkClientIpBlocking(SecurityMetaData securityMetaData) {
+        String clientIP = securityMetaData.getRequest().getClientIP();
+        if (NewRelicSecurity.getAgent().isIpBlocked(clientIP)) {
+            if (!loggedBlockedIps.contains(clientIP)) {
+                if (loggedBlockedIps.size() >= MAX_LOGGED_BLOCKED_IPS) {
+                    loggedBlockedIps.clear();
+                }
+                if (loggedBlockedIps.add(clientIP)) {
+                    NewRelicSecurity.getAgent().log(LogLevel.INFO, String.format(REJECTING_REQUESTS_FROM_BLOCKED_IP_S, clientIP), ServletHelper.class.getName());
+                }
+            }
+            throw new NewRelicSecurityException(String.format(IP_BLOCKED_MESSAGE, clientIP));
+        }
+    }
+
     public static Set<String> getFilesToRemove() {
         return filesToRemove;
     }
@@ -188,6 +218,14 @@ public class ServletHelper {
         }
     }
 
+    /**
+     * Returns the body capture buffers of the request and response to their pool, once the request is served.
+     */
+    public static void releaseBodyCaptures(SecurityMetaData securityMetaData) {
+        securityMetaData.getRequest().releaseBodyCapture();
+        securityMetaData.getResponse().releaseBodyCapture();
+    }
+
     public static boolean isResponseContentTypeExcluded( String responseContentType) {
         if (StringUtils.isBlank(responseContentType)) {
             return false;
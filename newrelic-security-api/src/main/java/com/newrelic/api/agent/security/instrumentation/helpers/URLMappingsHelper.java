@@ -13,6 +13,8 @@ public class URLMappingsHelper {
     }
 
     public static void addApplicationURLMapping(ApplicationURLMapping mapping) {
-        mappings.add(mapping);
+        if (mappings.add(mapping)) {
+            LowSeverityHelper.onApplicationURLMappingAdded();
+        }
     }
 }
@@ -1,6 +1,7 @@
 package com.newrelic.api.agent.security.schema;
 
 import com.newrelic.api.agent.security.schema.annotations.JsonIgnore;
+import com.newrelic.api.agent.security.utils.StackTraceCapture;
 
 import java.util.HashMap;
 import java.util.HashSet;
@@ -17,18 +18,24 @@ public class AgentMetaData {
 
     private boolean isClientDetectedFromXFF;
 
-    private Set<String> rciMethodsCalls;
+    private volatile Set<String> rciMethodsCalls;
 
     @JsonIgnore
     private boolean apiBlocked = false;
 
-    private Map<String, String> userDataTranslationMap;
+    private volatile Map<String, String> userDataTranslationMap;
 
-    private Map<String, String> reflectedMetaData;
+    private volatile Map<String, String> reflectedMetaData;
 
     @JsonIgnore
     private StackTraceElement[] serviceTrace;
 
+    /**
+     * Stack captured at the service entry, turned into {@link #serviceTrace} only once it is read.
+     */
+    @JsonIgnore
+    private volatile StackTraceCapture deferredServiceTrace;
+
     @JsonIgnore
     private boolean userLevelServiceMethodEncountered = false;
 
@@ -36,31 +43,27 @@ public class AgentMetaData {
     private String userLevelServiceMethodEncounteredFramework;
 
     @JsonIgnore
-    private Set<String> ips;
+    private volatile Set<String> ips;
 
-    private AppServerInfo appServerInfo;
+    private volatile AppServerInfo appServerInfo;
 
     public AgentMetaData() {
-        this.rciMethodsCalls = new HashSet<>();
-        this.ips = new HashSet<>();
-        this.userDataTranslationMap = new HashMap<>();
-        this.reflectedMetaData = new HashMap<>();
-        this.appServerInfo = new AppServerInfo();
     }
 
     public AgentMetaData(AgentMetaData agentMetaData) {
         this.rciMethodsCalls = new HashSet<>();
-        this.rciMethodsCalls.addAll(agentMetaData.rciMethodsCalls);
+        this.rciMethodsCalls.addAll(agentMetaData.getRciMethodsCalls());
         this.triggerViaDeserialisation = agentMetaData.triggerViaDeserialisation;
         this.triggerViaRCI = agentMetaData.triggerViaRCI;
         this.isClientDetectedFromXFF = agentMetaData.isClientDetectedFromXFF;
         this.serviceTrace = agentMetaData.serviceTrace;
-        this.ips = new HashSet<>(agentMetaData.ips);
+        this.deferredServiceTrace = agentMetaData.deferredServiceTrace;
+        this.ips = new HashSet<>(agentMetaData.getIps());
         this.apiBlocked = agentMetaData.apiBlocked;
-        this.userDataTranslationMap = new HashMap<>(agentMetaData.userDataTranslationMap);
+        this.userDataTranslationMap = new HashMap<>(agentMetaData.getUserDataTranslationMap());
         this.userLevelServiceMethodEncountered = agentMetaData.userLevelServiceMethodEncountered;
-        this.reflectedMetaData = agentMetaData.reflectedMetaData;
-        this.appServerInfo = agentMetaData.appServerInfo;
+        this.reflectedMetaData = agentMetaData.getReflectedMetaData();
+        this.appServerInfo = agentMetaData.getAppServerInfo();
     }
 
     public boolean isTriggerViaRCI() {
@@ -88,6 +91,13 @@ public class AgentMetaData {
     }
 
     public Set<String> getRciMethodsCalls() {
+        if (rciMethodsCalls == null) {
+            synchronized (this) {
+                if (rciMethodsCalls == null) {
+                    rciMethodsCalls = new HashSet<>();
+                }
+            }
+        }
         return rciMethodsCalls;
     }
 
@@ -104,6 +114,13 @@ public class AgentMetaData {
     }
 
     public Map<String, String> getReflectedMetaData() {
+        if (reflectedMetaData == null) {
+            synchronized (this) {
+                if (reflectedMetaData == null) {
+                    reflectedMetaData = new HashMap<>();
+                }
+            }
+        }
         return reflectedMetaData;
     }
 
@@ -112,21 +129,46 @@ public class AgentMetaData {
     }
 
     public void addReflectedMetaData(String metaKey, String metaData) {
-        if(this.reflectedMetaData==null) {
-            this.reflectedMetaData = new HashMap<>();
-        }
-        this.reflectedMetaData.put(metaKey, metaData);
+        getReflectedMetaData().put(metaKey, metaData);
     }
 
     public StackTraceElement[] getServiceTrace() {
+        StackTraceCapture deferred = deferredServiceTrace;
+        if (deferred != null) {
+            synchronized (this) {
+                if (deferredServiceTrace != null) {
+                    serviceTrace = deferredServiceTrace.toStackTrace(0, deferredServiceTrace.depth());
+                    deferredServiceTrace = null;
+                }
+            }
+        }
         return serviceTrace;
     }
 
     public void setServiceTrace(StackTraceElement[] serviceTrace) {
+        this.deferredServiceTrace = null;
         this.serviceTrace = serviceTrace;
     }
 
+    /**
+     * Sets the service trace from the stack captured at the service entry. The stack trace elements are only built
+     * on the first {@link #getServiceTrace()}.
+     *
+     * @param serviceTrace stack captured at the service entry, see {@link StackTraceCapture#capture(int)}
+     */
+    public void setServiceTrace(StackTraceCapture serviceTrace) {
+        this.serviceTrace = null;
+        this.deferredServiceTrace = serviceTrace;
+    }
+
     public Set<String> getIps() {
+        if (ips == null) {
+            synchronized (this) {
+                if (ips == null) {
+                    ips = new HashSet<>();
+                }
+            }
+        }
         return ips;
     }
 
@@ -143,6 +185,13 @@ public class AgentMetaData {
     }
 
     public Map<String, String> getUserDataTranslationMap() {
+        if (userDataTranslationMap == null) {
+            synchronized (this) {
+                if (userDataTranslationMap == null) {
+                    userDataTranslationMap = new HashMap<>();
+                }
+            }
+        }
         return userDataTranslationMap;
     }
 
@@ -164,6 +213,13 @@ public class AgentMetaData {
     }
 
     public AppServerInfo getAppServerInfo() {
+        if (appServerInfo == null) {
+            synchronized (this) {
+                if (appServerInfo == null) {
+                    appServerInfo = new AppServerInfo();
+                }
+            }
+        }
         return appServerInfo;
     }
 
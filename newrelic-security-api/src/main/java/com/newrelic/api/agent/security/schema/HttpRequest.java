@@ -1,12 +1,21 @@
 package com.newrelic.api.agent.security.schema;
 
+import com.newrelic.api.agent.security.schema.annotations.JsonIgnore;
+import com.newrelic.api.agent.security.utils.BodyCapture;
+import com.newrelic.api.agent.security.utils.MarkupCandidateScanner;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
 public class HttpRequest {
     public static final String HTTP = "http";
 
-    private StringBuilder body;
+    private volatile StringBuilder body;
+
+    @JsonIgnore
+    private volatile BodyCapture bodyCapture;
 
     private boolean dataTruncated;
 
@@ -18,7 +27,7 @@ public class HttpRequest {
 
     private String clientPort;
 
-    private Map<String, String> headers;
+    private volatile Map<String, String> headers;
 
     private String contentType;
 
@@ -26,25 +35,57 @@ public class HttpRequest {
 
     private int serverPort;
 
-    private Map<String, String[]> parameterMap;
+    private volatile Map<String, String[]> parameterMap;
 
     private Map<String, String> pathParameterMap;
 
     private boolean isRequestParsed;
     private boolean isGrpc;
 
+    @JsonIgnore
+    private volatile int modCount;
+
+    @JsonIgnore
+    private volatile Snapshot snapshot;
+
+    @JsonIgnore
+    private volatile DeferredParser deferredParser;
+
+    @JsonIgnore
+    private Thread parsingThread;
+
+    /**
+     * Created on the first {@link #isBodyMarkupCandidate()}, not carried over to snapshots.
+     */
+    @JsonIgnore
+    private MarkupCandidateScanner bodyScanner;
+
+    /**
+     * Length of the body already fed to {@link #bodyScanner}.
+     */
+    @JsonIgnore
+    private int bodyScannedLength;
+
+    /**
+     * Reads the parts of the request that are not needed at the request entry, such as the headers, from the request
+     * object of the server. Parsing is deferred until those parts are first read.
+     */
+    public interface DeferredParser {
+        /**
+         * @param request the request to fill
+         */
+        void parse(HttpRequest request);
+    }
+
     public HttpRequest() {
         this.clientIP = StringUtils.EMPTY;
-        this.body = new StringBuilder();
         this.dataTruncated = false;
         this.method = StringUtils.EMPTY;
         this.url = StringUtils.EMPTY;
-        this.headers = new ConcurrentHashMap<>();
         this.serverPort = -1;
         this.contentType = StringUtils.EMPTY;
         this.protocol = HTTP;
         this.clientPort = StringUtils.EMPTY;
-        this.parameterMap = new HashMap<>();
         this.isRequestParsed = false;
         this.isGrpc = false;
     }
@@ -58,7 +99,7 @@ public class HttpRequest {
         this.headers = new ConcurrentHashMap<>(servletInfo.getHeaders());
         this.serverPort = servletInfo.serverPort;
         this.contentType = new String(servletInfo.contentType.trim());
-        this.parameterMap = new HashMap<>(servletInfo.parameterMap);
+        this.parameterMap = new HashMap<>(servletInfo.getParameterMap());
         this.protocol = new String(servletInfo.protocol);
         this.clientPort = new String(servletInfo.clientPort);
         this.isRequestParsed = servletInfo.isRequestParsed;
@@ -70,6 +111,7 @@ public class HttpRequest {
     }
 
     public void setMethod(String method) {
+        modCount++;
         this.method = method;
     }
 
@@ -78,38 +120,230 @@ public class HttpRequest {
     }
 
     public void setUrl(String url) {
+        modCount++;
         this.url = url;
     }
 
     public Map<String, String> getHeaders() {
+        materialize();
+        if (headers == null) {
+            synchronized (this) {
+                if (headers == null) {
+                    headers = new TrackedMap<>(new ConcurrentHashMap<>(), this::modified);
+                }
+            }
+        }
         return headers;
     }
 
     public void setHeaders(Map<String, String> headers) {
-        this.headers = headers;
+        modCount++;
+        this.deferredParser = null;
+        this.headers = headers != null ? new TrackedMap<>(headers, this::modified) : null;
+    }
+
+    /**
+     * Defers the parsing of the rest of the request until it is first read, on the request thread when an operation
+     * is registered or later. The parser keeps a reference to the request object of the server, so it must be
+     * released through {@link #releaseDeferredParser()} once the request completed.
+     *
+     * @param deferredParser the parser of the rest of the request
+     */
+    public void setDeferredParser(DeferredParser deferredParser) {
+        this.deferredParser = deferredParser;
     }
 
     /**
-     * @return the body
+     * Runs the deferred parser, if any. Calls made by the parser itself return immediately, calls from other threads
+     * wait for it to complete.
+     */
+    public void materialize() {
+        if (deferredParser == null) {
+            return;
+        }
+        synchronized (this) {
+            DeferredParser parser = deferredParser;
+            if (parser == null || parsingThread == Thread.currentThread()) {
+                return;
+            }
+            parsingThread = Thread.currentThread();
+            try {
+                parser.parse(this);
+            } finally {
+                parsingThread = null;
+                deferredParser = null;
+                modCount++;
+            }
+        }
+    }
+
+    /**
+     * Drops the deferred parser without running it, so that the request object of the server is not read after
+     * the request completed. Parts not parsed by then stay empty.
+     */
+    public void releaseDeferredParser() {
+        deferredParser = null;
+    }
+
+    /**
+     * @return the body, including the bytes captured through {@link #appendBody(byte[], int, int)} so far
      */
     public StringBuilder getBody() {
+        if (body == null) {
+            synchronized (this) {
+                if (body == null) {
+                    body = new StringBuilder();
+                }
+            }
+        }
+        BodyCapture capture = bodyCapture;
+        if (capture != null) {
+            capture.decodeTo(body);
+        }
         return this.body;
     }
 
+    /**
+     * Captures raw body bytes, decoded only once the body is read. Bytes past {@link BodyCapture#getMaxBytes()} are
+     * dropped and mark the request as truncated.
+     *
+     * @param data   the bytes read from the request
+     * @param offset offset of the first byte read
+     * @param count  number of bytes read
+     */
+    public void appendBody(byte[] data, int offset, int count) {
+        if (!getBodyCapture(BodyCapture.DEFAULT_CHARSET).append(data, offset, count)) {
+            markTruncated();
+        }
+    }
+
+    /**
+     * @param b the byte read from the request
+     * @see #appendBody(byte[], int, int)
+     */
+    public void appendBody(int b) {
+        if (!getBodyCapture(BodyCapture.DEFAULT_CHARSET).append(b)) {
+            markTruncated();
+        }
+    }
+
+    /**
+     * @param data    the bytes read from the request, from the position to the limit of the buffer
+     * @param charset the charset to decode the bytes with
+     * @see #appendBody(byte[], int, int)
+     */
+    public void appendBody(ByteBuffer data, Charset charset) {
+        if (!getBodyCapture(charset).append(data)) {
+            markTruncated();
+        }
+    }
+
+    /**
+     * Captures characters read from the request, after the bytes captured so far. Characters count as bytes towards
+     * {@link BodyCapture#getMaxBytes()}, those past it are dropped and mark the request as truncated.
+     *
+     * @param data the characters read from the request, {@code null} is captured as {@code "null"}
+     */
+    public void appendBody(CharSequence data) {
+        CharSequence chars = data != null ? data : StringUtils.NULL;
+        if (!getBodyCapture().appendDecoded(getBody(), chars, 0, chars.length())) {
+            markTruncated();
+        }
+    }
+
+    /**
+     * @param data   the characters read from the request
+     * @param offset offset of the first character read
+     * @param count  number of characters read
+     * @see #appendBody(CharSequence)
+     */
+    public void appendBody(char[] data, int offset, int count) {
+        if (!getBodyCapture().appendDecoded(getBody(), data, offset, count)) {
+            markTruncated();
+        }
+    }
+
+    private void markTruncated() {
+        if (!dataTruncated) {
+            setDataTruncated(true);
+        }
+    }
+
+    private BodyCapture getBodyCapture() {
+        if (bodyCapture == null) {
+            synchronized (this) {
+                if (bodyCapture == null) {
+                    bodyCapture = new BodyCapture();
+                }
+            }
+        }
+        return bodyCapture;
+    }
+
+    private BodyCapture getBodyCapture(Charset charset) {
+        BodyCapture bodyCapture = getBodyCapture();
+        if (bodyCapture.getCharset() != charset) {
+            // Bytes captured so far are decoded with the charset they were captured with.
+            getBody();
+            bodyCapture.setCharset(charset);
+        }
+        return bodyCapture;
+    }
+
+    /**
+     * Returns the body capture buffer to its pool, to be called once the request body is not read anymore.
+     */
+    public void releaseBodyCapture() {
+        BodyCapture capture = bodyCapture;
+        if (capture != null) {
+            capture.release();
+        }
+    }
+
+    /**
+     * Scans the part of the body added since the previous call for text that could decode into markup, see
+     * {@link MarkupCandidateScanner}.
+     *
+     * @return whether the body may hold markup
+     */
+    public synchronized boolean isBodyMarkupCandidate() {
+        StringBuilder currentBody = getBody();
+        if (bodyScanner == null) {
+            bodyScanner = new MarkupCandidateScanner();
+            bodyScannedLength = 0;
+        } else if (currentBody.length() < bodyScannedLength) {
+            // Cleared and written again, scan it from the start.
+            bodyScanner.reset();
+            bodyScannedLength = 0;
+        }
+        bodyScanner.accept(currentBody, bodyScannedLength, currentBody.length());
+        bodyScannedLength = currentBody.length();
+        return bodyScanner.isFound();
+    }
+
     public int getServerPort() {
         return serverPort;
     }
 
     public void setServerPort(int serverPort) {
+        modCount++;
         this.serverPort = serverPort;
     }
 
     public Map<String, String[]> getParameterMap() {
+        if (parameterMap == null) {
+            synchronized (this) {
+                if (parameterMap == null) {
+                    parameterMap = new TrackedMap<>(new HashMap<>(), this::modified);
+                }
+            }
+        }
         return parameterMap;
     }
 
     public void setParameterMap(Map<String, String[]> parameterMap) {
-        this.parameterMap = parameterMap;
+        modCount++;
+        this.parameterMap = parameterMap != null ? new TrackedMap<>(parameterMap, this::modified) : null;
     }
 
     /**
@@ -123,6 +357,7 @@ public class HttpRequest {
      * @param dataTruncated the dataTruncated to set
      */
     public void setDataTruncated(boolean dataTruncated) {
+        modCount++;
         this.dataTruncated = dataTruncated;
     }
 
@@ -137,11 +372,23 @@ public class HttpRequest {
      * @param clientIP the clientIP to set
      */
     public void setClientIP(String clientIP) {
+        modCount++;
         this.clientIP = clientIP;
     }
 
     public void setBody(StringBuilder body) {
+        modCount++;
+        BodyCapture capture = bodyCapture;
+        if (capture != null) {
+            capture.discardPending();
+        }
         this.body = body;
+        synchronized (this) {
+            if (bodyScanner != null) {
+                bodyScanner.reset();
+            }
+            bodyScannedLength = 0;
+        }
     }
 
     public String getContentType() {
@@ -149,6 +396,7 @@ public class HttpRequest {
     }
 
     public void setContentType(String contentType) {
+        modCount++;
         if (StringUtils.isNotBlank(contentType)) {
             this.contentType = StringUtils.substringBefore(contentType, ";").trim().toLowerCase();
         } else {
@@ -171,6 +419,7 @@ public class HttpRequest {
      * @param pathParameterMap the pathParameterMap to set
      */
     public void setPathParameterMap(Map<String, String> pathParameterMap) {
+        modCount++;
         this.pathParameterMap = pathParameterMap;
     }
 
@@ -179,6 +428,7 @@ public class HttpRequest {
     }
 
     public void setProtocol(String protocol) {
+        modCount++;
         if (StringUtils.isNotBlank(protocol)) {
             this.protocol = protocol;
         }
@@ -189,6 +439,7 @@ public class HttpRequest {
     }
 
     public void setClientPort(String clientPort) {
+        modCount++;
         this.clientPort = clientPort;
     }
 
@@ -197,6 +448,7 @@ public class HttpRequest {
     }
 
     public void setRequestParsed(boolean requestParsed) {
+        modCount++;
         isRequestParsed = requestParsed;
     }
 
@@ -205,8 +457,56 @@ public class HttpRequest {
     }
 
     public void setIsGrpc(boolean grpc) {
+        modCount++;
         isGrpc = grpc;
     }
-}
 
+    private void modified() {
+        modCount++;
+    }
+
+    /**
+     * Returns a frozen copy of this request which can be shared by all the events raised while the request is in
+     * its current state. The copy is rebuilt only once the request changed since the previous call, either through
+     * one of its setters, through the headers or parameters maps, or because the body was appended to.
+     * <p>
+     * The returned instance must be treated as read only.
+     *
+     * @return frozen copy of this request
+     */
+    public HttpRequest snapshot() {
+        Snapshot current = snapshot;
+        if (current == null || !current.isCurrent(this)) {
+            current = new Snapshot(this);
+            snapshot = current;
+        }
+        return current.request;
+    }
+
+    private static final class Snapshot {
+
+        private final int modCount;
+
+        private final StringBuilder body;
+
+        private final int bodyLength;
 
+        private final HttpRequest request;
+
+        private Snapshot(HttpRequest source) {
+            this.modCount = source.modCount;
+            this.body = source.getBody();
+            this.bodyLength = body.length();
+            this.request = new HttpRequest(source);
+        }
+
+        /**
+         * The body is only ever appended to, or replaced as a whole, so its identity and length identify its content
+         * once the captured bytes are decoded.
+         */
+        private boolean isCurrent(HttpRequest source) {
+            return modCount == source.modCount
+                    && body == source.getBody() && bodyLength == body.length();
+        }
+    }
+}
@@ -1,49 +1,167 @@
 package com.newrelic.api.agent.security.schema;
 
+import com.newrelic.api.agent.security.schema.annotations.JsonIgnore;
+import com.newrelic.api.agent.security.utils.BodyCapture;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 public class HttpResponse {
 
-    private Map<String, String> headers;
+    private volatile Map<String, String> headers;
+
+    private volatile StringBuilder responseBody;
 
-    private StringBuilder responseBody;
+    @JsonIgnore
+    private volatile BodyCapture bodyCapture;
 
     private String contentType;
 
+    @JsonIgnore
+    private volatile int modCount;
+
+    @JsonIgnore
+    private volatile Snapshot snapshot;
+
     public HttpResponse() {
-        this.headers = new ConcurrentHashMap<>();
-        this.responseBody = new StringBuilder();
         this.contentType = StringUtils.EMPTY;
     }
 
     public HttpResponse(HttpResponse httpResponse) {
         this.headers = new ConcurrentHashMap<>(httpResponse.getHeaders());
-        this.responseBody = new StringBuilder(httpResponse.responseBody);
+        this.responseBody = new StringBuilder(httpResponse.getResponseBody());
         this.contentType = new String(httpResponse.contentType.trim());
     }
 
     public Map<String, String> getHeaders() {
+        if (headers == null) {
+            synchronized (this) {
+                if (headers == null) {
+                    headers = new TrackedMap<>(new ConcurrentHashMap<>(), this::modified);
+                }
+            }
+        }
         return headers;
     }
 
     public void setHeaders(Map<String, String> headers) {
-        this.headers = headers;
+        modCount++;
+        this.headers = headers != null ? new TrackedMap<>(headers, this::modified) : null;
     }
 
     public StringBuilder getResponseBody() {
+        if (responseBody == null) {
+            synchronized (this) {
+                if (responseBody == null) {
+                    responseBody = new StringBuilder();
+                }
+            }
+        }
+        BodyCapture capture = bodyCapture;
+        if (capture != null) {
+            capture.decodeTo(responseBody);
+        }
         return this.responseBody;
     }
 
     public void setResponseBody(StringBuilder responseBody) {
+        modCount++;
+        BodyCapture capture = bodyCapture;
+        if (capture != null) {
+            capture.discardPending();
+        }
         this.responseBody = responseBody;
     }
 
+    /**
+     * Captures a raw body byte, decoded only once the body is read. Bytes past {@link BodyCapture#getMaxBytes()} are
+     * dropped.
+     *
+     * @param b the byte written to the response
+     */
+    public void appendResponseBody(int b) {
+        getBodyCapture(BodyCapture.DEFAULT_CHARSET).append(b);
+    }
+
+    /**
+     * @param data    the bytes written to the response, from the position to the limit of the buffer
+     * @param charset the charset to decode the bytes with
+     * @see #appendResponseBody(int)
+     */
+    public void appendResponseBody(ByteBuffer data, Charset charset) {
+        getBodyCapture(charset).append(data);
+    }
+
+    /**
+     * Captures characters written to the response, after the bytes captured so far. Characters count as bytes towards
+     * {@link BodyCapture#getMaxBytes()}, those past it are dropped.
+     *
+     * @param data the characters written to the response, {@code null} is captured as {@code "null"}
+     */
+    public void appendResponseBody(CharSequence data) {
+        CharSequence chars = data != null ? data : StringUtils.NULL;
+        appendResponseBody(chars, 0, chars.length());
+    }
+
+    /**
+     * @param data  the characters written to the response, {@code null} is captured as {@code "null"}
+     * @param start index of the first character written
+     * @param end   index after the last character written
+     * @see #appendResponseBody(CharSequence)
+     */
+    public void appendResponseBody(CharSequence data, int start, int end) {
+        getBodyCapture().appendDecoded(getResponseBody(), data != null ? data : StringUtils.NULL, start, end);
+    }
+
+    /**
+     * @param data   the characters written to the response
+     * @param offset offset of the first character written
+     * @param count  number of characters written
+     * @see #appendResponseBody(CharSequence)
+     */
+    public void appendResponseBody(char[] data, int offset, int count) {
+        getBodyCapture().appendDecoded(getResponseBody(), data, offset, count);
+    }
+
+    private BodyCapture getBodyCapture() {
+        if (bodyCapture == null) {
+            synchronized (this) {
+                if (bodyCapture == null) {
+                    bodyCapture = new BodyCapture();
+                }
+            }
+        }
+        return bodyCapture;
+    }
+
+    private BodyCapture getBodyCapture(Charset charset) {
+        BodyCapture bodyCapture = getBodyCapture();
+        if (bodyCapture.getCharset() != charset) {
+            // Bytes captured so far are decoded with the charset they were captured with.
+            getResponseBody();
+            bodyCapture.setCharset(charset);
+        }
+        return bodyCapture;
+    }
+
+    /**
+     * Returns the body capture buffer to its pool, to be called once the response body is not written anymore.
+     */
+    public void releaseBodyCapture() {
+        BodyCapture capture = bodyCapture;
+        if (capture != null) {
+            capture.release();
+        }
+    }
+
     public String getResponseContentType() {
         return contentType;
     }
 
     public void setResponseContentType(String responseContentType) {
+        modCount++;
         if (StringUtils.isNotBlank(responseContentType)) {
             this.contentType = StringUtils.substringBefore(responseContentType, ";").trim().toLowerCase();
         } else {
@@ -52,6 +170,48 @@ public class HttpResponse {
     }
 
     public boolean isEmpty() {
-        return StringUtils.isAnyBlank(responseBody, contentType);
+        return StringUtils.isAnyBlank(getResponseBody(), contentType);
+    }
+
+    private void modified() {
+        modCount++;
+    }
+
+    /**
+     * Returns a frozen copy of this response, rebuilt only once the response changed since the previous call.
+     * See {@link HttpRequest#snapshot()}.
+     *
+     * @return frozen copy of this response
+     */
+    public HttpResponse snapshot() {
+        Snapshot current = snapshot;
+        if (current == null || !current.isCurrent(this)) {
+            current = new Snapshot(this);
+            snapshot = current;
+        }
+        return current.response;
+    }
+
+    private static final class Snapshot {
+
+        private final int modCount;
+
+        private final StringBuilder responseBody;
+
+        private final int responseBodyLength;
+
+        private final HttpResponse response;
+
+        private Snapshot(HttpResponse source) {
+            this.modCount = source.modCount;
+            this.responseBody = source.getResponseBody();
+            this.responseBodyLength = responseBody.length();
+            this.response = new HttpResponse(source);
+        }
+
+        private boolean isCurrent(HttpResponse source) {
+            return modCount == source.modCount
+                    && responseBody == source.getResponseBody() && responseBodyLength == responseBody.length();
+        }
     }
 }
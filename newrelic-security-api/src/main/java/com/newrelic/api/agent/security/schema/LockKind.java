@@ -0,0 +1,52 @@
+package com.newrelic.api.agent.security.schema;
+
+/**
+ * Typed re-entrancy lock kinds used by the instrumentation hooks.
+ * <p>
+ * Each kind carries the legacy custom attribute prefix it replaces, so a lock taken through
+ * {@code GenericHelper.acquireLockIfPossible(LockKind, int)} and one taken through the
+ * string based {@code GenericHelper.acquireLockIfPossible(String, int)} with the same prefix
+ * guard the same critical section.
+ */
+public enum LockKind {
+    FILE_OPERATION("FILE_OPERATION_LOCK-"),
+    JDBC_OPERATION("JDBC_OPERATION_LOCK-"),
+    R2DBC_OPERATION("R2DBC_OPERATION_LOCK-"),
+    SERVLET("SERVLET_LOCK-"),
+    NETTY_OPERATION("NR_SEC_NETTY_OPERATIONAL_LOCK"),
+    /**
+     * Taken when the request is received and released once the response is read, possibly on another thread.
+     */
+    AKKA_HTTP_REQUEST("HTTPREQUEST_OPERATION_LOCK_AKKA-", false);
+
+    private final String lockName;
+
+    private final int id;
+
+    private final boolean threadScoped;
+
+    LockKind(String lockName) {
+        this(lockName, true);
+    }
+
+    LockKind(String lockName, boolean threadScoped) {
+        this.lockName = lockName;
+        this.id = lockName.hashCode();
+        this.threadScoped = threadScoped;
+    }
+
+    public String getLockName() {
+        return lockName;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @return {@code false} if the lock is held for the whole transaction rather than by the thread that took it
+     */
+    public boolean isThreadScoped() {
+        return threadScoped;
+    }
+}
@@ -0,0 +1,164 @@
+package com.newrelic.api.agent.security.schema;
+
+import java.util.Arrays;
+
+/**
+ * Per transaction set of held re-entrancy locks.
+ * <p>
+ * A lock is identified by its kind, the identity of the guarded object and, unless it is held for the whole
+ * transaction, the current thread. These are folded into a single {@code long} key stored in an open-addressed, linear-probing table, so acquiring,
+ * checking and releasing a lock does not allocate. The table only grows when more locks are held at the same
+ * time than it can accommodate, which in practice is bounded by the hook nesting depth.
+ */
+public class ReentrancyGuard {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private static final long FREE = 0L;
+
+    private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+
+    private long[] keys;
+
+    private int size;
+
+    public ReentrancyGuard() {
+        keys = new long[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Checks whether the current thread holds the lock of given kind for the given object identity.
+     *
+     * @param kind     lock kind id
+     * @param identity identity of the guarded object, {@code 0} if the lock is not object specific
+     * @return {@code true} if the lock is held
+     */
+    public boolean isHeld(int kind, int identity) {
+        return isHeld(kind, identity, true);
+    }
+
+    /**
+     * @param threadScoped {@code false} for a lock held for the whole transaction, whichever thread checks it
+     * @see #isHeld(int, int)
+     */
+    public synchronized boolean isHeld(int kind, int identity, boolean threadScoped) {
+        return indexOf(key(kind, identity, threadScoped)) >= 0;
+    }
+
+    /**
+     * Acquires the lock of given kind for the given object identity if it is not already held by the current thread.
+     *
+     * @param kind     lock kind id
+     * @param identity identity of the guarded object, {@code 0} if the lock is not object specific
+     * @return {@code true} if the lock was acquired by this call
+     */
+    public boolean tryAcquire(int kind, int identity) {
+        return tryAcquire(kind, identity, true);
+    }
+
+    /**
+     * @param threadScoped {@code false} for a lock held for the whole transaction, which may be released from
+     *                     another thread
+     * @see #tryAcquire(int, int)
+     */
+    public synchronized boolean tryAcquire(int kind, int identity, boolean threadScoped) {
+        long key = key(kind, identity, threadScoped);
+        int mask = keys.length - 1;
+        int index = slot(key, mask);
+        while (keys[index] != FREE) {
+            if (keys[index] == key) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        if (++size > (keys.length >> 1)) {
+            resize();
+        }
+        return true;
+    }
+
+    /**
+     * Releases the lock of given kind for the given object identity held by the current thread, if any.
+     *
+     * @param kind     lock kind id
+     * @param identity identity of the guarded object, {@code 0} if the lock is not object specific
+     */
+    public void release(int kind, int identity) {
+        release(kind, identity, true);
+    }
+
+    /**
+     * @param threadScoped {@code false} for a lock held for the whole transaction
+     * @see #release(int, int)
+     */
+    public synchronized void release(int kind, int identity, boolean threadScoped) {
+        int index = indexOf(key(kind, identity, threadScoped));
+        if (index < 0) {
+            return;
+        }
+        // Backward shift deletion keeps probe sequences intact without tombstones.
+        int mask = keys.length - 1;
+        int free = index;
+        int next = (free + 1) & mask;
+        while (keys[next] != FREE) {
+            int home = slot(keys[next], mask);
+            if (((next - home) & mask) >= ((next - free) & mask)) {
+                keys[free] = keys[next];
+                free = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[free] = FREE;
+        size--;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized void clear() {
+        Arrays.fill(keys, FREE);
+        size = 0;
+    }
+
+    private int indexOf(long key) {
+        int mask = keys.length - 1;
+        int index = slot(key, mask);
+        while (keys[index] != FREE) {
+            if (keys[index] == key) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        keys = new long[oldKeys.length << 1];
+        int mask = keys.length - 1;
+        for (long key : oldKeys) {
+            if (key != FREE) {
+                int index = slot(key, mask);
+                while (keys[index] != FREE) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = key;
+            }
+        }
+    }
+
+    private static long key(int kind, int identity, boolean threadScoped) {
+        long key = (((long) kind) << 32) | (identity & 0xFFFFFFFFL);
+        if (threadScoped) {
+            key ^= Thread.currentThread().getId() * GOLDEN_RATIO;
+        }
+        return key == FREE ? GOLDEN_RATIO : key;
+    }
+
+    private static int slot(long key, int mask) {
+        long hash = key * GOLDEN_RATIO;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
@@ -1,6 +1,7 @@
 package com.newrelic.api.agent.security.schema;
 
 
+import com.newrelic.api.agent.security.schema.annotations.JsonIgnore;
 import com.newrelic.api.agent.security.schema.operation.FileIntegrityOperation;
 
 import java.util.HashMap;
@@ -9,32 +10,41 @@ import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * New Relic Security metadata specific to a particular transaction at hand.
+ * <p>
+ * All the parts of the metadata are created lazily on first access, so that a metadata instance which is never
+ * used by any hook costs a single allocation.
  */
 public class SecurityMetaData {
 
     public static final String EMPTY = "";
-    private HttpRequest request;
+    private volatile HttpRequest request;
 
-    private HttpResponse response;
+    private volatile HttpResponse response;
 
-    private AgentMetaData metaData;
+    private volatile AgentMetaData metaData;
 
     private String tracingHeaderValue;
 
-    private K2RequestIdentifier fuzzRequestIdentifier;
+    private volatile K2RequestIdentifier fuzzRequestIdentifier;
 
-    private Map<String, FileIntegrityOperation> fileLocalMap;
+    private volatile Map<String, FileIntegrityOperation> fileLocalMap;
 
-    private Map<String, Object> customData;
+    private volatile Map<String, Object> customData;
+
+    @JsonIgnore
+    private volatile ReentrancyGuard reentrancyGuard;
+
+    /**
+     * Request URL the low severity filter decision below was taken for, {@code null} if none was taken yet.
+     */
+    @JsonIgnore
+    private volatile String lowSeverityFilterUrl;
+
+    @JsonIgnore
+    private boolean lowSeverityHookProcessingNeeded;
 
     public SecurityMetaData() {
-        request = new HttpRequest();
-        response = new HttpResponse();
-        metaData = new AgentMetaData();
         tracingHeaderValue = EMPTY;
-        fileLocalMap = new HashMap<>();
-        fuzzRequestIdentifier = new K2RequestIdentifier();
-        customData = new ConcurrentHashMap<>();
     }
 
     public SecurityMetaData(SecurityMetaData securityMetaData) {
@@ -44,10 +54,37 @@ public class SecurityMetaData {
         tracingHeaderValue = EMPTY;
         fileLocalMap = new HashMap<>(securityMetaData.getFileLocalMap());
         fuzzRequestIdentifier = new K2RequestIdentifier(securityMetaData.getFuzzRequestIdentifier());
-        customData = new ConcurrentHashMap<>(securityMetaData.customData);
+        customData = new ConcurrentHashMap<>(securityMetaData.getCustomData());
+    }
+
+    /**
+     * Creates a copy of this metadata to be handed over to an event dispatcher.
+     * <p>
+     * Unlike the copy constructor, the request and response are not deep copied on every call. Their frozen
+     * snapshots are shared by all the events of the transaction until they are modified, so a request raising many
+     * events copies its body only once. The parts which change from one event to another are copied as usual. The
+     * file local map is only used while hooking and is left out.
+     *
+     * @return metadata copy for event dispatch
+     */
+    public SecurityMetaData snapshot() {
+        SecurityMetaData snapshot = new SecurityMetaData();
+        snapshot.request = getRequest().snapshot();
+        snapshot.response = getResponse().snapshot();
+        snapshot.metaData = new AgentMetaData(getMetaData());
+        snapshot.fuzzRequestIdentifier = new K2RequestIdentifier(getFuzzRequestIdentifier());
+        snapshot.customData = new ConcurrentHashMap<>(getCustomData());
+        return snapshot;
     }
 
     public HttpRequest getRequest() {
+        if (request == null) {
+            synchronized (this) {
+                if (request == null) {
+                    request = new HttpRequest();
+                }
+            }
+        }
         return request;
     }
 
@@ -56,6 +93,13 @@ public class SecurityMetaData {
     }
 
     public HttpResponse getResponse() {
+        if (response == null) {
+            synchronized (this) {
+                if (response == null) {
+                    response = new HttpResponse();
+                }
+            }
+        }
         return response;
     }
 
@@ -64,6 +108,13 @@ public class SecurityMetaData {
     }
 
     public AgentMetaData getMetaData() {
+        if (metaData == null) {
+            synchronized (this) {
+                if (metaData == null) {
+                    metaData = new AgentMetaData();
+                }
+            }
+        }
         return metaData;
     }
 
@@ -80,6 +131,13 @@ public class SecurityMetaData {
     }
 
     public Map<String, FileIntegrityOperation> getFileLocalMap() {
+        if (fileLocalMap == null) {
+            synchronized (this) {
+                if (fileLocalMap == null) {
+                    fileLocalMap = new HashMap<>();
+                }
+            }
+        }
         return fileLocalMap;
     }
 
@@ -88,6 +146,13 @@ public class SecurityMetaData {
     }
 
     public K2RequestIdentifier getFuzzRequestIdentifier() {
+        if (fuzzRequestIdentifier == null) {
+            synchronized (this) {
+                if (fuzzRequestIdentifier == null) {
+                    fuzzRequestIdentifier = new K2RequestIdentifier();
+                }
+            }
+        }
         return fuzzRequestIdentifier;
     }
 
@@ -95,23 +160,92 @@ public class SecurityMetaData {
         this.fuzzRequestIdentifier = fuzzRequestIdentifier;
     }
 
+    public ReentrancyGuard getReentrancyGuard() {
+        if (reentrancyGuard == null) {
+            synchronized (this) {
+                if (reentrancyGuard == null) {
+                    reentrancyGuard = new ReentrancyGuard();
+                }
+            }
+        }
+        return reentrancyGuard;
+    }
+
+    /**
+     * @param url the current request URL
+     * @return the low severity filter decision cached for this URL, {@code null} if none
+     */
+    public Boolean getLowSeverityHookProcessingNeeded(String url) {
+        if (url == null || lowSeverityFilterUrl != url) {
+            return null;
+        }
+        return lowSeverityHookProcessingNeeded;
+    }
+
+    public void setLowSeverityHookProcessingNeeded(String url, boolean needed) {
+        lowSeverityHookProcessingNeeded = needed;
+        // Published by the volatile write.
+        lowSeverityFilterUrl = url;
+    }
+
+    private Map<String, Object> getCustomData() {
+        if (customData == null) {
+            synchronized (this) {
+                if (customData == null) {
+                    customData = new ConcurrentHashMap<>();
+                }
+            }
+        }
+        return customData;
+    }
+
     public void addCustomAttribute(String key, Object value) {
         if(value != null) {
-            this.customData.put(key, value);
-        } else {
-            this.customData.remove(key);
+            getCustomData().put(key, value);
+        } else if (customData != null) {
+            customData.remove(key);
         }
     }
 
     public <T> T getCustomAttribute(String key, Class<? extends T> klass) {
-        return klass.cast(this.customData.get(key));
+        if (customData == null) {
+            return null;
+        }
+        return klass.cast(customData.get(key));
     }
 
     public void removeCustomAttribute(String key) {
-        this.customData.remove(key);
+        if (customData != null) {
+            customData.remove(key);
+        }
     }
     public void clearCustomAttr(){
-        customData.clear();
+        if (customData != null) {
+            customData.clear();
+        }
+    }
+
+    /**
+     * Indicates whether this metadata is still in its initial state, i.e. none of its parts were accessed yet and
+     * no custom attribute was ever added. The reentrancy guard is not part of this state, hook locks are taken on
+     * every metadata and belong to the thread rather than to the request data.
+     *
+     * @return {@code true} if nothing was materialised on this instance.
+     */
+    public boolean isUntouched() {
+        return request == null && response == null && metaData == null && fuzzRequestIdentifier == null
+                && fileLocalMap == null && customData == null
+                && EMPTY.equals(tracingHeaderValue);
+    }
+
+    /**
+     * @return a new metadata in its initial state sharing the reentrancy guard of this one, so that the hook locks
+     * held by the thread are released on the guard they were acquired on
+     */
+    public SecurityMetaData renew() {
+        SecurityMetaData renewed = new SecurityMetaData();
+        renewed.reentrancyGuard = reentrancyGuard;
+        return renewed;
     }
 
 }
@@ -13,6 +13,8 @@ public class StringUtils {
     public static final int INDEX_NOT_FOUND = -1;
     public static final String COMMA_DELIMETER = ",";
 
+    public static final String NULL = "null";
+
     /**
      * <p>Checks if a CharSequence is not empty (""), not null and not whitespace only.</p>
      *
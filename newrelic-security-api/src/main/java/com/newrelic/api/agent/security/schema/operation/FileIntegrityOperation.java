@@ -3,14 +3,9 @@ package com.newrelic.api.agent.security.schema.operation;
 import com.newrelic.api.agent.security.schema.AbstractOperation;
 import com.newrelic.api.agent.security.schema.StringUtils;
 import com.newrelic.api.agent.security.schema.VulnerabilityCaseType;
+import com.newrelic.api.agent.security.utils.FileAttributeReader;
 
 import java.io.File;
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.nio.file.attribute.PosixFileAttributes;
-import java.nio.file.attribute.PosixFilePermission;
-import java.util.Set;
 
 public class FileIntegrityOperation extends AbstractOperation {
 
@@ -143,18 +138,15 @@ public class FileIntegrityOperation extends AbstractOperation {
     }
 
     public boolean isIntegrityBreached(File file){
-        Boolean exists = file.exists();
-        long lastModified = exists? file.lastModified() : -1;
-        String permissions = StringUtils.EMPTY;
-        long length = file.length();
-        try {
-            if(exists) {
-                PosixFileAttributes fileAttributes = Files.readAttributes(Paths.get(file.getPath()), PosixFileAttributes.class);
-                Set<PosixFilePermission> permissionSet = fileAttributes.permissions();
-                permissions = permissionSet.toString();
-            }
-        } catch (IOException e) {
-        }
-        return (exists != this.exists || lastModified != this.lastModified || !StringUtils.equals(permissions, this.permissionString) || length != this.length);
+        return isIntegrityBreached(FileAttributeReader.getAttributes(file.getPath()));
+    }
+
+    /**
+     * @param attributes the current attributes of the file
+     * @return whether the file changed since this entry was created
+     */
+    public boolean isIntegrityBreached(FileAttributeReader.Attributes attributes) {
+        return attributes.exists() != this.exists || attributes.getLastModified() != this.lastModified
+                || !StringUtils.equals(attributes.getPermissions(), this.permissionString) || attributes.getLength() != this.length;
     }
 }
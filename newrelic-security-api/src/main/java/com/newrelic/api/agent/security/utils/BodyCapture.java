@@ -0,0 +1,261 @@
+package com.newrelic.api.agent.security.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Raw bytes of a request or response body, captured up to {@link #getMaxBytes()} bytes and decoded to characters only
+ * when the body is read.
+ * <p>
+ * Bytes are copied as they go through the instrumented streams, without converting them to characters on each call.
+ * {@link #decodeTo(StringBuilder)} decodes the bytes captured since its previous call. Capture buffers come from a
+ * shared pool and go back to it on {@link #release()}, bodies larger than a pooled buffer get a buffer of their own.
+ */
+public final class BodyCapture {
+
+    public static final int DEFAULT_MAX_BYTES = 500 * 1024;
+
+    private static final int POOLED_BUFFER_SIZE = 8 * 1024;
+
+    private static final int POOL_CAPACITY = 256;
+
+    private static final ArrayBlockingQueue<byte[]> pool = new ArrayBlockingQueue<>(POOL_CAPACITY);
+
+    private static volatile int maxBytes = DEFAULT_MAX_BYTES;
+
+    /**
+     * Streams read and written by the application are decoded byte per character, as they were before.
+     */
+    public static final Charset DEFAULT_CHARSET = StandardCharsets.ISO_8859_1;
+
+    private byte[] buffer;
+
+    private boolean pooled;
+
+    /**
+     * Bytes captured and not decoded yet, at the beginning of the buffer.
+     */
+    private int length;
+
+    private int capturedBytes;
+
+    private boolean truncated;
+
+    private Charset charset = DEFAULT_CHARSET;
+
+    /**
+     * @param b the byte to capture, in its low order bits
+     * @return {@code false} if the byte was dropped because the cap was reached
+     */
+    public synchronized boolean append(int b) {
+        if (!reserve(1)) {
+            return false;
+        }
+        buffer[length++] = (byte) b;
+        capturedBytes++;
+        return true;
+    }
+
+    /**
+     * @param data   the bytes to capture
+     * @param offset offset of the first byte to capture
+     * @param count  number of bytes to capture
+     * @return {@code false} if some bytes were dropped because the cap was reached
+     */
+    public synchronized boolean append(byte[] data, int offset, int count) {
+        if (count <= 0) {
+            return true;
+        }
+        int accepted = Math.min(count, maxBytes - capturedBytes);
+        if (accepted <= 0 || !reserve(accepted)) {
+            truncated = true;
+            return false;
+        }
+        System.arraycopy(data, offset, buffer, length, accepted);
+        length += accepted;
+        capturedBytes += accepted;
+        if (accepted < count) {
+            truncated = true;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @param data the bytes to capture, from its position to its limit, the position is left unchanged
+     * @return {@code false} if some bytes were dropped because the cap was reached
+     */
+    public synchronized boolean append(ByteBuffer data) {
+        int count = data.remaining();
+        if (count <= 0) {
+            return true;
+        }
+        int accepted = Math.min(count, maxBytes - capturedBytes);
+        if (accepted <= 0 || !reserve(accepted)) {
+            truncated = true;
+            return false;
+        }
+        data.duplicate().get(buffer, length, accepted);
+        length += accepted;
+        capturedBytes += accepted;
+        if (accepted < count) {
+            truncated = true;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Appends characters written or read as such after the bytes captured so far, each character counts as a byte
+     * towards the cap.
+     *
+     * @param target the decoded body
+     * @param data   the characters to capture
+     * @param start  index of the first character to capture
+     * @param end    index after the last character to capture
+     * @return {@code false} if some characters were dropped because the cap was reached
+     */
+    public synchronized boolean appendDecoded(StringBuilder target, CharSequence data, int start, int end) {
+        decodeTo(target);
+        int count = end - start;
+        if (count <= 0) {
+            return true;
+        }
+        int accepted = acceptChars(count);
+        target.append(data, start, start + accepted);
+        return accepted == count;
+    }
+
+    /**
+     * @param target the decoded body
+     * @param data   the characters to capture
+     * @param offset offset of the first character to capture
+     * @param count  number of characters to capture
+     * @return {@code false} if some characters were dropped because the cap was reached
+     * @see #appendDecoded(StringBuilder, CharSequence, int, int)
+     */
+    public synchronized boolean appendDecoded(StringBuilder target, char[] data, int offset, int count) {
+        decodeTo(target);
+        if (count <= 0) {
+            return true;
+        }
+        int accepted = acceptChars(count);
+        target.append(data, offset, accepted);
+        return accepted == count;
+    }
+
+    private int acceptChars(int count) {
+        int accepted = Math.max(0, Math.min(count, maxBytes - capturedBytes));
+        capturedBytes += accepted;
+        if (accepted < count) {
+            truncated = true;
+        }
+        return accepted;
+    }
+
+    private boolean reserve(int count) {
+        if (count > maxBytes - capturedBytes) {
+            truncated = true;
+            return false;
+        }
+        if (buffer == null) {
+            if (count <= POOLED_BUFFER_SIZE) {
+                byte[] pooledBuffer = pool.poll();
+                buffer = pooledBuffer != null ? pooledBuffer : new byte[POOLED_BUFFER_SIZE];
+                pooled = true;
+            } else {
+                buffer = new byte[count];
+                pooled = false;
+            }
+        } else if (length + count > buffer.length) {
+            int doubled = buffer.length <= maxBytes / 2 ? buffer.length * 2 : maxBytes;
+            byte[] grown = Arrays.copyOf(buffer, Math.max(length + count, doubled));
+            giveBack();
+            buffer = grown;
+        }
+        return true;
+    }
+
+    /**
+     * Decodes the bytes captured since the previous call and appends them to the given body.
+     *
+     * @param target the decoded body
+     */
+    public synchronized void decodeTo(StringBuilder target) {
+        if (length == 0) {
+            return;
+        }
+        target.append(new String(buffer, 0, length, charset));
+        // Further bytes start over at the beginning of the buffer.
+        length = 0;
+    }
+
+    /**
+     * @return whether bytes were captured but not decoded yet
+     */
+    public synchronized boolean hasPendingBytes() {
+        return length > 0;
+    }
+
+    /**
+     * Drops the bytes not decoded yet, to be called when the decoded body is replaced as a whole.
+     */
+    public synchronized void discardPending() {
+        length = 0;
+    }
+
+    public synchronized Charset getCharset() {
+        return charset;
+    }
+
+    /**
+     * @param charset the charset of the bytes captured from now on, bytes captured before must be decoded first
+     */
+    public synchronized void setCharset(Charset charset) {
+        this.charset = charset;
+    }
+
+    /**
+     * @return whether bytes were dropped because the cap was reached
+     */
+    public synchronized boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * Returns the capture buffer to the pool, once the body is not written to anymore. Bytes not decoded yet are kept
+     * in a buffer of their own, so that they can still be decoded later.
+     */
+    public synchronized void release() {
+        if (buffer == null) {
+            return;
+        }
+        byte[] pending = length > 0 ? Arrays.copyOf(buffer, length) : null;
+        giveBack();
+        buffer = pending;
+    }
+
+    private void giveBack() {
+        if (pooled && buffer.length == POOLED_BUFFER_SIZE) {
+            pool.offer(buffer);
+        }
+        pooled = false;
+    }
+
+    /**
+     * @return the maximum number of bytes captured per body
+     */
+    public static int getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * @param maxBytes the maximum number of bytes captured per body, bodies are captured in full if not positive
+     */
+    public static void setMaxBytes(int maxBytes) {
+        BodyCapture.maxBytes = maxBytes > 0 ? maxBytes : Integer.MAX_VALUE;
+    }
+}
@@ -0,0 +1,219 @@
+package com.newrelic.api.agent.security.utils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * Fixed memory set of 64 bit keys whose entries expire, as a ring of Bloom filters.
+ * <p>
+ * Keys are added to the current generation and looked up in all of them. {@link #rotate()} drops the oldest
+ * generation and starts a new one, so a key is forgotten after {@code generations - 1} to {@code generations}
+ * rotations depending on when it was added, instead of all keys at once. Lookups may report a key never added with
+ * a small probability, they never miss a key added to a live generation unless it was concurrently being dropped.
+ * <p>
+ * A generation is also rotated early once the keys added to it reach the fill ratio the filter was built with, so a
+ * burst of distinct keys shortens their lifetime instead of saturating the filter.
+ */
+public final class DecayingBloomFilter {
+
+    private static final long MIX_MULTIPLIER_1 = 0xFF51AFD7ED558CCDL;
+
+    private static final long MIX_MULTIPLIER_2 = 0xC4CEB9FE1A85EC53L;
+
+    private static final LongBinaryOperator BITWISE_OR = (word, mask) -> word | mask;
+
+    private final AtomicLongArray[] slices;
+
+    private final int bitMask;
+
+    private final int hashCount;
+
+    /**
+     * Number of keys after which the current generation is rotated early.
+     */
+    private final int maxKeysPerGeneration;
+
+    private final AtomicInteger currentKeyCount = new AtomicInteger();
+
+    private final AtomicLong earlyRotationCount = new AtomicLong();
+
+    private volatile int current = 0;
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong lookupCount = new AtomicLong();
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong insertCount = new AtomicLong();
+
+    /**
+     * @param generations      number of live generations, at least 2
+     * @param log2BitsPerSlice base 2 logarithm of the bit count of each generation, at least 6
+     * @param hashCount        number of bits set per key
+     * @param maxFillRatio     share of the bits of a generation expected to be set once it is rotated early
+     */
+    public DecayingBloomFilter(int generations, int log2BitsPerSlice, int hashCount, double maxFillRatio) {
+        if (generations < 2 || log2BitsPerSlice < 6 || log2BitsPerSlice > 30 || hashCount < 1
+                || !(maxFillRatio > 0 && maxFillRatio < 1)) {
+            throw new IllegalArgumentException("Invalid filter dimensions");
+        }
+        // Each key sets hashCount bits, n keys are expected to set a share 1 - e^(-hashCount * n / bits) of them.
+        this.maxKeysPerGeneration = (int) Math.max(1, Math.min(Integer.MAX_VALUE,
+                -Math.log(1 - maxFillRatio) * (1L << log2BitsPerSlice) / hashCount));
+        this.slices = new AtomicLongArray[generations];
+        for (int i = 0; i < generations; i++) {
+            slices[i] = new AtomicLongArray(1 << (log2BitsPerSlice - 6));
+        }
+        this.bitMask = (1 << log2BitsPerSlice) - 1;
+        this.hashCount = hashCount;
+    }
+
+    /**
+     * Adds the key to the current generation unless it is possibly present in a live one, so that a key expires
+     * according to when it was first added whatever the later calls.
+     *
+     * @param key the key to add
+     * @return {@code false} if the key was possibly already present
+     */
+    public boolean add(long key) {
+        long hash = mix(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        if (containsInAny(h1, h2)) {
+            return false;
+        }
+        AtomicLongArray slice = slices[current];
+        for (int i = 0; i < hashCount; i++) {
+            int bit = (h1 + i * h2) & bitMask;
+            long mask = 1L << bit;
+            slice.accumulateAndGet(bit >>> 6, mask, BITWISE_OR);
+        }
+        insertCount.incrementAndGet();
+        if (currentKeyCount.incrementAndGet() == maxKeysPerGeneration) {
+            rotateEarly(slice);
+        }
+        return true;
+    }
+
+    private synchronized void rotateEarly(AtomicLongArray full) {
+        // The generation may have been rotated by the schedule in the meantime.
+        if (slices[current] == full) {
+            rotate();
+            earlyRotationCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * @param key the key to look up
+     * @return whether the key was possibly added to a live generation
+     */
+    public boolean mightContain(long key) {
+        long hash = mix(key);
+        boolean found = containsInAny((int) hash, (int) (hash >>> 32) | 1);
+        lookupCount.incrementAndGet();
+        if (found) {
+            hitCount.incrementAndGet();
+        }
+        return found;
+    }
+
+    private boolean containsInAny(int h1, int h2) {
+        for (AtomicLongArray slice : slices) {
+            if (contains(slice, h1, h2)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean contains(AtomicLongArray slice, int h1, int h2) {
+        for (int i = 0; i < hashCount; i++) {
+            int bit = (h1 + i * h2) & bitMask;
+            if ((slice.get(bit >>> 6) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Drops the oldest generation and makes it the current, empty one.
+     */
+    public synchronized void rotate() {
+        int next = (current + 1) % slices.length;
+        clear(slices[next]);
+        current = next;
+        currentKeyCount.set(0);
+        generation.incrementAndGet();
+    }
+
+    /**
+     * Drops all the generations.
+     */
+    public synchronized void clear() {
+        for (AtomicLongArray slice : slices) {
+            clear(slice);
+        }
+        currentKeyCount.set(0);
+        generation.addAndGet(slices.length);
+    }
+
+    private static void clear(AtomicLongArray slice) {
+        for (int i = 0; i < slice.length(); i++) {
+            slice.set(i, 0L);
+        }
+    }
+
+    /**
+     * @return the number of rotations so far, a key added in generation {@code g} is dropped once the generation
+     * reaches {@code g + getGenerationCount()}
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    public int getGenerationCount() {
+        return slices.length;
+    }
+
+    /**
+     * @return the share of the bits set in the current generation, the false positive rate of a generation is about
+     * this ratio to the power of the hash count
+     */
+    public double getCurrentFillRatio() {
+        AtomicLongArray slice = slices[current];
+        long set = 0;
+        for (int i = 0; i < slice.length(); i++) {
+            set += Long.bitCount(slice.get(i));
+        }
+        return (double) set / (bitMask + 1L);
+    }
+
+    public long getAndResetLookupCount() {
+        return lookupCount.getAndSet(0);
+    }
+
+    public long getAndResetHitCount() {
+        return hitCount.getAndSet(0);
+    }
+
+    public long getAndResetInsertCount() {
+        return insertCount.getAndSet(0);
+    }
+
+    public long getAndResetEarlyRotationCount() {
+        return earlyRotationCount.getAndSet(0);
+    }
+
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= MIX_MULTIPLIER_1;
+        key ^= key >>> 33;
+        key *= MIX_MULTIPLIER_2;
+        key ^= key >>> 33;
+        return key;
+    }
+}
@@ -0,0 +1,112 @@
+package com.newrelic.api.agent.security.utils;
+
+import com.newrelic.api.agent.security.schema.StringUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFileAttributes;
+
+/**
+ * Reads the attributes of the files checked for integrity.
+ * <p>
+ * Existence, modification time, length and permissions of a file are read with a single call to the file system,
+ * instead of one call per attribute through {@link File}.
+ */
+public final class FileAttributeReader {
+
+    private static volatile boolean posixSupported = true;
+
+    /**
+     * State of a file, as used by the file integrity check.
+     */
+    public static final class Attributes {
+
+        private static final Attributes MISSING = new Attributes(false, -1, 0, StringUtils.EMPTY);
+
+        private final boolean exists;
+
+        private final long lastModified;
+
+        private final long length;
+
+        private final String permissions;
+
+        private Attributes(boolean exists, long lastModified, long length, String permissions) {
+            this.exists = exists;
+            this.lastModified = lastModified;
+            this.length = length;
+            this.permissions = permissions;
+        }
+
+        public boolean exists() {
+            return exists;
+        }
+
+        /**
+         * @return the modification time in milliseconds, -1 if the file does not exist
+         */
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        /**
+         * @return the length in bytes, 0 if the file does not exist
+         */
+        public long getLength() {
+            return length;
+        }
+
+        /**
+         * @return the POSIX permissions, empty if the file does not exist or the file system does not support them
+         */
+        public String getPermissions() {
+            return permissions;
+        }
+    }
+
+    private FileAttributeReader() {
+    }
+
+    /**
+     * @param fileName absolute path of the file
+     * @return the current attributes of the file
+     */
+    public static Attributes getAttributes(String fileName) {
+        Path path;
+        try {
+            path = Paths.get(fileName);
+        } catch (InvalidPathException e) {
+            return Attributes.MISSING;
+        }
+        try {
+            if (posixSupported) {
+                PosixFileAttributes attributes = Files.readAttributes(path, PosixFileAttributes.class);
+                return new Attributes(true, attributes.lastModifiedTime().toMillis(), attributes.size(),
+                        attributes.permissions().toString());
+            }
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            return new Attributes(true, attributes.lastModifiedTime().toMillis(), attributes.size(), StringUtils.EMPTY);
+        } catch (UnsupportedOperationException e) {
+            posixSupported = false;
+            return getAttributes(fileName);
+        } catch (NoSuchFileException e) {
+            return Attributes.MISSING;
+        } catch (IOException | SecurityException e) {
+            // Attributes can not be read, the file may still exist.
+            return readFromFile(path.toFile());
+        }
+    }
+
+    private static Attributes readFromFile(File file) {
+        if (!file.exists()) {
+            return Attributes.MISSING;
+        }
+        return new Attributes(true, file.lastModified(), file.length(), StringUtils.EMPTY);
+    }
+}
@@ -0,0 +1,109 @@
+package com.newrelic.api.agent.security.utils;
+
+/**
+ * Looks for text that the reflected XSS check could decode into an opening angle bracket: {@code <} itself, its URL
+ * encoded forms {@code %3C} and {@code %253C}, its JSON unicode escape of code point 3C, and the XML entities starting
+ * with {@code &lt} or {@code &#}. Request data without any of them can not hold an XSS construct.
+ * <p>
+ * Text can be scanned in several chunks, a candidate split between two chunks is still found. Matching is ASCII case
+ * insensitive and stops at the first candidate.
+ */
+public final class MarkupCandidateScanner {
+
+    private static final long PERCENT_3C = pack("%3c");
+
+    private static final long PERCENT_253C = pack("%253c");
+
+    private static final long UNICODE_ESCAPE_3C = pack("\\u003c");
+
+    private static final long ENTITY_LT = pack("&lt");
+
+    private static final long ENTITY_NUMERIC = pack("&#");
+
+    /**
+     * The last characters seen, one per byte with the latest in the low order byte. Non ASCII characters are kept as
+     * zero, they are not part of any candidate.
+     */
+    private long history;
+
+    private boolean found;
+
+    /**
+     * @param c the next character of the text
+     * @return whether a candidate was found so far
+     */
+    public boolean accept(char c) {
+        if (found) {
+            return true;
+        }
+        if (c >= 'A' && c <= 'Z') {
+            c += 'a' - 'A';
+        }
+        history = (history << 8) | (c < 0x80 ? c : 0);
+        switch (c) {
+            case '<':
+                found = true;
+                break;
+            case 'c':
+                found = matches(PERCENT_3C, 3) || matches(PERCENT_253C, 5) || matches(UNICODE_ESCAPE_3C, 6);
+                break;
+            case 't':
+                found = matches(ENTITY_LT, 3);
+                break;
+            case '#':
+                found = matches(ENTITY_NUMERIC, 2);
+                break;
+            default:
+                break;
+        }
+        return found;
+    }
+
+    /**
+     * @param text  the next characters of the text
+     * @param start index of the first character to scan
+     * @param end   index after the last character to scan
+     * @return whether a candidate was found so far
+     */
+    public boolean accept(CharSequence text, int start, int end) {
+        for (int i = start; i < end && !found; i++) {
+            accept(text.charAt(i));
+        }
+        return found;
+    }
+
+    /**
+     * @return whether a candidate was found so far
+     */
+    public boolean isFound() {
+        return found;
+    }
+
+    /**
+     * Starts over, for a new text.
+     */
+    public void reset() {
+        history = 0;
+        found = false;
+    }
+
+    /**
+     * @param text the text to scan, may be {@code null}
+     * @return whether the text holds a candidate
+     */
+    public static boolean containsCandidate(CharSequence text) {
+        return text != null && new MarkupCandidateScanner().accept(text, 0, text.length());
+    }
+
+    private boolean matches(long pattern, int length) {
+        return (history & (-1L >>> (64 - 8 * length))) == pattern;
+    }
+
+    private static long pack(String pattern) {
+        long packed = 0;
+        for (int i = 0; i < pattern.length(); i++) {
+            packed = (packed << 8) | pattern.charAt(i);
+        }
+        return packed;
+    }
+}
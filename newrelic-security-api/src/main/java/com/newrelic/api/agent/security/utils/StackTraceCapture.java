@@ -0,0 +1,327 @@
+package com.newrelic.api.agent.security.utils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Captured stack of the current thread.
+ * <p>
+ * On Java 9+ the stack is walked with {@code java.lang.StackWalker}. The walked frames are kept as is and only the
+ * frames asked for through {@link #toStackTrace(int, int)} are turned into {@link StackTraceElement}s, so callers can
+ * inspect class names of the whole stack and cut it at a known boundary without paying for the frames they drop.
+ * On Java 8 the stack is captured through {@link Thread#getStackTrace()}.
+ * <p>
+ * Stacks are cut at {@value #MAX_DEPTH} frames, the default depth of the stack trace of a {@link Throwable}. The
+ * walker stops fetching frames there instead of collecting the whole stack.
+ * <p>
+ * {@code StackWalker} is looked up reflectively since this module is compiled for Java 8.
+ */
+public final class StackTraceCapture {
+
+    private static final String CLASS_NAME = StackTraceCapture.class.getName();
+
+    private static final String THREAD_CLASS_NAME = Thread.class.getName();
+
+    private static final MethodHandle WALK;
+
+    private static final MethodHandle GET_CLASS_NAME;
+
+    private static final MethodHandle TO_STACK_TRACE_ELEMENT;
+
+    private static final MethodHandle GET_DECLARING_CLASS;
+
+    private static final MethodHandle GET_METHOD_NAME;
+
+    private static final MethodHandle GET_BYTE_CODE_INDEX;
+
+    private static final long FINGERPRINT_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    private static final long CHECKSUM_MULTIPLIER = 0xC2B2AE3D27D4EB4FL;
+
+    public static final int MAX_DEPTH = 1024;
+
+    private static final Function<Stream<?>, Object[]> TO_ARRAY = new Function<Stream<?>, Object[]>() {
+        @Override
+        public Object[] apply(Stream<?> frames) {
+            return frames.limit(MAX_DEPTH).toArray();
+        }
+    };
+
+    static {
+        MethodHandle walk = null;
+        MethodHandle getClassName = null;
+        MethodHandle toStackTraceElement = null;
+        MethodHandle getDeclaringClass = null;
+        MethodHandle getMethodName = null;
+        MethodHandle getByteCodeIndex = null;
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> walkerClass = Class.forName("java.lang.StackWalker");
+            Class<?> frameClass = Class.forName("java.lang.StackWalker$StackFrame");
+            Set<Object> options = new HashSet<>();
+            for (Object option : Class.forName("java.lang.StackWalker$Option").getEnumConstants()) {
+                String name = ((Enum<?>) option).name();
+                // Keep reflection frames, as Thread#getStackTrace does.
+                if ("SHOW_REFLECT_FRAMES".equals(name) || "RETAIN_CLASS_REFERENCE".equals(name)) {
+                    options.add(option);
+                }
+            }
+            Object walker = walkerClass.getMethod("getInstance", Set.class).invoke(null, options);
+            walk = lookup.findVirtual(walkerClass, "walk", MethodType.methodType(Object.class, Function.class))
+                    .bindTo(walker);
+            getClassName = lookup.findVirtual(frameClass, "getClassName", MethodType.methodType(String.class))
+                    .asType(MethodType.methodType(String.class, Object.class));
+            toStackTraceElement = lookup.findVirtual(frameClass, "toStackTraceElement", MethodType.methodType(StackTraceElement.class))
+                    .asType(MethodType.methodType(StackTraceElement.class, Object.class));
+            getDeclaringClass = lookup.findVirtual(frameClass, "getDeclaringClass", MethodType.methodType(Class.class))
+                    .asType(MethodType.methodType(Class.class, Object.class));
+            getMethodName = lookup.findVirtual(frameClass, "getMethodName", MethodType.methodType(String.class))
+                    .asType(MethodType.methodType(String.class, Object.class));
+            getByteCodeIndex = lookup.findVirtual(frameClass, "getByteCodeIndex", MethodType.methodType(int.class))
+                    .asType(MethodType.methodType(int.class, Object.class));
+        } catch (Throwable ignored) {
+            walk = null;
+        }
+        WALK = walk;
+        GET_CLASS_NAME = getClassName;
+        TO_STACK_TRACE_ELEMENT = toStackTraceElement;
+        GET_DECLARING_CLASS = getDeclaringClass;
+        GET_METHOD_NAME = getMethodName;
+        GET_BYTE_CODE_INDEX = getByteCodeIndex;
+    }
+
+    /**
+     * StackWalker frames, or stack trace elements on Java 8.
+     */
+    private final Object[] frames;
+
+    private final boolean walked;
+
+    private final int offset;
+
+    private StackTraceCapture(Object[] frames, boolean walked, int offset) {
+        this.frames = frames;
+        this.walked = walked;
+        this.offset = offset;
+    }
+
+    /**
+     * Captures the stack of the current thread.
+     *
+     * @param skipFrames number of frames to skip above the caller of this method, {@code 0} keeps the caller
+     *                   as the first frame
+     * @return the captured stack
+     */
+    public static StackTraceCapture capture(int skipFrames) {
+        if (WALK != null) {
+            try {
+                return fromFrames(walk(), true, skipFrames);
+            } catch (Throwable ignored) {
+            }
+        }
+        StackTraceElement[] stackTrace = Thread.currentThread().getStackTrace();
+        if (stackTrace.length > MAX_DEPTH) {
+            stackTrace = Arrays.copyOf(stackTrace, MAX_DEPTH);
+        }
+        return fromFrames(stackTrace, false, skipFrames);
+    }
+
+    /**
+     * Captures the stack of the current thread as stack trace elements.
+     *
+     * @param skipFrames number of frames to skip above the caller of this method
+     * @return the captured stack trace
+     */
+    public static StackTraceElement[] captureStackTrace(int skipFrames) {
+        StackTraceCapture capture = capture(skipFrames);
+        return capture.toStackTrace(0, capture.depth());
+    }
+
+    /**
+     * Wraps an already captured stack trace.
+     *
+     * @param stackTrace the stack trace, the first element being the innermost frame
+     * @return capture over the given stack trace
+     */
+    public static StackTraceCapture of(StackTraceElement[] stackTrace) {
+        return new StackTraceCapture(stackTrace != null ? stackTrace : new StackTraceElement[0], false, 0);
+    }
+
+    private static Object[] walk() throws Throwable {
+        return (Object[]) (Object) WALK.invokeExact(TO_ARRAY);
+    }
+
+    private static StackTraceCapture fromFrames(Object[] frames, boolean walked, int skipFrames) {
+        StackTraceCapture capture = new StackTraceCapture(frames, walked, 0);
+        int offset = 0;
+        if (!walked && offset < frames.length && THREAD_CLASS_NAME.equals(capture.className(offset))) {
+            offset++;
+        }
+        while (offset < frames.length && CLASS_NAME.equals(capture.className(offset))) {
+            offset++;
+        }
+        return new StackTraceCapture(frames, walked, Math.min(offset + Math.max(skipFrames, 0), frames.length));
+    }
+
+    public int depth() {
+        return frames.length - offset;
+    }
+
+    /**
+     * Class name of the frame at given depth, without materialising the frame.
+     *
+     * @param index frame depth, {@code 0} being the innermost captured frame
+     * @return class name of the frame
+     */
+    public String getClassName(int index) {
+        return className(offset + index);
+    }
+
+    /**
+     * Computes a 64 bit fingerprint of the captured frames, without materialising them.
+     * <p>
+     * Walked frames are identified by their declaring class, method name and bytecode index, which together
+     * determine the stack trace element they would convert to. Two captures with equal fingerprints can therefore
+     * be assumed to produce the same stack trace.
+     *
+     * @return fingerprint of the captured frames
+     */
+    public long fingerprint() {
+        long fingerprint = depth();
+        try {
+            for (int i = offset; i < frames.length; i++) {
+                if (walked) {
+                    fingerprint = mix(fingerprint, System.identityHashCode((Class<?>) GET_DECLARING_CLASS.invokeExact(frames[i])));
+                    fingerprint = mix(fingerprint, ((String) GET_METHOD_NAME.invokeExact(frames[i])).hashCode());
+                    fingerprint = mix(fingerprint, (int) GET_BYTE_CODE_INDEX.invokeExact(frames[i]));
+                } else {
+                    fingerprint = mix(fingerprint, frames[i].hashCode());
+                }
+            }
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Computes a second 64 bit fingerprint of the captured frames, independent of {@link #fingerprint()}, to tell
+     * apart captures whose fingerprints collide, see {@link #matches(FrameSignature)}. It hashes the class names
+     * instead of the class identities, and mixes the values differently.
+     *
+     * @return signature of the captured frames
+     */
+    public FrameSignature signature() {
+        return new FrameSignature(walked, depth(), checksum());
+    }
+
+    /**
+     * Compares the captured frames with a signature, without materialising them.
+     *
+     * @param signature signature of a previous capture
+     * @return whether both captures hold the same frames
+     */
+    public boolean matches(FrameSignature signature) {
+        return signature.walked == walked && signature.depth == depth() && signature.checksum == checksum();
+    }
+
+    private long checksum() {
+        long checksum = ~depth();
+        for (int i = offset; i < frames.length; i++) {
+            checksum = mixChecksum(checksum, className(i).hashCode());
+            checksum = mixChecksum(checksum, methodName(i).hashCode());
+            checksum = mixChecksum(checksum, position(i));
+        }
+        return checksum;
+    }
+
+    private static long mix(long fingerprint, int value) {
+        return Long.rotateLeft((fingerprint ^ value) * FINGERPRINT_MULTIPLIER, 31);
+    }
+
+    private static long mixChecksum(long checksum, int value) {
+        return Long.rotateLeft(checksum, 27) * CHECKSUM_MULTIPLIER + value;
+    }
+
+    /**
+     * Converts the frames in given range to stack trace elements.
+     *
+     * @param from first frame depth, inclusive
+     * @param to   last frame depth, exclusive
+     * @return stack trace elements of the range
+     */
+    public StackTraceElement[] toStackTrace(int from, int to) {
+        if (!walked) {
+            return Arrays.copyOfRange(frames, offset + from, offset + to, StackTraceElement[].class);
+        }
+        StackTraceElement[] stackTrace = new StackTraceElement[to - from];
+        try {
+            for (int i = 0; i < stackTrace.length; i++) {
+                stackTrace[i] = (StackTraceElement) TO_STACK_TRACE_ELEMENT.invokeExact(frames[offset + from + i]);
+            }
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+        return stackTrace;
+    }
+
+    private String methodName(int index) {
+        if (!walked) {
+            return ((StackTraceElement) frames[index]).getMethodName();
+        }
+        try {
+            return (String) GET_METHOD_NAME.invokeExact(frames[index]);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return the bytecode index of a walked frame, the line number of a stack trace element
+     */
+    private int position(int index) {
+        if (!walked) {
+            return ((StackTraceElement) frames[index]).getLineNumber();
+        }
+        try {
+            return (int) GET_BYTE_CODE_INDEX.invokeExact(frames[index]);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String className(int index) {
+        if (!walked) {
+            return ((StackTraceElement) frames[index]).getClassName();
+        }
+        try {
+            return (String) GET_CLASS_NAME.invokeExact(frames[index]);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Depth and second fingerprint of a capture, a fixed size stand-in for its frames.
+     */
+    public static final class FrameSignature {
+
+        private final boolean walked;
+
+        private final int depth;
+
+        private final long checksum;
+
+        private FrameSignature(boolean walked, int depth, long checksum) {
+            this.walked = walked;
+            this.depth = depth;
+            this.checksum = checksum;
+        }
+    }
+}
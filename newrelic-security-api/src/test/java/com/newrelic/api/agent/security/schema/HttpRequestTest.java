@@ -0,0 +1,60 @@
+package com.newrelic.api.agent.security.schema;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+
+public class HttpRequestTest {
+
+    @Test
+    public void snapshotIsSharedWhileUnchanged() {
+        HttpRequest request = new HttpRequest();
+        request.setUrl("/index");
+        request.getHeaders().put("host", "localhost");
+        HttpRequest snapshot = request.snapshot();
+        Assert.assertSame(snapshot, request.snapshot());
+        request.getHeaders().get("host");
+        Assert.assertSame(snapshot, request.snapshot());
+    }
+
+    @Test
+    public void headersWrittenInPlaceRenewSnapshot() {
+        HttpRequest request = new HttpRequest();
+        HttpRequest snapshot = request.snapshot();
+        request.getHeaders().put("host", "localhost");
+        HttpRequest renewed = request.snapshot();
+        Assert.assertNotSame(snapshot, renewed);
+        Assert.assertEquals("localhost", renewed.getHeaders().get("host"));
+    }
+
+    @Test
+    public void parametersWrittenInPlaceRenewSnapshot() {
+        HttpRequest request = new HttpRequest();
+        request.setParameterMap(new HashMap<>());
+        HttpRequest snapshot = request.snapshot();
+        request.getParameterMap().putIfAbsent("q", new String[]{"1"});
+        HttpRequest renewed = request.snapshot();
+        Assert.assertNotSame(snapshot, renewed);
+        Assert.assertArrayEquals(new String[]{"1"}, renewed.getParameterMap().get("q"));
+    }
+
+    @Test
+    public void pathParametersRenewSnapshot() {
+        HttpRequest request = new HttpRequest();
+        HttpRequest snapshot = request.snapshot();
+        request.setPathParameterMap(Collections.singletonMap("id", "1"));
+        Assert.assertNotSame(snapshot, request.snapshot());
+    }
+
+    @Test
+    public void bodyAppendRenewsSnapshot() {
+        HttpRequest request = new HttpRequest();
+        HttpRequest snapshot = request.snapshot();
+        request.getBody().append("a=1");
+        HttpRequest renewed = request.snapshot();
+        Assert.assertNotSame(snapshot, renewed);
+        Assert.assertEquals("a=1", renewed.getBody().toString());
+    }
+}
@@ -0,0 +1,56 @@
+package com.newrelic.api.agent.security.schema;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SecurityMetaDataTest {
+
+    @Test
+    public void lockKeepsMetaDataUntouched() {
+        SecurityMetaData securityMetaData = new SecurityMetaData();
+        Assert.assertTrue(securityMetaData.getReentrancyGuard().tryAcquire(1, 0));
+        Assert.assertTrue(securityMetaData.isUntouched());
+        securityMetaData.getReentrancyGuard().release(1, 0);
+        Assert.assertTrue(securityMetaData.isUntouched());
+    }
+
+    @Test
+    public void requestAccessTouchesMetaData() {
+        SecurityMetaData securityMetaData = new SecurityMetaData();
+        securityMetaData.getRequest();
+        Assert.assertFalse(securityMetaData.isUntouched());
+    }
+
+    @Test
+    public void renewKeepsReentrancyGuard() {
+        SecurityMetaData securityMetaData = new SecurityMetaData();
+        Assert.assertTrue(securityMetaData.getReentrancyGuard().tryAcquire(1, 0));
+        securityMetaData.getRequest();
+
+        SecurityMetaData renewed = securityMetaData.renew();
+        Assert.assertTrue(renewed.isUntouched());
+        Assert.assertSame(securityMetaData.getReentrancyGuard(), renewed.getReentrancyGuard());
+        Assert.assertTrue(renewed.getReentrancyGuard().isHeld(1, 0));
+        renewed.getReentrancyGuard().release(1, 0);
+        Assert.assertFalse(securityMetaData.getReentrancyGuard().isHeld(1, 0));
+    }
+
+    @Test
+    public void transactionScopedLockIsSharedAcrossThreads() throws InterruptedException {
+        ReentrancyGuard guard = new SecurityMetaData().getReentrancyGuard();
+        Assert.assertTrue(guard.tryAcquire(1, 0, false));
+        Assert.assertTrue(guard.tryAcquire(1, 0));
+        boolean[] heldElsewhere = new boolean[2];
+        Thread other = new Thread(() -> {
+            heldElsewhere[0] = guard.isHeld(1, 0, false);
+            heldElsewhere[1] = guard.isHeld(1, 0);
+            guard.release(1, 0, false);
+        });
+        other.start();
+        other.join();
+        Assert.assertTrue(heldElsewhere[0]);
+        Assert.assertFalse(heldElsewhere[1]);
+        Assert.assertFalse(guard.isHeld(1, 0, false));
+        Assert.assertTrue(guard.isHeld(1, 0));
+    }
+}
@@ -0,0 +1,51 @@
+package com.newrelic.api.agent.security.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class StackTraceCaptureTest {
+
+    @Test
+    public void captureStartsAtCaller() {
+        StackTraceCapture capture = StackTraceCapture.capture(0);
+        Assert.assertEquals(StackTraceCaptureTest.class.getName(), capture.getClassName(0));
+        StackTraceElement[] stackTrace = capture.toStackTrace(0, 1);
+        Assert.assertEquals("captureStartsAtCaller", stackTrace[0].getMethodName());
+    }
+
+    @Test
+    public void sameCallSiteHasSameFingerprint() {
+        long[] fingerprints = new long[2];
+        for (int i = 0; i < fingerprints.length; i++) {
+            fingerprints[i] = StackTraceCapture.capture(0).fingerprint();
+        }
+        Assert.assertEquals(fingerprints[0], fingerprints[1]);
+        Assert.assertNotEquals(fingerprints[0], StackTraceCapture.capture(0).fingerprint());
+    }
+
+    @Test
+    public void signatureMatchesSameFramesOnly() {
+        StackTraceCapture.FrameSignature[] signatures = new StackTraceCapture.FrameSignature[2];
+        StackTraceCapture[] captures = new StackTraceCapture[2];
+        for (int i = 0; i < captures.length; i++) {
+            captures[i] = StackTraceCapture.capture(0);
+            signatures[i] = captures[i].signature();
+        }
+        Assert.assertTrue(captures[0].matches(signatures[1]));
+        Assert.assertTrue(captures[1].matches(signatures[0]));
+        Assert.assertFalse(StackTraceCapture.capture(0).matches(signatures[0]));
+        Assert.assertFalse(captureAt(1).matches(signatures[0]));
+    }
+
+    @Test
+    public void deepStackIsBounded() {
+        Assert.assertTrue(captureAt(2 * StackTraceCapture.MAX_DEPTH).depth() <= StackTraceCapture.MAX_DEPTH);
+    }
+
+    private static StackTraceCapture captureAt(int depth) {
+        if (depth == 0) {
+            return StackTraceCapture.capture(0);
+        }
+        return captureAt(depth - 1);
+    }
+}